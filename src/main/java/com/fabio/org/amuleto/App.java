@@ -1,10 +1,25 @@
 package com.fabio.org.amuleto;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
 import javax.swing.SwingUtilities;
 import javax.swing.UIManager;
 
+import com.fabio.org.amuleto.converter.UMLClustering;
+import com.fabio.org.amuleto.converter.UMLDependencyReport;
+import com.fabio.org.amuleto.converter.UMLDiagramSelection;
+import com.fabio.org.amuleto.converter.UMLDiagramWatcher;
+import com.fabio.org.amuleto.converter.UMLGenerationOptions;
 import com.fabio.org.amuleto.converter.UMLGenerator;
+import com.fabio.org.amuleto.converter.UMLMemberDetail;
+import com.fabio.org.amuleto.converter.UMLVectorGenerator;
+import com.fabio.org.amuleto.utils.UMLSourceSet;
+import com.fabio.org.amuleto.utils.UMLTypeClassifier;
 import com.fabio.org.amuleto.view.GraphicalEditorUI;
 import com.formdev.flatlaf.FlatDarkLaf;
 import net.sourceforge.plantuml.FileFormat;
@@ -16,7 +31,77 @@ public class App {
       System.out.println("Utilizzo:");
       System.out.println("  Per avviare l'interfaccia grafica: java -jar app.jar gui");
       System.out.println("  Per generare un diagramma UML a partire dal codice Java:");
-      System.out.println("       java -jar app.jar <percorso_progetto> [percorso_output]");
+      System.out.println(
+          "       java -jar app.jar <percorso_progetto|archivio.jar> [output...] [opzioni]");
+      System.out.println(
+          "       gli output (.puml, .svg, .png) condividono un'unica analisi"
+              + " (default diagramma.svg)");
+      System.out.println("  Per rigenerare il diagramma a ogni modifica dei sorgenti:");
+      System.out.println("       java -jar app.jar watch <percorso_progetto> [opzioni]");
+      System.out.println("  Opzioni:");
+      System.out.println("       --include <glob>   file sorgente da includere (default *.java)");
+      System.out.println(
+          "       --exclude <glob>   file o directory da escludere"
+              + " (default target, build, .git, node_modules)");
+      System.out.println(
+          "       --threads <n>      thread dello stadio di parsing (default: core)");
+      System.out.println("       --bytecode         legge i .class compilati invece dei sorgenti");
+      System.out.println(
+          "       --declarations-only analizza solo le dichiarazioni, ignorando i corpi dei membri");
+      System.out.println(
+          "       --archives         legge anche i .jar/.zip di sorgenti trovati nella directory");
+      System.out.println(
+          "       --max-errors <n>   file non analizzabili tollerati (default 0, -1 nessun limite)");
+      System.out.println(
+          "       --parse-timeout <ms> tempo massimo di parsing per file (default nessuno)");
+      System.out.println(
+          "       --type-table <file> righe aggiuntive della tabella dei tipi"
+              + " (categoria[:posizione[:molteplicità]] nomi...)");
+      System.out.println(
+          "       --wrapper <nome[:pos]> tipo wrapper dell'utente e posizione dell'elemento"
+              + " (default 0)");
+      System.out.println(
+          "       --detail <names|public|protected|all> membri rappresentati (default all)");
+      System.out.println(
+          "       --accessors        riduce getter e setter a proprietà dei relativi attributi");
+      System.out.println(
+          "       --report <json|csv> resoconto di dipendenze, cicli e accoppiamento"
+              + " accanto al diagramma");
+      System.out.println(
+          "       --focus <tipo>     rappresenta solo i tipi vicini al tipo indicato"
+              + " (ripetibile, nome qualificato o semplice)");
+      System.out.println(
+          "       --depth <n>        distanza massima dai tipi di --focus (default 1)");
+      System.out.println(
+          "       --direction <in|out|both> verso delle relazioni seguite da --focus"
+              + " (default both)");
+      System.out.println(
+          "       --top <k>          rappresenta solo i k tipi più centrali, con il numero"
+              + " di tipi collegati omessi");
+      System.out.println(
+          "       --rank <pagerank|degree> misura di centralità usata da --top"
+              + " (default pagerank)");
+      System.out.println(
+          "       --packages <n>     un nodo per package, o per prefisso di n segmenti"
+              + " (0 package completo), con il numero di relazioni sugli archi");
+      System.out.println(
+          "       --clusters <package|together> raggruppa i tipi fortemente accoppiati"
+              + " invece che per package");
+      System.out.println(
+          "       --shards <n>       un'immagine per package, o per prefisso di n segmenti,"
+              + " renderizzate in parallelo, con un indice .svg/.html");
+      System.out.println(
+          "       --layout <dot|smetana> motore di layout delle immagini: Graphviz esterno"
+              + " o Smetana, in Java (default dot)");
+      System.out.println(
+          "       --cache <dir>      cache di estrazione e delle immagini renderizzate,"
+              + " riusate se il testo del diagramma non cambia");
+      System.out.println(
+          "       --debounce <ms>    in modalità watch, quiete attesa dopo una modifica prima di"
+              + " rigenerare (default 300)");
+      System.out.println(
+          "       --skip-unchanged   non riscrive i file di output il cui contenuto non è"
+              + " cambiato");
       System.exit(1);
     } else if (args[0].equalsIgnoreCase("gui")) {
 
@@ -32,21 +117,222 @@ public class App {
             GraphicalEditorUI editor = new GraphicalEditorUI();
             editor.setVisible(true);
           });
+    } else if (args[0].equalsIgnoreCase("watch")) {
+      // Modalità watch: rigenerazione incrementale a ogni modifica
+      List<String> positional = new ArrayList<>();
+      UMLGenerationOptions options =
+          parseOptions(Arrays.copyOfRange(args, 1, args.length), positional);
+      if (positional.isEmpty() || !new File(positional.get(0)).isDirectory()) {
+        System.err.println("Errore: indicare una directory di sorgenti esistente.");
+        System.exit(1);
+      }
+      File outputPuml = new File("diagramma.puml");
+      File outputSVG = new File("diagramma.svg");
+      try (UMLDiagramWatcher watcher =
+          new UMLDiagramWatcher(
+              new File(positional.get(0)), outputPuml, outputSVG, FileFormat.SVG, options)) {
+        System.out.println(
+            "In ascolto su "
+                + positional.get(0)
+                + " (output: "
+                + outputSVG.getAbsolutePath()
+                + ")");
+        watcher.run();
+      }
     } else {
       // Modalità command line: forward engineering (Java code -> UML)
-      String sourceDirPath = args[0];
-      // String outputFilePath = (args.length >= 2) ? args[1] : "diagramma.puml";
+      List<String> positional = new ArrayList<>();
+      UMLGenerationOptions options = parseOptions(args, positional);
+      if (positional.isEmpty()) {
+        System.err.println("Errore: percorso del progetto mancante.");
+        System.exit(1);
+      }
+      String sourceDirPath = positional.get(0);
 
       File sourceDir = new File(sourceDirPath);
-      if (!sourceDir.exists() || !sourceDir.isDirectory()) {
-        System.err.println("Errore: " + sourceDirPath + " non esiste o non è una directory.");
+      if (!sourceDir.isDirectory()
+          && !(sourceDir.isFile() && UMLSourceSet.isArchive(sourceDir.toPath()))) {
+        System.err.println(
+            "Errore: " + sourceDirPath + " non esiste o non è una directory o un archivio.");
         System.exit(1);
       }
 
-      File outputSVG = new File("diagramma.svg");
+      // Tutti gli output richiesti condividono un'unica analisi del progetto
+      List<UMLGenerator.Output> outputs = new ArrayList<>();
+      for (String outputPath : positional.subList(1, positional.size())) {
+        outputs.add(UMLGenerator.Output.forFile(new File(outputPath)));
+      }
+      if (outputs.isEmpty()) {
+        outputs.add(UMLGenerator.Output.image(new File("diagramma.svg"), FileFormat.SVG));
+      }
+      UMLGenerator.generate(sourceDir, outputs, options);
+      for (UMLGenerator.Output output : outputs) {
+        System.out.println("Diagramma UML generato: " + output.getFile().getAbsolutePath());
+      }
+    }
+  }
 
-      UMLGenerator.generateVectorFromDirectory(sourceDir, outputSVG, FileFormat.SVG);
-      System.out.println("Diagramma UML generato in formato SVG: " + outputSVG.getAbsolutePath());
+  /**
+   * Interpreta le opzioni della riga di comando. Le opzioni accettano il valore sia come argomento
+   * successivo ({@code --exclude target}) sia dopo il segno di uguale ({@code --exclude=target});
+   * gli argomenti che non sono opzioni vengono aggiunti a {@code positional}.
+   */
+  static UMLGenerationOptions parseOptions(String[] args, List<String> positional) {
+    UMLGenerationOptions options = new UMLGenerationOptions();
+    List<String> includes = new ArrayList<>();
+    List<String> excludes = new ArrayList<>();
+    UMLTypeClassifier.Builder types = null;
+    UMLMemberDetail.Level detail = UMLMemberDetail.Level.ALL;
+    boolean accessors = false;
+    for (int i = 0; i < args.length; i++) {
+      String arg = args[i];
+      if (!arg.startsWith("--")) {
+        positional.add(arg);
+        continue;
+      }
+      if (arg.equals("--declarations-only")) {
+        options.setDeclarationsOnly(true);
+        continue;
+      }
+      if (arg.equals("--archives")) {
+        options.setScanArchives(true);
+        continue;
+      }
+      if (arg.equals("--skip-unchanged")) {
+        options.setSkipUnchanged(true);
+        continue;
+      }
+      if (arg.equals("--accessors")) {
+        accessors = true;
+        continue;
+      }
+      if (arg.equals("--bytecode")) {
+        includes.add("*.class");
+        continue;
+      }
+      String name = arg;
+      String value;
+      int eq = arg.indexOf('=');
+      if (eq >= 0) {
+        name = arg.substring(0, eq);
+        value = arg.substring(eq + 1);
+      } else if (i + 1 < args.length) {
+        value = args[++i];
+      } else {
+        throw new IllegalArgumentException("Valore mancante per l'opzione " + arg);
+      }
+      switch (name) {
+        case "--include":
+          includes.add(value);
+          break;
+        case "--exclude":
+          excludes.add(value);
+          break;
+        case "--cache":
+          options.setCacheDirectory(new File(value));
+          break;
+        case "--debounce":
+          options.setWatchDebounceMillis(Long.parseLong(value));
+          break;
+        case "--threads":
+          options.setParserThreads(Integer.parseInt(value));
+          break;
+        case "--max-errors":
+          options.setMaxParseErrors(Integer.parseInt(value));
+          break;
+        case "--parse-timeout":
+          options.setParseTimeoutMillis(Long.parseLong(value));
+          break;
+        case "--type-table":
+          types = types != null ? types : UMLTypeClassifier.builder();
+          try {
+            types.load(Paths.get(value));
+          } catch (IOException e) {
+            throw new IllegalArgumentException("Impossibile leggere la tabella dei tipi: " + value);
+          }
+          break;
+        case "--wrapper":
+          {
+            types = types != null ? types : UMLTypeClassifier.builder();
+            int colon = value.indexOf(':');
+            String position = colon < 0 ? "0" : value.substring(colon + 1);
+            types.add(
+                "wrapper:" + position + " " + (colon < 0 ? value : value.substring(0, colon)));
+            break;
+          }
+        case "--detail":
+          try {
+            detail = UMLMemberDetail.Level.valueOf(value.toUpperCase(Locale.ROOT));
+          } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Livello di dettaglio non valido: " + value);
+          }
+          break;
+        case "--report":
+          try {
+            options.setReportFormat(
+                UMLDependencyReport.Format.valueOf(value.toUpperCase(Locale.ROOT)));
+          } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Formato del resoconto non valido: " + value);
+          }
+          break;
+        case "--focus":
+          options.getFocusTypes().add(value);
+          break;
+        case "--depth":
+          options.setFocusDepth(Integer.parseInt(value));
+          break;
+        case "--direction":
+          try {
+            options.setFocusDirection(
+                UMLDiagramSelection.Direction.valueOf(value.toUpperCase(Locale.ROOT)));
+          } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Verso non valido: " + value);
+          }
+          break;
+        case "--top":
+          options.setTopTypes(Integer.parseInt(value));
+          break;
+        case "--rank":
+          try {
+            options.setRanking(UMLDiagramSelection.Ranking.valueOf(value.toUpperCase(Locale.ROOT)));
+          } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Misura di centralità non valida: " + value);
+          }
+          break;
+        case "--clusters":
+          try {
+            options.setClusterStyle(UMLClustering.Style.valueOf(value.toUpperCase(Locale.ROOT)));
+          } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Forma dei gruppi non valida: " + value);
+          }
+          break;
+        case "--packages":
+          options.setOverviewDepth(Integer.parseInt(value));
+          break;
+        case "--shards":
+          options.setShardDepth(Integer.parseInt(value));
+          break;
+        case "--layout":
+          try {
+            options.setLayout(UMLVectorGenerator.Layout.valueOf(value.toUpperCase(Locale.ROOT)));
+          } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Motore di layout non valido: " + value);
+          }
+          break;
+        default:
+          throw new IllegalArgumentException("Opzione sconosciuta: " + name);
+      }
+    }
+    if (types != null) {
+      options.setTypeClassifier(types.build());
+    }
+    options.setMemberDetail(new UMLMemberDetail(detail, accessors));
+    if (!includes.isEmpty()) {
+      options.setIncludeGlobs(includes);
+    }
+    if (!excludes.isEmpty()) {
+      options.getExcludeGlobs().addAll(excludes);
     }
+    return options;
   }
 }
@@ -1,10 +1,11 @@
 package com.fabio.org.amuleto.converter;
 
-import java.util.Set;
-
+import com.fabio.org.amuleto.model.UMLClass;
+import com.fabio.org.amuleto.model.UMLRelationship;
+import com.fabio.org.amuleto.utils.UMLTypeClassifier;
 import com.fabio.org.amuleto.utils.UMLUtils;
+import com.fabio.org.amuleto.view.RelationshipType;
 import com.github.javaparser.ast.body.FieldDeclaration;
-import com.github.javaparser.ast.type.ClassOrInterfaceType;
 import com.github.javaparser.ast.type.Type;
 
 public class UMLAssociationProcessor {
@@ -12,49 +13,55 @@ public class UMLAssociationProcessor {
   public static void processAssociation(
       Type fieldType,
       FieldDeclaration field,
-      String className,
       String fieldName,
-      StringBuilder uml,
-      StringBuilder relationships,
-      Set<String> definedTypes) {
-    String associatedType = null;
-    boolean isCollection = false;
-    if (fieldType.isClassOrInterfaceType()) {
-      ClassOrInterfaceType cit = fieldType.asClassOrInterfaceType();
-      String typeName = cit.getNameAsString();
-      if (UMLUtils.isCollectionType(typeName)) {
-        isCollection = true;
-        if (cit.getTypeArguments().isPresent() && !cit.getTypeArguments().get().isEmpty()) {
-          Type argType = cit.getTypeArguments().get().get(0);
-          associatedType = UMLUtils.getTypeString(argType);
-        }
+      UMLClass.Builder umlClass,
+      UMLTypeClassifier classifier) {
+    addAssociation(
+        umlClass,
+        classifier,
+        UMLUtils.getTypeString(fieldType),
+        UMLUtils.hasAnnotation(field, "composition"),
+        UMLUtils.hasAnnotation(field, "aggregation"),
+        fieldName);
+  }
+
+  /**
+   * Aggiunge al tipo l'associazione dovuta a un attributo, se il suo tipo non è primitivo né un
+   * tipo valore di Java. Contenitori e wrapper producono un'associazione verso il tipo del loro
+   * elemento, con la molteplicità indicata dal classificatore.
+   *
+   * @param fieldType Il tipo completo dell'attributo, come scritto nel sorgente.
+   */
+  static void addAssociation(
+      UMLClass.Builder umlClass,
+      UMLTypeClassifier classifier,
+      String fieldType,
+      boolean composition,
+      boolean aggregation,
+      String fieldName) {
+    String associatedType = fieldType;
+    String multiplicity = "1";
+    UMLTypeClassifier.TypeInfo container = classifier.lookup(fieldType);
+    if (container != null && container.getElementIndex() >= 0) {
+      associatedType = classifier.elementType(fieldType);
+      multiplicity = container.getMultiplicity();
+      if (associatedType == null) {
+        // Contenitore senza argomenti di tipo: l'elemento non è noto
+        return;
       }
     }
-    if (associatedType == null) {
-      String fieldTypeStr = UMLUtils.getTypeString(fieldType);
-      if (!UMLUtils.isPrimitiveOrJavaType(fieldTypeStr)
-          && Character.isUpperCase(fieldTypeStr.charAt(0))) {
-        associatedType = fieldTypeStr;
-      }
+    if (classifier.isValueType(associatedType)
+        || !Character.isUpperCase(associatedType.charAt(0))) {
+      return;
     }
-    if (associatedType != null) {
-      String arrow = " --> ";
-      if (UMLUtils.hasAnnotation(field, "composition")) {
-        arrow = " *-->";
-      } else if (UMLUtils.hasAnnotation(field, "aggregation")) {
-        arrow = " o-->";
-      }
-      String multiplicity = isCollection ? "\"0..*\"" : "\"1\"";
-      relationships
-          .append(className)
-          .append(" \"1\"")
-          .append(arrow)
-          .append(multiplicity)
-          .append(" ")
-          .append(associatedType)
-          .append(" : ")
-          .append(fieldName)
-          .append("\n");
+    RelationshipType type = RelationshipType.ASSOCIATION;
+    if (composition) {
+      type = RelationshipType.COMPOSITION;
+    } else if (aggregation) {
+      type = RelationshipType.AGGREGATION;
     }
+    umlClass.addRelationship(
+        new UMLRelationship(
+            type, umlClass.getName(), associatedType, fieldName, "1", multiplicity));
   }
 }
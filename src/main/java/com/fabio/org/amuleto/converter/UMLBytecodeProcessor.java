@@ -0,0 +1,513 @@
+package com.fabio.org.amuleto.converter;
+
+import static com.fabio.org.amuleto.converter.UMLClassFileReader.ACC_ABSTRACT;
+import static com.fabio.org.amuleto.converter.UMLClassFileReader.ACC_ANNOTATION;
+import static com.fabio.org.amuleto.converter.UMLClassFileReader.ACC_BRIDGE;
+import static com.fabio.org.amuleto.converter.UMLClassFileReader.ACC_ENUM;
+import static com.fabio.org.amuleto.converter.UMLClassFileReader.ACC_FINAL;
+import static com.fabio.org.amuleto.converter.UMLClassFileReader.ACC_INTERFACE;
+import static com.fabio.org.amuleto.converter.UMLClassFileReader.ACC_MODULE;
+import static com.fabio.org.amuleto.converter.UMLClassFileReader.ACC_PRIVATE;
+import static com.fabio.org.amuleto.converter.UMLClassFileReader.ACC_PROTECTED;
+import static com.fabio.org.amuleto.converter.UMLClassFileReader.ACC_PUBLIC;
+import static com.fabio.org.amuleto.converter.UMLClassFileReader.ACC_STATIC;
+import static com.fabio.org.amuleto.converter.UMLClassFileReader.ACC_SYNTHETIC;
+import static com.fabio.org.amuleto.converter.UMLClassFileReader.ACC_VARARGS;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import com.fabio.org.amuleto.converter.UMLClassFileReader.ClassInfo;
+import com.fabio.org.amuleto.converter.UMLClassFileReader.MemberInfo;
+import com.fabio.org.amuleto.model.UMLClass;
+import com.fabio.org.amuleto.model.UMLMember;
+import com.fabio.org.amuleto.utils.UMLTypeClassifier;
+
+/**
+ * Front end alternativo che costruisce il modello intermedio dai class file compilati invece che
+ * dai sorgenti. Produce gli stessi membri e le stesse relazioni della catena {@link
+ * UMLTypeProcessor}, {@link UMLFieldProcessor}, {@link UMLConstructorProcessor} e {@link
+ * UMLMethodProcessor}, usando i loro metodi di supporto.
+ *
+ * <p>I tipi vengono mostrati con il nome semplice (ad esempio {@code List<String>}), ricavato dalle
+ * firme generiche quando presenti. Alcune informazioni esistono solo nel sorgente e vengono
+ * approssimate:
+ *
+ * <ul>
+ *   <li>i nomi dei parametri richiedono {@code -parameters}, oppure {@code -g} per i metodi con
+ *       corpo; in mancanza si usano {@code arg0}, {@code arg1}, ...;
+ *   <li>le annotazioni con ritenzione {@code SOURCE} non sono disponibili;
+ *   <li>i membri delle interfacce vengono mostrati senza i modificatori impliciti, come li si
+ *       scrive di solito nel sorgente;
+ *   <li>il costruttore predefinito generato dal compilatore viene omesso solo se non esegue
+ *       inizializzatori di attributi, altrimenti è indistinguibile da uno esplicito; per lo stesso
+ *       motivo viene omesso anche un costruttore esplicito vuoto senza parametri con la stessa
+ *       visibilità della classe;
+ *   <li>di un record, rappresentato come una classe, vengono omessi il costruttore canonico, gli
+ *       accessori che restituiscono solo il componente e {@code toString}, {@code hashCode} ed
+ *       {@code equals} final, anche se scritti esplicitamente nel sorgente.
+ * </ul>
+ */
+public class UMLBytecodeProcessor {
+
+  /**
+   * Estrae il tipo di un class file. Le classi annidate, locali, anonime o sintetiche e i
+   * descrittori di modulo e di package non producono tipi, come nel front end dei sorgenti che
+   * considera solo i tipi di primo livello. Usa la classificazione dei tipi predefinita.
+   *
+   * @param bytes Il contenuto del class file.
+   * @return Il tipo estratto, oppure una lista vuota.
+   * @throws IOException Se il contenuto non è un class file valido.
+   */
+  public static List<UMLClass> extract(byte[] bytes) throws IOException {
+    return extract(bytes, UMLTypeClassifier.defaults());
+  }
+
+  /**
+   * Estrae il tipo di un class file, classificando i tipi di attributi e parametri con il
+   * classificatore indicato.
+   *
+   * @param bytes Il contenuto del class file.
+   * @param classifier Il classificatore dei tipi.
+   * @return Il tipo estratto, oppure una lista vuota.
+   * @throws IOException Se il contenuto non è un class file valido.
+   */
+  public static List<UMLClass> extract(byte[] bytes, UMLTypeClassifier classifier)
+      throws IOException {
+    ClassInfo info = UMLClassFileReader.read(bytes);
+    if (info.nested
+        || (info.access & (ACC_SYNTHETIC | ACC_MODULE)) != 0
+        || info.name.endsWith("package-info")) {
+      return Collections.emptyList();
+    }
+    int slash = info.name.lastIndexOf('/');
+    String packageName = slash < 0 ? "" : info.name.substring(0, slash).replace('/', '.');
+    String className = info.name.substring(slash + 1);
+
+    if ((info.access & ACC_ANNOTATION) != 0) {
+      return Collections.singletonList(
+          new UMLClass.Builder(packageName, className, UMLClass.Kind.OTHER).build());
+    }
+    if ((info.access & ACC_ENUM) != 0) {
+      UMLClass.Builder umlClass = new UMLClass.Builder(packageName, className, UMLClass.Kind.ENUM);
+      for (MemberInfo field : info.fields) {
+        if ((field.access & ACC_ENUM) != 0) {
+          umlClass.addMember(UMLMember.enumConstant(field.name));
+        }
+      }
+      return Collections.singletonList(umlClass.build());
+    }
+    return Collections.singletonList(processClass(info, packageName, className, classifier));
+  }
+
+  private static UMLClass processClass(
+      ClassInfo info, String packageName, String className, UMLTypeClassifier classifier) {
+    boolean isInterface = (info.access & ACC_INTERFACE) != 0;
+    boolean isRecord = "java/lang/Record".equals(info.superName);
+    UMLClass.Kind kind;
+    if (isInterface) {
+      kind = UMLClass.Kind.INTERFACE;
+    } else if ((info.access & ACC_ABSTRACT) != 0) {
+      kind = UMLClass.Kind.ABSTRACT_CLASS;
+    } else {
+      kind = UMLClass.Kind.CLASS;
+    }
+    UMLClass.Builder umlClass = new UMLClass.Builder(packageName, className, kind);
+    boolean isAssociationClass = false;
+    for (String annotation : info.annotations) {
+      if (simpleName(annotation).equalsIgnoreCase("AssociationClass")) {
+        isAssociationClass = true;
+        break;
+      }
+    }
+    umlClass.setAssociationClass(isAssociationClass);
+    // Nel class file i nomi sono già qualificati: ogni tipo referenziato diventa
+    // un'importazione esplicita, così che la risoluzione non debba indovinare
+    Set<String> imports = new LinkedHashSet<>();
+
+    // Attributi
+    for (MemberInfo field : info.fields) {
+      if ((field.access & ACC_SYNTHETIC) != 0) {
+        continue;
+      }
+      // Le costanti delle interfacce sono implicitamente public static final
+      int access =
+          isInterface ? field.access & ~(ACC_PUBLIC | ACC_STATIC | ACC_FINAL) : field.access;
+      List<String> annotationNames = simpleNames(field.annotations);
+      TypeRef type =
+          new SignatureParser(field.signature != null ? field.signature : field.descriptor, imports)
+              .parseType();
+      UMLFieldProcessor.addField(
+          umlClass,
+          visibility(access, annotationNames),
+          (access & ACC_STATIC) != 0,
+          (access & ACC_FINAL) != 0,
+          annotationNames,
+          field.name,
+          type.display);
+      if (!isAssociationClass) {
+        UMLAssociationProcessor.addAssociation(
+            umlClass,
+            classifier,
+            type.display,
+            containsIgnoreCase(annotationNames, "composition"),
+            containsIgnoreCase(annotationNames, "aggregation"),
+            field.name);
+      }
+    }
+
+    // Costruttori: quello predefinito generato dal compilatore non compare nel sorgente, come il
+    // costruttore canonico di un record
+    String canonical = isRecord ? canonicalDescriptor(info) : null;
+    for (MemberInfo method : info.methods) {
+      if (!method.name.equals("<init>")
+          || (method.access & ACC_SYNTHETIC) != 0
+          || isDefaultConstructor(info, method)
+          || method.descriptor.equals(canonical)) {
+        continue;
+      }
+      MethodSignature signature = MethodSignature.of(method, imports);
+      List<String> annotationNames = simpleNames(method.annotations);
+      umlClass.addMember(
+          UMLMember.constructor(
+              visibility(method.access, annotationNames), className, signature.parameters));
+    }
+
+    // Metodi
+    for (MemberInfo method : info.methods) {
+      if (method.name.startsWith("<")
+          || (method.access & (ACC_SYNTHETIC | ACC_BRIDGE)) != 0
+          || isRecord && isGeneratedRecordMethod(info, method)) {
+        continue;
+      }
+      // I metodi delle interfacce sono implicitamente public e, se senza corpo, abstract
+      int access = isInterface ? method.access & ~(ACC_PUBLIC | ACC_ABSTRACT) : method.access;
+      MethodSignature signature = MethodSignature.of(method, imports);
+      List<String> annotationNames = simpleNames(method.annotations);
+      UMLMethodProcessor.addMethod(
+          umlClass,
+          classifier,
+          visibility(access, annotationNames),
+          (access & ACC_STATIC) != 0,
+          (access & ACC_FINAL) != 0,
+          (access & ACC_ABSTRACT) != 0,
+          method.name,
+          signature.parameters,
+          signature.returnType);
+    }
+
+    // Ereditarietà e implementazioni, esclusi i supertipi impliciti
+    if (!isAssociationClass) {
+      if (isInterface) {
+        for (String extended : info.interfaces) {
+          UMLTypeProcessor.addInheritance(umlClass, rawName(extended));
+          addImport(imports, extended);
+        }
+      } else {
+        if (info.superName != null && !info.superName.equals("java/lang/Object") && !isRecord) {
+          UMLTypeProcessor.addInheritance(umlClass, rawName(info.superName));
+          addImport(imports, info.superName);
+        }
+        for (String implemented : info.interfaces) {
+          UMLTypeProcessor.addImplementation(umlClass, rawName(implemented));
+          addImport(imports, implemented);
+        }
+      }
+    }
+    imports.forEach(umlClass::addImport);
+    return umlClass.build();
+  }
+
+  /**
+   * Verifica se un costruttore può essere quello predefinito generato dal compilatore: senza
+   * parametri, limitato a invocare {@code super()} e con la stessa visibilità della classe. Un
+   * costruttore privato o protetto, come quello delle classi di utilità, è sempre esplicito.
+   */
+  private static boolean isDefaultConstructor(ClassInfo info, MemberInfo method) {
+    int visibility = ACC_PUBLIC | ACC_PROTECTED | ACC_PRIVATE;
+    return method.trivialConstructor
+        && method.descriptor.equals("()V")
+        && (method.access & visibility) == (info.access & ACC_PUBLIC);
+  }
+
+  /**
+   * Descrittore del costruttore canonico di un record: i componenti sono gli attributi d'istanza.
+   */
+  private static String canonicalDescriptor(ClassInfo info) {
+    StringBuilder descriptor = new StringBuilder("(");
+    for (MemberInfo field : info.fields) {
+      if ((field.access & ACC_STATIC) == 0) {
+        descriptor.append(field.descriptor);
+      }
+    }
+    return descriptor.append(")V").toString();
+  }
+
+  /**
+   * Verifica se un metodo di un record è tra quelli generati dal compilatore: gli accessori dei
+   * componenti che si limitano a restituirli e {@code toString}, {@code hashCode} ed {@code equals}
+   * final.
+   */
+  private static boolean isGeneratedRecordMethod(ClassInfo info, MemberInfo method) {
+    if ((method.access & ACC_FINAL) != 0
+        && (method.name.equals("toString") && method.descriptor.equals("()Ljava/lang/String;")
+            || method.name.equals("hashCode") && method.descriptor.equals("()I")
+            || method.name.equals("equals") && method.descriptor.equals("(Ljava/lang/Object;)Z"))) {
+      return true;
+    }
+    if (!method.trivialAccessor || (method.access & ACC_STATIC) != 0) {
+      return false;
+    }
+    for (MemberInfo field : info.fields) {
+      if ((field.access & ACC_STATIC) == 0
+          && field.name.equals(method.name)
+          && method.descriptor.equals("()" + field.descriptor)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /** Registra come importazione esplicita un tipo di primo livello, dato il suo nome interno. */
+  private static void addImport(Set<String> imports, String internalName) {
+    if (internalName.indexOf('$') < 0) {
+      imports.add(internalName.replace('/', '.'));
+    }
+  }
+
+  /** Stessa convenzione di {@code UMLUtils.getVisibilitySymbol} per i nodi dei sorgenti. */
+  private static String visibility(int access, List<String> annotationNames) {
+    if (containsIgnoreCase(annotationNames, "derived")) {
+      return "/";
+    }
+    if ((access & ACC_PUBLIC) != 0) {
+      return "+";
+    } else if ((access & ACC_PROTECTED) != 0) {
+      return "#";
+    } else if ((access & ACC_PRIVATE) != 0) {
+      return "-";
+    }
+    return "~";
+  }
+
+  private static boolean containsIgnoreCase(List<String> names, String name) {
+    for (String candidate : names) {
+      if (candidate.equalsIgnoreCase(name)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static List<String> simpleNames(List<String> descriptors) {
+    if (descriptors.isEmpty()) {
+      return Collections.emptyList();
+    }
+    List<String> names = new ArrayList<>(descriptors.size());
+    for (String descriptor : descriptors) {
+      names.add(simpleName(descriptor));
+    }
+    return names;
+  }
+
+  /** Nome semplice di un descrittore di annotazione, ad esempio {@code Lp/Outer$Derived;}. */
+  private static String simpleName(String descriptor) {
+    return rawName(descriptor.substring(1, descriptor.length() - 1));
+  }
+
+  /** Nome semplice di un nome interno, come {@code getNameAsString} di JavaParser. */
+  private static String rawName(String internalName) {
+    int start = Math.max(internalName.lastIndexOf('/'), internalName.lastIndexOf('$'));
+    return internalName.substring(start + 1);
+  }
+
+  /** Tipo decodificato da una firma o da un descrittore. */
+  private static final class TypeRef {
+    // Rappresentazione come nel sorgente, ad esempio "Map.Entry<String, List<T>>"
+    final String display;
+
+    TypeRef(String display) {
+      this.display = display;
+    }
+  }
+
+  /** Parametri e tipo di ritorno di un metodo. */
+  private static final class MethodSignature {
+    final List<UMLMember.Parameter> parameters = new ArrayList<>();
+    String returnType;
+
+    static MethodSignature of(MemberInfo method, Set<String> imports) {
+      MethodSignature result = new MethodSignature();
+      List<String> types = new ArrayList<>();
+      SignatureParser parser =
+          new SignatureParser(
+              method.signature != null ? method.signature : method.descriptor, imports);
+      parser.skipTypeParameters();
+      parser.expect('(');
+      while (!parser.peek(')')) {
+        types.add(parser.parseType().display);
+      }
+      parser.expect(')');
+      result.returnType = parser.parseType().display;
+
+      int count = types.size();
+      if ((method.access & ACC_VARARGS) != 0 && count > 0) {
+        // Come nel sorgente, il parametro variadico mostra il tipo dell'elemento
+        String last = types.get(count - 1);
+        types.set(count - 1, last.substring(0, last.length() - 2));
+      }
+      List<String> names = method.parameterNames;
+      for (int i = 0; i < count; i++) {
+        // I nomi possono includere parametri sintetici assenti dalla firma: si allineano in coda
+        int index = names == null ? -1 : names.size() - count + i;
+        String name = index >= 0 ? names.get(index) : null;
+        result.parameters.add(
+            new UMLMember.Parameter(name != null ? name : "arg" + i, types.get(i)));
+      }
+      return result;
+    }
+  }
+
+  /** Parser delle firme generiche (JVMS §4.7.9.1), compatibile con i semplici descrittori. */
+  private static final class SignatureParser {
+    private final String signature;
+    // Tipi di primo livello incontrati, come nomi qualificati
+    private final Set<String> imports;
+    private int pos;
+
+    SignatureParser(String signature, Set<String> imports) {
+      this.signature = signature;
+      this.imports = imports;
+    }
+
+    boolean peek(char c) {
+      return signature.charAt(pos) == c;
+    }
+
+    void expect(char c) {
+      if (signature.charAt(pos) != c) {
+        throw new IllegalArgumentException("Firma non valida: " + signature);
+      }
+      pos++;
+    }
+
+    void skipTypeParameters() {
+      if (!peek('<')) {
+        return;
+      }
+      int depth = 0;
+      do {
+        char c = signature.charAt(pos++);
+        if (c == '<') {
+          depth++;
+        } else if (c == '>') {
+          depth--;
+        }
+      } while (depth > 0);
+    }
+
+    TypeRef parseType() {
+      char c = signature.charAt(pos++);
+      switch (c) {
+        case 'B':
+          return primitive("byte");
+        case 'C':
+          return primitive("char");
+        case 'D':
+          return primitive("double");
+        case 'F':
+          return primitive("float");
+        case 'I':
+          return primitive("int");
+        case 'J':
+          return primitive("long");
+        case 'S':
+          return primitive("short");
+        case 'Z':
+          return primitive("boolean");
+        case 'V':
+          return primitive("void");
+        case '[':
+          return new TypeRef(parseType().display + "[]");
+        case 'T':
+          {
+            // Nel sorgente una variabile di tipo è un ClassOrInterfaceType come gli altri
+            int end = signature.indexOf(';', pos);
+            String name = signature.substring(pos, end);
+            pos = end + 1;
+            return new TypeRef(name);
+          }
+        case 'L':
+          return parseClassType();
+        default:
+          throw new IllegalArgumentException("Firma non valida: " + signature);
+      }
+    }
+
+    private TypeRef parseClassType() {
+      int start = pos;
+      while ("<.;".indexOf(signature.charAt(pos)) < 0) {
+        pos++;
+      }
+      String internalName = signature.substring(start, pos);
+      addImport(imports, internalName);
+      StringBuilder display =
+          new StringBuilder(
+              internalName.substring(internalName.lastIndexOf('/') + 1).replace('$', '.'));
+      while (true) {
+        if (peek('<')) {
+          pos++;
+          display.append('<');
+          boolean first = true;
+          while (!peek('>')) {
+            String argument = parseTypeArgument();
+            if (first) {
+              first = false;
+            } else {
+              display.append(", ");
+            }
+            display.append(argument);
+          }
+          pos++;
+          display.append('>');
+        }
+        if (peek('.')) {
+          // Classe interna di un tipo parametrizzato: Outer<T>.Inner
+          pos++;
+          start = pos;
+          while ("<.;".indexOf(signature.charAt(pos)) < 0) {
+            pos++;
+          }
+          display.append('.').append(signature, start, pos);
+        } else {
+          break;
+        }
+      }
+      expect(';');
+      return new TypeRef(display.toString());
+    }
+
+    private String parseTypeArgument() {
+      char c = signature.charAt(pos);
+      if (c == '*') {
+        pos++;
+        return "?";
+      } else if (c == '+') {
+        pos++;
+        return "? extends " + parseType().display;
+      } else if (c == '-') {
+        pos++;
+        return "? super " + parseType().display;
+      }
+      return parseType().display;
+    }
+
+    private static TypeRef primitive(String name) {
+      return new TypeRef(name);
+    }
+  }
+}
@@ -0,0 +1,376 @@
+package com.fabio.org.amuleto.converter;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Lettore minimale del formato class file (JVMS §4). Legge solo ciò che serve al diagramma: flag di
+ * accesso, superclasse e interfacce, firme generiche, annotazioni, nomi dei parametri e l'elenco di
+ * attributi e metodi. Il bytecode dei metodi viene saltato, tranne per riconoscere il costruttore
+ * predefinito generato dal compilatore.
+ */
+final class UMLClassFileReader {
+
+  static final int ACC_PUBLIC = 0x0001;
+  static final int ACC_PRIVATE = 0x0002;
+  static final int ACC_PROTECTED = 0x0004;
+  static final int ACC_STATIC = 0x0008;
+  static final int ACC_FINAL = 0x0010;
+  static final int ACC_BRIDGE = 0x0040;
+  static final int ACC_VARARGS = 0x0080;
+  static final int ACC_INTERFACE = 0x0200;
+  static final int ACC_ABSTRACT = 0x0400;
+  static final int ACC_SYNTHETIC = 0x1000;
+  static final int ACC_ANNOTATION = 0x2000;
+  static final int ACC_ENUM = 0x4000;
+  static final int ACC_MODULE = 0x8000;
+
+  private static final int MAGIC = 0xCAFEBABE;
+
+  /** Classe letta: nomi in forma interna (ad esempio {@code java/util/List}). */
+  static final class ClassInfo {
+    int access;
+    String name;
+    String superName;
+    List<String> interfaces = new ArrayList<>();
+    String signature;
+    List<String> annotations = new ArrayList<>();
+    List<MemberInfo> fields = new ArrayList<>();
+    List<MemberInfo> methods = new ArrayList<>();
+    // Vero se la classe è annidata, locale o anonima (attributo InnerClasses)
+    boolean nested;
+  }
+
+  /** Attributo o metodo letto. */
+  static final class MemberInfo {
+    int access;
+    String name;
+    String descriptor;
+    String signature;
+    List<String> annotations = new ArrayList<>();
+    // Nomi dei parametri da MethodParameters o LocalVariableTable, null se assenti
+    List<String> parameterNames;
+    // Vero per un costruttore che si limita a invocare super(): aload_0, invokespecial, return
+    boolean trivialConstructor;
+    // Vero per un metodo che restituisce un attributo: aload_0, getfield, *return
+    boolean trivialAccessor;
+  }
+
+  private final ByteBuffer in;
+  private String[] utf8;
+  private int[] classNameIndexes;
+
+  private UMLClassFileReader(byte[] bytes) {
+    this.in = ByteBuffer.wrap(bytes);
+  }
+
+  /**
+   * Legge un class file.
+   *
+   * @param bytes Il contenuto del file.
+   * @return La classe letta.
+   * @throws IOException Se il contenuto non è un class file valido.
+   */
+  static ClassInfo read(byte[] bytes) throws IOException {
+    try {
+      return new UMLClassFileReader(bytes).readClass();
+    } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+      throw new IOException("Class file troncato o non valido", e);
+    }
+  }
+
+  private ClassInfo readClass() throws IOException {
+    if (in.getInt() != MAGIC) {
+      throw new IOException("Non è un class file");
+    }
+    in.getShort(); // minor_version
+    in.getShort(); // major_version
+    readConstantPool();
+
+    ClassInfo info = new ClassInfo();
+    info.access = u2();
+    info.name = className(u2());
+    int superIndex = u2();
+    info.superName = superIndex == 0 ? null : className(superIndex);
+    int interfaceCount = u2();
+    for (int i = 0; i < interfaceCount; i++) {
+      info.interfaces.add(className(u2()));
+    }
+    int fieldCount = u2();
+    for (int i = 0; i < fieldCount; i++) {
+      info.fields.add(readMember(false));
+    }
+    int methodCount = u2();
+    for (int i = 0; i < methodCount; i++) {
+      info.methods.add(readMember(true));
+    }
+    int attributeCount = u2();
+    for (int i = 0; i < attributeCount; i++) {
+      String attribute = utf8(u2());
+      int length = in.getInt();
+      int end = in.position() + length;
+      switch (attribute) {
+        case "Signature":
+          info.signature = utf8(u2());
+          break;
+        case "RuntimeVisibleAnnotations":
+        case "RuntimeInvisibleAnnotations":
+          readAnnotations(info.annotations);
+          break;
+        case "InnerClasses":
+          int classes = u2();
+          for (int c = 0; c < classes; c++) {
+            int inner = u2();
+            u2(); // outer_class_info_index
+            u2(); // inner_name_index
+            u2(); // inner_class_access_flags
+            if (info.name.equals(className(inner))) {
+              info.nested = true;
+            }
+          }
+          break;
+        default:
+          break;
+      }
+      in.position(end);
+    }
+    return info;
+  }
+
+  private MemberInfo readMember(boolean method) {
+    MemberInfo member = new MemberInfo();
+    member.access = u2();
+    member.name = utf8(u2());
+    member.descriptor = utf8(u2());
+    List<String> localNames = null;
+    int attributeCount = u2();
+    for (int i = 0; i < attributeCount; i++) {
+      String attribute = utf8(u2());
+      int length = in.getInt();
+      int end = in.position() + length;
+      switch (attribute) {
+        case "Signature":
+          member.signature = utf8(u2());
+          break;
+        case "RuntimeVisibleAnnotations":
+        case "RuntimeInvisibleAnnotations":
+          readAnnotations(member.annotations);
+          break;
+        case "MethodParameters":
+          int count = in.get() & 0xFF;
+          member.parameterNames = new ArrayList<>(count);
+          for (int p = 0; p < count; p++) {
+            int nameIndex = u2();
+            u2(); // access_flags
+            member.parameterNames.add(nameIndex == 0 ? null : utf8(nameIndex));
+          }
+          break;
+        case "Code":
+          if (method) {
+            localNames = readCode(member);
+          }
+          break;
+        default:
+          break;
+      }
+      in.position(end);
+    }
+    if (method && member.parameterNames == null && localNames != null) {
+      member.parameterNames = parameterNamesFromLocals(member, localNames);
+    }
+    return member;
+  }
+
+  /**
+   * Legge l'attributo Code: riconosce il costruttore e l'accessore banali e restituisce i nomi
+   * delle variabili locali indicizzati per slot, se la classe è stata compilata con le informazioni
+   * di debug.
+   */
+  private List<String> readCode(MemberInfo member) {
+    u2(); // max_stack
+    int maxLocals = u2();
+    int codeLength = in.getInt();
+    int codeStart = in.position();
+    if (codeLength == 5 && (in.get(codeStart) & 0xFF) == 0x2A) {
+      int invoke = in.get(codeStart + 1) & 0xFF;
+      int ret = in.get(codeStart + 4) & 0xFF;
+      // aload_0, invokespecial #n, return
+      member.trivialConstructor = invoke == 0xB7 && ret == 0xB1;
+      // aload_0, getfield #n, ireturn..areturn
+      member.trivialAccessor = invoke == 0xB4 && ret >= 0xAC && ret <= 0xB0;
+    }
+    in.position(codeStart + codeLength);
+    int exceptions = u2();
+    in.position(in.position() + exceptions * 8);
+    List<String> locals = null;
+    int attributeCount = u2();
+    for (int i = 0; i < attributeCount; i++) {
+      String attribute = utf8(u2());
+      int length = in.getInt();
+      int end = in.position() + length;
+      if (attribute.equals("LocalVariableTable")) {
+        if (locals == null) {
+          locals = new ArrayList<>(Collections.nCopies(maxLocals, (String) null));
+        }
+        int count = u2();
+        for (int v = 0; v < count; v++) {
+          int startPc = u2();
+          u2(); // length
+          String name = utf8(u2());
+          u2(); // descriptor_index
+          int slot = u2();
+          // I parametri sono le variabili visibili dall'inizio del metodo
+          if (startPc == 0 && slot < locals.size()) {
+            locals.set(slot, name);
+          }
+        }
+      }
+      in.position(end);
+    }
+    return locals;
+  }
+
+  /** Associa i nomi delle variabili locali ai parametri, saltando {@code this} e i doppi slot. */
+  private static List<String> parameterNamesFromLocals(MemberInfo member, List<String> locals) {
+    List<String> names = new ArrayList<>();
+    int slot = (member.access & ACC_STATIC) != 0 ? 0 : 1;
+    String descriptor = member.descriptor;
+    int i = 1;
+    while (descriptor.charAt(i) != ')') {
+      names.add(slot < locals.size() ? locals.get(slot) : null);
+      char c = descriptor.charAt(i);
+      slot += c == 'J' || c == 'D' ? 2 : 1;
+      while (descriptor.charAt(i) == '[') {
+        i++;
+      }
+      i = descriptor.charAt(i) == 'L' ? descriptor.indexOf(';', i) + 1 : i + 1;
+    }
+    return names;
+  }
+
+  private void readAnnotations(List<String> target) {
+    int count = u2();
+    for (int i = 0; i < count; i++) {
+      target.add(readAnnotation());
+    }
+  }
+
+  /** Legge un'annotazione e ne restituisce il descrittore del tipo, saltando i valori. */
+  private String readAnnotation() {
+    String type = utf8(u2());
+    int pairs = u2();
+    for (int i = 0; i < pairs; i++) {
+      u2(); // element_name_index
+      skipElementValue();
+    }
+    return type;
+  }
+
+  private void skipElementValue() {
+    char tag = (char) (in.get() & 0xFF);
+    switch (tag) {
+      case 'e':
+        u2();
+        u2();
+        break;
+      case '@':
+        readAnnotation();
+        break;
+      case '[':
+        int count = u2();
+        for (int i = 0; i < count; i++) {
+          skipElementValue();
+        }
+        break;
+      default:
+        // Costanti primitive, stringhe e classi: un indice nel constant pool
+        u2();
+        break;
+    }
+  }
+
+  private void readConstantPool() throws IOException {
+    int count = u2();
+    utf8 = new String[count];
+    classNameIndexes = new int[count];
+    for (int i = 1; i < count; i++) {
+      int tag = in.get() & 0xFF;
+      switch (tag) {
+        case 1: // Utf8
+          int length = u2();
+          utf8[i] = decodeModifiedUtf8(length);
+          break;
+        case 7: // Class
+          classNameIndexes[i] = u2();
+          break;
+        case 8: // String
+        case 16: // MethodType
+        case 19: // Module
+        case 20: // Package
+          u2();
+          break;
+        case 15: // MethodHandle
+          in.get();
+          u2();
+          break;
+        case 3: // Integer
+        case 4: // Float
+        case 9: // Fieldref
+        case 10: // Methodref
+        case 11: // InterfaceMethodref
+        case 12: // NameAndType
+        case 17: // Dynamic
+        case 18: // InvokeDynamic
+          in.getInt();
+          break;
+        case 5: // Long
+        case 6: // Double
+          in.getLong();
+          i++; // occupano due posizioni
+          break;
+        default:
+          throw new IOException("Tag del constant pool sconosciuto: " + tag);
+      }
+    }
+  }
+
+  /**
+   * Decodifica una stringa in UTF-8 modificato. Per il caso comune (solo ASCII) evita il decoder.
+   */
+  private String decodeModifiedUtf8(int length) {
+    int start = in.position();
+    boolean ascii = true;
+    for (int i = 0; i < length; i++) {
+      if (in.get(start + i) < 0) {
+        ascii = false;
+        break;
+      }
+    }
+    String value;
+    if (ascii) {
+      value = new String(in.array(), start, length, StandardCharsets.ISO_8859_1);
+    } else {
+      // Le differenze dall'UTF-8 standard (NUL e caratteri supplementari) non compaiono nei nomi
+      value = new String(in.array(), start, length, StandardCharsets.UTF_8);
+    }
+    in.position(start + length);
+    return value;
+  }
+
+  private String utf8(int index) {
+    return utf8[index];
+  }
+
+  private String className(int index) {
+    return utf8[classNameIndexes[index]];
+  }
+
+  private int u2() {
+    return in.getShort() & 0xFFFF;
+  }
+}
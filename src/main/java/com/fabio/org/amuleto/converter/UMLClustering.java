@@ -0,0 +1,444 @@
+package com.fabio.org.amuleto.converter;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import com.fabio.org.amuleto.model.UMLClass;
+
+/**
+ * Partizione dei tipi del progetto in gruppi fortemente accoppiati, calcolata con il metodo di
+ * Louvain sul grafo delle dipendenze reso non orientato: il peso di un arco tra due tipi è il
+ * numero di versi in cui sono collegati.
+ *
+ * <p>Ogni livello alterna lo spostamento dei nodi, che porta ciascun nodo nel gruppo che aumenta di
+ * più la modularità, e l'aggregazione, che riduce ogni gruppo a un nodo del livello successivo; il
+ * procedimento termina quando nessun nodo cambia gruppo. Lo spostamento valuta in parallelo il
+ * gruppo migliore per ogni nodo, rispetto allo stato all'inizio del passo, e applica poi le
+ * proposte in ordine, verificando di nuovo il guadagno: la modularità non diminuisce mai e il
+ * risultato non dipende dal numero di thread.
+ *
+ * <p>I generatori usano la partizione al posto dei package per raggruppare i tipi (opzione {@code
+ * --clusters}), così che la maggior parte delle relazioni resti interna a un gruppo.
+ */
+public final class UMLClustering {
+
+  /** Forma dei gruppi nel diagramma. */
+  public enum Style {
+    /** Un package con il nome del gruppo e il package prevalente dei suoi tipi. */
+    PACKAGE,
+    /** Un blocco {@code together}, che avvicina i tipi senza disegnare un contenitore. */
+    TOGETHER
+  }
+
+  // Numero massimo di passi di spostamento per livello
+  private static final int MAX_PASSES = 32;
+  // Guadagno minimo perché uno spostamento sia considerato un miglioramento
+  private static final double EPSILON = 1e-12;
+
+  private final UMLDependencyGraph graph;
+  private final Style style;
+  // Gruppo di ogni tipo; i gruppi sono numerati per dimensione decrescente
+  private final int[] cluster;
+  private final int[] clusterSizes;
+  private final double modularity;
+  // Etichetta di ogni gruppo con più di un tipo, e gruppo di ogni etichetta
+  private final String[] labels;
+  private final Map<String, Integer> clusterOfLabel = new HashMap<>();
+  private final Map<String, Integer> typeIds = new HashMap<>();
+
+  private UMLClustering(UMLDependencyGraph graph, Style style) {
+    this.graph = graph;
+    this.style = style;
+    int n = graph.getTypeCount();
+    Level base = Level.of(graph);
+    int[] membership = new int[n];
+    for (int v = 0; v < n; v++) {
+      membership[v] = v;
+    }
+    Level level = base;
+    while (level.totalWeight > 0) {
+      int[] community = level.moveNodes();
+      int count = compact(community);
+      if (count == level.size) {
+        break;
+      }
+      for (int v = 0; v < n; v++) {
+        membership[v] = community[membership[v]];
+      }
+      level = level.aggregate(community, count);
+    }
+    this.cluster = renumber(membership);
+    int count = 0;
+    for (int c : cluster) {
+      count = Math.max(count, c + 1);
+    }
+    this.clusterSizes = new int[count];
+    for (int c : cluster) {
+      clusterSizes[c]++;
+    }
+    this.modularity = base.modularity(cluster, count);
+    this.labels = new String[count];
+    String[] packages = dominantPackages(count);
+    for (int c = 0; c < count; c++) {
+      if (clusterSizes[c] > 1) {
+        labels[c] = "Gruppo " + (c + 1) + ": " + packages[c];
+        clusterOfLabel.put(labels[c], c);
+      }
+    }
+    for (int v = 0; v < n; v++) {
+      typeIds.put(graph.getTypeName(v), v);
+    }
+  }
+
+  /** Calcola la partizione del grafo delle dipendenze. */
+  public static UMLClustering of(UMLDependencyGraph graph, Style style) {
+    return new UMLClustering(graph, style);
+  }
+
+  /** Calcola la partizione dei tipi estratti. */
+  public static UMLClustering of(Collection<List<UMLClass>> perFileClasses, Style style) {
+    return of(UMLDependencyGraph.of(perFileClasses), style);
+  }
+
+  public int getClusterCount() {
+    return clusterSizes.length;
+  }
+
+  /** Gruppo del tipo: i gruppi sono numerati per dimensione decrescente. */
+  public int getCluster(int type) {
+    return cluster[type];
+  }
+
+  public int getClusterSize(int cluster) {
+    return clusterSizes[cluster];
+  }
+
+  /** Modularità della partizione, tra -0.5 e 1. */
+  public double getModularity() {
+    return modularity;
+  }
+
+  /**
+   * Restituisce l'etichetta del gruppo del tipo indicato, oppure la stringa vuota se il tipo non
+   * appartiene a un gruppo con almeno due tipi: in questo caso il tipo è emesso fuori da ogni
+   * gruppo, come i tipi del package predefinito.
+   */
+  public String groupOf(String qualifiedName) {
+    Integer type = typeIds.get(qualifiedName);
+    if (type == null || labels[cluster[type]] == null) {
+      return "";
+    }
+    return labels[cluster[type]];
+  }
+
+  /** Ordine di emissione dei gruppi: per dimensione decrescente. */
+  public Comparator<String> groupOrder() {
+    return Comparator.comparingInt(label -> clusterOfLabel.getOrDefault(label, -1));
+  }
+
+  /** Emette l'apertura del blocco PlantUML del gruppo con l'etichetta indicata. */
+  public void appendGroupStart(String label, StringBuilder uml) {
+    if (style == Style.TOGETHER) {
+      uml.append("together {\n");
+    } else {
+      uml.append("package \"")
+          .append(label)
+          .append("\" as G")
+          .append(clusterOfLabel.get(label) + 1)
+          .append(" {\n");
+    }
+  }
+
+  // Package con più tipi in ogni gruppo; a parità, il primo in ordine alfabetico
+  private String[] dominantPackages(int count) {
+    // Coppie (gruppo, package) ordinate: i tipi di uno stesso package di un gruppo sono adiacenti
+    long[] pairs = new long[cluster.length];
+    for (int v = 0; v < cluster.length; v++) {
+      pairs[v] = (long) cluster[v] << 32 | graph.getPackage(v);
+    }
+    Arrays.sort(pairs);
+    int[] best = new int[count];
+    int[] bestCount = new int[count];
+    for (int i = 0, j; i < pairs.length; i = j) {
+      for (j = i; j < pairs.length && pairs[j] == pairs[i]; j++) {}
+      int c = (int) (pairs[i] >>> 32);
+      int p = (int) pairs[i];
+      if (j - i > bestCount[c]
+          || (j - i == bestCount[c]
+              && graph.getPackageName(p).compareTo(graph.getPackageName(best[c])) < 0)) {
+        best[c] = p;
+        bestCount[c] = j - i;
+      }
+    }
+    String[] names = new String[count];
+    for (int c = 0; c < count; c++) {
+      String name = graph.getPackageName(best[c]);
+      names[c] = name.isEmpty() ? UMLPackageOverview.DEFAULT_PACKAGE : name;
+    }
+    return names;
+  }
+
+  /** Rinumera i gruppi da 0, in ordine di prima comparsa; restituisce il numero di gruppi. */
+  private static int compact(int[] community) {
+    int[] ids = new int[community.length];
+    Arrays.fill(ids, -1);
+    int count = 0;
+    for (int v = 0; v < community.length; v++) {
+      if (ids[community[v]] < 0) {
+        ids[community[v]] = count++;
+      }
+      community[v] = ids[community[v]];
+    }
+    return count;
+  }
+
+  /** Rinumera i gruppi per dimensione decrescente e, a parità, per primo tipo. */
+  private static int[] renumber(int[] membership) {
+    int count = compact(membership);
+    int[] sizes = new int[count];
+    for (int c : membership) {
+      sizes[c]++;
+    }
+    // Con la numerazione per prima comparsa, l'ordine dei gruppi è già quello del primo tipo
+    Integer[] order = new Integer[count];
+    for (int c = 0; c < count; c++) {
+      order[c] = c;
+    }
+    Arrays.sort(order, (a, b) -> sizes[a] != sizes[b] ? sizes[b] - sizes[a] : a - b);
+    int[] rank = new int[count];
+    for (int i = 0; i < count; i++) {
+      rank[order[i]] = i;
+    }
+    int[] result = new int[membership.length];
+    for (int v = 0; v < membership.length; v++) {
+      result[v] = rank[membership[v]];
+    }
+    return result;
+  }
+
+  /**
+   * Un livello del metodo: grafo non orientato e pesato in formato CSR. Ogni arco compare nelle
+   * liste di entrambi gli estremi; l'arco di un nodo verso se stesso, prodotto dall'aggregazione,
+   * compare una volta sola con il doppio del peso degli archi interni che rappresenta.
+   */
+  private static final class Level {
+    final int size;
+    final int[] offsets;
+    final int[] neighbors;
+    final double[] weights;
+    // Grado pesato di ogni nodo e somma dei gradi (il doppio del peso totale)
+    final double[] degrees;
+    final double totalWeight;
+
+    Level(int size, int[] offsets, int[] neighbors, double[] weights) {
+      this.size = size;
+      this.offsets = offsets;
+      this.neighbors = neighbors;
+      this.weights = weights;
+      this.degrees = new double[size];
+      double total = 0;
+      for (int v = 0; v < size; v++) {
+        for (int i = offsets[v]; i < offsets[v + 1]; i++) {
+          degrees[v] += weights[i];
+        }
+        total += degrees[v];
+      }
+      this.totalWeight = total;
+    }
+
+    /** Livello iniziale: un nodo per tipo, con l'unione ordinata di archi uscenti ed entranti. */
+    static Level of(UMLDependencyGraph graph) {
+      int n = graph.getTypeCount();
+      int[] offsets = new int[n + 1];
+      int[] neighbors = new int[graph.getEdgeCount() * 2];
+      double[] weights = new double[neighbors.length];
+      int k = 0;
+      for (int v = 0; v < n; v++) {
+        int out = graph.getOutStart(v);
+        int in = graph.getInStart(v);
+        while (out < graph.getOutEnd(v) || in < graph.getInEnd(v)) {
+          int target = out < graph.getOutEnd(v) ? graph.getTarget(out) : Integer.MAX_VALUE;
+          int source = in < graph.getInEnd(v) ? graph.getSource(in) : Integer.MAX_VALUE;
+          int u = Math.min(target, source);
+          double weight = 0;
+          if (target == u) {
+            weight++;
+            out++;
+          }
+          if (source == u) {
+            weight++;
+            in++;
+          }
+          neighbors[k] = u;
+          weights[k++] = weight;
+        }
+        offsets[v + 1] = k;
+      }
+      return new Level(n, offsets, Arrays.copyOf(neighbors, k), Arrays.copyOf(weights, k));
+    }
+
+    /** Spostamento dei nodi: restituisce il gruppo di ogni nodo, identificato da un suo nodo. */
+    int[] moveNodes() {
+      int[] community = new int[size];
+      double[] totals = degrees.clone();
+      for (int v = 0; v < size; v++) {
+        community[v] = v;
+      }
+      int[] proposal = new int[size];
+      ThreadLocal<Scratch> scratch = ThreadLocal.withInitial(() -> new Scratch(size));
+      Scratch local = new Scratch(size);
+      for (int pass = 0; pass < MAX_PASSES; pass++) {
+        // Proposte calcolate in parallelo sullo stato all'inizio del passo
+        IntStream.range(0, size)
+            .parallel()
+            .forEach(v -> proposal[v] = best(v, community, totals, scratch.get()));
+        // Applicazione in ordine, con il guadagno ricalcolato sullo stato corrente
+        int moved = 0;
+        for (int v = 0; v < size; v++) {
+          int from = community[v];
+          int to = proposal[v];
+          if (to == from) {
+            continue;
+          }
+          local.link(this, v, community);
+          double stay = local.weight[from] - (totals[from] - degrees[v]) * degrees[v] / totalWeight;
+          double move = local.weight[to] - totals[to] * degrees[v] / totalWeight;
+          local.clear();
+          if (move > stay + EPSILON) {
+            totals[from] -= degrees[v];
+            totals[to] += degrees[v];
+            community[v] = to;
+            moved++;
+          }
+        }
+        if (moved == 0) {
+          break;
+        }
+      }
+      return community;
+    }
+
+    // Gruppo che massimizza il guadagno di modularità del nodo, a parità il primo trovato
+    private int best(int v, int[] community, double[] totals, Scratch scratch) {
+      scratch.link(this, v, community);
+      int from = community[v];
+      int best = from;
+      double bestGain =
+          scratch.weight[from] - (totals[from] - degrees[v]) * degrees[v] / totalWeight;
+      for (int i = 0; i < scratch.touchedCount; i++) {
+        int c = scratch.touched[i];
+        if (c != from) {
+          double gain = scratch.weight[c] - totals[c] * degrees[v] / totalWeight;
+          if (gain > bestGain + EPSILON) {
+            best = c;
+            bestGain = gain;
+          }
+        }
+      }
+      scratch.clear();
+      return best;
+    }
+
+    /** Aggregazione: ogni gruppo diventa un nodo, i pesi degli archi tra gruppi si sommano. */
+    Level aggregate(int[] community, int count) {
+      // Nodi di ogni gruppo, con un ordinamento per conteggio
+      int[] starts = new int[count + 1];
+      for (int v = 0; v < size; v++) {
+        starts[community[v] + 1]++;
+      }
+      for (int c = 0; c < count; c++) {
+        starts[c + 1] += starts[c];
+      }
+      int[] members = new int[size];
+      int[] next = Arrays.copyOf(starts, count);
+      for (int v = 0; v < size; v++) {
+        members[next[community[v]]++] = v;
+      }
+      int[] coarseOffsets = new int[count + 1];
+      int[] coarseNeighbors = new int[neighbors.length];
+      double[] coarseWeights = new double[neighbors.length];
+      Scratch scratch = new Scratch(count);
+      int k = 0;
+      for (int c = 0; c < count; c++) {
+        for (int m = starts[c]; m < starts[c + 1]; m++) {
+          int v = members[m];
+          for (int i = offsets[v]; i < offsets[v + 1]; i++) {
+            scratch.add(community[neighbors[i]], weights[i]);
+          }
+        }
+        Arrays.sort(scratch.touched, 0, scratch.touchedCount);
+        for (int i = 0; i < scratch.touchedCount; i++) {
+          coarseNeighbors[k] = scratch.touched[i];
+          coarseWeights[k++] = scratch.weight[scratch.touched[i]];
+        }
+        scratch.clear();
+        coarseOffsets[c + 1] = k;
+      }
+      return new Level(
+          count, coarseOffsets, Arrays.copyOf(coarseNeighbors, k), Arrays.copyOf(coarseWeights, k));
+    }
+
+    /** Modularità della partizione indicata. */
+    double modularity(int[] community, int count) {
+      if (totalWeight == 0) {
+        return 0;
+      }
+      double internal = 0;
+      double[] totals = new double[count];
+      for (int v = 0; v < size; v++) {
+        totals[community[v]] += degrees[v];
+        for (int i = offsets[v]; i < offsets[v + 1]; i++) {
+          if (community[neighbors[i]] == community[v]) {
+            internal += weights[i];
+          }
+        }
+      }
+      double expected = 0;
+      for (double total : totals) {
+        expected += (total / totalWeight) * (total / totalWeight);
+      }
+      return internal / totalWeight - expected;
+    }
+  }
+
+  /** Pesi dei collegamenti di un nodo verso ogni gruppo, azzerati dopo l'uso. */
+  private static final class Scratch {
+    final double[] weight;
+    final int[] touched;
+    int touchedCount;
+
+    Scratch(int size) {
+      this.weight = new double[size];
+      this.touched = new int[size];
+    }
+
+    void add(int c, double w) {
+      if (weight[c] == 0) {
+        touched[touchedCount++] = c;
+      }
+      weight[c] += w;
+    }
+
+    // Collegamenti del nodo verso i gruppi dei vicini, escluso l'arco verso se stesso
+    void link(Level level, int v, int[] community) {
+      for (int i = level.offsets[v]; i < level.offsets[v + 1]; i++) {
+        int u = level.neighbors[i];
+        if (u != v) {
+          add(community[u], level.weights[i]);
+        }
+      }
+    }
+
+    void clear() {
+      for (int i = 0; i < touchedCount; i++) {
+        weight[touched[i]] = 0;
+      }
+      touchedCount = 0;
+    }
+  }
+}
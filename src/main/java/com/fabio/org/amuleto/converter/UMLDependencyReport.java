@@ -0,0 +1,280 @@
+package com.fabio.org.amuleto.converter;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+import com.fabio.org.amuleto.model.UMLClass;
+import com.google.gson.stream.JsonWriter;
+
+/**
+ * Scrive il resoconto delle dipendenze di un progetto accanto al diagramma: numero di tipi e di
+ * relazioni, cicli di dipendenze, fan-in e fan-out di ogni tipo, accoppiamento afferente ed
+ * efferente e instabilità di ogni package, matrice di accoppiamento tra package.
+ *
+ * <p>In formato JSON il resoconto è un unico file {@code <diagramma>-report.json}; in formato CSV
+ * ogni tabella ha un proprio file: {@code <diagramma>-types.csv}, {@code -packages.csv}, {@code
+ * -coupling.csv} e {@code -cycles.csv}. Tipi e package sono elencati in ordine alfabetico.
+ */
+public final class UMLDependencyReport {
+
+  /** Formato del resoconto. */
+  public enum Format {
+    JSON,
+    CSV
+  }
+
+  private final UMLGraphMetrics metrics;
+  private final UMLDependencyGraph graph;
+  // Indice del ciclo di ogni componente fortemente connessa, -1 se la componente non è un ciclo
+  private final int[] cycleOfComponent;
+  private final List<int[]> cycles;
+
+  public UMLDependencyReport(UMLGraphMetrics metrics) {
+    this.metrics = metrics;
+    this.graph = metrics.getGraph();
+    this.cycles = metrics.getCycles();
+    this.cycleOfComponent = new int[metrics.getComponentCount()];
+    Arrays.fill(cycleOfComponent, -1);
+    for (int i = 0; i < cycles.size(); i++) {
+      cycleOfComponent[metrics.getComponent(cycles.get(i)[0])] = i;
+    }
+  }
+
+  /**
+   * Analizza i tipi estratti e scrive il resoconto accanto al file del diagramma.
+   *
+   * @param perFileClasses I tipi estratti da ogni file.
+   * @param diagramFile Il file del diagramma; il resoconto ne riprende il nome senza estensione.
+   * @param format Il formato del resoconto.
+   * @return I file scritti.
+   * @throws IOException Se la scrittura non riesce.
+   */
+  public static List<Path> writeNextTo(
+      Collection<List<UMLClass>> perFileClasses, File diagramFile, Format format)
+      throws IOException {
+    UMLDependencyReport report =
+        new UMLDependencyReport(new UMLGraphMetrics(UMLDependencyGraph.of(perFileClasses)));
+    List<Path> written = report.write(diagramFile.toPath(), format);
+    System.out.println(
+        "Resoconto delle dipendenze ("
+            + report.graph.getTypeCount()
+            + " tipi, "
+            + report.graph.getEdgeCount()
+            + " dipendenze, "
+            + report.cycles.size()
+            + " cicli) in: "
+            + written.get(0).toAbsolutePath());
+    return written;
+  }
+
+  /**
+   * Scrive il resoconto accanto al file del diagramma.
+   *
+   * @return I file scritti.
+   */
+  public List<Path> write(Path diagramFile, Format format) throws IOException {
+    String name = diagramFile.getFileName().toString();
+    int dot = name.lastIndexOf('.');
+    String base = dot > 0 ? name.substring(0, dot) : name;
+    List<Path> written = new ArrayList<>();
+    if (format == Format.JSON) {
+      Path file = diagramFile.resolveSibling(base + "-report.json");
+      try (Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+        writeJson(out);
+      }
+      written.add(file);
+      return written;
+    }
+    Path types = diagramFile.resolveSibling(base + "-types.csv");
+    try (Writer out = Files.newBufferedWriter(types, StandardCharsets.UTF_8)) {
+      writeTypesCsv(out);
+    }
+    written.add(types);
+    Path packages = diagramFile.resolveSibling(base + "-packages.csv");
+    try (Writer out = Files.newBufferedWriter(packages, StandardCharsets.UTF_8)) {
+      writePackagesCsv(out);
+    }
+    written.add(packages);
+    Path coupling = diagramFile.resolveSibling(base + "-coupling.csv");
+    try (Writer out = Files.newBufferedWriter(coupling, StandardCharsets.UTF_8)) {
+      writeCouplingCsv(out);
+    }
+    written.add(coupling);
+    Path cycleFile = diagramFile.resolveSibling(base + "-cycles.csv");
+    try (Writer out = Files.newBufferedWriter(cycleFile, StandardCharsets.UTF_8)) {
+      writeCyclesCsv(out);
+    }
+    written.add(cycleFile);
+    return written;
+  }
+
+  /** Scrive l'intero resoconto in formato JSON. */
+  public void writeJson(Writer out) throws IOException {
+    JsonWriter json = new JsonWriter(out);
+    json.setIndent("  ");
+    json.beginObject();
+    json.name("types").value(graph.getTypeCount());
+    json.name("dependencies").value(graph.getEdgeCount());
+    json.name("packages").value(graph.getPackageCount());
+
+    json.name("cycles").beginArray();
+    for (int[] cycle : cycles) {
+      json.beginArray();
+      for (int type : sortedTypes(cycle)) {
+        json.value(graph.getTypeName(type));
+      }
+      json.endArray();
+    }
+    json.endArray();
+
+    json.name("typeMetrics").beginArray();
+    for (int type : sortedTypes(allIds(graph.getTypeCount()))) {
+      json.beginObject();
+      json.name("name").value(graph.getTypeName(type));
+      json.name("package").value(graph.getPackageName(graph.getPackage(type)));
+      json.name("fanIn").value(graph.getFanIn(type));
+      json.name("fanOut").value(graph.getFanOut(type));
+      json.name("cycle").value(cycleOf(type));
+      json.endObject();
+    }
+    json.endArray();
+
+    json.name("packageMetrics").beginArray();
+    for (int p : sortedPackages()) {
+      json.beginObject();
+      json.name("name").value(graph.getPackageName(p));
+      json.name("types").value(metrics.getPackageSize(p));
+      json.name("afferent").value(metrics.getAfferent(p));
+      json.name("efferent").value(metrics.getEfferent(p));
+      json.name("instability").value(round(metrics.getInstability(p)));
+      json.endObject();
+    }
+    json.endArray();
+
+    json.name("coupling").beginArray();
+    for (int p : sortedPackages()) {
+      for (int entry : sortedCoupling(p)) {
+        json.beginObject();
+        json.name("from").value(graph.getPackageName(p));
+        json.name("to").value(graph.getPackageName(metrics.getCouplingTarget(entry)));
+        json.name("dependencies").value(metrics.getCouplingCount(entry));
+        json.endObject();
+      }
+    }
+    json.endArray();
+    json.endObject();
+    json.flush();
+  }
+
+  /** Tabella dei tipi: nome, package, fan-in, fan-out e ciclo di appartenenza (-1 se nessuno). */
+  public void writeTypesCsv(Writer out) throws IOException {
+    out.write("type,package,fan_in,fan_out,cycle\n");
+    for (int type : sortedTypes(allIds(graph.getTypeCount()))) {
+      out.write(
+          graph.getTypeName(type)
+              + ","
+              + graph.getPackageName(graph.getPackage(type))
+              + ","
+              + graph.getFanIn(type)
+              + ","
+              + graph.getFanOut(type)
+              + ","
+              + cycleOf(type)
+              + "\n");
+    }
+  }
+
+  /** Tabella dei package: nome, numero di tipi, Ca, Ce e instabilità. */
+  public void writePackagesCsv(Writer out) throws IOException {
+    out.write("package,types,afferent,efferent,instability\n");
+    for (int p : sortedPackages()) {
+      out.write(
+          graph.getPackageName(p)
+              + ","
+              + metrics.getPackageSize(p)
+              + ","
+              + metrics.getAfferent(p)
+              + ","
+              + metrics.getEfferent(p)
+              + ","
+              + round(metrics.getInstability(p))
+              + "\n");
+    }
+  }
+
+  /**
+   * Matrice di accoppiamento in forma sparsa: una riga per ogni coppia di package collegata, con il
+   * numero di dipendenze tra i loro tipi. La diagonale conta le dipendenze interne a un package.
+   */
+  public void writeCouplingCsv(Writer out) throws IOException {
+    out.write("from,to,dependencies\n");
+    for (int p : sortedPackages()) {
+      for (int entry : sortedCoupling(p)) {
+        out.write(
+            graph.getPackageName(p)
+                + ","
+                + graph.getPackageName(metrics.getCouplingTarget(entry))
+                + ","
+                + metrics.getCouplingCount(entry)
+                + "\n");
+      }
+    }
+  }
+
+  /** Tabella dei cicli: una riga per ogni tipo di ogni ciclo. */
+  public void writeCyclesCsv(Writer out) throws IOException {
+    out.write("cycle,type\n");
+    for (int i = 0; i < cycles.size(); i++) {
+      for (int type : sortedTypes(cycles.get(i))) {
+        out.write(i + "," + graph.getTypeName(type) + "\n");
+      }
+    }
+  }
+
+  private int cycleOf(int type) {
+    return cycleOfComponent[metrics.getComponent(type)];
+  }
+
+  private static int[] allIds(int count) {
+    int[] ids = new int[count];
+    for (int i = 0; i < count; i++) {
+      ids[i] = i;
+    }
+    return ids;
+  }
+
+  private int[] sortedTypes(int[] types) {
+    return sorted(types, Comparator.comparing(graph::getTypeName));
+  }
+
+  private int[] sortedPackages() {
+    return sorted(allIds(graph.getPackageCount()), Comparator.comparing(graph::getPackageName));
+  }
+
+  private int[] sortedCoupling(int packageId) {
+    int[] entries =
+        new int[metrics.getCouplingEnd(packageId) - metrics.getCouplingStart(packageId)];
+    for (int i = 0; i < entries.length; i++) {
+      entries[i] = metrics.getCouplingStart(packageId) + i;
+    }
+    return sorted(
+        entries, Comparator.comparing(e -> graph.getPackageName(metrics.getCouplingTarget(e))));
+  }
+
+  private static int[] sorted(int[] ids, Comparator<Integer> order) {
+    return Arrays.stream(ids).boxed().sorted(order).mapToInt(Integer::intValue).toArray();
+  }
+
+  private static double round(double value) {
+    return Math.round(value * 1000) / 1000.0;
+  }
+}
@@ -0,0 +1,312 @@
+package com.fabio.org.amuleto.converter;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.fabio.org.amuleto.model.UMLClass;
+import com.fabio.org.amuleto.model.UMLRelationship;
+
+/**
+ * Costruzione del sorgente PlantUML, condivisa da tutti gli output. Il corpo del diagramma (tipi,
+ * relazioni e note) non dipende dall'output e viene costruito una sola volta; cambia solo
+ * l'intestazione: il file {@code .puml} usa il tema scuro, le immagini aggiungono risoluzione e
+ * scala.
+ *
+ * <p>Il corpo viene scritto in un {@link Writer} man mano che è prodotto: i blocchi dei tipi sono
+ * accodati a un unico buffer, svuotato nel writer ogni {@value #FLUSH_THRESHOLD} caratteri, e le
+ * relazioni vengono risolte a blocchi di {@value #RESOLVE_CHUNK} tipi. Il testo del diagramma non
+ * viene mai tenuto in memoria per intero; restano in memoria, oltre al modello, solo le relazioni
+ * distinte, raccolte nell'indice che le deduplica ed emesse dopo tutti i tipi.
+ */
+final class UMLDiagramBuilder {
+
+  /** Destinazione del sorgente, che ne determina l'intestazione. */
+  enum Target {
+    /** File {@code .puml}. */
+    TEXT,
+    /** Immagine prodotta da PlantUML. */
+    IMAGE
+  }
+
+  // Caratteri accumulati nel buffer di emissione prima di essere scritti nel writer
+  static final int FLUSH_THRESHOLD = 1 << 16;
+
+  // Tipi le cui relazioni vengono risolte insieme durante l'emissione
+  static final int RESOLVE_CHUNK = 512;
+
+  // Riga dell'intestazione delle immagini che seleziona Smetana come motore di layout
+  static final String SMETANA_PRAGMA = "!pragma layout smetana\n";
+
+  // Ordine dei tipi nello stesso gruppo; a parità di nome resta l'ordine dei file
+  static final Comparator<UMLClass> TYPE_ORDER = Comparator.comparing(UMLClass::getQualifiedName);
+
+  private UMLDiagramBuilder() {}
+
+  /**
+   * Costruisce il corpo del diagramma richiesto dalle opzioni: la vista d'insieme per package,
+   * oppure il diagramma delle classi, eventualmente limitato a una selezione e raggruppato per
+   * accoppiamento.
+   */
+  static void writeBody(
+      Collection<List<UMLClass>> perFileClasses, UMLGenerationOptions options, Writer out)
+      throws IOException {
+    UMLDiagramSelection selection = UMLDiagramSelection.fromOptions(perFileClasses, options);
+    if (options.getOverviewDepth() >= 0) {
+      out.write(buildOverviewBody(perFileClasses, options.getOverviewDepth(), selection));
+      return;
+    }
+    UMLClustering clustering =
+        options.getClusterStyle() == null
+            ? null
+            : UMLClustering.of(perFileClasses, options.getClusterStyle());
+    writeBody(perFileClasses, selection, clustering, out);
+  }
+
+  /**
+   * Costruisce in memoria il corpo del diagramma richiesto dalle opzioni (vedi {@link #writeBody}).
+   */
+  static String buildBody(Collection<List<UMLClass>> perFileClasses, UMLGenerationOptions options) {
+    StringWriter body = new StringWriter();
+    try {
+      writeBody(perFileClasses, options, body);
+    } catch (IOException e) {
+      // Uno StringWriter non fallisce mai
+      throw new UncheckedIOException(e);
+    }
+    return body.toString();
+  }
+
+  /**
+   * Scrive il sorgente completo del diagramma richiesto dalle opzioni: intestazione della
+   * destinazione, corpo e chiusura.
+   */
+  static void write(
+      Collection<List<UMLClass>> perFileClasses,
+      UMLGenerationOptions options,
+      Target target,
+      Writer out)
+      throws IOException {
+    StringBuilder header = new StringBuilder();
+    appendHeader(header, target);
+    out.append(header);
+    writeBody(perFileClasses, options, out);
+    out.write("\n@enduml");
+  }
+
+  /** Scrive il corpo del diagramma con l'intestazione della destinazione e la chiusura. */
+  static void write(String body, Target target, Writer out) throws IOException {
+    StringBuilder header = new StringBuilder();
+    appendHeader(header, target);
+    out.append(header);
+    out.write(body);
+    out.write("\n@enduml");
+  }
+
+  /** Completa il corpo del diagramma con l'intestazione della destinazione e la chiusura. */
+  static String wrap(String body, Target target) {
+    return wrap(body, target, UMLVectorGenerator.Layout.DOT);
+  }
+
+  /**
+   * Completa il corpo del diagramma con l'intestazione della destinazione e la chiusura. Per le
+   * immagini l'intestazione seleziona anche il motore di layout.
+   */
+  static String wrap(String body, Target target, UMLVectorGenerator.Layout layout) {
+    StringBuilder uml = new StringBuilder(body.length() + 1024);
+    appendHeader(uml, target);
+    if (target == Target.IMAGE && layout == UMLVectorGenerator.Layout.SMETANA) {
+      uml.append(SMETANA_PRAGMA);
+    }
+    uml.append(body);
+    uml.append("\n@enduml");
+    return uml.toString();
+  }
+
+  /** Costruisce in memoria il corpo del diagramma (vedi {@link #writeBody}). */
+  static String buildBody(
+      Collection<List<UMLClass>> perFileClasses,
+      UMLDiagramSelection selection,
+      UMLClustering clustering) {
+    StringWriter body = new StringWriter();
+    try {
+      writeBody(perFileClasses, selection, clustering, body);
+    } catch (IOException e) {
+      // Uno StringWriter non fallisce mai
+      throw new UncheckedIOException(e);
+    }
+    return body.toString();
+  }
+
+  /**
+   * Scrive il corpo del diagramma limitato ai tipi selezionati e alle relazioni tra di essi. La
+   * risoluzione dei nomi considera comunque tutti i tipi del progetto.
+   *
+   * @param selection I tipi da rappresentare, oppure {@code null} per tutti i tipi.
+   * @param clustering I gruppi di tipi accoppiati da usare al posto dei package, oppure {@code
+   *     null} per raggruppare i tipi per package.
+   * @param out Il writer che riceve il corpo, a blocchi di circa {@value #FLUSH_THRESHOLD}
+   *     caratteri.
+   */
+  static void writeBody(
+      Collection<List<UMLClass>> perFileClasses,
+      UMLDiagramSelection selection,
+      UMLClustering clustering,
+      Writer out)
+      throws IOException {
+    // Mappa per raggruppare i tipi per package
+    Map<String, List<UMLClass>> packageMap = new HashMap<>();
+    // Indice dei tipi definiti, per nome qualificato e per nome semplice
+    UMLSymbolIndex symbols = new UMLSymbolIndex();
+    // Set di nomi da escludere (per ora vuoto)
+    Set<String> excludedTypes = new HashSet<>(Arrays.asList(""));
+
+    // Raggruppamento per package (o per gruppo di tipi accoppiati), nell'ordine dei file
+    for (List<UMLClass> classes : perFileClasses) {
+      for (UMLClass umlClass : classes) {
+        String typeName = umlClass.getName();
+        if (excludedTypes.contains(typeName)) continue;
+        symbols.add(umlClass);
+        if (selection != null && !selection.contains(umlClass.getQualifiedName())) continue;
+        String group =
+            clustering == null
+                ? umlClass.getPackageName()
+                : clustering.groupOf(umlClass.getQualifiedName());
+        packageMap.computeIfAbsent(group, k -> new ArrayList<>()).add(umlClass);
+      }
+    }
+
+    // Emissione del diagramma UML in PlantUML, attraverso un unico buffer riutilizzato
+    StringBuilder uml = new StringBuilder(FLUSH_THRESHOLD + 4096);
+    UMLRelationshipIndex relationships = new UMLRelationshipIndex();
+
+    // Itera sui package in ordine alfabetico
+    List<String> pkgNames = new ArrayList<>(packageMap.keySet());
+    pkgNames.sort(clustering == null ? Comparator.naturalOrder() : clustering.groupOrder());
+    // Risoluzione delle relazioni, in parallelo a blocchi, nell'ordine di emissione. Nello stesso
+    // package i tipi sono ordinati per nome: il diagramma non dipende dalla disposizione dei file
+    List<UMLClass> ordered = new ArrayList<>();
+    for (String pkgName : pkgNames) {
+      packageMap.get(pkgName).sort(TYPE_ORDER);
+      ordered.addAll(packageMap.get(pkgName));
+    }
+    Iterator<List<UMLRelationship>> resolved = symbols.resolveInChunks(ordered, RESOLVE_CHUNK);
+    // Con una selezione si emettono solo le relazioni tra tipi selezionati
+    Set<String> selectedNames = null;
+    if (selection != null) {
+      selectedNames = new HashSet<>();
+      for (UMLClass umlClass : ordered) {
+        selectedNames.add(symbols.displayName(umlClass.getQualifiedName()));
+      }
+    }
+    for (String pkgName : pkgNames) {
+      if (clustering != null && !pkgName.isEmpty()) {
+        clustering.appendGroupStart(pkgName, uml);
+        uml.append("\n");
+      } else if (!pkgName.isEmpty()) {
+        uml.append("package ").append(pkgName).append(" {\n\n");
+      }
+      for (UMLClass umlClass : packageMap.get(pkgName)) {
+        // Seconda passata: emissione dei tipi e delle relazioni risolte
+        UMLDiagramEmitter.appendType(umlClass, uml);
+        List<UMLRelationship> typeRelationships = resolved.next();
+        if (selectedNames != null) {
+          typeRelationships = UMLDiagramEmitter.between(typeRelationships, selectedNames);
+        }
+        UMLDiagramEmitter.appendRelationships(typeRelationships, relationships);
+        flushIfFull(uml, out);
+      }
+      if (!pkgName.isEmpty()) {
+        uml.append("}\n\n");
+      }
+    }
+    uml.append("\n");
+    for (UMLRelationship relationship : relationships) {
+      uml.append(relationship).append("\n");
+      flushIfFull(uml, out);
+    }
+    // Tipi collegati esclusi dalla selezione
+    if (selection != null) {
+      for (UMLClass umlClass : ordered) {
+        String qualifiedName = umlClass.getQualifiedName();
+        UMLDiagramEmitter.appendHiddenNeighbours(
+            umlClass,
+            symbols.displayName(qualifiedName),
+            selection.getHiddenNeighbours(qualifiedName),
+            uml);
+        flushIfFull(uml, out);
+      }
+    }
+    out.append(uml);
+  }
+
+  // Svuota il buffer di emissione nel writer quando supera la soglia
+  private static void flushIfFull(StringBuilder uml, Writer out) throws IOException {
+    if (uml.length() >= FLUSH_THRESHOLD) {
+      out.append(uml);
+      uml.setLength(0);
+    }
+  }
+
+  /**
+   * Costruisce il corpo della vista d'insieme per package (vedi {@link UMLPackageOverview}).
+   *
+   * @param depth Il numero di segmenti del prefisso di package che identifica un nodo, 0 per il
+   *     package completo.
+   * @param selection I tipi da rappresentare, oppure {@code null} per tutti i tipi.
+   */
+  static String buildOverviewBody(
+      Collection<List<UMLClass>> perFileClasses, int depth, UMLDiagramSelection selection) {
+    StringBuilder uml = new StringBuilder();
+    UMLPackageOverview.of(perFileClasses, depth, selection).appendTo(uml);
+    return uml.toString();
+  }
+
+  /** Intestazione del diagramma: apertura e parametri grafici della destinazione. */
+  static void appendHeader(StringBuilder uml, Target target) {
+    uml.append("@startuml\n");
+    if (target == Target.IMAGE) {
+      uml.append("skinparam classAttributeIconSize 0\n");
+      uml.append("skinparam dpi 300\n");
+      uml.append("scale max 2000 width\n");
+      uml.append("skinparam backgroundColor #2E2E2E\n");
+      uml.append("skinparam shadowing false\n");
+      uml.append("skinparam classFontColor white\n");
+      uml.append("skinparam arrowFontColor white\n");
+      uml.append("skinparam packageFontColor white\n");
+      uml.append("skinparam packageTitleFontColor white\n");
+      uml.append("skinparam stereotypeFontColor white\n");
+      uml.append("skinparam packageBorderColor white\n");
+      uml.append("skinparam classBackgroundColor #3E3E3E\n");
+      uml.append("skinparam classBorderColor #AAAAAA\n");
+      uml.append("skinparam defaultTextColor white\n");
+      uml.append("skinparam arrowColor #CCCCCC\n");
+      return;
+    }
+    // Parametri per il dark theme
+    uml.append("skinparam classAttributeIconSize 0\n\n");
+    uml.append("skinparam backgroundColor #2E2E2E\n");
+    uml.append("skinparam shadowing false\n");
+    uml.append("skinparam classFontColor white\n");
+    uml.append("skinparam classBackgroundColor #3E3E3E\n");
+    uml.append("skinparam classBorderColor #AAAAAA\n");
+    uml.append("skinparam defaultTextColor white\n");
+    uml.append("skinparam arrowColor #CCCCCC\n");
+    uml.append("skinparam arrowFontColor white\n");
+    uml.append("skinparam packageFontColor white\n");
+    uml.append("skinparam packageTitleFontColor white\n");
+    uml.append("skinparam stereotypeFontColor white\n");
+    uml.append("skinparam packageBorderColor white\n\n");
+  }
+}
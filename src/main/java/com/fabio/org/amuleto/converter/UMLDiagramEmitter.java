@@ -0,0 +1,124 @@
+package com.fabio.org.amuleto.converter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import com.fabio.org.amuleto.model.UMLClass;
+import com.fabio.org.amuleto.model.UMLMember;
+import com.fabio.org.amuleto.model.UMLRelationship;
+import com.fabio.org.amuleto.view.RelationshipType;
+
+/**
+ * Seconda passata dell'estrazione: emette in PlantUML i tipi del modello intermedio, con le
+ * relazioni risolte rispetto ai tipi definiti nel progetto.
+ */
+public class UMLDiagramEmitter {
+
+  /** Emette il blocco PlantUML del tipo (intestazione e membri). */
+  public static void appendType(UMLClass umlClass, StringBuilder uml) {
+    switch (umlClass.getKind()) {
+      case INTERFACE:
+        uml.append("interface ");
+        break;
+      case ABSTRACT_CLASS:
+        uml.append("abstract class ");
+        break;
+      case CLASS:
+        uml.append("class ");
+        break;
+      case ENUM:
+        uml.append("enum ");
+        break;
+      default:
+        // Tipo non rappresentato nel diagramma
+        return;
+    }
+    uml.append(umlClass.getName());
+    if (umlClass.isAssociationClass()) {
+      uml.append(" <<association>>");
+    }
+    uml.append(" {\n");
+    for (UMLMember member : umlClass.getMembers()) {
+      uml.append("  ");
+      member.appendTo(uml);
+      uml.append("\n");
+    }
+    uml.append("}\n\n");
+  }
+
+  /**
+   * Emette la nota con il numero di tipi collegati al tipo che non sono rappresentati nel
+   * diagramma.
+   *
+   * @param umlClass Il tipo rappresentato.
+   * @param name Il nome del tipo nel diagramma.
+   * @param hidden Il numero di tipi collegati omessi; con 0 non viene emesso nulla.
+   */
+  public static void appendHiddenNeighbours(
+      UMLClass umlClass, String name, int hidden, StringBuilder uml) {
+    if (hidden == 0 || umlClass.getKind() == UMLClass.Kind.OTHER) {
+      return;
+    }
+    uml.append("note right of ")
+        .append(name)
+        .append(" : ")
+        .append(hidden)
+        .append(hidden == 1 ? " tipo collegato omesso\n" : " tipi collegati omessi\n");
+  }
+
+  /**
+   * Registra nell'indice le relazioni di un tipo, già risolte da {@link UMLSymbolIndex}:
+   * associazioni, dipendenze ed ereditarietà. Le relazioni ripetute vengono registrate una sola
+   * volta.
+   */
+  public static void appendRelationships(
+      List<UMLRelationship> resolved, UMLRelationshipIndex relationships) {
+    for (UMLRelationship relationship : resolved) {
+      if (isAssociation(relationship.getType())) {
+        relationships.add(relationship);
+      }
+    }
+    for (UMLRelationship relationship : resolved) {
+      if (relationship.getType() == RelationshipType.DEPENDENCY) {
+        relationships.add(relationship);
+      }
+    }
+    for (UMLRelationship relationship : resolved) {
+      if (relationship.getType() == RelationshipType.INHERITANCE) {
+        relationships.add(relationship);
+      }
+    }
+    for (UMLRelationship relationship : resolved) {
+      if (relationship.getType() == RelationshipType.IMPLEMENTATION) {
+        relationships.add(relationship);
+      }
+    }
+  }
+
+  /**
+   * Restituisce le relazioni risolte dirette verso i tipi indicati, con il nome usato nel
+   * diagramma. Gli array delle associazioni vengono ricondotti al tipo dell'elemento.
+   */
+  public static List<UMLRelationship> between(
+      List<UMLRelationship> resolved, Set<String> targetNames) {
+    List<UMLRelationship> selected = new ArrayList<>(resolved.size());
+    for (UMLRelationship relationship : resolved) {
+      String target = relationship.getTarget();
+      int dims = target.length();
+      while (dims >= 2 && target.startsWith("[]", dims - 2)) {
+        dims -= 2;
+      }
+      if (targetNames.contains(target.substring(0, dims))) {
+        selected.add(relationship);
+      }
+    }
+    return selected;
+  }
+
+  private static boolean isAssociation(RelationshipType type) {
+    return type == RelationshipType.ASSOCIATION
+        || type == RelationshipType.AGGREGATION
+        || type == RelationshipType.COMPOSITION;
+  }
+}
@@ -0,0 +1,292 @@
+package com.fabio.org.amuleto.converter;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import com.fabio.org.amuleto.model.UMLClass;
+
+/**
+ * Sottoinsieme dei tipi del progetto da rappresentare nel diagramma. I generatori emettono solo i
+ * tipi selezionati e le relazioni tra di essi (il sottografo indotto), così che emissione e
+ * rendering dipendano dalla dimensione della selezione e non da quella del progetto.
+ *
+ * <p>Per ogni tipo selezionato la selezione conserva il numero di tipi collegati rimasti esclusi,
+ * che i generatori riportano in una nota accanto al tipo.
+ */
+public final class UMLDiagramSelection {
+
+  /** Verso delle relazioni seguite a partire dai tipi di interesse. */
+  public enum Direction {
+    /** Tipi che dipendono dai tipi di interesse. */
+    IN,
+    /** Tipi da cui dipendono i tipi di interesse. */
+    OUT,
+    /** Entrambi i versi. */
+    BOTH
+  }
+
+  /** Misura di centralità usata per scegliere i tipi più importanti. */
+  public enum Ranking {
+    /** PageRank sul grafo delle dipendenze: conta quanto un tipo è usato da tipi importanti. */
+    PAGERANK,
+    /** Numero di tipi collegati, in entrambi i versi. */
+    DEGREE
+  }
+
+  // Fattore di smorzamento, numero massimo di iterazioni e tolleranza del PageRank
+  private static final double DAMPING = 0.85;
+  private static final int MAX_ITERATIONS = 100;
+  private static final double TOLERANCE = 1e-9;
+
+  // Nomi qualificati dei tipi selezionati
+  private final Set<String> qualifiedNames;
+  // Numero di tipi collegati non selezionati, per i soli tipi selezionati che ne hanno
+  private final Map<String, Integer> hiddenNeighbours;
+
+  private UMLDiagramSelection(Set<String> qualifiedNames, Map<String, Integer> hiddenNeighbours) {
+    this.qualifiedNames = qualifiedNames;
+    this.hiddenNeighbours = hiddenNeighbours;
+  }
+
+  /** Costruisce la selezione dei tipi indicati, contando per ognuno i tipi collegati esclusi. */
+  private static UMLDiagramSelection of(UMLDependencyGraph graph, boolean[] selected) {
+    Set<String> names = new HashSet<>();
+    Map<String, Integer> hidden = new HashMap<>();
+    for (int v = 0; v < selected.length; v++) {
+      if (!selected[v]) {
+        continue;
+      }
+      names.add(graph.getTypeName(v));
+      // Archi uscenti ed entranti sono ordinati: un tipo collegato nei due versi si conta una volta
+      int count = 0;
+      int out = graph.getOutStart(v);
+      int in = graph.getInStart(v);
+      while (out < graph.getOutEnd(v) || in < graph.getInEnd(v)) {
+        int target = out < graph.getOutEnd(v) ? graph.getTarget(out) : Integer.MAX_VALUE;
+        int source = in < graph.getInEnd(v) ? graph.getSource(in) : Integer.MAX_VALUE;
+        int u = Math.min(target, source);
+        if (!selected[u]) {
+          count++;
+        }
+        if (target == u) {
+          out++;
+        }
+        if (source == u) {
+          in++;
+        }
+      }
+      if (count > 0) {
+        hidden.put(graph.getTypeName(v), count);
+      }
+    }
+    return new UMLDiagramSelection(names, hidden);
+  }
+
+  /**
+   * Ricava dalle opzioni la selezione da applicare ai tipi estratti: prima i tipi vicini ai tipi di
+   * interesse, se indicati, e poi i tipi più centrali, se ne è indicato il numero. Con entrambe le
+   * opzioni, i tipi più centrali sono scelti tra quelli vicini ai tipi di interesse.
+   *
+   * @return La selezione, oppure {@code null} se le opzioni chiedono l'intero progetto.
+   * @throws IllegalArgumentException Se un tipo di interesse non esiste nel progetto.
+   */
+  public static UMLDiagramSelection fromOptions(
+      Collection<List<UMLClass>> perFileClasses, UMLGenerationOptions options) {
+    if (options.getFocusTypes().isEmpty() && options.getTopTypes() == 0) {
+      return null;
+    }
+    UMLDependencyGraph graph = UMLDependencyGraph.of(perFileClasses);
+    UMLDiagramSelection selection = null;
+    if (!options.getFocusTypes().isEmpty()) {
+      selection =
+          focus(
+              graph, options.getFocusTypes(), options.getFocusDepth(), options.getFocusDirection());
+    }
+    if (options.getTopTypes() > 0) {
+      selection = top(graph, options.getTopTypes(), options.getRanking(), selection);
+    }
+    return selection;
+  }
+
+  /**
+   * Seleziona i tipi raggiungibili dai tipi di interesse con al più {@code depth} relazioni, con
+   * una visita in ampiezza del grafo delle dipendenze.
+   *
+   * @param graph Il grafo delle dipendenze del progetto.
+   * @param focusTypes I tipi di interesse, con il nome qualificato oppure con il nome semplice (in
+   *     questo caso vengono considerati tutti i tipi con quel nome).
+   * @param depth Il numero massimo di relazioni tra un tipo selezionato e un tipo di interesse.
+   * @param direction Il verso delle relazioni da seguire.
+   * @return La selezione.
+   * @throws IllegalArgumentException Se un tipo di interesse non esiste nel progetto.
+   */
+  public static UMLDiagramSelection focus(
+      UMLDependencyGraph graph, Collection<String> focusTypes, int depth, Direction direction) {
+    int n = graph.getTypeCount();
+    // Distanza di ogni tipo dai tipi di interesse, -1 se non ancora raggiunto
+    int[] distance = new int[n];
+    Arrays.fill(distance, -1);
+    int[] queue = new int[n];
+    int tail = 0;
+    for (String focus : focusTypes) {
+      boolean found = false;
+      for (int v = 0; v < n; v++) {
+        if (matches(graph.getTypeName(v), focus)) {
+          found = true;
+          if (distance[v] < 0) {
+            distance[v] = 0;
+            queue[tail++] = v;
+          }
+        }
+      }
+      if (!found) {
+        throw new IllegalArgumentException("Tipo non trovato nel progetto: " + focus);
+      }
+    }
+    for (int head = 0; head < tail; head++) {
+      int v = queue[head];
+      if (distance[v] == depth) {
+        continue;
+      }
+      if (direction != Direction.IN) {
+        for (int e = graph.getOutStart(v); e < graph.getOutEnd(v); e++) {
+          tail = visit(graph.getTarget(e), distance[v] + 1, distance, queue, tail);
+        }
+      }
+      if (direction != Direction.OUT) {
+        for (int e = graph.getInStart(v); e < graph.getInEnd(v); e++) {
+          tail = visit(graph.getSource(e), distance[v] + 1, distance, queue, tail);
+        }
+      }
+    }
+    boolean[] selected = new boolean[n];
+    for (int i = 0; i < tail; i++) {
+      selected[queue[i]] = true;
+    }
+    return of(graph, selected);
+  }
+
+  /**
+   * Seleziona i {@code k} tipi più centrali secondo la misura indicata; a parità di punteggio
+   * prevale il tipo estratto per primo.
+   *
+   * @param graph Il grafo delle dipendenze del progetto.
+   * @param k Il numero massimo di tipi da selezionare.
+   * @param ranking La misura di centralità.
+   * @param within Se non {@code null}, i tipi sono scelti solo tra quelli di questa selezione.
+   * @return La selezione.
+   */
+  public static UMLDiagramSelection top(
+      UMLDependencyGraph graph, int k, Ranking ranking, UMLDiagramSelection within) {
+    double[] score = ranking == Ranking.PAGERANK ? pageRank(graph) : degree(graph);
+    int[] order =
+        IntStream.range(0, graph.getTypeCount())
+            .filter(v -> within == null || within.contains(graph.getTypeName(v)))
+            .boxed()
+            .sorted((a, b) -> score[a] != score[b] ? Double.compare(score[b], score[a]) : a - b)
+            .limit(k)
+            .mapToInt(Integer::intValue)
+            .toArray();
+    boolean[] selected = new boolean[graph.getTypeCount()];
+    for (int v : order) {
+      selected[v] = true;
+    }
+    return of(graph, selected);
+  }
+
+  /** Numero di tipi collegati in almeno un verso. */
+  static double[] degree(UMLDependencyGraph graph) {
+    double[] score = new double[graph.getTypeCount()];
+    for (int v = 0; v < score.length; v++) {
+      score[v] = graph.getFanIn(v) + graph.getFanOut(v);
+    }
+    return score;
+  }
+
+  /**
+   * PageRank sul grafo delle dipendenze: un tipo trasmette il proprio punteggio ai tipi da cui
+   * dipende. Ogni iterazione calcola in parallelo il nuovo punteggio di ogni tipo a partire dagli
+   * archi entranti, così che ogni thread scriva solo i propri elementi; il punteggio dei tipi senza
+   * dipendenze è ridistribuito in modo uniforme.
+   */
+  static double[] pageRank(UMLDependencyGraph graph) {
+    int n = graph.getTypeCount();
+    double[] rank = new double[n];
+    double[] next = new double[n];
+    if (n == 0) {
+      return rank;
+    }
+    Arrays.fill(rank, 1.0 / n);
+    for (int iteration = 0; iteration < MAX_ITERATIONS; iteration++) {
+      double[] current = rank;
+      double dangling = 0;
+      for (int v = 0; v < n; v++) {
+        if (graph.getFanOut(v) == 0) {
+          dangling += current[v];
+        }
+      }
+      double base = (1 - DAMPING) / n + DAMPING * dangling / n;
+      double[] target = next;
+      IntStream.range(0, n)
+          .parallel()
+          .forEach(
+              v -> {
+                double sum = 0;
+                for (int e = graph.getInStart(v); e < graph.getInEnd(v); e++) {
+                  int u = graph.getSource(e);
+                  sum += current[u] / graph.getFanOut(u);
+                }
+                target[v] = base + DAMPING * sum;
+              });
+      double delta = 0;
+      for (int v = 0; v < n; v++) {
+        delta += Math.abs(target[v] - current[v]);
+      }
+      next = current;
+      rank = target;
+      if (delta < TOLERANCE) {
+        break;
+      }
+    }
+    return rank;
+  }
+
+  /** Un tipo corrisponde se il nome qualificato coincide o se coincide il nome semplice. */
+  private static boolean matches(String qualifiedName, String focus) {
+    if (qualifiedName.equals(focus)) {
+      return true;
+    }
+    return focus.indexOf('.') < 0
+        && qualifiedName.endsWith(focus)
+        && qualifiedName.length() > focus.length()
+        && qualifiedName.charAt(qualifiedName.length() - focus.length() - 1) == '.';
+  }
+
+  private static int visit(int w, int d, int[] distance, int[] queue, int tail) {
+    if (distance[w] < 0) {
+      distance[w] = d;
+      queue[tail++] = w;
+    }
+    return tail;
+  }
+
+  /** Verifica se il tipo con il nome qualificato indicato è selezionato. */
+  public boolean contains(String qualifiedName) {
+    return qualifiedNames.contains(qualifiedName);
+  }
+
+  public int size() {
+    return qualifiedNames.size();
+  }
+
+  /** Numero di tipi collegati al tipo selezionato indicato che non fanno parte della selezione. */
+  public int getHiddenNeighbours(String qualifiedName) {
+    return hiddenNeighbours.getOrDefault(qualifiedName, 0);
+  }
+}
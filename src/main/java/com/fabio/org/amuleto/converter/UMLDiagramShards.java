@@ -0,0 +1,389 @@
+package com.fabio.org.amuleto.converter;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+
+import com.fabio.org.amuleto.model.UMLClass;
+import com.fabio.org.amuleto.model.UMLRelationship;
+import net.sourceforge.plantuml.FileFormat;
+
+/**
+ * Diagramma suddiviso in parti, una per package o per prefisso di package, da renderizzare
+ * separatamente. Ogni parte contiene i tipi del proprio gruppo e tutte le relazioni che li toccano;
+ * i tipi di altre parti coinvolti in queste relazioni compaiono come riferimenti esterni, senza
+ * membri e con un collegamento alla parte che li contiene.
+ *
+ * <p>Le relazioni vengono risolte una sola volta per tutte le parti; il sorgente di ogni parte
+ * viene costruito solo quando la parte viene renderizzata, così che in memoria restino al più tanti
+ * sorgenti quanti sono i worker di rendering. Insieme alle parti vengono scritti un indice, la
+ * vista d'insieme per package con un collegamento a ogni parte, e una pagina HTML con l'elenco
+ * delle parti.
+ */
+public final class UMLDiagramShards {
+
+  // Stereotipo dei riferimenti a tipi di altre parti
+  static final String STUB_STEREOTYPE = "<<esterno>>";
+
+  private final int depth;
+  private final UMLDiagramSelection selection;
+  private final Collection<List<UMLClass>> perFileClasses;
+  // Nomi delle parti, in ordine alfabetico
+  private final String[] names;
+  // Tipi di ogni parte, ordinati per nome qualificato
+  private final List<List<UMLClass>> types;
+  // Relazioni risolte dei tipi di ogni parte, nello stesso ordine
+  private final List<List<List<UMLRelationship>>> outgoing;
+  // Relazioni di tipi di altre parti dirette verso i tipi di ogni parte
+  private final List<List<UMLRelationship>> incoming;
+  // Tipo e parte di ogni tipo rappresentato, per nome nel diagramma
+  private final Map<String, UMLClass> typeByName;
+  private final Map<String, Integer> shardByName;
+
+  private UMLDiagramShards(
+      Collection<List<UMLClass>> perFileClasses,
+      int depth,
+      UMLDiagramSelection selection,
+      String[] names,
+      List<List<UMLClass>> types,
+      List<List<List<UMLRelationship>>> outgoing,
+      List<List<UMLRelationship>> incoming,
+      Map<String, UMLClass> typeByName,
+      Map<String, Integer> shardByName) {
+    this.perFileClasses = perFileClasses;
+    this.depth = depth;
+    this.selection = selection;
+    this.names = names;
+    this.types = types;
+    this.outgoing = outgoing;
+    this.incoming = incoming;
+    this.typeByName = typeByName;
+    this.shardByName = shardByName;
+  }
+
+  /**
+   * Suddivide i tipi estratti per package.
+   *
+   * @param perFileClasses I tipi estratti da ogni file.
+   * @param depth Il numero di segmenti del prefisso di package che identifica una parte; con 0 ogni
+   *     package è una parte distinta (vedi {@link UMLPackageOverview#groupName}).
+   * @param selection I tipi da rappresentare, oppure {@code null} per tutti i tipi.
+   * @return Le parti del diagramma.
+   */
+  public static UMLDiagramShards of(
+      Collection<List<UMLClass>> perFileClasses, int depth, UMLDiagramSelection selection) {
+    UMLSymbolIndex symbols = new UMLSymbolIndex();
+    Map<String, List<UMLClass>> byShard = new TreeMap<>();
+    for (List<UMLClass> classes : perFileClasses) {
+      for (UMLClass umlClass : classes) {
+        if (symbols.contains(umlClass.getQualifiedName())) {
+          continue;
+        }
+        symbols.add(umlClass);
+        if (selection == null || selection.contains(umlClass.getQualifiedName())) {
+          byShard
+              .computeIfAbsent(
+                  UMLPackageOverview.groupName(umlClass.getPackageName(), depth),
+                  k -> new ArrayList<>())
+              .add(umlClass);
+        }
+      }
+    }
+    String[] names = byShard.keySet().toArray(new String[0]);
+    List<List<UMLClass>> types = new ArrayList<>(byShard.values());
+    for (List<UMLClass> shardTypes : types) {
+      shardTypes.sort(UMLDiagramBuilder.TYPE_ORDER);
+    }
+    Map<String, UMLClass> typeByName = new HashMap<>();
+    Map<String, Integer> shardByName = new HashMap<>();
+    List<UMLClass> ordered = new ArrayList<>();
+    for (int s = 0; s < names.length; s++) {
+      for (UMLClass umlClass : types.get(s)) {
+        String name = symbols.displayName(umlClass.getQualifiedName());
+        typeByName.put(name, umlClass);
+        shardByName.put(name, s);
+        ordered.add(umlClass);
+      }
+    }
+
+    // Unica risoluzione delle relazioni per tutte le parti
+    List<List<List<UMLRelationship>>> outgoing = new ArrayList<>(names.length);
+    List<List<UMLRelationship>> incoming = new ArrayList<>(names.length);
+    for (int s = 0; s < names.length; s++) {
+      outgoing.add(new ArrayList<>(types.get(s).size()));
+      incoming.add(new ArrayList<>());
+    }
+    Iterator<List<UMLRelationship>> resolved = symbols.resolveAll(ordered).iterator();
+    for (int s = 0; s < names.length; s++) {
+      for (int t = 0; t < types.get(s).size(); t++) {
+        List<UMLRelationship> relationships = resolved.next();
+        if (selection != null) {
+          relationships = UMLDiagramEmitter.between(relationships, shardByName.keySet());
+        }
+        outgoing.get(s).add(relationships);
+        for (UMLRelationship relationship : relationships) {
+          Integer target = shardByName.get(elementName(relationship.getTarget()));
+          if (target != null && target != s) {
+            incoming.get(target).add(relationship);
+          }
+        }
+      }
+    }
+    return new UMLDiagramShards(
+        perFileClasses,
+        depth,
+        selection,
+        names,
+        types,
+        outgoing,
+        incoming,
+        typeByName,
+        shardByName);
+  }
+
+  public int getShardCount() {
+    return names.length;
+  }
+
+  public String getShardName(int shard) {
+    return names[shard];
+  }
+
+  /** Numero di tipi della parte. */
+  public int getShardSize(int shard) {
+    return types.get(shard).size();
+  }
+
+  /**
+   * Nome del file di una parte: il nome del gruppo, con i caratteri non ammessi nei nomi di file
+   * sostituiti da {@code _}, e l'estensione indicata.
+   */
+  static String fileName(String shard, String extension) {
+    return shard.replaceAll("[^A-Za-z0-9._-]", "_") + "." + extension;
+  }
+
+  /**
+   * Directory delle parti di un indice: accanto all'indice, con il suo nome senza estensione
+   * seguito da {@code -shards}.
+   */
+  static File shardDirectory(File index) {
+    String name = index.getName();
+    int dot = name.lastIndexOf('.');
+    return new File(
+        index.getAbsoluteFile().getParentFile(),
+        (dot > 0 ? name.substring(0, dot) : name) + "-shards");
+  }
+
+  /**
+   * Costruisce il corpo del diagramma di una parte: i tipi del gruppo nei rispettivi package, i
+   * riferimenti ai tipi di altre parti e le relazioni.
+   *
+   * @param shard L'indice della parte.
+   * @param extension L'estensione dei file delle altre parti, usata nei collegamenti.
+   */
+  String buildShard(int shard, String extension) {
+    StringBuilder uml = new StringBuilder();
+    Map<String, List<UMLClass>> packageMap = new TreeMap<>();
+    for (UMLClass umlClass : types.get(shard)) {
+      packageMap.computeIfAbsent(umlClass.getPackageName(), k -> new ArrayList<>()).add(umlClass);
+    }
+    for (Map.Entry<String, List<UMLClass>> entry : packageMap.entrySet()) {
+      if (!entry.getKey().isEmpty()) {
+        uml.append("package ").append(entry.getKey()).append(" {\n\n");
+      }
+      for (UMLClass umlClass : entry.getValue()) {
+        UMLDiagramEmitter.appendType(umlClass, uml);
+      }
+      if (!entry.getKey().isEmpty()) {
+        uml.append("}\n\n");
+      }
+    }
+    uml.append("\n");
+
+    UMLRelationshipIndex relationships = new UMLRelationshipIndex();
+    for (List<UMLRelationship> typeRelationships : outgoing.get(shard)) {
+      UMLDiagramEmitter.appendRelationships(typeRelationships, relationships);
+    }
+    for (UMLRelationship relationship : incoming.get(shard)) {
+      relationships.add(relationship);
+    }
+    // Riferimenti ai tipi di altre parti, nell'ordine in cui compaiono nelle relazioni
+    Set<String> stubs = new HashSet<>();
+    for (UMLRelationship relationship : relationships.getRelationships()) {
+      appendStub(relationship.getSource(), shard, extension, stubs, uml);
+      appendStub(elementName(relationship.getTarget()), shard, extension, stubs, uml);
+    }
+    if (!stubs.isEmpty()) {
+      uml.append("hide ").append(STUB_STEREOTYPE).append(" members\n\n");
+    }
+    for (UMLRelationship relationship : relationships.getRelationships()) {
+      uml.append(relationship).append("\n");
+    }
+    return uml.toString();
+  }
+
+  private void appendStub(
+      String name, int shard, String extension, Set<String> stubs, StringBuilder uml) {
+    Integer other = shardByName.get(name);
+    if (other == null || other == shard || !stubs.add(name)) {
+      return;
+    }
+    switch (typeByName.get(name).getKind()) {
+      case INTERFACE:
+        uml.append("interface ");
+        break;
+      case ABSTRACT_CLASS:
+        uml.append("abstract class ");
+        break;
+      case CLASS:
+        uml.append("class ");
+        break;
+      case ENUM:
+        uml.append("enum ");
+        break;
+      default:
+        // Tipo non rappresentato nel diagramma
+        return;
+    }
+    uml.append(name)
+        .append(' ')
+        .append(STUB_STEREOTYPE)
+        .append(" [[")
+        .append(fileName(names[other], extension))
+        .append("]]\n");
+  }
+
+  /**
+   * Costruisce il corpo dell'indice: la vista d'insieme per package, con un collegamento dal nodo
+   * di ogni parte al relativo file.
+   */
+  String buildIndex(String shardDirectory, String extension) {
+    StringBuilder uml = new StringBuilder();
+    UMLPackageOverview.of(perFileClasses, depth, selection)
+        .appendTo(uml, group -> shardDirectory + "/" + fileName(group, extension));
+    return uml.toString();
+  }
+
+  /**
+   * Renderizza le parti in parallelo nella directory delle parti (vedi {@link #shardDirectory}),
+   * poi l'indice nel file indicato e la pagina HTML accanto a esso.
+   *
+   * @param index Il file dell'indice.
+   * @param format Il formato delle immagini.
+   * @param layout Il motore di layout.
+   * @param renders La cache delle immagini.
+   * @param threads Il numero di worker di rendering.
+   * @throws Exception Se il rendering di una parte o la scrittura di un file fallisce.
+   */
+  public void render(
+      File index,
+      FileFormat format,
+      UMLVectorGenerator.Layout layout,
+      UMLRenderCache renders,
+      int threads)
+      throws Exception {
+    long start = System.nanoTime();
+    File directory = shardDirectory(index);
+    Files.createDirectories(directory.toPath());
+    String extension = extension(format);
+    List<Callable<Void>> tasks = new ArrayList<>(names.length + 1);
+    for (int s = 0; s < names.length; s++) {
+      int shard = s;
+      tasks.add(
+          () -> {
+            renders.render(
+                UMLDiagramBuilder.wrap(
+                    buildShard(shard, extension), UMLDiagramBuilder.Target.IMAGE, layout),
+                new File(directory, fileName(names[shard], extension)),
+                format);
+            return null;
+          });
+    }
+    tasks.add(
+        () -> {
+          renders.render(
+              UMLDiagramBuilder.wrap(
+                  buildIndex(directory.getName(), extension),
+                  UMLDiagramBuilder.Target.IMAGE,
+                  layout),
+              index,
+              format);
+          return null;
+        });
+    UMLGenerator.runConcurrently(tasks, threads);
+    writeHtml(index, directory.getName(), extension);
+    System.out.println(
+        names.length
+            + " parti renderizzate in "
+            + (System.nanoTime() - start) / 1_000_000
+            + " ms con "
+            + threads
+            + " thread");
+  }
+
+  /** Scrive la pagina HTML dell'indice, con il diagramma d'insieme e l'elenco delle parti. */
+  private void writeHtml(File index, String shardDirectory, String extension) throws IOException {
+    String name = index.getName();
+    int dot = name.lastIndexOf('.');
+    File html =
+        new File(
+            index.getAbsoluteFile().getParentFile(),
+            (dot > 0 ? name.substring(0, dot) : name) + ".html");
+    try (Writer writer = Files.newBufferedWriter(html.toPath(), StandardCharsets.UTF_8)) {
+      writer.write("<!DOCTYPE html>\n<html>\n<head>\n<meta charset=\"UTF-8\">\n");
+      writer.write("<title>" + escape(name) + "</title>\n</head>\n<body>\n");
+      writer.write("<h1>" + escape(name) + "</h1>\n");
+      if (extension.equals("svg")) {
+        writer.write("<object data=\"" + escape(name) + "\" type=\"image/svg+xml\"></object>\n");
+      } else {
+        writer.write("<img src=\"" + escape(name) + "\" alt=\"" + escape(name) + "\">\n");
+      }
+      writer.write("<ul>\n");
+      for (int s = 0; s < names.length; s++) {
+        writer.write(
+            "<li><a href=\""
+                + escape(shardDirectory + "/" + fileName(names[s], extension))
+                + "\">"
+                + escape(names[s])
+                + "</a> ("
+                + getShardSize(s)
+                + (getShardSize(s) == 1 ? " tipo" : " tipi")
+                + ")</li>\n");
+      }
+      writer.write("</ul>\n</body>\n</html>\n");
+    }
+  }
+
+  // Estensione senza punto: "svg", "png"
+  private static String extension(FileFormat format) {
+    return format.getFileSuffix().substring(1);
+  }
+
+  private static String escape(String text) {
+    return text.replace("&", "&amp;")
+        .replace("<", "&lt;")
+        .replace(">", "&gt;")
+        .replace("\"", "&quot;");
+  }
+
+  // Tipo dell'elemento di un estremo di associazione: "Item[]" -> "Item"
+  private static String elementName(String target) {
+    int dims = target.length();
+    while (dims >= 2 && target.startsWith("[]", dims - 2)) {
+      dims -= 2;
+    }
+    return target.substring(0, dims);
+  }
+}
@@ -0,0 +1,281 @@
+package com.fabio.org.amuleto.converter;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+import com.fabio.org.amuleto.model.UMLClass;
+import com.fabio.org.amuleto.utils.UMLSourceScanner;
+import net.sourceforge.plantuml.FileFormat;
+
+/**
+ * Modalità watch: mantiene in memoria i tipi estratti di ogni file sorgente e rigenera il diagramma
+ * quando i file cambiano. Solo i file creati, modificati o cancellati vengono rianalizzati; gli
+ * eventi ravvicinati (ad esempio un {@code git checkout}) vengono raggruppati in un unico
+ * aggiornamento, e i file di output vengono riscritti solo se il testo PlantUML è cambiato.
+ */
+public class UMLDiagramWatcher implements AutoCloseable {
+
+  private final Path root;
+  private final File outputText;
+  private final File outputVector;
+  private final FileFormat vectorFormat;
+  private final UMLGenerationOptions options;
+  private final UMLRenderCache renders;
+  private final UMLSourceScanner scanner;
+  private final WatchService watchService;
+  private final Map<WatchKey, Path> watchedDirs = new HashMap<>();
+  // Tipi estratti per file, ordinati per percorso come nella scansione completa
+  private final TreeMap<Path, List<UMLClass>> model = new TreeMap<>();
+  private String lastDiagram;
+
+  /**
+   * Crea il watcher.
+   *
+   * @param sourceDir La directory dei sorgenti da osservare.
+   * @param outputText Il file PlantUML da aggiornare.
+   * @param outputVector Il file renderizzato da aggiornare, oppure {@code null}.
+   * @param vectorFormat Il formato del file renderizzato.
+   * @param options Le opzioni di generazione.
+   * @throws IOException Se non è possibile creare il servizio di osservazione.
+   */
+  public UMLDiagramWatcher(
+      File sourceDir,
+      File outputText,
+      File outputVector,
+      FileFormat vectorFormat,
+      UMLGenerationOptions options)
+      throws IOException {
+    this.root = sourceDir.toPath().toAbsolutePath().normalize();
+    this.outputText = outputText;
+    this.outputVector = outputVector;
+    this.vectorFormat = vectorFormat;
+    this.options = options;
+    this.renders = UMLRenderCache.open(options);
+    this.scanner = options.createScanner();
+    this.watchService = root.getFileSystem().newWatchService();
+  }
+
+  /**
+   * Esegue la generazione iniziale e poi rimane in attesa di modifiche fino all'interruzione del
+   * thread o alla chiusura del watcher. Dopo il primo evento si attende un intervallo di quiete
+   * pari a {@link UMLGenerationOptions#getWatchDebounceMillis()} prima di rigenerare.
+   *
+   * @throws Exception Se la generazione iniziale fallisce.
+   */
+  public void run() throws Exception {
+    initialBuild();
+    try {
+      while (!Thread.currentThread().isInterrupted()) {
+        Set<Path> changed = new TreeSet<>();
+        boolean rescan = collect(watchService.take(), changed);
+        // Debounce: si continua a raccogliere eventi finché non c'è un intervallo di quiete
+        WatchKey key;
+        while ((key = watchService.poll(options.getWatchDebounceMillis(), TimeUnit.MILLISECONDS))
+            != null) {
+          rescan |= collect(key, changed);
+        }
+        if (rescan) {
+          rescan();
+        } else {
+          update(changed);
+        }
+      }
+    } catch (InterruptedException | ClosedWatchServiceException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /** Analizza l'intero albero e registra tutte le directory da osservare. */
+  void initialBuild() throws Exception {
+    registerTree(root);
+    List<Path> files = scanner.scan(root);
+    List<List<UMLClass>> classes = UMLParseStage.extractAll(files, options);
+    model.clear();
+    for (int i = 0; i < files.size(); i++) {
+      model.put(files.get(i), classes.get(i));
+    }
+    emit();
+  }
+
+  /**
+   * Dopo la perdita di eventi (ad esempio un {@code git checkout} molto ampio) analizza di nuovo
+   * l'intero albero, con la stessa tolleranza degli aggiornamenti incrementali: un file non
+   * analizzabile mantiene i tipi precedenti invece di interrompere il watcher.
+   *
+   * @return true se i file di output sono stati riscritti.
+   */
+  boolean rescan() throws Exception {
+    registerTree(root);
+    List<Path> files = scanner.scan(root);
+    UMLGenerationReport report = new UMLGenerationReport();
+    List<List<UMLClass>> parsed = UMLParseStage.extractAll(files, tolerant(options), report);
+    model.keySet().retainAll(new HashSet<>(files));
+    keepParsed(files, parsed, report);
+    return emit();
+  }
+
+  /**
+   * Aggiorna il modello per i percorsi indicati e rigenera il diagramma.
+   *
+   * @param changed I percorsi creati, modificati o cancellati.
+   * @return true se i file di output sono stati riscritti.
+   */
+  boolean update(Set<Path> changed) throws Exception {
+    List<Path> toParse = new ArrayList<>();
+    for (Path path : changed) {
+      if (Files.isDirectory(path)) {
+        // Nuova directory: la si osserva e se ne analizzano i file
+        registerTree(path);
+        for (Path file : scanner.scan(path)) {
+          if (scanner.accepts(root, file)) {
+            toParse.add(file);
+          }
+        }
+      } else if (Files.isRegularFile(path)) {
+        if (scanner.accepts(root, path)) {
+          toParse.add(path);
+        }
+      } else {
+        // Percorso cancellato: file singolo o intera directory. I file della directory non sono
+        // contigui nell'ordine dei percorsi ("foo-old/..." viene prima di "foo/..."), quindi li
+        // si cerca in tutto il modello
+        Path deleted = path;
+        model.keySet().removeIf(file -> file.startsWith(deleted));
+      }
+    }
+    // Un file non analizzabile (ad esempio salvato a metà) non interrompe il watcher: si mantiene
+    // il modello precedente
+    UMLGenerationOptions tolerant = tolerant(options);
+    UMLGenerationReport report = new UMLGenerationReport();
+    List<List<UMLClass>> parsed = UMLParseStage.extractAll(toParse, tolerant, null, report);
+    keepParsed(toParse, parsed, report);
+    return emit();
+  }
+
+  /** Registra nel modello i tipi dei file analizzati, tranne quelli dei file ignorati. */
+  private void keepParsed(
+      List<Path> files, List<List<UMLClass>> parsed, UMLGenerationReport report) {
+    Set<Path> skipped = new HashSet<>();
+    for (UMLGenerationReport.SkippedFile file : report.getSkippedFiles()) {
+      skipped.add(file.getPath());
+    }
+    for (int i = 0; i < files.size(); i++) {
+      if (!skipped.contains(files.get(i))) {
+        model.put(files.get(i), parsed.get(i));
+      }
+    }
+    report.printSkippedFiles(System.err);
+  }
+
+  /**
+   * Copia delle opzioni senza limite di errori, usata per gli aggiornamenti incrementali e per le
+   * nuove scansioni complete.
+   */
+  private static UMLGenerationOptions tolerant(UMLGenerationOptions options) {
+    UMLGenerationOptions copy = new UMLGenerationOptions();
+    copy.setCacheDirectory(options.getCacheDirectory());
+    copy.setParserThreads(options.getParserThreads());
+    copy.setDeclarationsOnly(options.isDeclarationsOnly());
+    copy.setParseTimeoutMillis(options.getParseTimeoutMillis());
+    copy.setTypeClassifier(options.getTypeClassifier());
+    copy.setMemberDetail(options.getMemberDetail());
+    copy.setMaxParseErrors(-1);
+    return copy;
+  }
+
+  /**
+   * Rigenera il testo del diagramma con le opzioni di vista (selezione, vista per package,
+   * raggruppamento) e riscrive gli output solo se è cambiato.
+   */
+  private boolean emit() throws IOException {
+    String diagram;
+    try {
+      diagram = UMLDiagramBuilder.buildBody(model.values(), options);
+    } catch (IllegalArgumentException e) {
+      // Tipo di --focus assente: fatale all'avvio, durante la modifica si mantiene l'output
+      if (lastDiagram == null) {
+        throw e;
+      }
+      System.err.println("Diagramma non aggiornato: " + e.getMessage());
+      return false;
+    }
+    if (diagram.equals(lastDiagram)) {
+      return false;
+    }
+    lastDiagram = diagram;
+    // Stesso percorso di scrittura della generazione singola: codifica e scrittura condizionata
+    UMLGenerator.writeSource(
+        outputText,
+        renders,
+        writer -> UMLDiagramBuilder.write(diagram, UMLDiagramBuilder.Target.TEXT, writer));
+    if (outputVector != null) {
+      renders.render(
+          UMLDiagramBuilder.wrap(diagram, UMLDiagramBuilder.Target.IMAGE, options.getLayout()),
+          outputVector,
+          vectorFormat);
+    }
+    return true;
+  }
+
+  /**
+   * Raccoglie i percorsi toccati dagli eventi di una chiave.
+   *
+   * @return true se alcuni eventi sono andati persi ed è necessaria una scansione completa.
+   */
+  private boolean collect(WatchKey key, Set<Path> changed) {
+    Path dir = watchedDirs.get(key);
+    boolean overflow = false;
+    for (WatchEvent<?> event : key.pollEvents()) {
+      if (event.kind() == OVERFLOW) {
+        overflow = true;
+      } else if (dir != null) {
+        Path path = dir.resolve((Path) event.context());
+        // Le directory escluse (es. target/) non vengono mai osservate né analizzate
+        if (!scanner.excludes(root, path)) {
+          changed.add(path);
+        }
+      }
+    }
+    if (!key.reset()) {
+      watchedDirs.remove(key);
+    }
+    return overflow;
+  }
+
+  private void registerTree(Path dir) throws IOException {
+    scanner.scanDirectories(
+        dir,
+        d -> {
+          try {
+            watchedDirs.put(d.register(watchService, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY), d);
+          } catch (IOException e) {
+            System.err.println("Impossibile osservare " + d + ": " + e.getMessage());
+          }
+        });
+  }
+
+  @Override
+  public void close() throws IOException {
+    watchService.close();
+  }
+}
@@ -1,16 +1,18 @@
 package com.fabio.org.amuleto.converter;
 
+import com.fabio.org.amuleto.model.UMLClass;
+import com.fabio.org.amuleto.model.UMLMember;
 import com.github.javaparser.ast.body.EnumConstantDeclaration;
 import com.github.javaparser.ast.body.EnumDeclaration;
 
 public class UMLEnumProcessor {
 
-  public static void processEnum(EnumDeclaration enumDecl, StringBuilder uml) {
-    String enumName = enumDecl.getNameAsString();
-    uml.append("enum ").append(enumName).append(" {\n");
+  public static UMLClass.Builder processEnum(EnumDeclaration enumDecl, String packageName) {
+    UMLClass.Builder umlClass =
+        new UMLClass.Builder(packageName, enumDecl.getNameAsString(), UMLClass.Kind.ENUM);
     for (EnumConstantDeclaration constant : enumDecl.getEntries()) {
-      uml.append("  ").append(constant.getNameAsString()).append("\n");
+      umlClass.addMember(UMLMember.enumConstant(constant.getNameAsString()));
     }
-    uml.append("}\n\n");
+    return umlClass;
   }
 }
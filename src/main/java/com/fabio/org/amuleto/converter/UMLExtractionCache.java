@@ -0,0 +1,509 @@
+package com.fabio.org.amuleto.converter;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.fabio.org.amuleto.model.UMLClass;
+import com.fabio.org.amuleto.model.UMLMember;
+import com.fabio.org.amuleto.model.UMLRelationship;
+import com.fabio.org.amuleto.utils.UMLTypeClassifier;
+import com.fabio.org.amuleto.view.RelationshipType;
+
+/**
+ * Cache persistente dei tipi del modello intermedio estratti da ogni file sorgente. Le voci sono
+ * indicizzate per percorso assoluto (o URI, per i file letti da un archivio) e validate tramite
+ * dimensione e data di modifica; se queste non coincidono viene confrontato l'hash SHA-256 del
+ * contenuto, così che un checkout che tocca i file senza modificarli non invalidi la cache.
+ *
+ * <p>La cache è salvata in un unico file binario nella directory indicata. L'intestazione contiene
+ * un'impronta delle classi di estrazione e la modalità di parsing: se una delle due cambia,
+ * l'intero contenuto viene scartato.
+ */
+public class UMLExtractionCache {
+
+  /** Nome della directory di cache suggerito. */
+  public static final String DEFAULT_DIRECTORY = ".amuleto-cache";
+
+  private static final String FILE_NAME = "extraction.bin";
+  private static final int MAGIC = 0x414d5543; // "AMUC"
+  private static final int FORMAT_VERSION = 4;
+
+  // Classi il cui bytecode determina il contenuto del modello estratto: estrattori, filtro dei
+  // membri e scelta del parser (livello di linguaggio, lexer, bytecode). Le classi annidate e
+  // anonime sono comprese nell'impronta della classe che le contiene
+  private static final Class<?>[] EXTRACTOR_CLASSES = {
+    UMLProcessor.class,
+    UMLExtractionVisitor.class,
+    UMLTypeProcessor.class,
+    UMLEnumProcessor.class,
+    UMLFieldProcessor.class,
+    UMLAssociationProcessor.class,
+    UMLConstructorProcessor.class,
+    UMLMethodProcessor.class,
+    UMLSignatureLexer.class,
+    UMLBytecodeProcessor.class,
+    UMLClassFileReader.class,
+    UMLMemberDetail.class,
+    UMLParseStage.class,
+    com.fabio.org.amuleto.model.UMLClass.class,
+    com.fabio.org.amuleto.model.UMLMember.class,
+    com.fabio.org.amuleto.model.UMLRelationship.class,
+    com.fabio.org.amuleto.utils.UMLUtils.class,
+    UMLTypeClassifier.class
+  };
+
+  private final Path file;
+  private final String fingerprint;
+  // Voci caricate dal disco
+  private final Map<String, Entry> stored = new HashMap<>();
+  // Voci valide per l'esecuzione corrente: sono le sole che verranno salvate
+  private final Map<String, Entry> current = new LinkedHashMap<>();
+  private int hits;
+  private int misses;
+
+  /** Voce della cache relativa a un singolo file sorgente. */
+  private static final class Entry {
+    final long size;
+    final long modified;
+    final byte[] hash;
+    final UMLMemberDetail.Filtered types;
+
+    Entry(long size, long modified, byte[] hash, UMLMemberDetail.Filtered types) {
+      this.size = size;
+      this.modified = modified;
+      this.hash = hash;
+      this.types = types;
+    }
+  }
+
+  /**
+   * Versione del contenuto di un file: dimensione e hash dei byte analizzati, con la data di
+   * modifica letta prima di leggerli. Viene calcolata dal worker che analizza il file, così che la
+   * voce memorizzata descriva esattamente il contenuto da cui sono stati estratti i tipi.
+   */
+  static final class Version {
+    final long size;
+    final long modified;
+    final byte[] hash;
+
+    private Version(long size, long modified, byte[] hash) {
+      this.size = size;
+      this.modified = modified;
+      this.hash = hash;
+    }
+  }
+
+  private UMLExtractionCache(Path file, String fingerprint) {
+    this.file = file;
+    this.fingerprint = fingerprint;
+  }
+
+  /**
+   * Apre la cache nella directory indicata. Una cache mancante, illeggibile o prodotta da una
+   * versione diversa degli estrattori viene trattata come vuota.
+   *
+   * @param directory La directory della cache (creata al salvataggio se non esiste).
+   * @param declarationsOnly La modalità di parsing dell'esecuzione corrente.
+   * @return La cache aperta.
+   */
+  public static UMLExtractionCache open(File directory, boolean declarationsOnly) {
+    return open(
+        directory, declarationsOnly, UMLTypeClassifier.defaults(), UMLMemberDetail.defaults());
+  }
+
+  /**
+   * Apre la cache nella directory indicata. Una cache mancante, illeggibile o prodotta da una
+   * versione diversa degli estrattori, con un'altra tabella dei tipi o con un altro livello di
+   * dettaglio dei membri viene trattata come vuota.
+   *
+   * @param directory La directory della cache (creata al salvataggio se non esiste).
+   * @param declarationsOnly La modalità di parsing dell'esecuzione corrente.
+   * @param classifier Il classificatore dei tipi dell'esecuzione corrente.
+   * @param detail Il livello di dettaglio dei membri dell'esecuzione corrente.
+   * @return La cache aperta.
+   */
+  public static UMLExtractionCache open(
+      File directory,
+      boolean declarationsOnly,
+      UMLTypeClassifier classifier,
+      UMLMemberDetail detail) {
+    UMLExtractionCache cache =
+        new UMLExtractionCache(
+            directory.toPath().resolve(FILE_NAME),
+            extractorFingerprint()
+                + (declarationsOnly ? ":declarations" : ":full")
+                + ":"
+                + classifier.fingerprint()
+                + ":"
+                + detail.fingerprint());
+    try {
+      cache.load();
+    } catch (IOException | RuntimeException e) {
+      // File troncato o corrotto (ad esempio un ordinale fuori intervallo): si riparte da zero
+      cache.stored.clear();
+    }
+    return cache;
+  }
+
+  /**
+   * Restituisce i tipi memorizzati per il file, con i contatori del livello di dettaglio, oppure
+   * {@code null} se il file è nuovo o è cambiato dall'ultima esecuzione.
+   */
+  public UMLMemberDetail.Filtered lookup(Path source) throws IOException {
+    String key = key(source);
+    Entry entry = stored.get(key);
+    BasicFileAttributes attrs = Files.readAttributes(source, BasicFileAttributes.class);
+    long size = attrs.size();
+    long modified = attrs.lastModifiedTime().toMillis();
+    if (entry != null && entry.size == size && entry.modified == modified) {
+      current.put(key, entry);
+      hits++;
+      return entry.types;
+    }
+    if (entry != null && entry.size == size) {
+      // Metadati cambiati: si ricorre all'hash del contenuto
+      byte[] hash = hash(Files.readAllBytes(source));
+      if (Arrays.equals(hash, entry.hash)) {
+        current.put(key, new Entry(size, modified, hash, entry.types));
+        hits++;
+        return entry.types;
+      }
+    }
+    misses++;
+    return null;
+  }
+
+  /**
+   * Calcola la versione del contenuto analizzato.
+   *
+   * @param modified La data di modifica del file, letta prima del contenuto.
+   * @param content I byte analizzati.
+   */
+  static Version version(long modified, byte[] content) {
+    return new Version(content.length, modified, hash(content));
+  }
+
+  /**
+   * Memorizza i tipi appena estratti da un file, con i contatori del livello di dettaglio e la
+   * versione del contenuto da cui sono stati estratti.
+   */
+  void store(Path source, Version version, UMLMemberDetail.Filtered types) {
+    current.put(key(source), new Entry(version.size, version.modified, version.hash, types));
+  }
+
+  public int getHits() {
+    return hits;
+  }
+
+  public int getMisses() {
+    return misses;
+  }
+
+  /**
+   * Salva su disco le voci valide per l'esecuzione corrente. La scrittura avviene su un file
+   * temporaneo con un nome univoco poi rinominato, così che un'interruzione non lasci una cache
+   * corrotta e che due esecuzioni che condividono la directory non scrivano sullo stesso file.
+   */
+  public void save() throws IOException {
+    Files.createDirectories(file.getParent());
+    Path tmp = Files.createTempFile(file.getParent(), "extraction", ".tmp");
+    try {
+      write(tmp);
+      Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException | RuntimeException e) {
+      Files.deleteIfExists(tmp);
+      throw e;
+    }
+  }
+
+  private void write(Path target) throws IOException {
+    try (DataOutputStream out =
+        new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(target)))) {
+      out.writeInt(MAGIC);
+      out.writeInt(FORMAT_VERSION);
+      writeString(out, fingerprint);
+      out.writeInt(current.size());
+      for (Map.Entry<String, Entry> e : current.entrySet()) {
+        Entry entry = e.getValue();
+        writeString(out, e.getKey());
+        out.writeLong(entry.size);
+        out.writeLong(entry.modified);
+        out.writeShort(entry.hash.length);
+        out.write(entry.hash);
+        out.writeInt(entry.types.getExtractedMembers());
+        out.writeInt(entry.types.getKeptMembers());
+        out.writeLong(entry.types.getSavedChars());
+        out.writeInt(entry.types.getClasses().size());
+        for (UMLClass umlClass : entry.types.getClasses()) {
+          writeClass(out, umlClass);
+        }
+      }
+    }
+  }
+
+  private void load() throws IOException {
+    if (!Files.isRegularFile(file)) {
+      return;
+    }
+    try (DataInputStream in =
+        new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+      if (in.readInt() != MAGIC
+          || in.readInt() != FORMAT_VERSION
+          || !readString(in).equals(fingerprint)) {
+        return;
+      }
+      int count = readCount(in);
+      for (int i = 0; i < count; i++) {
+        String key = readString(in);
+        long size = in.readLong();
+        long modified = in.readLong();
+        byte[] hash = new byte[in.readUnsignedShort()];
+        in.readFully(hash);
+        int extractedMembers = in.readInt();
+        int keptMembers = in.readInt();
+        long savedChars = in.readLong();
+        int classCount = readCount(in);
+        List<UMLClass> classes = new ArrayList<>();
+        for (int j = 0; j < classCount; j++) {
+          classes.add(readClass(in));
+        }
+        stored.put(
+            key,
+            new Entry(
+                size,
+                modified,
+                hash,
+                new UMLMemberDetail.Filtered(classes, extractedMembers, keptMembers, savedChars)));
+      }
+    }
+  }
+
+  private static void writeClass(DataOutputStream out, UMLClass umlClass) throws IOException {
+    writeString(out, umlClass.getPackageName());
+    writeString(out, umlClass.getName());
+    out.writeByte(umlClass.getKind().ordinal());
+    out.writeBoolean(umlClass.isAssociationClass());
+    out.writeInt(umlClass.getImports().size());
+    for (String importName : umlClass.getImports()) {
+      writeString(out, importName);
+    }
+    out.writeInt(umlClass.getMembers().size());
+    for (UMLMember member : umlClass.getMembers()) {
+      out.writeByte(member.getKind().ordinal());
+      writeString(out, member.getVisibility());
+      out.writeBoolean(member.isStatic());
+      out.writeBoolean(member.isFinal());
+      out.writeBoolean(member.isAbstract());
+      writeString(out, member.getName());
+      writeNullableString(out, member.getType());
+      out.writeInt(member.getParameters().size());
+      for (UMLMember.Parameter parameter : member.getParameters()) {
+        writeString(out, parameter.getName());
+        writeString(out, parameter.getType());
+      }
+      out.writeInt(member.getProperties().size());
+      for (String property : member.getProperties()) {
+        writeString(out, property);
+      }
+    }
+    out.writeInt(umlClass.getRelationships().size());
+    for (UMLRelationship relationship : umlClass.getRelationships()) {
+      out.writeByte(relationship.getType().ordinal());
+      writeString(out, relationship.getSource());
+      writeString(out, relationship.getTarget());
+      writeNullableString(out, relationship.getLabel());
+      writeNullableString(out, relationship.getSourceMultiplicity());
+      writeNullableString(out, relationship.getTargetMultiplicity());
+    }
+  }
+
+  private static UMLClass readClass(DataInputStream in) throws IOException {
+    String packageName = readString(in);
+    String name = readString(in);
+    UMLClass.Builder builder =
+        new UMLClass.Builder(packageName, name, UMLClass.Kind.values()[in.readByte()]);
+    builder.setAssociationClass(in.readBoolean());
+    int importCount = readCount(in);
+    for (int i = 0; i < importCount; i++) {
+      builder.addImport(readString(in));
+    }
+    int memberCount = readCount(in);
+    for (int i = 0; i < memberCount; i++) {
+      builder.addMember(readMember(in));
+    }
+    int relationshipCount = readCount(in);
+    for (int i = 0; i < relationshipCount; i++) {
+      builder.addRelationship(
+          new UMLRelationship(
+              RelationshipType.values()[in.readByte()],
+              readString(in),
+              readString(in),
+              readNullableString(in),
+              readNullableString(in),
+              readNullableString(in)));
+    }
+    return builder.build();
+  }
+
+  private static UMLMember readMember(DataInputStream in) throws IOException {
+    UMLMember.Kind kind = UMLMember.Kind.values()[in.readByte()];
+    String visibility = readString(in);
+    boolean isStatic = in.readBoolean();
+    boolean isFinal = in.readBoolean();
+    boolean isAbstract = in.readBoolean();
+    String name = readString(in);
+    String type = readNullableString(in);
+    int parameterCount = readCount(in);
+    List<UMLMember.Parameter> parameters = new ArrayList<>();
+    for (int i = 0; i < parameterCount; i++) {
+      parameters.add(new UMLMember.Parameter(readString(in), readString(in)));
+    }
+    int propertyCount = readCount(in);
+    List<String> properties = new ArrayList<>();
+    for (int i = 0; i < propertyCount; i++) {
+      properties.add(readString(in));
+    }
+    switch (kind) {
+      case FIELD:
+        return UMLMember.field(visibility, isStatic, isFinal, name, type, properties);
+      case CONSTRUCTOR:
+        return UMLMember.constructor(visibility, name, parameters);
+      case METHOD:
+        return UMLMember.method(visibility, isStatic, isFinal, isAbstract, name, parameters, type);
+      default:
+        return UMLMember.enumConstant(name);
+    }
+  }
+
+  private static void writeNullableString(DataOutputStream out, String value) throws IOException {
+    out.writeBoolean(value != null);
+    if (value != null) {
+      writeString(out, value);
+    }
+  }
+
+  private static String readNullableString(DataInputStream in) throws IOException {
+    return in.readBoolean() ? readString(in) : null;
+  }
+
+  // A differenza di writeUTF non ha il limite di 64 KB per stringa
+  private static void writeString(DataOutputStream out, String value) throws IOException {
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  // Le liste non vengono preallocate: un numero di elementi corrotto non deve esaurire la memoria
+  private static int readCount(DataInputStream in) throws IOException {
+    int count = in.readInt();
+    if (count < 0) {
+      throw new EOFException("Numero di elementi non valido: " + count);
+    }
+    return count;
+  }
+
+  private static String readString(DataInputStream in) throws IOException {
+    int length = in.readInt();
+    if (length < 0) {
+      throw new EOFException("Lunghezza non valida: " + length);
+    }
+    // Letta a blocchi: una lunghezza corrotta si ferma alla fine del file senza allocarla tutta
+    byte[] bytes = in.readNBytes(length);
+    if (bytes.length < length) {
+      throw new EOFException();
+    }
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  // I file letti da un archivio sono indicizzati per URI (jar:file:...!/p/A.java), che a
+  // differenza del percorso identifica anche l'archivio
+  private static String key(Path source) {
+    if (source.getFileSystem() != FileSystems.getDefault()) {
+      return source.toUri().toString();
+    }
+    return source.toAbsolutePath().normalize().toString();
+  }
+
+  private static byte[] hash(byte[] content) {
+    return sha256().digest(content);
+  }
+
+  private static MessageDigest sha256() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * Calcola l'impronta delle classi di estrazione a partire dal loro bytecode, comprese le classi
+   * annidate e anonime: qualsiasi modifica ai processor invalida automaticamente le cache
+   * esistenti.
+   */
+  static String extractorFingerprint() {
+    MessageDigest digest = sha256();
+    byte[] buffer = new byte[8192];
+    for (Class<?> type : EXTRACTOR_CLASSES) {
+      digestClass(digest, type, buffer);
+    }
+    StringBuilder hex = new StringBuilder();
+    for (byte b : digest.digest()) {
+      hex.append(String.format("%02x", b));
+    }
+    return hex.toString();
+  }
+
+  private static void digestClass(MessageDigest digest, Class<?> type, byte[] buffer) {
+    String resource = "/" + type.getName().replace('.', '/');
+    digest.update(type.getName().getBytes(StandardCharsets.UTF_8));
+    digestResource(digest, resource + ".class", buffer);
+    // Le classi anonime sono numerate di seguito a partire da 1
+    int anonymous = 1;
+    while (digestResource(digest, resource + "$" + anonymous + ".class", buffer)) {
+      anonymous++;
+    }
+    Class<?>[] nested = type.getDeclaredClasses();
+    Arrays.sort(nested, Comparator.comparing(Class::getName));
+    for (Class<?> inner : nested) {
+      digestClass(digest, inner, buffer);
+    }
+  }
+
+  /** Aggiunge all'impronta il contenuto di una risorsa, se esiste. */
+  private static boolean digestResource(MessageDigest digest, String resource, byte[] buffer) {
+    try (InputStream in = UMLExtractionCache.class.getResourceAsStream(resource)) {
+      if (in == null) {
+        return false;
+      }
+      int read;
+      while ((read = in.read(buffer)) > 0) {
+        digest.update(buffer, 0, read);
+      }
+      return true;
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+}
@@ -0,0 +1,187 @@
+package com.fabio.org.amuleto.converter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.fabio.org.amuleto.model.UMLClass;
+import com.fabio.org.amuleto.utils.UMLTypeClassifier;
+import com.fabio.org.amuleto.utils.UMLUtils;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.ImportDeclaration;
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.NodeList;
+import com.github.javaparser.ast.body.BodyDeclaration;
+import com.github.javaparser.ast.body.ClassOrInterfaceDeclaration;
+import com.github.javaparser.ast.body.ConstructorDeclaration;
+import com.github.javaparser.ast.body.EnumDeclaration;
+import com.github.javaparser.ast.body.FieldDeclaration;
+import com.github.javaparser.ast.body.MethodDeclaration;
+import com.github.javaparser.ast.body.Parameter;
+import com.github.javaparser.ast.body.RecordDeclaration;
+import com.github.javaparser.ast.body.TypeDeclaration;
+import com.github.javaparser.ast.expr.AnnotationExpr;
+import com.github.javaparser.ast.type.ClassOrInterfaceType;
+import com.github.javaparser.ast.visitor.GenericVisitorWithDefaults;
+
+/**
+ * Estrae i tipi di primo livello di una compilation unit con un'unica visita dell'AST. I membri di
+ * ogni tipo vengono percorsi una sola volta, nell'ordine di dichiarazione, al posto delle tre
+ * scansioni di {@code getFields()}, {@code getConstructors()} e {@code getMethods()}, ognuna delle
+ * quali filtra l'intero elenco dei membri e crea una nuova lista.
+ *
+ * <p>Gli attributi vengono elaborati subito; costruttori e metodi vengono accodati e elaborati al
+ * termine del tipo, così che il modello conservi l'ordine storico dei membri (attributi,
+ * costruttori, metodi). Le code sono riutilizzate per tutti i tipi della compilation unit.
+ *
+ * <p>I tipi annidati vengono attraversati senza essere estratti, come nel front end del bytecode:
+ * il diagramma rappresenta solo i tipi di primo livello. Il parametro della visita è il tipo che
+ * contiene il nodo visitato, {@code null} per le dichiarazioni di primo livello.
+ *
+ * <p>Un'istanza estrae una sola compilation unit e non è thread-safe.
+ */
+final class UMLExtractionVisitor extends GenericVisitorWithDefaults<Void, UMLClass.Builder> {
+
+  private final UMLTypeClassifier classifier;
+  private String packageName = "";
+  private final List<String> imports = new ArrayList<>();
+  private final List<UMLClass> types = new ArrayList<>();
+  // Costruttori e metodi del tipo corrente, elaborati dopo gli attributi
+  private final List<ConstructorDeclaration> constructors = new ArrayList<>();
+  private final List<MethodDeclaration> methods = new ArrayList<>();
+
+  UMLExtractionVisitor(UMLTypeClassifier classifier) {
+    this.classifier = classifier;
+  }
+
+  /** Visita la compilation unit e restituisce i suoi tipi di primo livello, in ordine. */
+  List<UMLClass> extract(CompilationUnit cu) {
+    cu.accept(this, null);
+    return types;
+  }
+
+  @Override
+  public Void visit(CompilationUnit cu, UMLClass.Builder outer) {
+    if (cu.getPackageDeclaration().isPresent()) {
+      packageName = cu.getPackageDeclaration().get().getNameAsString();
+    }
+    // Importazioni non statiche, con il suffisso ".*" per quelle su richiesta
+    for (ImportDeclaration importDecl : cu.getImports()) {
+      if (!importDecl.isStatic()) {
+        String name = importDecl.getNameAsString();
+        imports.add(importDecl.isAsterisk() ? name + ".*" : name);
+      }
+    }
+    for (TypeDeclaration<?> type : cu.getTypes()) {
+      type.accept(this, null);
+    }
+    return null;
+  }
+
+  @Override
+  public Void visit(ClassOrInterfaceDeclaration cid, UMLClass.Builder outer) {
+    if (outer != null) {
+      return null;
+    }
+    UMLClass.Builder umlClass = UMLTypeProcessor.newType(cid, packageName);
+    visitMembers(cid.getMembers(), umlClass);
+    UMLTypeProcessor.addSupertypes(cid, umlClass);
+    add(umlClass);
+    return null;
+  }
+
+  @Override
+  public Void visit(EnumDeclaration enumDecl, UMLClass.Builder outer) {
+    if (outer == null) {
+      add(UMLEnumProcessor.processEnum(enumDecl, packageName));
+    }
+    return null;
+  }
+
+  /**
+   * Un record è rappresentato come una classe: i componenti diventano attributi privati e final,
+   * con le relative associazioni, seguiti dai membri dichiarati nel corpo.
+   */
+  @Override
+  public Void visit(RecordDeclaration record, UMLClass.Builder outer) {
+    if (outer != null) {
+      return null;
+    }
+    UMLClass.Builder umlClass =
+        new UMLClass.Builder(packageName, record.getNameAsString(), UMLClass.Kind.CLASS);
+    for (Parameter component : record.getParameters()) {
+      List<String> annotationNames = new ArrayList<>();
+      for (AnnotationExpr ann : component.getAnnotations()) {
+        annotationNames.add(ann.getNameAsString());
+      }
+      String componentType = UMLUtils.getTypeString(component.getType());
+      UMLFieldProcessor.addField(
+          umlClass, "-", false, true, annotationNames, component.getNameAsString(), componentType);
+      UMLAssociationProcessor.addAssociation(
+          umlClass,
+          classifier,
+          componentType,
+          UMLUtils.hasAnnotation(component, "composition"),
+          UMLUtils.hasAnnotation(component, "aggregation"),
+          component.getNameAsString());
+    }
+    visitMembers(record.getMembers(), umlClass);
+    for (ClassOrInterfaceType implType : record.getImplementedTypes()) {
+      UMLTypeProcessor.addImplementation(umlClass, implType.getNameAsString());
+    }
+    add(umlClass);
+    return null;
+  }
+
+  @Override
+  public Void visit(FieldDeclaration field, UMLClass.Builder umlClass) {
+    UMLFieldProcessor.processFields(field, umlClass, classifier);
+    return null;
+  }
+
+  @Override
+  public Void visit(ConstructorDeclaration constructor, UMLClass.Builder umlClass) {
+    constructors.add(constructor);
+    return null;
+  }
+
+  @Override
+  public Void visit(MethodDeclaration method, UMLClass.Builder umlClass) {
+    methods.add(method);
+    return null;
+  }
+
+  /**
+   * Le altre dichiarazioni di primo livello (ad esempio le annotazioni) producono un tipo non
+   * rappresentato nel diagramma; inizializzatori, costanti delle annotazioni e tipi annidati non
+   * rappresentati vengono ignorati senza visitarne il contenuto.
+   */
+  @Override
+  public Void defaultAction(Node node, UMLClass.Builder outer) {
+    if (outer == null && node instanceof TypeDeclaration) {
+      add(
+          new UMLClass.Builder(
+              packageName, ((TypeDeclaration<?>) node).getNameAsString(), UMLClass.Kind.OTHER));
+    }
+    return null;
+  }
+
+  /** Visita i membri di un tipo in un solo passaggio, poi elabora costruttori e metodi accodati. */
+  private void visitMembers(NodeList<BodyDeclaration<?>> members, UMLClass.Builder umlClass) {
+    for (BodyDeclaration<?> member : members) {
+      member.accept(this, umlClass);
+    }
+    for (ConstructorDeclaration constructor : constructors) {
+      UMLConstructorProcessor.processConstructor(constructor, umlClass);
+    }
+    for (MethodDeclaration method : methods) {
+      UMLMethodProcessor.processMethod(method, umlClass, classifier);
+    }
+    constructors.clear();
+    methods.clear();
+  }
+
+  private void add(UMLClass.Builder umlClass) {
+    imports.forEach(umlClass::addImport);
+    types.add(umlClass.build());
+  }
+}
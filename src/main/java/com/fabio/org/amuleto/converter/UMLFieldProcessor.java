@@ -2,8 +2,10 @@ package com.fabio.org.amuleto.converter;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Set;
 
+import com.fabio.org.amuleto.model.UMLClass;
+import com.fabio.org.amuleto.model.UMLMember;
+import com.fabio.org.amuleto.utils.UMLTypeClassifier;
 import com.fabio.org.amuleto.utils.UMLUtils;
 import com.github.javaparser.ast.body.FieldDeclaration;
 import com.github.javaparser.ast.body.VariableDeclarator;
@@ -12,55 +14,61 @@ import com.github.javaparser.ast.expr.AnnotationExpr;
 public class UMLFieldProcessor {
 
   public static void processFields(
-      FieldDeclaration field,
-      String className,
-      StringBuilder uml,
-      StringBuilder relationships,
-      Set<String> definedTypes,
-      boolean isAssociationClass) {
-    String modifiersMarker = "";
-    if (field.isStatic()) {
-      modifiersMarker += " {static}";
-    }
-    if (field.isFinal()) {
-      modifiersMarker += " {final}";
+      FieldDeclaration field, UMLClass.Builder umlClass, UMLTypeClassifier classifier) {
+    List<String> annotationNames = new ArrayList<>();
+    for (AnnotationExpr ann : field.getAnnotations()) {
+      annotationNames.add(ann.getNameAsString());
     }
+    String visibility = UMLUtils.getVisibilitySymbol(field);
     for (VariableDeclarator var : field.getVariables()) {
       String fieldName = var.getNameAsString();
       String fieldType = UMLUtils.getTypeString(var.getType());
-      String visibility = UMLUtils.getVisibilitySymbol(field);
-      List<String> properties = new ArrayList<>();
-      for (AnnotationExpr ann : field.getAnnotations()) {
-        String annName = ann.getNameAsString().toLowerCase();
-        if (annName.equals("readonly")
-            || annName.equals("unique")
-            || annName.equals("nonunique")
-            || annName.equals("ordered")
-            || annName.equals("unordered")
-            || annName.equals("aggregation")
-            || annName.equals("composition")
-            || annName.equals("navigable")
-            || annName.equals("nonnavigable")
-            || annName.equals("derived")) {
-          properties.add(annName);
-        }
-      }
-      String propStr = properties.isEmpty() ? "" : " {" + String.join(", ", properties) + "}";
-      uml.append("  ")
-          .append(visibility)
-          .append(modifiersMarker)
-          .append(" ")
-          .append(fieldName)
-          .append(" : ")
-          .append(fieldType)
-          .append(propStr)
-          .append("\n");
+      addField(
+          umlClass,
+          visibility,
+          field.isStatic(),
+          field.isFinal(),
+          annotationNames,
+          fieldName,
+          fieldType);
 
       // Se la classe non è associativa, delega l’elaborazione delle associazioni
-      if (!isAssociationClass) {
+      if (!umlClass.isAssociationClass()) {
         UMLAssociationProcessor.processAssociation(
-            var.getType(), field, className, fieldName, uml, relationships, definedTypes);
+            var.getType(), field, fieldName, umlClass, classifier);
+      }
+    }
+  }
+
+  /**
+   * Aggiunge un attributo al tipo. Usato sia dal front end dei sorgenti sia da quello del bytecode,
+   * così che le due rappresentazioni coincidano.
+   */
+  static void addField(
+      UMLClass.Builder umlClass,
+      String visibility,
+      boolean isStatic,
+      boolean isFinal,
+      List<String> annotationNames,
+      String fieldName,
+      String fieldType) {
+    List<String> properties = new ArrayList<>();
+    for (String name : annotationNames) {
+      String annName = name.toLowerCase();
+      if (annName.equals("readonly")
+          || annName.equals("unique")
+          || annName.equals("nonunique")
+          || annName.equals("ordered")
+          || annName.equals("unordered")
+          || annName.equals("aggregation")
+          || annName.equals("composition")
+          || annName.equals("navigable")
+          || annName.equals("nonnavigable")
+          || annName.equals("derived")) {
+        properties.add(annName);
       }
     }
+    umlClass.addMember(
+        UMLMember.field(visibility, isStatic, isFinal, fieldName, fieldType, properties));
   }
 }
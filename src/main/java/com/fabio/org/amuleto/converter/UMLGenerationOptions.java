@@ -0,0 +1,276 @@
+package com.fabio.org.amuleto.converter;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.fabio.org.amuleto.utils.UMLSourceScanner;
+import com.fabio.org.amuleto.utils.UMLSourceSet;
+import com.fabio.org.amuleto.utils.UMLTypeClassifier;
+
+/**
+ * Opzioni di generazione condivise da {@link UMLTextGenerator} e {@link UMLVectorGenerator}. Un
+ * oggetto costruito con il costruttore predefinito riproduce il comportamento storico dei
+ * generatori.
+ */
+public class UMLGenerationOptions {
+  // Glob dei file sorgente da includere
+  private List<String> includeGlobs = new ArrayList<>(UMLSourceScanner.DEFAULT_INCLUDES);
+  // Glob di file e directory da escludere dalla scansione
+  private List<String> excludeGlobs = new ArrayList<>(UMLSourceScanner.DEFAULT_EXCLUDES);
+  // Numero di thread dello stadio di parsing
+  private int parserThreads = Runtime.getRuntime().availableProcessors();
+  // Se vero, il parsing ignora i corpi dei membri (vedi UMLSignatureLexer)
+  private boolean declarationsOnly;
+  // Directory della cache di estrazione, null se disattivata
+  private File cacheDirectory;
+  // Intervallo di quiete della modalità watch prima di rigenerare il diagramma
+  private long watchDebounceMillis = 300;
+  // Se vero, vengono letti anche gli archivi .jar/.zip trovati nella directory dei sorgenti
+  private boolean scanArchives;
+  // Numero massimo di file non analizzabili tollerati: 0 interrompe al primo errore, -1 nessun
+  // limite
+  private int maxParseErrors;
+  // Tempo massimo di parsing di un singolo file, 0 se illimitato
+  private long parseTimeoutMillis;
+  // Classificazione dei tipi di attributi e parametri (primitivi, contenitori, wrapper, ...)
+  private UMLTypeClassifier typeClassifier = UMLTypeClassifier.defaults();
+  // Livello di dettaglio dei membri, applicato durante l'estrazione
+  private UMLMemberDetail memberDetail = UMLMemberDetail.defaults();
+  // Formato del resoconto delle dipendenze scritto accanto al diagramma, null se disattivato
+  private UMLDependencyReport.Format reportFormat;
+  // Tipi di interesse: se presenti, il diagramma contiene solo i tipi a distanza al più
+  // focusDepth da essi, seguendo le relazioni nel verso focusDirection
+  private List<String> focusTypes = new ArrayList<>();
+  private int focusDepth = 1;
+  private UMLDiagramSelection.Direction focusDirection = UMLDiagramSelection.Direction.BOTH;
+  // Numero massimo di tipi da rappresentare, scelti per centralità con ranking; 0 se illimitato
+  private int topTypes;
+  private UMLDiagramSelection.Ranking ranking = UMLDiagramSelection.Ranking.PAGERANK;
+  // Vista d'insieme per package (vedi UMLPackageOverview): numero di segmenti del prefisso che
+  // identifica un nodo, 0 per il package completo, -1 se disattivata
+  private int overviewDepth = -1;
+  // Raggruppamento dei tipi per accoppiamento invece che per package, null se disattivato
+  private UMLClustering.Style clusterStyle;
+  // Rendering suddiviso per package (vedi UMLDiagramShards): numero di segmenti del prefisso che
+  // identifica una parte, 0 per il package completo, -1 se disattivato
+  private int shardDepth = -1;
+  // Motore di layout delle immagini
+  private UMLVectorGenerator.Layout layout = UMLVectorGenerator.Layout.DOT;
+  // Se vero, i file di output il cui contenuto non è cambiato non vengono riscritti
+  private boolean skipUnchanged;
+
+  public List<String> getIncludeGlobs() {
+    return includeGlobs;
+  }
+
+  public void setIncludeGlobs(List<String> includeGlobs) {
+    this.includeGlobs = includeGlobs;
+  }
+
+  public List<String> getExcludeGlobs() {
+    return excludeGlobs;
+  }
+
+  public void setExcludeGlobs(List<String> excludeGlobs) {
+    this.excludeGlobs = excludeGlobs;
+  }
+
+  public int getParserThreads() {
+    return parserThreads;
+  }
+
+  public void setParserThreads(int parserThreads) {
+    if (parserThreads < 1) {
+      throw new IllegalArgumentException("Il numero di thread deve essere positivo");
+    }
+    this.parserThreads = parserThreads;
+  }
+
+  public boolean isDeclarationsOnly() {
+    return declarationsOnly;
+  }
+
+  public void setDeclarationsOnly(boolean declarationsOnly) {
+    this.declarationsOnly = declarationsOnly;
+  }
+
+  public File getCacheDirectory() {
+    return cacheDirectory;
+  }
+
+  public void setCacheDirectory(File cacheDirectory) {
+    this.cacheDirectory = cacheDirectory;
+  }
+
+  public long getWatchDebounceMillis() {
+    return watchDebounceMillis;
+  }
+
+  public void setWatchDebounceMillis(long watchDebounceMillis) {
+    this.watchDebounceMillis = watchDebounceMillis;
+  }
+
+  public boolean isScanArchives() {
+    return scanArchives;
+  }
+
+  public void setScanArchives(boolean scanArchives) {
+    this.scanArchives = scanArchives;
+  }
+
+  public int getMaxParseErrors() {
+    return maxParseErrors;
+  }
+
+  public void setMaxParseErrors(int maxParseErrors) {
+    if (maxParseErrors < -1) {
+      throw new IllegalArgumentException("Il limite di errori deve essere -1 o non negativo");
+    }
+    this.maxParseErrors = maxParseErrors;
+  }
+
+  public long getParseTimeoutMillis() {
+    return parseTimeoutMillis;
+  }
+
+  public void setParseTimeoutMillis(long parseTimeoutMillis) {
+    if (parseTimeoutMillis < 0) {
+      throw new IllegalArgumentException("Il timeout di parsing non può essere negativo");
+    }
+    this.parseTimeoutMillis = parseTimeoutMillis;
+  }
+
+  public UMLTypeClassifier getTypeClassifier() {
+    return typeClassifier;
+  }
+
+  public void setTypeClassifier(UMLTypeClassifier typeClassifier) {
+    this.typeClassifier = typeClassifier;
+  }
+
+  public UMLMemberDetail getMemberDetail() {
+    return memberDetail;
+  }
+
+  public void setMemberDetail(UMLMemberDetail memberDetail) {
+    this.memberDetail = memberDetail;
+  }
+
+  public UMLDependencyReport.Format getReportFormat() {
+    return reportFormat;
+  }
+
+  public void setReportFormat(UMLDependencyReport.Format reportFormat) {
+    this.reportFormat = reportFormat;
+  }
+
+  public List<String> getFocusTypes() {
+    return focusTypes;
+  }
+
+  public void setFocusTypes(List<String> focusTypes) {
+    this.focusTypes = focusTypes;
+  }
+
+  public int getFocusDepth() {
+    return focusDepth;
+  }
+
+  public void setFocusDepth(int focusDepth) {
+    if (focusDepth < 0) {
+      throw new IllegalArgumentException("La profondità non può essere negativa");
+    }
+    this.focusDepth = focusDepth;
+  }
+
+  public UMLDiagramSelection.Direction getFocusDirection() {
+    return focusDirection;
+  }
+
+  public void setFocusDirection(UMLDiagramSelection.Direction focusDirection) {
+    this.focusDirection = focusDirection;
+  }
+
+  public int getTopTypes() {
+    return topTypes;
+  }
+
+  public void setTopTypes(int topTypes) {
+    if (topTypes < 0) {
+      throw new IllegalArgumentException("Il numero di tipi non può essere negativo");
+    }
+    this.topTypes = topTypes;
+  }
+
+  public UMLDiagramSelection.Ranking getRanking() {
+    return ranking;
+  }
+
+  public void setRanking(UMLDiagramSelection.Ranking ranking) {
+    this.ranking = ranking;
+  }
+
+  public int getOverviewDepth() {
+    return overviewDepth;
+  }
+
+  public void setOverviewDepth(int overviewDepth) {
+    if (overviewDepth < -1) {
+      throw new IllegalArgumentException("La profondità dei package deve essere -1 o non negativa");
+    }
+    this.overviewDepth = overviewDepth;
+  }
+
+  public UMLClustering.Style getClusterStyle() {
+    return clusterStyle;
+  }
+
+  public void setClusterStyle(UMLClustering.Style clusterStyle) {
+    this.clusterStyle = clusterStyle;
+  }
+
+  public int getShardDepth() {
+    return shardDepth;
+  }
+
+  public void setShardDepth(int shardDepth) {
+    if (shardDepth < -1) {
+      throw new IllegalArgumentException("La profondità delle parti deve essere -1 o non negativa");
+    }
+    this.shardDepth = shardDepth;
+  }
+
+  public UMLVectorGenerator.Layout getLayout() {
+    return layout;
+  }
+
+  public void setLayout(UMLVectorGenerator.Layout layout) {
+    this.layout = layout;
+  }
+
+  public boolean isSkipUnchanged() {
+    return skipUnchanged;
+  }
+
+  public void setSkipUnchanged(boolean skipUnchanged) {
+    this.skipUnchanged = skipUnchanged;
+  }
+
+  /** Crea lo scanner dei sorgenti configurato con i glob correnti. */
+  public UMLSourceScanner createScanner() {
+    return new UMLSourceScanner(includeGlobs, excludeGlobs);
+  }
+
+  /**
+   * Apre i sorgenti di una directory o di un archivio con lo scanner configurato.
+   *
+   * @param input La directory o l'archivio dei sorgenti.
+   * @return L'insieme dei sorgenti, da chiudere al termine dell'elaborazione.
+   * @throws IOException Se la scansione o l'apertura di un archivio fallisce.
+   */
+  public UMLSourceSet openSources(File input) throws IOException {
+    return UMLSourceSet.open(input.toPath(), createScanner(), scanArchives);
+  }
+}
@@ -0,0 +1,167 @@
+package com.fabio.org.amuleto.converter;
+
+import java.io.PrintStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Resoconto di un'esecuzione dei generatori: file analizzati, file ignorati perché non analizzabili
+ * (con motivo e tempo impiegato), contatori della cache di estrazione e membri esclusi dal livello
+ * di dettaglio.
+ */
+public class UMLGenerationReport {
+
+  /** File ignorato durante il parsing. */
+  public static final class SkippedFile {
+    private final Path path;
+    private final String reason;
+    private final long millis;
+
+    public SkippedFile(Path path, String reason, long millis) {
+      this.path = path;
+      this.reason = reason;
+      this.millis = millis;
+    }
+
+    public Path getPath() {
+      return path;
+    }
+
+    public String getReason() {
+      return reason;
+    }
+
+    public long getMillis() {
+      return millis;
+    }
+
+    @Override
+    public String toString() {
+      // Per i file di un archivio il percorso da solo non dice da quale archivio provengono
+      String location =
+          path.getFileSystem() == FileSystems.getDefault()
+              ? path.toString()
+              : path.toUri().toString();
+      return location + " (" + millis + " ms): " + reason;
+    }
+  }
+
+  private final List<SkippedFile> skippedFiles = Collections.synchronizedList(new ArrayList<>());
+  private int parsedFiles;
+  private int cacheHits;
+  private int cacheMisses;
+  // Membri estratti, membri rappresentati e caratteri del diagramma risparmiati (vedi
+  // UMLMemberDetail); aggiornati dai worker di estrazione
+  private long extractedMembers;
+  private long keptMembers;
+  private long savedChars;
+  // Lunghezza del diagramma renderizzato e durata del rendering, se c'è stato
+  private long renderedChars;
+  private long renderMillis;
+
+  public List<SkippedFile> getSkippedFiles() {
+    return skippedFiles;
+  }
+
+  public void addSkippedFile(Path path, String reason, long millis) {
+    skippedFiles.add(new SkippedFile(path, reason, millis));
+  }
+
+  public int getParsedFiles() {
+    return parsedFiles;
+  }
+
+  public void addParsedFiles(int count) {
+    parsedFiles += count;
+  }
+
+  public int getCacheHits() {
+    return cacheHits;
+  }
+
+  public int getCacheMisses() {
+    return cacheMisses;
+  }
+
+  public void setCacheCounters(int hits, int misses) {
+    this.cacheHits = hits;
+    this.cacheMisses = misses;
+  }
+
+  public synchronized long getExtractedMembers() {
+    return extractedMembers;
+  }
+
+  public synchronized long getKeptMembers() {
+    return keptMembers;
+  }
+
+  public synchronized long getSavedChars() {
+    return savedChars;
+  }
+
+  /** Registra i membri di un file prima e dopo il filtro del livello di dettaglio. */
+  public synchronized void addMemberCounts(UMLMemberDetail.Filtered filtered) {
+    extractedMembers += filtered.getExtractedMembers();
+    keptMembers += filtered.getKeptMembers();
+    savedChars += filtered.getSavedChars();
+  }
+
+  /**
+   * Registra la lunghezza del diagramma renderizzato e la durata del rendering, da cui {@link
+   * #printMemberDetail} stima il tempo risparmiato dal livello di dettaglio.
+   */
+  public synchronized void setRenderTime(long chars, long millis) {
+    renderedChars = chars;
+    renderMillis = millis;
+  }
+
+  /**
+   * Stampa quanti membri sono stati esclusi dal livello di dettaglio, se è stato applicato. Se il
+   * diagramma è stato renderizzato, stima anche il tempo di rendering risparmiato in proporzione al
+   * testo escluso: il layout cresce più che linearmente con il diagramma, quindi la stima è per
+   * difetto.
+   */
+  public synchronized void printMemberDetail(PrintStream out) {
+    if (extractedMembers == 0) {
+      return;
+    }
+    String render =
+        renderedChars == 0
+            ? ""
+            : ", rendering più rapido di circa "
+                + renderMillis * savedChars / renderedChars
+                + " ms";
+    out.println(
+        "Dettaglio dei membri: "
+            + keptMembers
+            + " rappresentati su "
+            + extractedMembers
+            + " estratti, "
+            + (savedChars + 512) / 1024
+            + " KB di testo PlantUML in meno"
+            + render);
+  }
+
+  /** Stampa i contatori della cache di estrazione, se è stata usata. */
+  public void printCacheCounters(PrintStream out) {
+    if (cacheHits + cacheMisses == 0) {
+      return;
+    }
+    out.println("Cache di estrazione: " + cacheHits + " hit, " + cacheMisses + " miss");
+  }
+
+  /** Stampa il resoconto dei file ignorati, se ce ne sono. */
+  public void printSkippedFiles(PrintStream out) {
+    if (skippedFiles.isEmpty()) {
+      return;
+    }
+    out.println("Attenzione: " + skippedFiles.size() + " file ignorati durante il parsing:");
+    for (SkippedFile skipped : skippedFiles) {
+      out.println("  " + skipped);
+    }
+  }
+}
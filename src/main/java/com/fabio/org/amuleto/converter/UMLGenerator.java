@@ -1,17 +1,298 @@
 package com.fabio.org.amuleto.converter;
 
+import java.io.BufferedWriter;
 import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
+import com.fabio.org.amuleto.model.UMLClass;
+import com.fabio.org.amuleto.utils.UMLSourceSet;
 import net.sourceforge.plantuml.FileFormat;
 
+/**
+ * Punto di ingresso della generazione. Con {@link #generate} più output dello stesso progetto
+ * (sorgente PlantUML e una o più immagini) condividono un'unica analisi: i sorgenti vengono letti
+ * ed estratti una volta, il corpo del diagramma viene costruito una volta e poi scritto o
+ * renderizzato in ogni output, con i rendering eseguiti in parallelo.
+ */
 public class UMLGenerator {
 
+  /** Un output richiesto: il sorgente PlantUML oppure un'immagine in un formato di PlantUML. */
+  public static final class Output {
+    private final File file;
+    // null per il sorgente PlantUML
+    private final FileFormat format;
+
+    private Output(File file, FileFormat format) {
+      this.file = file;
+      this.format = format;
+    }
+
+    /** Sorgente PlantUML, con l'intestazione del file {@code .puml}. */
+    public static Output source(File file) {
+      return new Output(file, null);
+    }
+
+    /** Immagine renderizzata da PlantUML nel formato indicato. */
+    public static Output image(File file, FileFormat format) {
+      return new Output(file, format);
+    }
+
+    /**
+     * Output corrispondente all'estensione del file: {@code .puml} per il sorgente, {@code .svg} e
+     * {@code .png} per le immagini.
+     *
+     * @throws IllegalArgumentException Se l'estensione non è riconosciuta.
+     */
+    public static Output forFile(File file) {
+      String name = file.getName().toLowerCase(Locale.ROOT);
+      if (name.endsWith(".puml")) {
+        return source(file);
+      }
+      if (name.endsWith(".svg")) {
+        return image(file, FileFormat.SVG);
+      }
+      if (name.endsWith(".png")) {
+        return image(file, FileFormat.PNG);
+      }
+      throw new IllegalArgumentException("Formato di output non riconosciuto: " + file);
+    }
+
+    public File getFile() {
+      return file;
+    }
+
+    /** Formato dell'immagine, oppure {@code null} per il sorgente PlantUML. */
+    public FileFormat getFormat() {
+      return format;
+    }
+
+    /**
+     * Completa il corpo del diagramma con l'intestazione dell'output e lo scrive nel file.
+     *
+     * @param layout Il motore di layout delle immagini.
+     * @param renders La cache delle immagini.
+     */
+    void write(String body, UMLVectorGenerator.Layout layout, UMLRenderCache renders)
+        throws Exception {
+      if (format == null) {
+        writeSource(
+            file,
+            renders,
+            writer -> UMLDiagramBuilder.write(body, UMLDiagramBuilder.Target.TEXT, writer));
+      } else {
+        renders.render(
+            UMLDiagramBuilder.wrap(body, UMLDiagramBuilder.Target.IMAGE, layout), file, format);
+      }
+    }
+  }
+
   public static void generateFromDirectory(File sourceDir, File outputFile) throws Exception {
     UMLTextGenerator.generateFromDirectory(sourceDir, outputFile);
   }
 
+  public static void generateFromDirectory(
+      File sourceDir, File outputFile, UMLGenerationOptions options) throws Exception {
+    UMLTextGenerator.generateFromDirectory(sourceDir, outputFile, options);
+  }
+
   public static void generateVectorFromDirectory(
       File sourceDir, File outputVectorFile, FileFormat vectorFormat) throws Exception {
     UMLVectorGenerator.generateVectorFromDirectory(sourceDir, outputVectorFile, vectorFormat);
   }
+
+  public static void generateVectorFromDirectory(
+      File sourceDir, File outputVectorFile, FileFormat vectorFormat, UMLGenerationOptions options)
+      throws Exception {
+    UMLVectorGenerator.generateVectorFromDirectory(
+        sourceDir, outputVectorFile, vectorFormat, options);
+  }
+
+  /**
+   * Genera tutti gli output richiesti con un'unica analisi del progetto. L'eventuale resoconto
+   * delle dipendenze viene scritto accanto al primo output.
+   *
+   * @param sourceDir La directory (o l'archivio) dei sorgenti.
+   * @param outputs Gli output da produrre, almeno uno.
+   * @param options Le opzioni di generazione.
+   * @throws Exception Se l'analisi o la scrittura di un output fallisce.
+   */
+  public static void generate(File sourceDir, List<Output> outputs, UMLGenerationOptions options)
+      throws Exception {
+    if (outputs.isEmpty()) {
+      throw new IllegalArgumentException("Nessun output richiesto");
+    }
+    boolean sourcesOnly = true;
+    for (Output output : outputs) {
+      sourcesOnly &= output.getFormat() == null;
+    }
+    UMLRenderCache renders = UMLRenderCache.open(options);
+    UMLGenerationReport report = new UMLGenerationReport();
+    String body;
+    try (UMLSourceSet sources = options.openSources(sourceDir)) {
+      List<List<UMLClass>> model = UMLParseStage.extractAll(sources.getFiles(), options, report);
+      report.printSkippedFiles(System.err);
+      report.printCacheCounters(System.out);
+      if (options.getReportFormat() != null) {
+        UMLDependencyReport.writeNextTo(model, outputs.get(0).getFile(), options.getReportFormat());
+      }
+      if (sourcesOnly) {
+        // Solo sorgenti PlantUML: il diagramma viene scritto nel file man mano che è prodotto,
+        // senza mai costruirlo per intero in memoria
+        File first = outputs.get(0).getFile();
+        writeSource(
+            first,
+            renders,
+            writer ->
+                UMLDiagramBuilder.write(model, options, UMLDiagramBuilder.Target.TEXT, writer));
+        for (Output output : outputs.subList(1, outputs.size())) {
+          writeSource(
+              output.getFile(),
+              renders,
+              writer -> {
+                try (Reader reader = new FileReader(first, StandardCharsets.UTF_8)) {
+                  reader.transferTo(writer);
+                }
+              });
+        }
+        report.printMemberDetail(System.out);
+        return;
+      }
+      if (options.getShardDepth() >= 0 && options.getOverviewDepth() < 0) {
+        report.printMemberDetail(System.out);
+        writeShards(model, outputs, options, renders);
+        return;
+      }
+      // PlantUML rende un'immagine a partire da una stringa: il corpo viene costruito una volta
+      body = UMLDiagramBuilder.buildBody(model, options);
+    }
+    // Il modello non serve più: durante il rendering resta in memoria solo il corpo del diagramma
+    long start = System.nanoTime();
+    write(body, outputs, options.getLayout(), renders);
+    report.setRenderTime(body.length(), (System.nanoTime() - start) / 1_000_000);
+    report.printMemberDetail(System.out);
+  }
+
+  /**
+   * Scrive gli output suddividendo le immagini per package (vedi {@link UMLDiagramShards}): ogni
+   * immagine richiesta diventa l'indice delle parti, renderizzate in parallelo. I sorgenti PlantUML
+   * contengono comunque il diagramma completo.
+   */
+  private static void writeShards(
+      List<List<UMLClass>> model,
+      List<Output> outputs,
+      UMLGenerationOptions options,
+      UMLRenderCache renders)
+      throws Exception {
+    UMLDiagramShards shards =
+        UMLDiagramShards.of(
+            model, options.getShardDepth(), UMLDiagramSelection.fromOptions(model, options));
+    for (Output output : outputs) {
+      if (output.getFormat() == null) {
+        writeSource(
+            output.getFile(),
+            renders,
+            writer ->
+                UMLDiagramBuilder.write(model, options, UMLDiagramBuilder.Target.TEXT, writer));
+      } else {
+        shards.render(
+            output.getFile(),
+            output.getFormat(),
+            options.getLayout(),
+            renders,
+            Runtime.getRuntime().availableProcessors());
+      }
+    }
+  }
+
+  /** Contenuto di un sorgente PlantUML, scritto nel writer ricevuto. */
+  interface SourceContent {
+    void writeTo(Writer writer) throws IOException;
+  }
+
+  /**
+   * Scrive un sorgente PlantUML nel file con un buffer ampio: il diagramma arriva a blocchi di
+   * {@value UMLDiagramBuilder#FLUSH_THRESHOLD} caratteri. La codifica è sempre UTF-8, quella
+   * predefinita di PlantUML, così che lo stesso diagramma abbia gli stessi byte in ogni modalità e
+   * su ogni piattaforma. Con la scrittura condizionata il sorgente passa da un file temporaneo
+   * accanto al file di output, che lo sostituisce solo se il contenuto è cambiato.
+   */
+  static void writeSource(File file, UMLRenderCache renders, SourceContent content)
+      throws IOException {
+    File target =
+        renders.isSkipUnchanged()
+            ? File.createTempFile(file.getName(), ".tmp", file.getAbsoluteFile().getParentFile())
+            : file;
+    try (Writer writer =
+        new BufferedWriter(
+            new FileWriter(target, StandardCharsets.UTF_8), UMLDiagramBuilder.FLUSH_THRESHOLD)) {
+      content.writeTo(writer);
+    }
+    if (target != file && !renders.replace(file.toPath(), target.toPath())) {
+      System.out.println("Sorgente PlantUML invariato: " + file.getAbsolutePath());
+    }
+  }
+
+  /** Scrive il corpo del diagramma in tutti gli output, in parallelo se sono più di uno. */
+  static void write(
+      String body, List<Output> outputs, UMLVectorGenerator.Layout layout, UMLRenderCache renders)
+      throws Exception {
+    if (outputs.size() == 1) {
+      outputs.get(0).write(body, layout, renders);
+      return;
+    }
+    List<Callable<Void>> tasks = new ArrayList<>(outputs.size());
+    for (Output output : outputs) {
+      tasks.add(
+          () -> {
+            output.write(body, layout, renders);
+            return null;
+          });
+    }
+    runConcurrently(tasks, Runtime.getRuntime().availableProcessors());
+  }
+
+  /**
+   * Esegue le attività su un pool di thread dedicato e ne attende il completamento. Il primo
+   * errore, nell'ordine delle attività, interrompe le restanti e viene rilanciato.
+   *
+   * @param tasks Le attività da eseguire.
+   * @param threads Il numero massimo di thread del pool.
+   * @throws Exception L'errore della prima attività fallita.
+   */
+  static void runConcurrently(List<Callable<Void>> tasks, int threads) throws Exception {
+    ExecutorService executor =
+        Executors.newFixedThreadPool(Math.max(1, Math.min(tasks.size(), threads)));
+    try {
+      List<Future<Void>> futures = new ArrayList<>(tasks.size());
+      for (Callable<Void> task : tasks) {
+        futures.add(executor.submit(task));
+      }
+      for (Future<Void> future : futures) {
+        try {
+          future.get();
+        } catch (ExecutionException e) {
+          Throwable cause = e.getCause();
+          if (cause instanceof Exception) {
+            throw (Exception) cause;
+          }
+          throw e;
+        }
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
 }
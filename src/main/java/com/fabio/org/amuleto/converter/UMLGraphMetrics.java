@@ -0,0 +1,267 @@
+package com.fabio.org.amuleto.converter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Metriche di un {@link UMLDependencyGraph}: componenti fortemente connesse (cicli di dipendenze),
+ * accoppiamento tra package e, per ogni package, accoppiamento afferente ed efferente e instabilità
+ * secondo le definizioni di R. C. Martin.
+ *
+ * <ul>
+ *   <li>Afferente (Ca): numero di tipi esterni al package che dipendono da tipi del package.
+ *   <li>Efferente (Ce): numero di tipi del package che dipendono da tipi esterni al package.
+ *   <li>Instabilità: Ce / (Ca + Ce), 0 per un package senza dipendenze in nessuna direzione.
+ * </ul>
+ *
+ * <p>Tutte le metriche vengono calcolate nel costruttore in tempo lineare nel numero di archi, a
+ * parte l'ordinamento delle coppie di package; i risultati sono array di primitivi indicizzati per
+ * tipo o per package.
+ */
+public final class UMLGraphMetrics {
+
+  // Bit di un identificativo di package nelle coppie ordinate (i package non superano i tipi)
+  private static final int PACKAGE_BITS = 28;
+  private static final long PACKAGE_MASK = (1L << PACKAGE_BITS) - 1;
+
+  private final UMLDependencyGraph graph;
+  // Componente fortemente connessa di ogni tipo e dimensione di ogni componente
+  private final int[] components;
+  private final int[] componentSizes;
+  private final int[] afferent;
+  private final int[] efferent;
+  private final int[] packageSizes;
+  // Matrice di accoppiamento tra package in formato CSR: numero di archi da un package all'altro
+  private final int[] couplingOffsets;
+  private final int[] couplingTargets;
+  private final int[] couplingCounts;
+
+  public UMLGraphMetrics(UMLDependencyGraph graph) {
+    this.graph = graph;
+    this.components = new int[graph.getTypeCount()];
+    this.componentSizes = stronglyConnectedComponents(graph, components);
+    int packages = graph.getPackageCount();
+    this.afferent = new int[packages];
+    this.efferent = new int[packages];
+    this.packageSizes = new int[packages];
+    computePackageCoupling();
+    // Coppie (sorgente, destinazione) dei package di ogni arco, ordinate: le coppie uguali sono
+    // adiacenti e la loro ripetizione è il numero di archi tra i due package
+    long[] pairs = packagePairs();
+    int unique = 0;
+    for (int i = 0; i < pairs.length; i++) {
+      if (i == 0 || pairs[i] != pairs[i - 1]) {
+        unique++;
+      }
+    }
+    this.couplingOffsets = new int[packages + 1];
+    this.couplingTargets = new int[unique];
+    this.couplingCounts = new int[unique];
+    int entry = -1;
+    for (int i = 0; i < pairs.length; i++) {
+      if (i == 0 || pairs[i] != pairs[i - 1]) {
+        entry++;
+        couplingOffsets[(int) (pairs[i] >>> PACKAGE_BITS) + 1]++;
+        couplingTargets[entry] = (int) (pairs[i] & PACKAGE_MASK);
+      }
+      couplingCounts[entry]++;
+    }
+    for (int p = 0; p < packages; p++) {
+      couplingOffsets[p + 1] += couplingOffsets[p];
+    }
+  }
+
+  public UMLDependencyGraph getGraph() {
+    return graph;
+  }
+
+  /** Identificativo della componente fortemente connessa del tipo. */
+  public int getComponent(int type) {
+    return components[type];
+  }
+
+  public int getComponentCount() {
+    return componentSizes.length;
+  }
+
+  public int getComponentSize(int component) {
+    return componentSizes[component];
+  }
+
+  /**
+   * Restituisce i cicli di dipendenze, cioè le componenti fortemente connesse con più di un tipo.
+   * Ogni ciclo elenca i suoi tipi in ordine crescente; i cicli sono ordinati per dimensione
+   * decrescente e, a parità, per primo tipo.
+   */
+  public List<int[]> getCycles() {
+    int[] fill = new int[componentSizes.length];
+    int[][] members = new int[componentSizes.length][];
+    for (int c = 0; c < componentSizes.length; c++) {
+      if (componentSizes[c] > 1) {
+        members[c] = new int[componentSizes[c]];
+      }
+    }
+    for (int v = 0; v < components.length; v++) {
+      int c = components[v];
+      if (members[c] != null) {
+        members[c][fill[c]++] = v;
+      }
+    }
+    List<int[]> cycles = new ArrayList<>();
+    for (int[] cycle : members) {
+      if (cycle != null) {
+        cycles.add(cycle);
+      }
+    }
+    cycles.sort((a, b) -> a.length != b.length ? b.length - a.length : a[0] - b[0]);
+    return cycles;
+  }
+
+  /** Numero di tipi del package. */
+  public int getPackageSize(int packageId) {
+    return packageSizes[packageId];
+  }
+
+  /** Accoppiamento afferente (Ca) del package. */
+  public int getAfferent(int packageId) {
+    return afferent[packageId];
+  }
+
+  /** Accoppiamento efferente (Ce) del package. */
+  public int getEfferent(int packageId) {
+    return efferent[packageId];
+  }
+
+  /** Instabilità del package, tra 0 (massimamente stabile) e 1 (massimamente instabile). */
+  public double getInstability(int packageId) {
+    int total = afferent[packageId] + efferent[packageId];
+    return total == 0 ? 0 : (double) efferent[packageId] / total;
+  }
+
+  /** Indice della prima voce del package nella matrice di accoppiamento. */
+  public int getCouplingStart(int packageId) {
+    return couplingOffsets[packageId];
+  }
+
+  /** Indice successivo all'ultima voce del package nella matrice di accoppiamento. */
+  public int getCouplingEnd(int packageId) {
+    return couplingOffsets[packageId + 1];
+  }
+
+  /** Package di destinazione della voce indicata della matrice di accoppiamento. */
+  public int getCouplingTarget(int entry) {
+    return couplingTargets[entry];
+  }
+
+  /** Numero di archi tra i tipi dei due package della voce indicata. */
+  public int getCouplingCount(int entry) {
+    return couplingCounts[entry];
+  }
+
+  /**
+   * Algoritmo di Tarjan in forma iterativa, così che catene di dipendenze molto lunghe non
+   * esauriscano lo stack. Le componenti vengono numerate nell'ordine in cui sono completate, cioè
+   * in ordine topologico inverso.
+   *
+   * @return La dimensione di ogni componente.
+   */
+  private static int[] stronglyConnectedComponents(UMLDependencyGraph graph, int[] components) {
+    int n = graph.getTypeCount();
+    int[] index = new int[n];
+    int[] lowLink = new int[n];
+    Arrays.fill(index, -1);
+    // Pila di Tarjan e pila della visita, con il prossimo arco da esaminare per ogni tipo
+    int[] stack = new int[n];
+    boolean[] onStack = new boolean[n];
+    int[] callStack = new int[n];
+    int[] nextEdge = new int[n];
+    int[] sizes = new int[Math.max(n, 1)];
+    int stackSize = 0;
+    int counter = 0;
+    int componentCount = 0;
+    for (int root = 0; root < n; root++) {
+      if (index[root] >= 0) {
+        continue;
+      }
+      int depth = 0;
+      callStack[depth++] = root;
+      index[root] = lowLink[root] = counter++;
+      nextEdge[root] = graph.getOutStart(root);
+      stack[stackSize++] = root;
+      onStack[root] = true;
+      while (depth > 0) {
+        int v = callStack[depth - 1];
+        if (nextEdge[v] < graph.getOutEnd(v)) {
+          int w = graph.getTarget(nextEdge[v]++);
+          if (index[w] < 0) {
+            index[w] = lowLink[w] = counter++;
+            nextEdge[w] = graph.getOutStart(w);
+            stack[stackSize++] = w;
+            onStack[w] = true;
+            callStack[depth++] = w;
+          } else if (onStack[w]) {
+            lowLink[v] = Math.min(lowLink[v], index[w]);
+          }
+          continue;
+        }
+        // Tutti gli archi di v esaminati: v chiude una componente o aggiorna il chiamante
+        depth--;
+        if (lowLink[v] == index[v]) {
+          int w;
+          do {
+            w = stack[--stackSize];
+            onStack[w] = false;
+            components[w] = componentCount;
+            sizes[componentCount]++;
+          } while (w != v);
+          componentCount++;
+        }
+        if (depth > 0) {
+          int parent = callStack[depth - 1];
+          lowLink[parent] = Math.min(lowLink[parent], lowLink[v]);
+        }
+      }
+    }
+    return Arrays.copyOf(sizes, componentCount);
+  }
+
+  /** Calcola dimensione, accoppiamento afferente ed efferente di ogni package. */
+  private void computePackageCoupling() {
+    // Ultimo tipo che ha contato ogni package come destinazione, per contare ogni tipo una volta
+    int[] lastSource = new int[graph.getPackageCount()];
+    Arrays.fill(lastSource, -1);
+    for (int v = 0; v < graph.getTypeCount(); v++) {
+      int p = graph.getPackage(v);
+      packageSizes[p]++;
+      boolean external = false;
+      for (int e = graph.getOutStart(v); e < graph.getOutEnd(v); e++) {
+        int q = graph.getPackage(graph.getTarget(e));
+        if (q != p) {
+          external = true;
+          if (lastSource[q] != v) {
+            lastSource[q] = v;
+            afferent[q]++;
+          }
+        }
+      }
+      if (external) {
+        efferent[p]++;
+      }
+    }
+  }
+
+  /** Coppie (package sorgente, package destinazione) di tutti gli archi, in ordine crescente. */
+  private long[] packagePairs() {
+    long[] keys = new long[graph.getEdgeCount()];
+    int k = 0;
+    for (int v = 0; v < graph.getTypeCount(); v++) {
+      long p = graph.getPackage(v);
+      for (int e = graph.getOutStart(v); e < graph.getOutEnd(v); e++) {
+        keys[k++] = (p << PACKAGE_BITS) | graph.getPackage(graph.getTarget(e));
+      }
+    }
+    Arrays.parallelSort(keys);
+    return keys;
+  }
+}
@@ -0,0 +1,303 @@
+package com.fabio.org.amuleto.converter;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import com.fabio.org.amuleto.model.UMLClass;
+import com.fabio.org.amuleto.model.UMLMember;
+import com.fabio.org.amuleto.model.UMLRelationship;
+
+/**
+ * Livello di dettaglio dei membri rappresentati nel diagramma. Il filtro viene applicato ai tipi di
+ * ogni file appena estratti, nel worker che li ha prodotti, così che i membri esclusi non restino
+ * nel modello né finiscano nella cache di estrazione. Le relazioni non vengono toccate: un
+ * attributo privato escluso continua a produrre la sua associazione.
+ *
+ * <p>Con la riduzione degli accessori, un metodo {@code getX()}/{@code isX()} o {@code setX(x)} che
+ * corrisponde per nome e tipo a un attributo non statico dello stesso tipo viene rimosso, e
+ * l'attributo riceve la proprietà {@code get} o {@code set} con la visibilità più ampia tra la sua
+ * e quella degli accessori: {@code - name : String} con getter e setter pubblici diventa {@code +
+ * name : String {get, set}}.
+ */
+public final class UMLMemberDetail {
+
+  /** Membri rappresentati, per visibilità. */
+  public enum Level {
+    /** Nessun membro: solo il nome del tipo. */
+    NAMES,
+    /** Solo i membri pubblici. */
+    PUBLIC,
+    /** Membri pubblici e protetti. */
+    PROTECTED,
+    /** Tutti i membri. */
+    ALL
+  }
+
+  /**
+   * Tipi di un file dopo il filtro, con il numero di membri estratti e rappresentati e i caratteri
+   * del diagramma risparmiati. I contatori vengono memorizzati con i tipi nella cache di
+   * estrazione, così che il resoconto sia completo anche quando i file non vengono rianalizzati.
+   */
+  public static final class Filtered {
+    private final List<UMLClass> classes;
+    private final int extractedMembers;
+    private final int keptMembers;
+    private final long savedChars;
+
+    public Filtered(
+        List<UMLClass> classes, int extractedMembers, int keptMembers, long savedChars) {
+      this.classes = classes;
+      this.extractedMembers = extractedMembers;
+      this.keptMembers = keptMembers;
+      this.savedChars = savedChars;
+    }
+
+    public List<UMLClass> getClasses() {
+      return classes;
+    }
+
+    public int getExtractedMembers() {
+      return extractedMembers;
+    }
+
+    public int getKeptMembers() {
+      return keptMembers;
+    }
+
+    public long getSavedChars() {
+      return savedChars;
+    }
+  }
+
+  private static final UMLMemberDetail DEFAULTS = new UMLMemberDetail(Level.ALL, false);
+
+  private final Level level;
+  private final boolean collapseAccessors;
+
+  public UMLMemberDetail(Level level, boolean collapseAccessors) {
+    this.level = level;
+    this.collapseAccessors = collapseAccessors;
+  }
+
+  /** Tutti i membri, senza riduzione degli accessori: il comportamento storico dei generatori. */
+  public static UMLMemberDetail defaults() {
+    return DEFAULTS;
+  }
+
+  public Level getLevel() {
+    return level;
+  }
+
+  public boolean isCollapseAccessors() {
+    return collapseAccessors;
+  }
+
+  /** Verifica se il filtro lascia invariati tutti i tipi. */
+  public boolean isFull() {
+    return level == Level.ALL && !collapseAccessors;
+  }
+
+  /** Impronta del filtro, usata per invalidare la cache di estrazione quando cambia. */
+  public String fingerprint() {
+    return level.name().toLowerCase(Locale.ROOT) + (collapseAccessors ? "+accessors" : "");
+  }
+
+  /**
+   * Applica il filtro ai tipi estratti da un file e registra nel resoconto quanti membri sono stati
+   * esclusi e quanto testo del diagramma è stato risparmiato.
+   *
+   * @param classes I tipi estratti.
+   * @param report Il resoconto, oppure {@code null}.
+   * @return I tipi con i soli membri da rappresentare.
+   */
+  public List<UMLClass> apply(List<UMLClass> classes, UMLGenerationReport report) {
+    Filtered filtered = filter(classes);
+    if (report != null) {
+      report.addMemberCounts(filtered);
+    }
+    return filtered.getClasses();
+  }
+
+  /**
+   * Applica il filtro ai tipi estratti da un file.
+   *
+   * @param classes I tipi estratti.
+   * @return I tipi con i soli membri da rappresentare e i contatori del filtro; con il livello
+   *     predefinito i tipi sono quelli ricevuti e i contatori sono a zero.
+   */
+  public Filtered filter(List<UMLClass> classes) {
+    if (isFull()) {
+      return new Filtered(classes, 0, 0, 0);
+    }
+    List<UMLClass> filtered = new ArrayList<>(classes.size());
+    int extracted = 0;
+    int kept = 0;
+    long savedChars = 0;
+    for (UMLClass umlClass : classes) {
+      List<UMLMember> members = collapseAccessors ? collapse(umlClass) : umlClass.getMembers();
+      UMLClass.Builder builder =
+          new UMLClass.Builder(umlClass.getPackageName(), umlClass.getName(), umlClass.getKind())
+              .setAssociationClass(umlClass.isAssociationClass());
+      for (String importName : umlClass.getImports()) {
+        builder.addImport(importName);
+      }
+      // I membri di un'interfaccia senza modificatore sono comunque pubblici
+      boolean implicitlyPublic = umlClass.getKind() == UMLClass.Kind.INTERFACE;
+      for (UMLMember member : members) {
+        if (keeps(member, implicitlyPublic)) {
+          builder.addMember(member);
+          kept++;
+        }
+      }
+      for (UMLRelationship relationship : umlClass.getRelationships()) {
+        builder.addRelationship(relationship);
+      }
+      UMLClass result = builder.build();
+      extracted += umlClass.getMembers().size();
+      // Ogni membro occupa una riga indentata di due spazi
+      savedChars += lineLength(umlClass.getMembers()) - lineLength(result.getMembers());
+      filtered.add(result);
+    }
+    return new Filtered(filtered, extracted, kept, savedChars);
+  }
+
+  private boolean keeps(UMLMember member, boolean implicitlyPublic) {
+    if (level == Level.ALL) {
+      return true;
+    }
+    if (level == Level.NAMES) {
+      return false;
+    }
+    if (member.getKind() == UMLMember.Kind.ENUM_CONSTANT) {
+      return true;
+    }
+    String visibility = member.getVisibility();
+    if (implicitlyPublic && visibility.equals("~")) {
+      visibility = "+";
+    }
+    return rank(visibility) >= (level == Level.PUBLIC ? rank("+") : rank("#"));
+  }
+
+  /** Rimuove gli accessori degli attributi e ne riporta l'esistenza sugli attributi stessi. */
+  private static List<UMLMember> collapse(UMLClass umlClass) {
+    List<UMLMember> members = umlClass.getMembers();
+    Map<String, Integer> fields = new HashMap<>();
+    for (int i = 0; i < members.size(); i++) {
+      UMLMember member = members.get(i);
+      if (member.getKind() == UMLMember.Kind.FIELD && !member.isStatic()) {
+        fields.put(member.getName(), i);
+      }
+    }
+    if (fields.isEmpty()) {
+      return members;
+    }
+    // Per ogni attributo: visibilità risultante e presenza di getter e setter
+    String[] visibility = new String[members.size()];
+    boolean[] getter = new boolean[members.size()];
+    boolean[] setter = new boolean[members.size()];
+    boolean[] removed = new boolean[members.size()];
+    for (int i = 0; i < members.size(); i++) {
+      UMLMember method = members.get(i);
+      if (method.getKind() != UMLMember.Kind.METHOD || method.isStatic()) {
+        continue;
+      }
+      String name = method.getName();
+      String property = null;
+      boolean isSetter = false;
+      if (name.startsWith("get") && method.getParameters().isEmpty()) {
+        property = propertyName(name, 3);
+      } else if (name.startsWith("is")
+          && method.getParameters().isEmpty()
+          && (method.getType().equals("boolean") || method.getType().equals("Boolean"))) {
+        property = propertyName(name, 2);
+      } else if (name.startsWith("set")
+          && method.getParameters().size() == 1
+          && method.getType().equals("void")) {
+        property = propertyName(name, 3);
+        isSetter = true;
+      }
+      Integer field = property == null ? null : fields.get(property);
+      if (field == null) {
+        continue;
+      }
+      String fieldType = members.get(field).getType();
+      String accessorType = isSetter ? method.getParameters().get(0).getType() : method.getType();
+      if (!fieldType.equals(accessorType)) {
+        continue;
+      }
+      removed[i] = true;
+      if (isSetter) {
+        setter[field] = true;
+      } else {
+        getter[field] = true;
+      }
+      String current =
+          visibility[field] != null ? visibility[field] : members.get(field).getVisibility();
+      visibility[field] = wider(current, method.getVisibility());
+    }
+    List<UMLMember> result = new ArrayList<>(members.size());
+    for (int i = 0; i < members.size(); i++) {
+      UMLMember member = members.get(i);
+      if (removed[i]) {
+        continue;
+      }
+      if (!getter[i] && !setter[i]) {
+        result.add(member);
+        continue;
+      }
+      List<String> properties = new ArrayList<>(member.getProperties());
+      if (getter[i]) {
+        properties.add("get");
+      }
+      if (setter[i]) {
+        properties.add("set");
+      }
+      result.add(
+          UMLMember.field(
+              visibility[i],
+              member.isStatic(),
+              member.isFinal(),
+              member.getName(),
+              member.getType(),
+              properties));
+    }
+    return result;
+  }
+
+  // Nome dell'attributo corrispondente all'accessore: "getFirstName" -> "firstName"
+  private static String propertyName(String accessor, int prefix) {
+    if (accessor.length() <= prefix || !Character.isUpperCase(accessor.charAt(prefix))) {
+      return null;
+    }
+    return Character.toLowerCase(accessor.charAt(prefix)) + accessor.substring(prefix + 1);
+  }
+
+  // Visibilità più ampia tra le due: + > # > ~ > -
+  private static String wider(String a, String b) {
+    return rank(a) >= rank(b) ? a : b;
+  }
+
+  private static int rank(String visibility) {
+    switch (visibility) {
+      case "+":
+        return 3;
+      case "#":
+        return 2;
+      case "~":
+        return 1;
+      default:
+        return 0;
+    }
+  }
+
+  private static long lineLength(List<UMLMember> members) {
+    long length = 0;
+    for (UMLMember member : members) {
+      length += member.toString().length() + 3;
+    }
+    return length;
+  }
+}
@@ -1,66 +1,72 @@
 package com.fabio.org.amuleto.converter;
 
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Set;
 
+import com.fabio.org.amuleto.model.UMLClass;
+import com.fabio.org.amuleto.model.UMLMember;
+import com.fabio.org.amuleto.model.UMLRelationship;
+import com.fabio.org.amuleto.utils.UMLTypeClassifier;
 import com.fabio.org.amuleto.utils.UMLUtils;
+import com.fabio.org.amuleto.view.RelationshipType;
 import com.github.javaparser.ast.body.MethodDeclaration;
 import com.github.javaparser.ast.body.Parameter;
 
 public class UMLMethodProcessor {
 
   public static void processMethod(
-      MethodDeclaration method,
-      String className,
-      StringBuilder uml,
-      StringBuilder relationships,
-      Set<String> definedTypes) {
-    String methodVisibility = UMLUtils.getVisibilitySymbol(method);
-    String modifiersMarker = "";
-    if (method.isStatic()) {
-      modifiersMarker += " {static}";
-    }
-    if (method.isFinal()) {
-      modifiersMarker += " {final}";
-    }
-    if (method.isAbstract()) {
-      modifiersMarker += " {abstract}";
-    }
-    StringBuilder params = new StringBuilder();
-    List<Parameter> parameters = method.getParameters();
-    for (int i = 0; i < parameters.size(); i++) {
-      Parameter param = parameters.get(i);
-      params
-          .append(param.getNameAsString())
-          .append(" : ")
-          .append(UMLUtils.getTypeString(param.getType()));
-      if (i < parameters.size() - 1) {
-        params.append(", ");
-      }
+      MethodDeclaration method, UMLClass.Builder umlClass, UMLTypeClassifier classifier) {
+    List<UMLMember.Parameter> parameters = new ArrayList<>();
+    for (Parameter param : method.getParameters()) {
+      parameters.add(
+          new UMLMember.Parameter(
+              param.getNameAsString(), UMLUtils.getTypeString(param.getType())));
     }
-    String returnType = UMLUtils.getTypeString(method.getType());
-    uml.append("  ")
-        .append(methodVisibility)
-        .append(modifiersMarker)
-        .append(" ")
-        .append(method.getNameAsString())
-        .append("(")
-        .append(params)
-        .append(") : ")
-        .append(returnType)
-        .append("\n");
+    addMethod(
+        umlClass,
+        classifier,
+        UMLUtils.getVisibilitySymbol(method),
+        method.isStatic(),
+        method.isFinal(),
+        method.isAbstract(),
+        method.getNameAsString(),
+        parameters,
+        UMLUtils.getTypeString(method.getType()));
+  }
 
-    // Gestione delle dependency (uses)
-    for (Parameter param : method.getParameters()) {
-      String paramType = UMLUtils.getTypeString(param.getType());
-      if (!UMLUtils.isPrimitiveOrJavaType(paramType)
-          && definedTypes.contains(paramType)
-          && !paramType.equals(className)) {
-        String dep = className + " ..> " + paramType + " : uses";
-        if (!relationships.toString().contains(dep)) {
-          relationships.append(dep).append("\n");
+  /**
+   * Aggiunge un metodo al tipo e registra i tipi dei suoi parametri come dipendenze candidate.
+   * Usato sia dal front end dei sorgenti sia da quello del bytecode.
+   */
+  static void addMethod(
+      UMLClass.Builder umlClass,
+      UMLTypeClassifier classifier,
+      String visibility,
+      boolean isStatic,
+      boolean isFinal,
+      boolean isAbstract,
+      String name,
+      List<UMLMember.Parameter> parameters,
+      String returnType) {
+    umlClass.addMember(
+        UMLMember.method(visibility, isStatic, isFinal, isAbstract, name, parameters, returnType));
+
+    // Gestione delle dependency (uses): il confronto con i tipi definiti nel progetto
+    // avviene in fase di emissione, quando sono noti tutti i tipi. Per contenitori e wrapper
+    // la dipendenza è verso il tipo dell'elemento
+    for (UMLMember.Parameter param : parameters) {
+      String paramType = param.getType();
+      if (classifier.isContainer(paramType)) {
+        paramType = classifier.elementType(paramType);
+        if (paramType == null) {
+          continue;
         }
       }
+      if (!classifier.isValueType(paramType) && !paramType.equals(umlClass.getName())) {
+        umlClass.addRelationship(
+            new UMLRelationship(
+                RelationshipType.DEPENDENCY, umlClass.getName(), paramType, "uses", null, null));
+      }
     }
   }
 }
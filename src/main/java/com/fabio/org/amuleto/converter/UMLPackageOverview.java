@@ -0,0 +1,279 @@
+package com.fabio.org.amuleto.converter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Function;
+
+import com.fabio.org.amuleto.model.UMLClass;
+import com.fabio.org.amuleto.model.UMLRelationship;
+
+/**
+ * Vista d'insieme di un progetto per package. Ogni package, oppure ogni prefisso di package con un
+ * numero dato di segmenti, diventa un unico nodo; le relazioni tra tipi di due nodi diversi sono
+ * riunite in un solo arco, etichettato con il numero di relazioni del diagramma delle classi che
+ * rappresenta.
+ *
+ * <p>Gli archi sono contati in un'unica passata sulle relazioni risolte, in una tabella hash ad
+ * indirizzamento aperto indicizzata dalla coppia di nodi: la memoria occupata dipende dal numero di
+ * coppie di package collegate e non dal numero di relazioni.
+ */
+public final class UMLPackageOverview {
+
+  // Nome del nodo che raccoglie i tipi senza package
+  static final String DEFAULT_PACKAGE = "(default)";
+
+  // Nomi dei nodi, in ordine alfabetico
+  private final String[] groupNames;
+  // Numero di tipi di ogni nodo
+  private final int[] groupSizes;
+  // Archi tra nodi (sorgente << 32 | destinazione), ordinati per sorgente e destinazione
+  private final long[] edges;
+  // Numero di relazioni rappresentate da ogni arco
+  private final int[] weights;
+
+  private UMLPackageOverview(String[] groupNames, int[] groupSizes, long[] edges, int[] weights) {
+    this.groupNames = groupNames;
+    this.groupSizes = groupSizes;
+    this.edges = edges;
+    this.weights = weights;
+  }
+
+  /**
+   * Aggrega i tipi estratti per package.
+   *
+   * @param perFileClasses I tipi estratti da ogni file.
+   * @param depth Il numero di segmenti del prefisso di package che identifica un nodo; con 0 ogni
+   *     package è un nodo distinto.
+   * @param selection I tipi da rappresentare, oppure {@code null} per tutti i tipi.
+   * @return La vista d'insieme.
+   */
+  public static UMLPackageOverview of(
+      Collection<List<UMLClass>> perFileClasses, int depth, UMLDiagramSelection selection) {
+    UMLSymbolIndex symbols = new UMLSymbolIndex();
+    List<UMLClass> types = new ArrayList<>();
+    for (List<UMLClass> classes : perFileClasses) {
+      for (UMLClass umlClass : classes) {
+        if (!symbols.contains(umlClass.getQualifiedName())) {
+          symbols.add(umlClass);
+          if (selection == null || selection.contains(umlClass.getQualifiedName())) {
+            types.add(umlClass);
+          }
+        }
+      }
+    }
+
+    // Nodi in ordine alfabetico, così che il diagramma sia stabile
+    Set<String> names = new TreeSet<>();
+    for (UMLClass umlClass : types) {
+      names.add(groupName(umlClass.getPackageName(), depth));
+    }
+    String[] groupNames = names.toArray(new String[0]);
+    Map<String, Integer> groupIds = new HashMap<>(groupNames.length * 2);
+    for (int i = 0; i < groupNames.length; i++) {
+      groupIds.put(groupNames[i], i);
+    }
+    int[] groupSizes = new int[groupNames.length];
+    int[] groupOfType = new int[types.size()];
+    // Le relazioni risolte indicano i tipi con il nome usato nel diagramma
+    Map<String, Integer> groupByName = new HashMap<>(types.size() * 2);
+    for (int i = 0; i < types.size(); i++) {
+      UMLClass umlClass = types.get(i);
+      groupOfType[i] = groupIds.get(groupName(umlClass.getPackageName(), depth));
+      groupSizes[groupOfType[i]]++;
+      groupByName.put(symbols.displayName(umlClass.getQualifiedName()), groupOfType[i]);
+    }
+
+    // Unica passata sulle relazioni: ogni relazione distinta tra nodi diversi incrementa l'arco
+    EdgeCounter counter = new EdgeCounter();
+    Set<UMLRelationship> seen = new HashSet<>();
+    Iterator<List<UMLRelationship>> resolved = symbols.resolveAll(types).iterator();
+    for (int i = 0; i < types.size(); i++) {
+      // Le relazioni di un tipo hanno tutte la stessa sorgente: i duplicati sono nella stessa lista
+      seen.clear();
+      for (UMLRelationship relationship : resolved.next()) {
+        String target = relationship.getTarget();
+        int dims = target.length();
+        while (dims >= 2 && target.startsWith("[]", dims - 2)) {
+          dims -= 2;
+        }
+        Integer targetGroup = groupByName.get(target.substring(0, dims));
+        if (targetGroup != null && targetGroup != groupOfType[i] && seen.add(relationship)) {
+          counter.increment(groupOfType[i], targetGroup);
+        }
+      }
+    }
+    long[] edges = counter.keys();
+    Arrays.sort(edges);
+    int[] weights = new int[edges.length];
+    for (int e = 0; e < edges.length; e++) {
+      weights[e] = counter.get(edges[e]);
+    }
+    return new UMLPackageOverview(groupNames, groupSizes, edges, weights);
+  }
+
+  /** Restituisce il nome del nodo di un package: il prefisso con al più {@code depth} segmenti. */
+  static String groupName(String packageName, int depth) {
+    if (packageName.isEmpty()) {
+      return DEFAULT_PACKAGE;
+    }
+    if (depth <= 0) {
+      return packageName;
+    }
+    int end = -1;
+    for (int i = 0; i < depth; i++) {
+      end = packageName.indexOf('.', end + 1);
+      if (end < 0) {
+        return packageName;
+      }
+    }
+    return packageName.substring(0, end);
+  }
+
+  public int getGroupCount() {
+    return groupNames.length;
+  }
+
+  public String getGroupName(int group) {
+    return groupNames[group];
+  }
+
+  /** Numero di tipi rappresentati dal nodo. */
+  public int getGroupSize(int group) {
+    return groupSizes[group];
+  }
+
+  public int getEdgeCount() {
+    return edges.length;
+  }
+
+  public int getEdgeSource(int edge) {
+    return (int) (edges[edge] >>> 32);
+  }
+
+  public int getEdgeTarget(int edge) {
+    return (int) edges[edge];
+  }
+
+  /** Numero di relazioni tra i tipi dei due nodi rappresentate dall'arco. */
+  public int getEdgeWeight(int edge) {
+    return weights[edge];
+  }
+
+  /**
+   * Emette i nodi e gli archi in PlantUML. Ogni nodo è un package vuoto con il numero di tipi come
+   * stereotipo; i nomi dei package sono mostrati per intero, senza annidamento.
+   */
+  public void appendTo(StringBuilder uml) {
+    appendTo(uml, group -> null);
+  }
+
+  /**
+   * Emette i nodi e gli archi in PlantUML, con un collegamento su ogni nodo.
+   *
+   * @param links Il collegamento di ogni nodo, dato il nome, oppure {@code null} per nessuno.
+   */
+  public void appendTo(StringBuilder uml, Function<String, String> links) {
+    uml.append("set namespaceSeparator none\n\n");
+    for (int g = 0; g < groupNames.length; g++) {
+      uml.append("package \"")
+          .append(groupNames[g])
+          .append("\" as P")
+          .append(g)
+          .append(" <<")
+          .append(groupSizes[g])
+          .append(groupSizes[g] == 1 ? " tipo" : " tipi")
+          .append(">>");
+      String link = links.apply(groupNames[g]);
+      if (link != null) {
+        uml.append(" [[").append(link).append("]]");
+      }
+      uml.append(" {\n}\n");
+    }
+    uml.append("\n");
+    for (int e = 0; e < edges.length; e++) {
+      uml.append("P")
+          .append(getEdgeSource(e))
+          .append(" ..> P")
+          .append(getEdgeTarget(e))
+          .append(" : ")
+          .append(weights[e])
+          .append("\n");
+    }
+  }
+
+  /** Tabella hash ad indirizzamento aperto dalle coppie di nodi al numero di relazioni. */
+  private static final class EdgeCounter {
+    private static final long EMPTY = -1L;
+
+    private long[] keys = newKeys(64);
+    private int[] counts = new int[64];
+    private int size;
+
+    private static long[] newKeys(int capacity) {
+      long[] keys = new long[capacity];
+      Arrays.fill(keys, EMPTY);
+      return keys;
+    }
+
+    void increment(int source, int target) {
+      if (size * 2 >= keys.length) {
+        grow();
+      }
+      long key = (long) source << 32 | target;
+      int slot = slot(keys, key);
+      if (keys[slot] == EMPTY) {
+        keys[slot] = key;
+        size++;
+      }
+      counts[slot]++;
+    }
+
+    int get(long key) {
+      int slot = slot(keys, key);
+      return keys[slot] == EMPTY ? 0 : counts[slot];
+    }
+
+    long[] keys() {
+      long[] used = new long[size];
+      int n = 0;
+      for (long key : keys) {
+        if (key != EMPTY) {
+          used[n++] = key;
+        }
+      }
+      return used;
+    }
+
+    private void grow() {
+      long[] oldKeys = keys;
+      int[] oldCounts = counts;
+      keys = newKeys(oldKeys.length * 2);
+      counts = new int[oldKeys.length * 2];
+      for (int i = 0; i < oldKeys.length; i++) {
+        if (oldKeys[i] != EMPTY) {
+          int slot = slot(keys, oldKeys[i]);
+          keys[slot] = oldKeys[i];
+          counts[slot] = oldCounts[i];
+        }
+      }
+    }
+
+    // Scansione lineare a partire dall'hash della chiave
+    private static int slot(long[] keys, long key) {
+      int mask = keys.length - 1;
+      int slot = (int) ((key * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+      while (keys[slot] != EMPTY && keys[slot] != key) {
+        slot = (slot + 1) & mask;
+      }
+      return slot;
+    }
+  }
+}
@@ -0,0 +1,393 @@
+package com.fabio.org.amuleto.converter;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import com.fabio.org.amuleto.model.UMLClass;
+import com.fabio.org.amuleto.utils.UMLTypeClassifier;
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.ParseProblemException;
+import com.github.javaparser.ParseResult;
+import com.github.javaparser.ParserConfiguration;
+import com.github.javaparser.ast.CompilationUnit;
+
+/**
+ * Stadio di parsing parallelo. Ogni worker usa una propria istanza di {@link JavaParser} (e quindi
+ * una propria {@link ParserConfiguration}), dato che {@code StaticJavaParser} condivide una
+ * configurazione globale non pensata per l'uso concorrente.
+ *
+ * <p>I risultati vengono restituiti nello stesso ordine dei file in ingresso, indipendentemente
+ * dall'ordine di completamento, così che l'output dei generatori sia identico a quello di
+ * un'esecuzione sequenziale.
+ *
+ * <p>I class file ({@code .class}) non passano dal parser: vengono estratti da {@link
+ * UMLBytecodeProcessor}, così che sorgenti e bytecode possano comparire nello stesso diagramma.
+ */
+public class UMLParseStage {
+
+  private static final ThreadFactory DAEMON_THREADS =
+      runnable -> {
+        // Thread daemon: un file bloccato oltre il timeout non impedisce la chiusura della JVM
+        Thread thread = Executors.defaultThreadFactory().newThread(runnable);
+        thread.setDaemon(true);
+        return thread;
+      };
+
+  /**
+   * Estrae i tipi di tutti i file, usando la cache di estrazione se configurata nelle opzioni, e
+   * stampa il resoconto: file ignorati, contatori della cache e dettaglio dei membri.
+   *
+   * @param files I file da analizzare.
+   * @param options Le opzioni di generazione.
+   * @return I tipi di ogni file, nello stesso ordine di {@code files}.
+   * @throws Exception Se il parsing fallisce oltre il limite di errori consentito.
+   */
+  public static List<List<UMLClass>> extractAll(List<Path> files, UMLGenerationOptions options)
+      throws Exception {
+    UMLGenerationReport report = new UMLGenerationReport();
+    List<List<UMLClass>> results = extractAll(files, options, report);
+    report.printSkippedFiles(System.err);
+    report.printCacheCounters(System.out);
+    report.printMemberDetail(System.out);
+    return results;
+  }
+
+  /**
+   * Estrae i tipi di tutti i file, usando la cache di estrazione se configurata nelle opzioni.
+   *
+   * @param files I file da analizzare.
+   * @param options Le opzioni di generazione.
+   * @param report Il resoconto in cui registrare i file ignorati e i contatori della cache.
+   * @return I tipi di ogni file, nello stesso ordine di {@code files}; i file ignorati hanno un
+   *     elenco vuoto.
+   * @throws Exception Se il parsing fallisce oltre il limite di errori consentito.
+   */
+  public static List<List<UMLClass>> extractAll(
+      List<Path> files, UMLGenerationOptions options, UMLGenerationReport report) throws Exception {
+    if (options.getCacheDirectory() == null) {
+      return extractAll(files, options, null, report);
+    }
+    UMLExtractionCache cache =
+        UMLExtractionCache.open(
+            options.getCacheDirectory(),
+            options.isDeclarationsOnly(),
+            options.getTypeClassifier(),
+            options.getMemberDetail());
+    List<List<UMLClass>> results = extractAll(files, options, cache, report);
+    cache.save();
+    report.setCacheCounters(cache.getHits(), cache.getMisses());
+    return results;
+  }
+
+  /**
+   * Estrae i tipi di tutti i file: quelli presenti e non modificati nella cache vengono caricati da
+   * essa, gli altri vengono analizzati in parallelo e aggiunti alla cache. I file ignorati non
+   * vengono memorizzati, così da essere rianalizzati all'esecuzione successiva.
+   *
+   * @param files I file da analizzare.
+   * @param options Le opzioni di generazione.
+   * @param cache La cache da consultare, oppure {@code null} per analizzare tutti i file.
+   * @param report Il resoconto in cui registrare i file ignorati e i membri esclusi dal livello di
+   *     dettaglio, anche per i file ripresi dalla cache.
+   * @return I tipi di ogni file, nello stesso ordine di {@code files}; i file ignorati hanno un
+   *     elenco vuoto.
+   * @throws Exception Se il parsing fallisce oltre il limite di errori consentito.
+   */
+  public static List<List<UMLClass>> extractAll(
+      List<Path> files,
+      UMLGenerationOptions options,
+      UMLExtractionCache cache,
+      UMLGenerationReport report)
+      throws Exception {
+    List<List<UMLClass>> results = new ArrayList<>(files.size());
+    List<Path> changed = new ArrayList<>();
+    List<Integer> changedIndexes = new ArrayList<>();
+    for (Path file : files) {
+      UMLMemberDetail.Filtered cached = cache == null ? null : cache.lookup(file);
+      if (cached == null) {
+        changed.add(file);
+        changedIndexes.add(results.size());
+        results.add(null);
+      } else {
+        // I contatori del dettaglio dei membri vengono dalla cache, come i tipi
+        report.addMemberCounts(cached);
+        results.add(cached.getClasses());
+      }
+    }
+    boolean declarationsOnly = options.isDeclarationsOnly();
+    ThreadLocal<JavaParser> parsers = ThreadLocal.withInitial(() -> newParser(declarationsOnly));
+    List<Extracted> parsed =
+        runAll(
+            changed,
+            options,
+            file -> {
+              // La data di modifica viene letta prima del contenuto: se il file cambia durante la
+              // lettura la voce non coincide, e all'esecuzione successiva si confronta l'hash dei
+              // byte effettivamente analizzati
+              long modified = cache == null ? 0 : Files.getLastModifiedTime(file).toMillis();
+              byte[] content = Files.readAllBytes(file);
+              UMLMemberDetail.Filtered types =
+                  options
+                      .getMemberDetail()
+                      .filter(
+                          extractFile(
+                              parsers,
+                              file,
+                              content,
+                              declarationsOnly,
+                              options.getTypeClassifier()));
+              return new Extracted(
+                  types, cache == null ? null : UMLExtractionCache.version(modified, content));
+            },
+            report);
+    for (int i = 0; i < parsed.size(); i++) {
+      Extracted extracted = parsed.get(i);
+      if (extracted == null) {
+        results.set(changedIndexes.get(i), Collections.emptyList());
+      } else {
+        report.addMemberCounts(extracted.types);
+        results.set(changedIndexes.get(i), extracted.types.getClasses());
+        if (cache != null) {
+          cache.store(changed.get(i), extracted.version, extracted.types);
+        }
+      }
+    }
+    return results;
+  }
+
+  /** Tipi estratti da un file, con la versione del contenuto da cui provengono. */
+  private static final class Extracted {
+    final UMLMemberDetail.Filtered types;
+    // null senza cache di estrazione
+    final UMLExtractionCache.Version version;
+
+    Extracted(UMLMemberDetail.Filtered types, UMLExtractionCache.Version version) {
+      this.types = types;
+      this.version = version;
+    }
+  }
+
+  /**
+   * Riassume un file: i class file vengono letti da {@link UMLBytecodeProcessor}, i sorgenti
+   * analizzati con il parser del worker corrente.
+   */
+  private static List<UMLClass> extractFile(
+      ThreadLocal<JavaParser> parsers,
+      Path file,
+      byte[] content,
+      boolean declarationsOnly,
+      UMLTypeClassifier classifier)
+      throws Exception {
+    if (isClassFile(file)) {
+      return UMLBytecodeProcessor.extract(content, classifier);
+    }
+    return UMLProcessor.extract(parse(parsers.get(), content, declarationsOnly), classifier);
+  }
+
+  static boolean isClassFile(Path file) {
+    Path name = file.getFileName();
+    return name != null && name.toString().endsWith(".class");
+  }
+
+  /** Estrazione di un singolo file, eseguita in un worker. */
+  @FunctionalInterface
+  interface FileTask<T> {
+    T extract(Path file) throws Exception;
+  }
+
+  /**
+   * Applica il task a ogni file con il numero di thread, il timeout e il limite di errori indicati
+   * nelle opzioni. I file ignorati hanno risultato {@code null}.
+   *
+   * <p>Il parser non reagisce all'interruzione: il worker di un file scaduto resta occupato, e il
+   * pool riceve un worker in più al suo posto, così che i file in coda continuino a essere
+   * analizzati con lo stesso parallelismo anche se uno o più file non terminano mai.
+   */
+  static <T> List<T> runAll(
+      List<Path> files, UMLGenerationOptions options, FileTask<T> task, UMLGenerationReport report)
+      throws Exception {
+    int threads = Math.min(options.getParserThreads(), files.size());
+    long timeout = options.getParseTimeoutMillis();
+    List<T> results = new ArrayList<>(files.size());
+    int skippedBefore = report.getSkippedFiles().size();
+    if (threads <= 1 && timeout <= 0) {
+      for (Path file : files) {
+        long start = System.nanoTime();
+        try {
+          results.add(task.extract(file));
+        } catch (Exception e) {
+          skip(file, e, start, options, report);
+          results.add(null);
+        }
+      }
+      report.addParsedFiles(files.size() - (report.getSkippedFiles().size() - skippedBefore));
+      return results;
+    }
+
+    // Con un timeout il parsing avviene sempre in un worker, anche con un solo thread, così che
+    // il thread chiamante possa abbandonare un file che non termina
+    int poolSize = Math.max(threads, 1);
+    ThreadPoolExecutor executor =
+        new ThreadPoolExecutor(
+            poolSize,
+            poolSize,
+            0L,
+            TimeUnit.MILLISECONDS,
+            new LinkedBlockingQueue<>(),
+            DAEMON_THREADS);
+    try {
+      AtomicLongArray startTimes = new AtomicLongArray(files.size());
+      List<Future<T>> futures = new ArrayList<>(files.size());
+      for (int i = 0; i < files.size(); i++) {
+        int index = i;
+        Path file = files.get(i);
+        futures.add(
+            executor.submit(
+                () -> {
+                  startTimes.set(index, System.nanoTime());
+                  return task.extract(file);
+                }));
+      }
+      // Raccolta in ordine di sottomissione: merge deterministico
+      for (int i = 0; i < futures.size(); i++) {
+        try {
+          results.add(await(futures.get(i), startTimes, i, timeout));
+        } catch (ExecutionException e) {
+          Throwable cause = e.getCause();
+          if (!(cause instanceof Exception)) {
+            throw e;
+          }
+          skip(files.get(i), (Exception) cause, startTimes.get(i), options, report);
+          results.add(null);
+        } catch (TimeoutException e) {
+          // Il worker resta occupato fino alla fine del file, ma il risultato viene scartato: un
+          // nuovo worker ne prende il posto per i file in coda
+          futures.get(i).cancel(true);
+          executor.setMaximumPoolSize(executor.getMaximumPoolSize() + 1);
+          executor.setCorePoolSize(executor.getCorePoolSize() + 1);
+          skip(
+              files.get(i),
+              new TimeoutException("Timeout di parsing (" + timeout + " ms)"),
+              startTimes.get(i),
+              options,
+              report);
+          results.add(null);
+        }
+      }
+      report.addParsedFiles(files.size() - (report.getSkippedFiles().size() - skippedBefore));
+      return results;
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * Attende il risultato di un file. Il timeout decorre dall'inizio del parsing del file, non dalla
+   * sottomissione, così che il tempo passato in coda non venga conteggiato. I file vengono attesi
+   * in ordine di sottomissione e i worker dei file scaduti vengono sostituiti, quindi un file
+   * ancora in coda parte non appena un worker termina il file precedente.
+   */
+  private static <T> T await(Future<T> future, AtomicLongArray startTimes, int index, long timeout)
+      throws InterruptedException, ExecutionException, TimeoutException {
+    if (timeout <= 0) {
+      return future.get();
+    }
+    while (true) {
+      long start = startTimes.get(index);
+      long remaining =
+          start == 0 ? timeout : timeout - TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+      if (remaining <= 0) {
+        throw new TimeoutException();
+      }
+      try {
+        return future.get(remaining, TimeUnit.MILLISECONDS);
+      } catch (TimeoutException e) {
+        // Se il file era ancora in coda si riprova con il tempo effettivamente rimasto
+      }
+    }
+  }
+
+  /** Registra un file ignorato e solleva l'errore se il limite di errori consentito è superato. */
+  private static void skip(
+      Path file,
+      Exception error,
+      long startNanos,
+      UMLGenerationOptions options,
+      UMLGenerationReport report)
+      throws Exception {
+    long millis =
+        startNanos == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    report.addSkippedFile(file, reason(error), millis);
+    int budget = options.getMaxParseErrors();
+    if (budget >= 0 && report.getSkippedFiles().size() > budget) {
+      throw error;
+    }
+  }
+
+  /** Prima riga del messaggio dell'errore, preceduta dal tipo se il messaggio manca. */
+  private static String reason(Exception error) {
+    String message = error.getMessage();
+    if (message == null || message.isBlank()) {
+      return error.getClass().getSimpleName();
+    }
+    int newline = message.indexOf('\n');
+    return (newline < 0 ? message : message.substring(0, newline)).trim();
+  }
+
+  /**
+   * Crea un parser con la configurazione predefinita di {@code StaticJavaParser}, ma con il livello
+   * di linguaggio Java 17, così che i record vengano riconosciuti. In modalità "solo dichiarazioni"
+   * vengono disattivate l'attribuzione dei commenti e la memorizzazione dei token, che i processor
+   * non usano.
+   */
+  static JavaParser newParser(boolean declarationsOnly) {
+    ParserConfiguration configuration = new ParserConfiguration();
+    configuration.setLanguageLevel(ParserConfiguration.LanguageLevel.JAVA_17);
+    if (declarationsOnly) {
+      configuration.setAttributeComments(false);
+      configuration.setStoreTokens(false);
+    }
+    return new JavaParser(configuration);
+  }
+
+  /**
+   * Esegue il parsing del contenuto di un file sollevando un'eccezione in caso di errori, come fa
+   * {@code StaticJavaParser.parse}. In modalità "solo dichiarazioni" i corpi dei membri vengono
+   * rimossi da {@link UMLSignatureLexer} prima del parsing. Il sorgente viene decodificato in UTF-8
+   * come fa il parser, sostituendo i byte non validi: un commento in un'altra codifica non
+   * impedisce l'analisi.
+   */
+  static CompilationUnit parse(JavaParser parser, byte[] content, boolean declarationsOnly) {
+    if (declarationsOnly) {
+      return parseSource(parser, new String(content, StandardCharsets.UTF_8), true);
+    }
+    return check(parser.parse(new ByteArrayInputStream(content)));
+  }
+
+  /** Esegue il parsing di un sorgente già in memoria. */
+  static CompilationUnit parseSource(JavaParser parser, String source, boolean declarationsOnly) {
+    String text = declarationsOnly ? UMLSignatureLexer.stripBodies(source) : source;
+    return check(parser.parse(text));
+  }
+
+  private static CompilationUnit check(ParseResult<CompilationUnit> result) {
+    if (!result.isSuccessful() || !result.getResult().isPresent()) {
+      throw new ParseProblemException(result.getProblems());
+    }
+    return result.getResult().get();
+  }
+}
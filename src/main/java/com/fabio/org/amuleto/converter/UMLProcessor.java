@@ -1,21 +1,28 @@
 package com.fabio.org.amuleto.converter;
 
-import java.util.Set;
+import java.util.List;
 
-import com.github.javaparser.ast.body.ClassOrInterfaceDeclaration;
-import com.github.javaparser.ast.body.EnumDeclaration;
+import com.fabio.org.amuleto.model.UMLClass;
+import com.fabio.org.amuleto.utils.UMLTypeClassifier;
+import com.github.javaparser.ast.CompilationUnit;
 
 public class UMLProcessor {
 
-  public static void processType(
-      ClassOrInterfaceDeclaration cid,
-      StringBuilder uml,
-      StringBuilder relationships,
-      Set<String> definedTypes) {
-    UMLTypeProcessor.processType(cid, uml, relationships, definedTypes);
+  /**
+   * Prima passata: estrae nel modello intermedio tutti i tipi di primo livello di una compilation
+   * unit, con la classificazione dei tipi predefinita. Dopo questa chiamata l'AST non serve più e
+   * può essere raccolto dal garbage collector.
+   */
+  public static List<UMLClass> extract(CompilationUnit cu) {
+    return extract(cu, UMLTypeClassifier.defaults());
   }
 
-  public static void processEnum(EnumDeclaration enumDecl, StringBuilder uml) {
-    UMLEnumProcessor.processEnum(enumDecl, uml);
+  /**
+   * Prima passata: estrae nel modello intermedio tutti i tipi di primo livello di una compilation
+   * unit, classificando i tipi di attributi e parametri con il classificatore indicato. L'AST viene
+   * percorso una sola volta da {@link UMLExtractionVisitor}.
+   */
+  public static List<UMLClass> extract(CompilationUnit cu, UMLTypeClassifier classifier) {
+    return new UMLExtractionVisitor(classifier).extract(cu);
   }
 }
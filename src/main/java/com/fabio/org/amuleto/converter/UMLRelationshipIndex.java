@@ -0,0 +1,61 @@
+package com.fabio.org.amuleto.converter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import com.fabio.org.amuleto.model.UMLRelationship;
+
+/**
+ * Indice delle relazioni del diagramma. Le relazioni sono raccolte in un insieme hash di archi
+ * tipizzati (tipo, estremi, etichetta e molteplicità), quindi ogni arco compare una sola volta
+ * indipendentemente da quante volte viene registrato, con un costo costante per inserimento.
+ *
+ * <p>L'ordine di emissione è quello del primo inserimento, così che il diagramma prodotto sia
+ * stabile tra un'esecuzione e l'altra.
+ */
+public final class UMLRelationshipIndex implements Iterable<UMLRelationship> {
+
+  private final Set<UMLRelationship> relationships = new LinkedHashSet<>();
+
+  /**
+   * Registra una relazione.
+   *
+   * @param relationship La relazione da registrare.
+   * @return {@code true} se la relazione non era già presente nell'indice.
+   */
+  public boolean add(UMLRelationship relationship) {
+    return relationships.add(relationship);
+  }
+
+  /** Verifica se la relazione è già presente nell'indice. */
+  public boolean contains(UMLRelationship relationship) {
+    return relationships.contains(relationship);
+  }
+
+  /** Restituisce il numero di relazioni distinte registrate. */
+  public int size() {
+    return relationships.size();
+  }
+
+  /** Restituisce una copia delle relazioni registrate, nell'ordine del primo inserimento. */
+  public List<UMLRelationship> getRelationships() {
+    return Collections.unmodifiableList(new ArrayList<>(relationships));
+  }
+
+  /** Scorre le relazioni registrate nell'ordine del primo inserimento, senza copiarle. */
+  @Override
+  public Iterator<UMLRelationship> iterator() {
+    return Collections.unmodifiableSet(relationships).iterator();
+  }
+
+  /** Emette le relazioni in PlantUML, una per riga, nell'ordine del primo inserimento. */
+  public void appendTo(StringBuilder uml) {
+    for (UMLRelationship relationship : relationships) {
+      uml.append(relationship).append("\n");
+    }
+  }
+}
@@ -0,0 +1,250 @@
+package com.fabio.org.amuleto.converter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import net.sourceforge.plantuml.FileFormat;
+import net.sourceforge.plantuml.core.DiagramDescription;
+import net.sourceforge.plantuml.cucadiagram.dot.GraphvizUtils;
+import net.sourceforge.plantuml.version.Version;
+
+/**
+ * Cache delle immagini renderizzate, indicizzata per contenuto. La chiave di una voce è l'hash
+ * SHA-256 del sorgente PlantUML completo, del formato, del motore di layout (con la versione di
+ * Graphviz per {@code dot}) e della versione di PlantUML: un diagramma con lo stesso testo riusa
+ * l'immagine già prodotta senza passare dal rendering. Le immagini di errore, prodotte da un
+ * sorgente non valido o da {@code dot} non installato, non vengono memorizzate.
+ *
+ * <p>Le voci sono file nella sottodirectory {@code render} della directory di cache, uno per
+ * immagine. Oltre {@value #MAX_ENTRIES} voci vengono eliminate quelle usate meno di recente.
+ *
+ * <p>Indipendentemente dalla cache, con la scrittura condizionata un file di output il cui
+ * contenuto non è cambiato non viene riscritto, così che la sua data di modifica resti quella
+ * dell'ultima modifica effettiva.
+ */
+public final class UMLRenderCache {
+
+  // Numero massimo di immagini conservate
+  static final int MAX_ENTRIES = 1024;
+
+  private static final UMLRenderCache DISABLED = new UMLRenderCache(null, false);
+
+  // Directory delle voci, null se la cache è disattivata
+  private final Path directory;
+  private final boolean skipUnchanged;
+
+  private UMLRenderCache(Path directory, boolean skipUnchanged) {
+    this.directory = directory;
+    this.skipUnchanged = skipUnchanged;
+  }
+
+  /**
+   * Apre la cache nella directory indicata.
+   *
+   * @param cacheDirectory La directory di cache, oppure {@code null} per renderizzare sempre.
+   * @param skipUnchanged Se vero, i file di output con lo stesso contenuto non vengono riscritti.
+   * @return La cache.
+   */
+  public static UMLRenderCache open(File cacheDirectory, boolean skipUnchanged) {
+    if (cacheDirectory == null && !skipUnchanged) {
+      return DISABLED;
+    }
+    return new UMLRenderCache(
+        cacheDirectory == null ? null : cacheDirectory.toPath().resolve("render"), skipUnchanged);
+  }
+
+  /**
+   * Apre la cache configurata nelle opzioni (vedi {@link UMLGenerationOptions#getCacheDirectory}).
+   */
+  public static UMLRenderCache open(UMLGenerationOptions options) {
+    return open(options.getCacheDirectory(), options.isSkipUnchanged());
+  }
+
+  /**
+   * Renderizza il sorgente PlantUML nel file indicato, riusando l'immagine in cache se il sorgente
+   * è già stato renderizzato nello stesso formato.
+   *
+   * @param uml Il sorgente PlantUML completo.
+   * @param file Il file di output.
+   * @param format Il formato dell'immagine.
+   * @throws IOException Se il rendering o la scrittura falliscono.
+   */
+  public void render(String uml, File file, FileFormat format) throws IOException {
+    if (this == DISABLED) {
+      UMLVectorGenerator.render(uml, file, format);
+      return;
+    }
+    long start = System.nanoTime();
+    // Senza Graphviz PlantUML disegna un'immagine di errore che non deve sopravvivere alla sua
+    // installazione: i rendering con dot sono memorizzati solo se l'eseguibile è disponibile
+    String engine = directory == null ? null : layoutEngine(uml);
+    Path entry =
+        engine == null
+            ? null
+            : directory.resolve(key(uml, format, engine) + format.getFileSuffix());
+    byte[] image = entry == null ? null : read(entry);
+    boolean cached = image != null;
+    if (!cached) {
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      DiagramDescription description = UMLVectorGenerator.render(uml, out, format);
+      image = out.toByteArray();
+      if (entry != null && !isError(description)) {
+        store(entry, image);
+      }
+    }
+    boolean written = write(file.toPath(), image);
+    System.out.println(
+        "Diagramma "
+            + (cached ? "ripreso dalla cache" : "generato")
+            + " in formato "
+            + format
+            + (written ? " in: " : ", invariato: ")
+            + file.getAbsolutePath()
+            + " ("
+            + (System.nanoTime() - start) / 1_000_000
+            + " ms)");
+  }
+
+  /**
+   * Scrive il contenuto nel file, a meno che la scrittura condizionata sia attiva e il file abbia
+   * già lo stesso contenuto.
+   *
+   * @return {@code true} se il file è stato scritto.
+   */
+  boolean write(Path file, byte[] content) throws IOException {
+    if (skipUnchanged
+        && Files.isRegularFile(file)
+        && Files.size(file) == content.length
+        && Arrays.equals(Files.readAllBytes(file), content)) {
+      return false;
+    }
+    Files.write(file, content);
+    return true;
+  }
+
+  /**
+   * Sostituisce il file con un file temporaneo appena scritto nella stessa directory, a meno che la
+   * scrittura condizionata sia attiva e i due abbiano lo stesso contenuto: in quel caso il file
+   * temporaneo viene eliminato.
+   *
+   * @return {@code true} se il file è stato sostituito.
+   */
+  boolean replace(Path file, Path written) throws IOException {
+    if (skipUnchanged && Files.isRegularFile(file) && Files.mismatch(file, written) == -1) {
+      Files.delete(written);
+      return false;
+    }
+    Files.move(written, file, StandardCopyOption.REPLACE_EXISTING);
+    return true;
+  }
+
+  /** Verifica se i file di output con lo stesso contenuto vengono lasciati invariati. */
+  public boolean isSkipUnchanged() {
+    return skipUnchanged;
+  }
+
+  // Legge una voce e ne aggiorna la data di ultimo uso; null se assente o illeggibile
+  private static byte[] read(Path entry) {
+    try {
+      byte[] image = Files.readAllBytes(entry);
+      Files.setLastModifiedTime(entry, FileTime.fromMillis(System.currentTimeMillis()));
+      return image;
+    } catch (IOException e) {
+      return null;
+    }
+  }
+
+  // Salva una voce in modo atomico, poi elimina le voci usate meno di recente oltre il limite
+  private void store(Path entry, byte[] image) throws IOException {
+    Files.createDirectories(directory);
+    Path tmp = Files.createTempFile(directory, "render", ".tmp");
+    Files.write(tmp, image);
+    Files.move(tmp, entry, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    List<Path> entries;
+    try (Stream<Path> files = Files.list(directory)) {
+      entries = files.filter(f -> !f.toString().endsWith(".tmp")).collect(Collectors.toList());
+    }
+    if (entries.size() <= MAX_ENTRIES) {
+      return;
+    }
+    Map<Path, FileTime> lastUsed = new HashMap<>();
+    for (Path file : entries) {
+      try {
+        lastUsed.put(file, Files.getLastModifiedTime(file));
+      } catch (IOException e) {
+        // Voce eliminata nel frattempo da un altro rendering
+      }
+    }
+    List<Path> oldest = new ArrayList<>(lastUsed.keySet());
+    oldest.sort(Comparator.comparing(lastUsed::get));
+    for (int i = 0; i < oldest.size() - MAX_ENTRIES; i++) {
+      Files.deleteIfExists(oldest.get(i));
+    }
+  }
+
+  /**
+   * Motore di layout del sorgente, con la versione di Graphviz per {@code dot}; {@code null} se il
+   * sorgente usa {@code dot} e l'eseguibile non è disponibile.
+   */
+  static String layoutEngine(String uml) {
+    if (uml.contains(UMLDiagramBuilder.SMETANA_PRAGMA)) {
+      return "smetana";
+    }
+    try {
+      // PlantUML memorizza la versione dopo la prima esecuzione di dot -V
+      String version = GraphvizUtils.dotVersion();
+      return version == null || version.startsWith("Error") ? null : "dot " + version;
+    } catch (IOException e) {
+      return null;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return null;
+    }
+  }
+
+  // PlantUML descrive come "(Error)" un sorgente non valido, renderizzato come immagine di errore
+  private static boolean isError(DiagramDescription description) {
+    return description == null || description.getDescription().startsWith("(Error");
+  }
+
+  /**
+   * Chiave di una voce: hash del sorgente, del formato, del motore di layout (con la versione di
+   * Graphviz) e della versione di PlantUML.
+   */
+  static String key(String uml, FileFormat format, String engine) {
+    MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+    digest.update(Version.versionString().getBytes(StandardCharsets.UTF_8));
+    digest.update((byte) 0);
+    digest.update(format.name().getBytes(StandardCharsets.UTF_8));
+    digest.update((byte) 0);
+    digest.update(engine.getBytes(StandardCharsets.UTF_8));
+    digest.update((byte) 0);
+    digest.update(uml.getBytes(StandardCharsets.UTF_8));
+    StringBuilder hex = new StringBuilder();
+    for (byte b : digest.digest()) {
+      hex.append(String.format("%02x", b));
+    }
+    return hex.toString();
+  }
+}
@@ -0,0 +1,269 @@
+package com.fabio.org.amuleto.converter;
+
+/**
+ * Lexer minimale che rimuove dal sorgente i corpi di metodi, costruttori e blocchi di
+ * inizializzazione, lasciando intatte le dichiarazioni di tipo, i campi (con i loro
+ * inizializzatori) e le firme dei membri. Il risultato è ancora Java sintatticamente valido, ma
+ * JavaParser non deve più costruire l'AST delle istruzioni, che i processor non usano.
+ *
+ * <p>I commenti vengono eliminati. Gli a capo vengono invece conservati, così che i numeri di riga
+ * segnalati da eventuali errori di parsing corrispondano a quelli del file originale.
+ */
+public class UMLSignatureLexer {
+
+  /**
+   * Restituisce il sorgente con i corpi dei membri sostituiti da blocchi vuoti.
+   *
+   * @param src Il sorgente Java originale.
+   * @return Il sorgente ridotto alle sole dichiarazioni.
+   */
+  public static String stripBodies(String src) {
+    return new UMLSignatureLexer(src).run();
+  }
+
+  private final String src;
+  private final int len;
+  private final StringBuilder out;
+  // Per ogni livello di graffe aperto: true se si tratta del corpo di un tipo
+  private boolean[] typeBody = new boolean[16];
+  private int depth;
+  // Inizio, in out, del segmento corrente (testo dall'ultimo ';', '{' o '}' a livello di tipo)
+  private int segmentStart;
+  private int parenDepth;
+  // Il segmento corrente contiene un '=' fuori dalle parentesi: è un inizializzatore
+  private boolean sawAssign;
+
+  private UMLSignatureLexer(String src) {
+    this.src = src;
+    this.len = src.length();
+    this.out = new StringBuilder(len);
+  }
+
+  private String run() {
+    int i = 0;
+    while (i < len) {
+      char c = src.charAt(i);
+      if (c == '/' && i + 1 < len && (src.charAt(i + 1) == '/' || src.charAt(i + 1) == '*')) {
+        i = skipComment(i);
+      } else if (c == '"' || c == '\'') {
+        i = copyLiteral(i);
+      } else if (c == '(') {
+        parenDepth++;
+        out.append(c);
+        i++;
+      } else if (c == ')') {
+        parenDepth--;
+        out.append(c);
+        i++;
+      } else if (c == '=' && parenDepth == 0) {
+        sawAssign = true;
+        out.append(c);
+        i++;
+      } else if (c == ';' && parenDepth == 0) {
+        out.append(c);
+        i++;
+        startSegment();
+      } else if (c == '{') {
+        i = openBrace(i);
+      } else if (c == '}') {
+        if (depth > 0) {
+          depth--;
+        }
+        out.append(c);
+        i++;
+        startSegment();
+      } else {
+        out.append(c);
+        i++;
+      }
+    }
+    return out.toString();
+  }
+
+  private int openBrace(int i) {
+    boolean inTypeBody = depth > 0 && typeBody[depth - 1];
+    if (parenDepth == 0 && declaresType(out, segmentStart)) {
+      push(true);
+      out.append('{');
+      startSegment();
+      return i + 1;
+    }
+    if (parenDepth > 0 || sawAssign || !inTypeBody) {
+      // Inizializzatore, argomento di annotazione o codice fuori da un tipo: copia integrale
+      return skipBlock(i, true);
+    }
+    // Corpo di metodo, costruttore o blocco di inizializzazione: viene svuotato
+    out.append('{');
+    int next = skipBlock(i, false);
+    out.append('}');
+    startSegment();
+    return next;
+  }
+
+  private void push(boolean isType) {
+    if (depth == typeBody.length) {
+      boolean[] grown = new boolean[depth * 2];
+      System.arraycopy(typeBody, 0, grown, 0, depth);
+      typeBody = grown;
+    }
+    typeBody[depth++] = isType;
+  }
+
+  private void startSegment() {
+    segmentStart = out.length();
+    parenDepth = 0;
+    sawAssign = false;
+  }
+
+  /**
+   * Salta il blocco bilanciato che inizia in {@code start} (una '{'). Se {@code copy} è vero il
+   * blocco viene copiato così com'è, altrimenti ne vengono emessi solo gli a capo.
+   *
+   * @return L'indice successivo alla '}' di chiusura.
+   */
+  private int skipBlock(int start, boolean copy) {
+    int level = 0;
+    int i = start;
+    while (i < len) {
+      char c = src.charAt(i);
+      if (c == '/' && i + 1 < len && (src.charAt(i + 1) == '/' || src.charAt(i + 1) == '*')) {
+        i = skipComment(i);
+        continue;
+      }
+      if (c == '"' || c == '\'') {
+        if (copy) {
+          i = copyLiteral(i);
+        } else {
+          int end = literalEnd(i);
+          emitNewlines(i, end);
+          i = end;
+        }
+        continue;
+      }
+      if (copy) {
+        out.append(c);
+      } else if (c == '\n') {
+        out.append('\n');
+      }
+      i++;
+      if (c == '{') {
+        level++;
+      } else if (c == '}') {
+        level--;
+        if (level == 0) {
+          return i;
+        }
+      }
+    }
+    return i;
+  }
+
+  private int skipComment(int start) {
+    int end;
+    if (src.charAt(start + 1) == '/') {
+      end = src.indexOf('\n', start);
+      end = end < 0 ? len : end;
+    } else {
+      end = src.indexOf("*/", start + 2);
+      end = end < 0 ? len : end + 2;
+      emitNewlines(start, end);
+    }
+    // Un commento separa comunque due token
+    out.append(' ');
+    return end;
+  }
+
+  private int copyLiteral(int start) {
+    int end = literalEnd(start);
+    out.append(src, start, end);
+    return end;
+  }
+
+  /** Restituisce la fine di un letterale stringa, carattere o text block che inizia in start. */
+  private int literalEnd(int start) {
+    char quote = src.charAt(start);
+    if (quote == '"' && src.startsWith("\"\"\"", start)) {
+      int i = start + 3;
+      while (i < len) {
+        char c = src.charAt(i);
+        if (c == '\\') {
+          i += 2;
+        } else if (src.startsWith("\"\"\"", i)) {
+          return i + 3;
+        } else {
+          i++;
+        }
+      }
+      return len;
+    }
+    int i = start + 1;
+    while (i < len) {
+      char c = src.charAt(i);
+      if (c == '\\') {
+        i += 2;
+      } else if (c == quote || c == '\n') {
+        return i + 1;
+      } else {
+        i++;
+      }
+    }
+    return len;
+  }
+
+  private void emitNewlines(int from, int to) {
+    for (int i = from; i < to; i++) {
+      if (src.charAt(i) == '\n') {
+        out.append('\n');
+      }
+    }
+  }
+
+  /**
+   * Verifica se il segmento dichiara un tipo: contiene le parole chiave {@code class}, {@code
+   * interface} o {@code enum} (non precedute da '.', come in {@code Foo.class}), oppure {@code
+   * record} seguita da un identificatore.
+   */
+  static boolean declaresType(CharSequence text, int from) {
+    int i = from;
+    int n = text.length();
+    while (i < n) {
+      char c = text.charAt(i);
+      if (!Character.isJavaIdentifierStart(c)) {
+        i++;
+        continue;
+      }
+      int start = i;
+      while (i < n && Character.isJavaIdentifierPart(text.charAt(i))) {
+        i++;
+      }
+      String word = text.subSequence(start, i).toString();
+      if (word.equals("class") || word.equals("interface") || word.equals("enum")) {
+        if (!precededByDot(text, start, from)) {
+          return true;
+        }
+      } else if (word.equals("record") && !precededByDot(text, start, from)) {
+        int j = skipSpaces(text, i);
+        if (j < n && Character.isJavaIdentifierStart(text.charAt(j))) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  private static boolean precededByDot(CharSequence text, int index, int from) {
+    int j = index - 1;
+    while (j >= from && Character.isWhitespace(text.charAt(j))) {
+      j--;
+    }
+    return j >= from && text.charAt(j) == '.';
+  }
+
+  private static int skipSpaces(CharSequence text, int index) {
+    int j = index;
+    while (j < text.length() && Character.isWhitespace(text.charAt(j))) {
+      j++;
+    }
+    return j;
+  }
+}
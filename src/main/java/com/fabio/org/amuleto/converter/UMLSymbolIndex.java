@@ -0,0 +1,227 @@
+package com.fabio.org.amuleto.converter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.stream.Collectors;
+
+import com.fabio.org.amuleto.model.UMLClass;
+import com.fabio.org.amuleto.model.UMLRelationship;
+import com.fabio.org.amuleto.view.RelationshipType;
+
+/**
+ * Indice dei tipi definiti nel progetto, per nome qualificato e per nome semplice. Risolve i nomi
+ * semplici usati nelle relazioni applicando, in ordine, le regole di visibilità di Java:
+ * importazioni esplicite, tipi dello stesso package, importazioni su richiesta e {@code java.lang}.
+ * Se nessuna regola si applica, un nome semplice definito una sola volta nel progetto viene
+ * comunque associato a quel tipo.
+ *
+ * <p>La risoluzione lavora solo sul modello estratto, senza il symbol solver di JavaParser: ogni
+ * ricerca è un accesso a una mappa hash e i tipi vengono risolti in parallelo.
+ *
+ * <p>Nel diagramma un tipo è indicato con il nome semplice, a meno che lo stesso nome sia definito
+ * in più package: in quel caso si usa il nome qualificato, così che le relazioni colleghino il tipo
+ * giusto.
+ */
+public final class UMLSymbolIndex {
+
+  // Tipi definiti, per nome qualificato
+  private final Map<String, UMLClass> types = new HashMap<>();
+  // Nomi qualificati dei tipi definiti, per nome semplice
+  private final Map<String, List<String>> simpleNames = new HashMap<>();
+
+  /** Registra un tipo definito nel progetto. */
+  public void add(UMLClass umlClass) {
+    String qualifiedName = umlClass.getQualifiedName();
+    if (types.putIfAbsent(qualifiedName, umlClass) == null) {
+      simpleNames.computeIfAbsent(umlClass.getName(), k -> new ArrayList<>(1)).add(qualifiedName);
+    }
+  }
+
+  /** Verifica se il nome qualificato indicato corrisponde a un tipo definito nel progetto. */
+  public boolean contains(String qualifiedName) {
+    return types.containsKey(qualifiedName);
+  }
+
+  /** Restituisce i nomi qualificati dei tipi definiti con il nome semplice indicato. */
+  public List<String> getQualifiedNames(String simpleName) {
+    return simpleNames.getOrDefault(simpleName, Collections.emptyList());
+  }
+
+  /**
+   * Restituisce il nome con cui un tipo definito compare nel diagramma: il nome semplice se è
+   * univoco nel progetto, altrimenti il nome qualificato.
+   */
+  public String displayName(String qualifiedName) {
+    UMLClass umlClass = types.get(qualifiedName);
+    if (umlClass == null) {
+      return qualifiedName;
+    }
+    return getQualifiedNames(umlClass.getName()).size() > 1 ? qualifiedName : umlClass.getName();
+  }
+
+  /**
+   * Risolve un nome di tipo nel contesto del tipo che lo usa.
+   *
+   * @param context Il tipo in cui compare il nome.
+   * @param name Il nome, semplice o qualificato, senza argomenti di tipo.
+   * @return Il nome qualificato del tipo definito nel progetto, oppure {@code null} se il nome non
+   *     si riferisce a un tipo del progetto.
+   */
+  public String resolve(UMLClass context, String name) {
+    return new Scope(context).resolve(name);
+  }
+
+  /**
+   * Risolve le relazioni di tutti i tipi indicati, in parallelo. Estremi appartenenti al progetto
+   * vengono sostituiti dal loro nome nel diagramma; le dipendenze verso tipi esterni al progetto
+   * vengono scartate, perché non sono rappresentate.
+   *
+   * @param classes I tipi di cui risolvere le relazioni.
+   * @return Le relazioni risolte di ogni tipo, nello stesso ordine di {@code classes}.
+   */
+  public List<List<UMLRelationship>> resolveAll(List<UMLClass> classes) {
+    return classes.parallelStream().map(this::resolveRelationships).collect(Collectors.toList());
+  }
+
+  /**
+   * Risolve le relazioni dei tipi indicati a blocchi di {@code chunkSize} tipi: ogni blocco viene
+   * risolto in parallelo solo quando il blocco precedente è stato consumato, così che in memoria
+   * resti un solo blocco di relazioni risolte.
+   *
+   * @param classes I tipi di cui risolvere le relazioni.
+   * @param chunkSize Il numero di tipi risolti insieme.
+   * @return Le relazioni risolte di ogni tipo, nello stesso ordine di {@code classes}.
+   */
+  public Iterator<List<UMLRelationship>> resolveInChunks(List<UMLClass> classes, int chunkSize) {
+    return new Iterator<List<UMLRelationship>>() {
+      private int next;
+      private Iterator<List<UMLRelationship>> chunk = Collections.emptyIterator();
+
+      @Override
+      public boolean hasNext() {
+        return chunk.hasNext() || next < classes.size();
+      }
+
+      @Override
+      public List<UMLRelationship> next() {
+        if (!chunk.hasNext()) {
+          if (next >= classes.size()) {
+            throw new NoSuchElementException();
+          }
+          int end = Math.min(next + chunkSize, classes.size());
+          chunk = resolveAll(classes.subList(next, end)).iterator();
+          next = end;
+        }
+        return chunk.next();
+      }
+    };
+  }
+
+  private List<UMLRelationship> resolveRelationships(UMLClass umlClass) {
+    Scope scope = new Scope(umlClass);
+    String source = displayName(umlClass.getQualifiedName());
+    List<UMLRelationship> resolved = new ArrayList<>(umlClass.getRelationships().size());
+    for (UMLRelationship relationship : umlClass.getRelationships()) {
+      String target = relationship.getTarget();
+      // Gli array delle associazioni conservano il suffisso: si risolve il tipo dell'elemento.
+      // Le dipendenze sono rappresentate solo verso il tipo stesso
+      int dims = target.length();
+      while (relationship.getType() != RelationshipType.DEPENDENCY
+          && dims >= 2
+          && target.startsWith("[]", dims - 2)) {
+        dims -= 2;
+      }
+      String qualifiedName = scope.resolve(target.substring(0, dims));
+      if (qualifiedName != null) {
+        target = displayName(qualifiedName) + target.substring(dims);
+      } else if (relationship.getType() == RelationshipType.DEPENDENCY) {
+        continue;
+      }
+      resolved.add(relationship.withEndpoints(source, target));
+    }
+    return resolved;
+  }
+
+  /** Nomi visibili in una compilation unit, ricavati dalle sue importazioni. */
+  private final class Scope {
+    private final String packageName;
+    // Importazioni esplicite, per nome semplice
+    private final Map<String, String> singleImports;
+    // Package importati su richiesta
+    private final List<String> onDemandImports;
+
+    Scope(UMLClass context) {
+      this.packageName = context.getPackageName();
+      List<String> imports = context.getImports();
+      if (imports.isEmpty()) {
+        this.singleImports = Collections.emptyMap();
+        this.onDemandImports = Collections.emptyList();
+        return;
+      }
+      this.singleImports = new HashMap<>();
+      this.onDemandImports = new ArrayList<>();
+      for (String importName : imports) {
+        if (importName.endsWith(".*")) {
+          onDemandImports.add(importName.substring(0, importName.length() - 2));
+        } else {
+          singleImports.putIfAbsent(
+              importName.substring(importName.lastIndexOf('.') + 1), importName);
+        }
+      }
+    }
+
+    String resolve(String name) {
+      if (!isTypeName(name)) {
+        return null;
+      }
+      if (name.indexOf('.') >= 0) {
+        // Nome già qualificato: sono indicizzati solo i tipi di primo livello
+        return types.containsKey(name) ? name : null;
+      }
+      String imported = singleImports.get(name);
+      if (imported != null) {
+        // Un'importazione esplicita di un tipo esterno nasconde i tipi del progetto
+        return types.containsKey(imported) ? imported : null;
+      }
+      String candidate = qualify(packageName, name);
+      if (types.containsKey(candidate)) {
+        return candidate;
+      }
+      for (String onDemand : onDemandImports) {
+        candidate = qualify(onDemand, name);
+        if (types.containsKey(candidate)) {
+          return candidate;
+        }
+      }
+      candidate = qualify("java.lang", name);
+      if (types.containsKey(candidate)) {
+        return candidate;
+      }
+      List<String> candidates = getQualifiedNames(name);
+      return candidates.size() == 1 ? candidates.get(0) : null;
+    }
+  }
+
+  private static String qualify(String packageName, String name) {
+    return packageName.isEmpty() ? name : packageName + "." + name;
+  }
+
+  // Identificatori separati da punti, senza argomenti di tipo né caratteri jolly
+  private static boolean isTypeName(String name) {
+    if (name.isEmpty()) {
+      return false;
+    }
+    for (int i = 0; i < name.length(); i++) {
+      char c = name.charAt(i);
+      if (c != '.' && !Character.isJavaIdentifierPart(c)) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
@@ -1,7 +1,8 @@
 package com.fabio.org.amuleto.converter;
 
-import java.util.Set;
-
+import com.fabio.org.amuleto.model.UMLClass;
+import com.fabio.org.amuleto.model.UMLRelationship;
+import com.fabio.org.amuleto.view.RelationshipType;
 import com.github.javaparser.ast.NodeList;
 import com.github.javaparser.ast.body.*;
 import com.github.javaparser.ast.expr.AnnotationExpr;
@@ -9,11 +10,8 @@ import com.github.javaparser.ast.type.ClassOrInterfaceType;
 
 public class UMLTypeProcessor {
 
-  public static void processType(
-      ClassOrInterfaceDeclaration cid,
-      StringBuilder uml,
-      StringBuilder relationships,
-      Set<String> definedTypes) {
+  /** Crea il tipo, ancora senza membri, con il genere e lo stereotipo della dichiarazione. */
+  static UMLClass.Builder newType(ClassOrInterfaceDeclaration cid, String packageName) {
     String className = cid.getNameAsString();
     boolean isAssociationClass = false;
     for (AnnotationExpr ann : cid.getAnnotations()) {
@@ -22,48 +20,44 @@ public class UMLTypeProcessor {
         break;
       }
     }
+    UMLClass.Kind kind;
     if (cid.isInterface()) {
-      uml.append("interface ").append(className);
+      kind = UMLClass.Kind.INTERFACE;
     } else if (cid.isAbstract() && !cid.isInterface()) {
-      uml.append("abstract class ").append(className);
+      kind = UMLClass.Kind.ABSTRACT_CLASS;
     } else {
-      uml.append("class ").append(className);
-    }
-    if (isAssociationClass) {
-      uml.append(" <<association>>");
-    }
-    uml.append(" {\n");
-
-    // Processa i campi
-    for (FieldDeclaration field : cid.getFields()) {
-      UMLFieldProcessor.processFields(
-          field, className, uml, relationships, definedTypes, isAssociationClass);
-    }
-
-    // Processa i costruttori
-    for (ConstructorDeclaration constructor : cid.getConstructors()) {
-      UMLConstructorProcessor.processConstructor(constructor, uml);
-    }
-
-    // Processa i metodi
-    for (MethodDeclaration method : cid.getMethods()) {
-      UMLMethodProcessor.processMethod(method, className, uml, relationships, definedTypes);
+      kind = UMLClass.Kind.CLASS;
     }
+    UMLClass.Builder umlClass = new UMLClass.Builder(packageName, className, kind);
+    umlClass.setAssociationClass(isAssociationClass);
+    return umlClass;
+  }
 
-    uml.append("}\n\n");
-
-    // Processa ereditarietà e implementazioni se non associativa
-    if (!isAssociationClass) {
+  /** Processa ereditarietà e implementazioni, se il tipo non è una classe associativa. */
+  static void addSupertypes(ClassOrInterfaceDeclaration cid, UMLClass.Builder umlClass) {
+    if (!umlClass.isAssociationClass()) {
       NodeList<ClassOrInterfaceType> extendedTypes = cid.getExtendedTypes();
       for (ClassOrInterfaceType extendedType : extendedTypes) {
-        String parent = extendedType.getNameAsString();
-        relationships.append(parent).append(" <|-- ").append(className).append("\n");
+        addInheritance(umlClass, extendedType.getNameAsString());
       }
       NodeList<ClassOrInterfaceType> implementedTypes = cid.getImplementedTypes();
       for (ClassOrInterfaceType implType : implementedTypes) {
-        String iface = implType.getNameAsString();
-        relationships.append(iface).append(" ..|> ").append(className).append("\n");
+        addImplementation(umlClass, implType.getNameAsString());
       }
     }
   }
+
+  /** Registra che il tipo estende {@code parent}. */
+  static void addInheritance(UMLClass.Builder umlClass, String parent) {
+    umlClass.addRelationship(
+        new UMLRelationship(
+            RelationshipType.INHERITANCE, umlClass.getName(), parent, null, null, null));
+  }
+
+  /** Registra che il tipo implementa {@code iface}. */
+  static void addImplementation(UMLClass.Builder umlClass, String iface) {
+    umlClass.addRelationship(
+        new UMLRelationship(
+            RelationshipType.IMPLEMENTATION, umlClass.getName(), iface, null, null, null));
+  }
 }
@@ -1,5 +1,161 @@
 package com.fabio.org.amuleto.model;
 
-// ancora non usata
-// è per estensioni successive
-public class UMLClass {}
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import com.fabio.org.amuleto.view.RelationshipType;
+
+/**
+ * Tipo del modello intermedio prodotto dall'estrazione: nome, package, tipologia, membri e
+ * relazioni tipizzate. È immutabile e non contiene riferimenti all'AST o al class file da cui è
+ * stato ricavato, quindi può essere condiviso tra thread, salvato nella cache di estrazione e
+ * consumato da più stadi (emissione PlantUML, rendering, importazione nell'editor) senza
+ * rianalizzare i sorgenti.
+ *
+ * <p>Le dipendenze sono relazioni candidate: solo chi conosce l'insieme dei tipi definiti nel
+ * progetto può decidere quali rappresentare. Le istanze si costruiscono con {@link Builder}.
+ */
+public final class UMLClass {
+
+  /** Tipologia del tipo. */
+  public enum Kind {
+    CLASS,
+    ABSTRACT_CLASS,
+    INTERFACE,
+    ENUM,
+    // Tipi non rappresentati nel diagramma (annotazioni, ...); i record sono classi
+    OTHER
+  }
+
+  private final String packageName;
+  private final String name;
+  private final Kind kind;
+  private final boolean associationClass;
+  private final List<String> imports;
+  private final List<UMLMember> members;
+  private final List<UMLRelationship> relationships;
+
+  private UMLClass(Builder builder) {
+    this.packageName = builder.packageName;
+    this.name = builder.name;
+    this.kind = builder.kind;
+    this.associationClass = builder.associationClass;
+    this.imports = copy(builder.imports);
+    this.members = copy(builder.members);
+    this.relationships = copy(new ArrayList<>(builder.relationships));
+  }
+
+  private static <T> List<T> copy(List<T> values) {
+    return values.isEmpty() ? Collections.emptyList() : List.copyOf(values);
+  }
+
+  public String getPackageName() {
+    return packageName;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public Kind getKind() {
+    return kind;
+  }
+
+  public boolean isAssociationClass() {
+    return associationClass;
+  }
+
+  /**
+   * Restituisce le importazioni non statiche della compilation unit da cui proviene il tipo, come
+   * nomi qualificati ("java.util.List") oppure come importazioni su richiesta ("java.util.*").
+   * Servono a risolvere i nomi semplici usati nelle relazioni.
+   */
+  public List<String> getImports() {
+    return imports;
+  }
+
+  /** Restituisce il nome qualificato del tipo. */
+  public String getQualifiedName() {
+    return packageName.isEmpty() ? name : packageName + "." + name;
+  }
+
+  /** Restituisce i membri nell'ordine di dichiarazione: attributi, costruttori, metodi. */
+  public List<UMLMember> getMembers() {
+    return members;
+  }
+
+  /** Restituisce tutte le relazioni dichiarate dal tipo, nell'ordine di estrazione. */
+  public List<UMLRelationship> getRelationships() {
+    return relationships;
+  }
+
+  /** Restituisce le relazioni del tipo indicato, nell'ordine di estrazione. */
+  public List<UMLRelationship> getRelationships(RelationshipType type) {
+    List<UMLRelationship> result = new ArrayList<>();
+    for (UMLRelationship relationship : relationships) {
+      if (relationship.getType() == type) {
+        result.add(relationship);
+      }
+    }
+    return result;
+  }
+
+  @Override
+  public String toString() {
+    return getQualifiedName();
+  }
+
+  /** Costruttore incrementale usato dagli estrattori. */
+  public static final class Builder {
+    private final String packageName;
+    private final String name;
+    private final Kind kind;
+    private boolean associationClass;
+    private final List<String> imports = new ArrayList<>();
+    private final List<UMLMember> members = new ArrayList<>();
+    // Insieme ordinato: una relazione registrata più volte compare una sola volta
+    private final Set<UMLRelationship> relationships = new LinkedHashSet<>();
+
+    public Builder(String packageName, String name, Kind kind) {
+      this.packageName = packageName;
+      this.name = name;
+      this.kind = kind;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    public boolean isAssociationClass() {
+      return associationClass;
+    }
+
+    public Builder setAssociationClass(boolean associationClass) {
+      this.associationClass = associationClass;
+      return this;
+    }
+
+    public Builder addImport(String importName) {
+      imports.add(importName);
+      return this;
+    }
+
+    public Builder addMember(UMLMember member) {
+      members.add(member);
+      return this;
+    }
+
+    /** Registra una relazione; le relazioni già registrate vengono ignorate. */
+    public Builder addRelationship(UMLRelationship relationship) {
+      relationships.add(relationship);
+      return this;
+    }
+
+    public UMLClass build() {
+      return new UMLClass(this);
+    }
+  }
+}
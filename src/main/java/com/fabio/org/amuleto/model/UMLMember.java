@@ -0,0 +1,238 @@
+package com.fabio.org.amuleto.model;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Membro immutabile di un tipo del modello intermedio: attributo, costruttore, metodo o costante di
+ * enumerazione. Conserva le informazioni strutturate (visibilità, modificatori, tipi e parametri)
+ * da cui {@link #toString()} ricava la riga PlantUML.
+ */
+public final class UMLMember {
+
+  /** Tipologia del membro. */
+  public enum Kind {
+    FIELD,
+    CONSTRUCTOR,
+    METHOD,
+    ENUM_CONSTANT
+  }
+
+  /** Parametro di un costruttore o di un metodo. */
+  public static final class Parameter {
+    private final String name;
+    private final String type;
+
+    public Parameter(String name, String type) {
+      this.name = name;
+      this.type = type;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    public String getType() {
+      return type;
+    }
+
+    @Override
+    public String toString() {
+      return name + " : " + type;
+    }
+  }
+
+  private final Kind kind;
+  // Simbolo di visibilità ("+", "-", "#", "~" oppure "/" per i membri derivati)
+  private final String visibility;
+  private final boolean isStatic;
+  private final boolean isFinal;
+  private final boolean isAbstract;
+  private final String name;
+  // Tipo dell'attributo o tipo di ritorno del metodo, null per costruttori e costanti
+  private final String type;
+  private final List<Parameter> parameters;
+  // Proprietà UML dell'attributo (readonly, ordered, ...), già in minuscolo
+  private final List<String> properties;
+
+  private UMLMember(
+      Kind kind,
+      String visibility,
+      boolean isStatic,
+      boolean isFinal,
+      boolean isAbstract,
+      String name,
+      String type,
+      List<Parameter> parameters,
+      List<String> properties) {
+    this.kind = kind;
+    this.visibility = visibility;
+    this.isStatic = isStatic;
+    this.isFinal = isFinal;
+    this.isAbstract = isAbstract;
+    this.name = name;
+    this.type = type;
+    this.parameters = parameters.isEmpty() ? Collections.emptyList() : List.copyOf(parameters);
+    this.properties = properties.isEmpty() ? Collections.emptyList() : List.copyOf(properties);
+  }
+
+  /** Crea un attributo. */
+  public static UMLMember field(
+      String visibility,
+      boolean isStatic,
+      boolean isFinal,
+      String name,
+      String type,
+      List<String> properties) {
+    return new UMLMember(
+        Kind.FIELD,
+        visibility,
+        isStatic,
+        isFinal,
+        false,
+        name,
+        type,
+        Collections.emptyList(),
+        properties);
+  }
+
+  /** Crea un costruttore. */
+  public static UMLMember constructor(String visibility, String name, List<Parameter> parameters) {
+    return new UMLMember(
+        Kind.CONSTRUCTOR,
+        visibility,
+        false,
+        false,
+        false,
+        name,
+        null,
+        parameters,
+        Collections.emptyList());
+  }
+
+  /** Crea un metodo. */
+  public static UMLMember method(
+      String visibility,
+      boolean isStatic,
+      boolean isFinal,
+      boolean isAbstract,
+      String name,
+      List<Parameter> parameters,
+      String returnType) {
+    return new UMLMember(
+        Kind.METHOD,
+        visibility,
+        isStatic,
+        isFinal,
+        isAbstract,
+        name,
+        returnType,
+        parameters,
+        Collections.emptyList());
+  }
+
+  /** Crea una costante di enumerazione. */
+  public static UMLMember enumConstant(String name) {
+    return new UMLMember(
+        Kind.ENUM_CONSTANT,
+        "",
+        false,
+        false,
+        false,
+        name,
+        null,
+        Collections.emptyList(),
+        Collections.emptyList());
+  }
+
+  public Kind getKind() {
+    return kind;
+  }
+
+  public String getVisibility() {
+    return visibility;
+  }
+
+  public boolean isStatic() {
+    return isStatic;
+  }
+
+  public boolean isFinal() {
+    return isFinal;
+  }
+
+  public boolean isAbstract() {
+    return isAbstract;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public String getType() {
+    return type;
+  }
+
+  public List<Parameter> getParameters() {
+    return parameters;
+  }
+
+  public List<String> getProperties() {
+    return properties;
+  }
+
+  /**
+   * Restituisce la riga PlantUML del membro, senza indentazione. Ad esempio "- {static} count :
+   * int", "+ Shop(name : String)" oppure "+ {abstract} find(name : String) : Item".
+   */
+  @Override
+  public String toString() {
+    if (kind == Kind.ENUM_CONSTANT) {
+      return name;
+    }
+    StringBuilder line = new StringBuilder();
+    appendTo(line);
+    return line.toString();
+  }
+
+  /**
+   * Accoda la riga PlantUML del membro (vedi {@link #toString()}), senza creare stringhe
+   * intermedie: usato dall'emissione del diagramma, che riutilizza lo stesso buffer per tutti i
+   * membri.
+   */
+  public void appendTo(StringBuilder line) {
+    if (kind == Kind.ENUM_CONSTANT) {
+      line.append(name);
+      return;
+    }
+    line.append(visibility);
+    if (isStatic) {
+      line.append(" {static}");
+    }
+    if (isFinal) {
+      line.append(" {final}");
+    }
+    if (isAbstract) {
+      line.append(" {abstract}");
+    }
+    line.append(' ').append(name);
+    if (kind == Kind.FIELD) {
+      line.append(" : ").append(type);
+      if (!properties.isEmpty()) {
+        line.append(" {").append(String.join(", ", properties)).append('}');
+      }
+      return;
+    }
+    line.append('(');
+    for (int i = 0; i < parameters.size(); i++) {
+      if (i > 0) {
+        line.append(", ");
+      }
+      line.append(parameters.get(i));
+    }
+    line.append(')');
+    if (kind == Kind.METHOD) {
+      line.append(" : ").append(type);
+    }
+  }
+}
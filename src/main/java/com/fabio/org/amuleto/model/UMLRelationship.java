@@ -0,0 +1,136 @@
+package com.fabio.org.amuleto.model;
+
+import java.util.Objects;
+
+import com.fabio.org.amuleto.view.RelationshipType;
+
+/**
+ * Relazione immutabile e tipizzata del modello intermedio. La sorgente è sempre il tipo che
+ * dichiara la relazione: il tipo che contiene l'attributo per le associazioni, il tipo che usa un
+ * parametro per le dipendenze, la sottoclasse o la classe che implementa per ereditarietà e
+ * implementazioni.
+ *
+ * <p>Due relazioni sono uguali se coincidono tipo, estremi, etichetta e molteplicità.
+ */
+public final class UMLRelationship {
+
+  private final RelationshipType type;
+  private final String source;
+  private final String target;
+  // Nome dell'attributo per le associazioni, "uses" per le dipendenze, null altrimenti
+  private final String label;
+  private final String sourceMultiplicity;
+  private final String targetMultiplicity;
+
+  /**
+   * Crea una relazione.
+   *
+   * @param type Il tipo di relazione.
+   * @param source Il nome del tipo sorgente.
+   * @param target Il nome del tipo destinazione.
+   * @param label L'etichetta, oppure {@code null}.
+   * @param sourceMultiplicity La molteplicità lato sorgente, oppure {@code null}.
+   * @param targetMultiplicity La molteplicità lato destinazione, oppure {@code null}.
+   */
+  public UMLRelationship(
+      RelationshipType type,
+      String source,
+      String target,
+      String label,
+      String sourceMultiplicity,
+      String targetMultiplicity) {
+    this.type = type;
+    this.source = source;
+    this.target = target;
+    this.label = label;
+    this.sourceMultiplicity = sourceMultiplicity;
+    this.targetMultiplicity = targetMultiplicity;
+  }
+
+  public RelationshipType getType() {
+    return type;
+  }
+
+  public String getSource() {
+    return source;
+  }
+
+  public String getTarget() {
+    return target;
+  }
+
+  public String getLabel() {
+    return label;
+  }
+
+  public String getSourceMultiplicity() {
+    return sourceMultiplicity;
+  }
+
+  public String getTargetMultiplicity() {
+    return targetMultiplicity;
+  }
+
+  /** Restituisce una copia della relazione con gli estremi indicati. */
+  public UMLRelationship withEndpoints(String source, String target) {
+    return new UMLRelationship(type, source, target, label, sourceMultiplicity, targetMultiplicity);
+  }
+
+  /** Restituisce la riga PlantUML della relazione. */
+  @Override
+  public String toString() {
+    switch (type) {
+      case ASSOCIATION:
+        return association(" --> ");
+      case COMPOSITION:
+        return association(" *-->");
+      case AGGREGATION:
+        return association(" o-->");
+      case DEPENDENCY:
+        return source + " ..> " + target + " : " + label;
+      case INHERITANCE:
+        return target + " <|-- " + source;
+      case IMPLEMENTATION:
+        // Forma storica del generatore, con l'interfaccia a sinistra
+        return target + " ..|> " + source;
+      default:
+        throw new IllegalStateException("Tipo di relazione non gestito: " + type);
+    }
+  }
+
+  private String association(String arrow) {
+    return source
+        + " \""
+        + sourceMultiplicity
+        + "\""
+        + arrow
+        + "\""
+        + targetMultiplicity
+        + "\" "
+        + target
+        + " : "
+        + label;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof UMLRelationship)) {
+      return false;
+    }
+    UMLRelationship other = (UMLRelationship) o;
+    return type == other.type
+        && source.equals(other.source)
+        && target.equals(other.target)
+        && Objects.equals(label, other.label)
+        && Objects.equals(sourceMultiplicity, other.sourceMultiplicity)
+        && Objects.equals(targetMultiplicity, other.targetMultiplicity);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(type, source, target, label, sourceMultiplicity, targetMultiplicity);
+  }
+}
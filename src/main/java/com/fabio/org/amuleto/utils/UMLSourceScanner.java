@@ -0,0 +1,290 @@
+package com.fabio.org.amuleto.utils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Consumer;
+
+/**
+ * Motore di individuazione dei sorgenti basato su NIO. Visita l'albero delle directory in parallelo
+ * (una {@link RecursiveAction} per directory sul {@link ForkJoinPool} comune), consegnando i file
+ * trovati man mano al consumer indicato, senza costruire liste intermedie.
+ *
+ * <p>Le directory vengono potate tramite glob di esclusione (di default {@code target}, {@code
+ * build}, {@code .git} e {@code node_modules}); i file vengono selezionati tramite glob di
+ * inclusione (di default {@code *.java}). Un glob senza '/' viene confrontato con il solo nome del
+ * file o della directory, altrimenti con il percorso relativo alla radice della scansione. I link
+ * simbolici vengono seguiti, ma ogni directory viene visitata una sola volta, così da interrompere
+ * eventuali cicli.
+ */
+public class UMLSourceScanner {
+
+  /** Glob di inclusione predefiniti. */
+  public static final List<String> DEFAULT_INCLUDES = Collections.singletonList("*.java");
+
+  /** Glob di esclusione predefiniti (directory di build e metadati di VCS/tooling). */
+  public static final List<String> DEFAULT_EXCLUDES =
+      Collections.unmodifiableList(Arrays.asList("target", "build", ".git", "node_modules"));
+
+  private final List<String> includeGlobs;
+  private final List<String> excludeGlobs;
+  private final Matchers matchers;
+
+  /** Crea uno scanner con i glob di inclusione ed esclusione predefiniti. */
+  public UMLSourceScanner() {
+    this(DEFAULT_INCLUDES, DEFAULT_EXCLUDES);
+  }
+
+  /**
+   * Crea uno scanner con glob personalizzati.
+   *
+   * @param includeGlobs I glob che un file deve soddisfare (almeno uno) per essere restituito.
+   * @param excludeGlobs I glob che escludono un file o potano un'intera directory.
+   */
+  public UMLSourceScanner(List<String> includeGlobs, List<String> excludeGlobs) {
+    this.includeGlobs = new ArrayList<>(includeGlobs);
+    this.excludeGlobs = new ArrayList<>(excludeGlobs);
+    this.matchers = new Matchers(FileSystems.getDefault(), includeGlobs, excludeGlobs);
+  }
+
+  public List<String> getIncludeGlobs() {
+    return Collections.unmodifiableList(includeGlobs);
+  }
+
+  public List<String> getExcludeGlobs() {
+    return Collections.unmodifiableList(excludeGlobs);
+  }
+
+  /**
+   * Scansiona la directory e restituisce i file trovati in ordine lessicografico, così che l'ordine
+   * di elaborazione non dipenda dal file system.
+   *
+   * @param root La directory radice. Se non esiste viene restituita una lista vuota.
+   * @return I file individuati, ordinati.
+   * @throws IOException Se la radice non può essere letta; le sottodirectory illeggibili vengono
+   *     ignorate.
+   */
+  public List<Path> scan(Path root) throws IOException {
+    List<Path> files = Collections.synchronizedList(new ArrayList<>());
+    scan(root, files::add);
+    List<Path> sorted = new ArrayList<>(files);
+    Collections.sort(sorted);
+    return sorted;
+  }
+
+  /**
+   * Scansiona la directory in parallelo consegnando ogni file al consumer appena individuato. Il
+   * consumer può essere invocato contemporaneamente da più thread e deve quindi essere thread-safe.
+   *
+   * @param root La directory radice. Se non esiste il consumer non viene mai invocato.
+   * @param sink Il consumer che riceve i file individuati.
+   * @throws IOException Se la radice non può essere letta; le sottodirectory illeggibili vengono
+   *     ignorate.
+   */
+  public void scan(Path root, Consumer<Path> sink) throws IOException {
+    if (!Files.isDirectory(root)) {
+      return;
+    }
+    Set<Object> visited = ConcurrentHashMap.newKeySet();
+    visited.add(directoryKey(root, Files.readAttributes(root, BasicFileAttributes.class)));
+    try {
+      ForkJoinPool.commonPool().invoke(new DirectoryTask(root, root, matchers, visited, sink));
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+  }
+
+  /**
+   * Visita in ordine le directory non escluse, a partire dalla radice inclusa. Usato da chi deve
+   * osservare le directory (ad esempio la modalità watch) piuttosto che elencarne i file.
+   *
+   * @param root La directory radice.
+   * @param sink Il consumer che riceve le directory.
+   * @throws IOException Se la visita di una directory fallisce.
+   */
+  public void scanDirectories(Path root, Consumer<Path> sink) throws IOException {
+    if (!Files.isDirectory(root)) {
+      return;
+    }
+    Set<Object> visited = new HashSet<>();
+    Files.walkFileTree(
+        root,
+        EnumSet.of(FileVisitOption.FOLLOW_LINKS),
+        Integer.MAX_VALUE,
+        new SimpleFileVisitor<Path>() {
+          @Override
+          public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs)
+              throws IOException {
+            if (!dir.equals(root) && matchers.isExcluded(root.relativize(dir))
+                || !visited.add(directoryKey(dir, attrs))) {
+              return FileVisitResult.SKIP_SUBTREE;
+            }
+            sink.accept(dir);
+            return FileVisitResult.CONTINUE;
+          }
+
+          @Override
+          public FileVisitResult visitFileFailed(Path file, IOException exc) {
+            return FileVisitResult.CONTINUE;
+          }
+        });
+  }
+
+  /**
+   * Verifica se un file verrebbe restituito da una scansione della radice indicata, considerando
+   * solo i glob (non l'esclusione di eventuali directory antenate).
+   *
+   * @param root La radice della scansione.
+   * @param file Il file da verificare, contenuto in {@code root}.
+   * @return true se il file soddisfa i glob di inclusione e nessun glob di esclusione.
+   */
+  public boolean accepts(Path root, Path file) {
+    Path relative = root.relativize(file);
+    return !matchers.isExcluded(relative) && matchers.isIncluded(relative);
+  }
+
+  /**
+   * Verifica se un file o una directory sono esclusi dai glob di esclusione, rispetto alla radice
+   * della scansione indicata.
+   */
+  public boolean excludes(Path root, Path path) {
+    return matchers.isExcluded(root.relativize(path));
+  }
+
+  /** Chiave univoca di una directory, usata per riconoscere i cicli creati dai link simbolici. */
+  private static Object directoryKey(Path dir, BasicFileAttributes attrs) throws IOException {
+    Object key = attrs.fileKey();
+    return key != null ? key : dir.toRealPath();
+  }
+
+  /** Task che visita una singola directory e genera un sotto-task per ogni sottodirectory. */
+  private static final class DirectoryTask extends RecursiveAction {
+    private final Path root;
+    private final Path dir;
+    private final Matchers matchers;
+    private final Set<Object> visited;
+    private final Consumer<Path> sink;
+
+    DirectoryTask(
+        Path root, Path dir, Matchers matchers, Set<Object> visited, Consumer<Path> sink) {
+      this.root = root;
+      this.dir = dir;
+      this.matchers = matchers;
+      this.visited = visited;
+      this.sink = sink;
+    }
+
+    @Override
+    protected void compute() {
+      List<DirectoryTask> subtasks = new ArrayList<>();
+      try (DirectoryStream<Path> entries = Files.newDirectoryStream(dir)) {
+        for (Path entry : entries) {
+          BasicFileAttributes attrs;
+          Object key;
+          try {
+            attrs = Files.readAttributes(entry, BasicFileAttributes.class);
+            key = attrs.isDirectory() ? directoryKey(entry, attrs) : null;
+          } catch (IOException e) {
+            // Link simbolico pendente o file rimosso durante la scansione: lo si ignora
+            continue;
+          }
+          Path relative = root.relativize(entry);
+          if (matchers.isExcluded(relative)) {
+            continue;
+          }
+          if (attrs.isDirectory()) {
+            if (visited.add(key)) {
+              subtasks.add(new DirectoryTask(root, entry, matchers, visited, sink));
+            }
+          } else if (attrs.isRegularFile() && matchers.isIncluded(relative)) {
+            sink.accept(entry);
+          }
+        }
+      } catch (IOException e) {
+        skipUnreadable(e);
+      } catch (DirectoryIteratorException e) {
+        skipUnreadable(e.getCause());
+      }
+      invokeAll(subtasks);
+    }
+
+    /**
+     * Una sottodirectory illeggibile (ad esempio per i permessi) viene ignorata, come in {@link
+     * UMLSourceScanner#scanDirectories}: solo una radice illeggibile interrompe la scansione.
+     */
+    private void skipUnreadable(IOException e) {
+      if (dir.equals(root)) {
+        throw new UncheckedIOException(e);
+      }
+    }
+  }
+
+  /** Glob precompilati, separati tra quelli sul nome e quelli sul percorso relativo. */
+  private static final class Matchers {
+    private final List<PathMatcher> includeByName = new ArrayList<>();
+    private final List<PathMatcher> includeByPath = new ArrayList<>();
+    private final List<PathMatcher> excludeByName = new ArrayList<>();
+    private final List<PathMatcher> excludeByPath = new ArrayList<>();
+
+    Matchers(FileSystem fs, List<String> includes, List<String> excludes) {
+      compile(fs, includes, includeByName, includeByPath);
+      compile(fs, excludes, excludeByName, excludeByPath);
+    }
+
+    private static void compile(
+        FileSystem fs, List<String> globs, List<PathMatcher> byName, List<PathMatcher> byPath) {
+      for (String glob : globs) {
+        PathMatcher matcher = fs.getPathMatcher("glob:" + glob);
+        if (glob.indexOf('/') < 0) {
+          byName.add(matcher);
+        } else {
+          byPath.add(matcher);
+        }
+      }
+    }
+
+    boolean isIncluded(Path relative) {
+      return matches(relative, includeByName, includeByPath);
+    }
+
+    boolean isExcluded(Path relative) {
+      return matches(relative, excludeByName, excludeByPath);
+    }
+
+    private static boolean matches(
+        Path relative, List<PathMatcher> byName, List<PathMatcher> byPath) {
+      Path name = relative.getFileName();
+      for (PathMatcher matcher : byName) {
+        if (name != null && matcher.matches(name)) {
+          return true;
+        }
+      }
+      for (PathMatcher matcher : byPath) {
+        if (matcher.matches(relative)) {
+          return true;
+        }
+      }
+      return false;
+    }
+  }
+}
@@ -0,0 +1,108 @@
+package com.fabio.org.amuleto.utils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Insieme dei file sorgente di un'esecuzione, letti da una directory e dagli archivi ({@code .jar}
+ * e {@code .zip}, ad esempio i {@code *-sources.jar}) senza estrarli su disco. Ogni archivio viene
+ * montato come {@link FileSystem} tramite {@link FileSystems#newFileSystem(Path, ClassLoader)}: i
+ * suoi file sono normali {@link Path} che lo stadio di parsing decomprime in parallelo, uno per
+ * worker.
+ *
+ * <p>I file system degli archivi restano aperti finché l'insieme non viene chiuso, quindi i
+ * percorsi restituiti da {@link #getFiles()} sono validi solo fino a {@link #close()}.
+ */
+public class UMLSourceSet implements Closeable {
+
+  /** Glob dei file trattati come archivi di sorgenti. */
+  public static final List<String> ARCHIVE_GLOBS =
+      Collections.unmodifiableList(Arrays.asList("*.jar", "*.zip"));
+
+  private final List<Path> files = new ArrayList<>();
+  private final List<FileSystem> archives = new ArrayList<>();
+
+  private UMLSourceSet() {}
+
+  /**
+   * Apre l'insieme dei sorgenti. L'ingresso può essere una directory o un singolo archivio; per una
+   * directory vengono restituiti prima i file trovati sul disco e poi, se richiesto, quelli degli
+   * archivi contenuti nell'albero, in ordine di archivio e poi di percorso.
+   *
+   * @param input La directory o l'archivio da leggere.
+   * @param scanner Lo scanner che seleziona i file sorgente, anche all'interno degli archivi.
+   * @param scanArchives Se vero, vengono letti anche gli archivi trovati nella directory.
+   * @return L'insieme aperto, da chiudere al termine dell'elaborazione.
+   * @throws IOException Se la scansione o l'apertura di un archivio fallisce.
+   */
+  public static UMLSourceSet open(Path input, UMLSourceScanner scanner, boolean scanArchives)
+      throws IOException {
+    UMLSourceSet sources = new UMLSourceSet();
+    try {
+      if (Files.isRegularFile(input) && isArchive(input)) {
+        sources.addArchive(input, scanner);
+      } else {
+        sources.files.addAll(scanner.scan(input));
+        if (scanArchives) {
+          UMLSourceScanner archiveScanner =
+              new UMLSourceScanner(ARCHIVE_GLOBS, scanner.getExcludeGlobs());
+          for (Path archive : archiveScanner.scan(input)) {
+            sources.addArchive(archive, scanner);
+          }
+        }
+      }
+    } catch (IOException | RuntimeException e) {
+      sources.close();
+      throw e;
+    }
+    return sources;
+  }
+
+  /** Verifica se il nome del file corrisponde a un archivio di sorgenti. */
+  public static boolean isArchive(Path file) {
+    Path name = file.getFileName();
+    if (name == null) {
+      return false;
+    }
+    String lower = name.toString().toLowerCase(Locale.ROOT);
+    return lower.endsWith(".jar") || lower.endsWith(".zip");
+  }
+
+  /** Restituisce i file sorgente individuati, validi fino alla chiusura dell'insieme. */
+  public List<Path> getFiles() {
+    return Collections.unmodifiableList(files);
+  }
+
+  private void addArchive(Path archive, UMLSourceScanner scanner) throws IOException {
+    FileSystem fs = FileSystems.newFileSystem(archive, (ClassLoader) null);
+    archives.add(fs);
+    for (Path root : fs.getRootDirectories()) {
+      files.addAll(scanner.scan(root));
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    IOException failure = null;
+    for (FileSystem fs : archives) {
+      try {
+        fs.close();
+      } catch (IOException e) {
+        failure = e;
+      }
+    }
+    archives.clear();
+    if (failure != null) {
+      throw failure;
+    }
+  }
+}
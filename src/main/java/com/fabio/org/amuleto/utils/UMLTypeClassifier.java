@@ -0,0 +1,369 @@
+package com.fabio.org.amuleto.utils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Classificatore dei nomi di tipo usato dall'estrazione per decidere quali attributi e parametri
+ * producono relazioni. Ogni tipo noto appartiene a una {@link Category}: i primitivi e i tipi
+ * valore del JDK non producono relazioni, mentre contenitori e wrapper rimandano al tipo del loro
+ * elemento, indicato dalla posizione dell'argomento di tipo.
+ *
+ * <p>La tabella è configurabile, con righe nel formato {@code categoria[:posizione[:molteplicità]]
+ * nomi...}, ad esempio {@code container:1:0..* Map HashMap} oppure {@code wrapper:0 Lazy}. Viene
+ * compilata una sola volta in una tabella hash ad indirizzamento aperto: le ricerche confrontano
+ * direttamente i caratteri del nome, senza creare sottostringhe, quindi non allocano memoria.
+ *
+ * <p>Le istanze sono immutabili e possono essere condivise tra thread.
+ */
+public final class UMLTypeClassifier {
+
+  /** Categoria di un tipo noto. */
+  public enum Category {
+    // Tipi primitivi
+    PRIMITIVE,
+    // Tipi valore del JDK (String, Integer, BigDecimal, LocalDate, ...)
+    VALUE,
+    // Contenitori di più elementi (List, Map, Stream, Optional, ...)
+    CONTAINER,
+    // Tipi che incapsulano un singolo elemento, dichiarati anche dall'utente
+    WRAPPER
+  }
+
+  /** Descrizione di un tipo noto. */
+  public static final class TypeInfo {
+    private final String name;
+    private final Category category;
+    private final int elementIndex;
+    private final String multiplicity;
+
+    private TypeInfo(String name, Category category, int elementIndex, String multiplicity) {
+      this.name = name;
+      this.category = category;
+      this.elementIndex = elementIndex;
+      this.multiplicity = multiplicity;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    public Category getCategory() {
+      return category;
+    }
+
+    /** Posizione dell'argomento di tipo che indica l'elemento, -1 per primitivi e tipi valore. */
+    public int getElementIndex() {
+      return elementIndex;
+    }
+
+    /**
+     * Molteplicità dell'associazione verso l'elemento, {@code null} per primitivi e tipi valore.
+     */
+    public String getMultiplicity() {
+      return multiplicity;
+    }
+
+    @Override
+    public String toString() {
+      return category.name().toLowerCase(Locale.ROOT)
+          + (elementIndex < 0 ? "" : ":" + elementIndex + ":" + multiplicity)
+          + " "
+          + name;
+    }
+  }
+
+  /** Tabella predefinita. */
+  private static final String[] DEFAULT_TABLE = {
+    "primitive boolean byte char short int long float double void",
+    "value String CharSequence Boolean Byte Character Short Integer Long Float Double Number Void",
+    "value BigDecimal BigInteger UUID Date LocalDate LocalTime LocalDateTime Instant Duration Period",
+    "value ZonedDateTime OffsetDateTime",
+    "container:0:0..* Iterable Collection List Set SortedSet NavigableSet Queue Deque Stream",
+    "container:0:0..* ArrayList LinkedList Vector Stack HashSet LinkedHashSet TreeSet EnumSet",
+    "container:0:0..* ArrayDeque PriorityQueue CopyOnWriteArrayList",
+    "container:1:0..* Map SortedMap NavigableMap HashMap LinkedHashMap TreeMap Hashtable EnumMap",
+    "container:1:0..* ConcurrentMap ConcurrentHashMap",
+    "container:0:0..1 Optional",
+    "wrapper:0 AtomicReference Supplier Future CompletableFuture WeakReference SoftReference"
+  };
+
+  private static final UMLTypeClassifier DEFAULTS = builder().build();
+
+  // Tabella hash ad indirizzamento aperto, di dimensione potenza di due
+  private final TypeInfo[] slots;
+  private final int[] hashes;
+  private final int mask;
+  // Righe della tabella, nell'ordine di definizione
+  private final List<TypeInfo> entries;
+
+  private UMLTypeClassifier(List<TypeInfo> entries) {
+    this.entries = entries;
+    // Riempimento al massimo per un quarto: le sequenze di ispezione restano brevi
+    int size = Integer.highestOneBit(Math.max(entries.size(), 4) * 4 - 1) << 1;
+    this.slots = new TypeInfo[size];
+    this.hashes = new int[size];
+    this.mask = size - 1;
+    for (TypeInfo entry : entries) {
+      int hash = mix(entry.name.hashCode());
+      int slot = hash & mask;
+      while (slots[slot] != null) {
+        slot = (slot + 1) & mask;
+      }
+      slots[slot] = entry;
+      hashes[slot] = hash;
+    }
+  }
+
+  /** Restituisce il classificatore con la tabella predefinita. */
+  public static UMLTypeClassifier defaults() {
+    return DEFAULTS;
+  }
+
+  /** Restituisce un costruttore già popolato con la tabella predefinita. */
+  public static Builder builder() {
+    Builder builder = new Builder();
+    for (String line : DEFAULT_TABLE) {
+      builder.add(line);
+    }
+    return builder;
+  }
+
+  /**
+   * Cerca un tipo per nome semplice o qualificato, ignorando gli argomenti di tipo: ad esempio
+   * {@code "java.util.Map<String, Item>"} corrisponde a {@code Map}. Gli array non corrispondono ad
+   * alcun tipo.
+   *
+   * @param type Il tipo, come scritto nel sorgente.
+   * @return La descrizione del tipo, oppure {@code null} se il tipo non è nella tabella.
+   */
+  public TypeInfo lookup(String type) {
+    int end = rawEnd(type);
+    if (end < type.length() && type.charAt(type.length() - 1) == ']') {
+      return null;
+    }
+    return find(type, end);
+  }
+
+  /**
+   * Verifica se il tipo è primitivo o un tipo valore del JDK, anche come array (ad esempio {@code
+   * String[]}).
+   */
+  public boolean isValueType(String type) {
+    int end = rawEnd(type);
+    // Negli array con argomenti di tipo conta solo il tipo dell'elemento
+    if (end < type.length() && type.charAt(end) == '<' && type.charAt(type.length() - 1) == ']') {
+      return false;
+    }
+    TypeInfo info = find(type, end);
+    return info != null && (info.category == Category.PRIMITIVE || info.category == Category.VALUE);
+  }
+
+  /** Verifica se il tipo è un contenitore o un wrapper. */
+  public boolean isContainer(String type) {
+    TypeInfo info = lookup(type);
+    return info != null
+        && (info.category == Category.CONTAINER || info.category == Category.WRAPPER);
+  }
+
+  /**
+   * Restituisce il tipo dell'elemento di un contenitore o di un wrapper, risalendo attraverso
+   * contenitori annidati: per {@code Map<String, List<Item>>} restituisce {@code Item}. I limiti
+   * dei caratteri jolly vengono ignorati ({@code ? extends Item} diventa {@code Item}).
+   *
+   * @param type Il tipo, come scritto nel sorgente.
+   * @return Il tipo dell'elemento, oppure {@code null} se il tipo non è un contenitore o non indica
+   *     l'argomento di tipo alla posizione dell'elemento.
+   */
+  public String elementType(String type) {
+    String element = null;
+    TypeInfo info = lookup(type);
+    while (info != null && info.elementIndex >= 0) {
+      String argument = typeArgument(type, info.elementIndex);
+      if (argument == null) {
+        break;
+      }
+      element = argument;
+      type = argument;
+      info = lookup(argument);
+    }
+    return element;
+  }
+
+  /** Restituisce le righe della tabella, nel formato accettato da {@link Builder#add(String)}. */
+  public List<TypeInfo> getEntries() {
+    return entries;
+  }
+
+  /** Restituisce una descrizione della tabella che cambia se cambia la classificazione. */
+  public String fingerprint() {
+    return entries.toString();
+  }
+
+  private TypeInfo find(String type, int end) {
+    int start = type.lastIndexOf('.', end - 1) + 1;
+    int length = end - start;
+    if (length <= 0) {
+      return null;
+    }
+    if (length == type.length()) {
+      // Caso più frequente, il nome semplice: si usa l'hash già calcolato dalla stringa
+      int hash = mix(type.hashCode());
+      int slot = hash & mask;
+      TypeInfo candidate;
+      while ((candidate = slots[slot]) != null) {
+        if (hashes[slot] == hash && candidate.name.equals(type)) {
+          return candidate;
+        }
+        slot = (slot + 1) & mask;
+      }
+      return null;
+    }
+    // Stesso valore di String.hashCode sulla sottostringa
+    int h = 0;
+    for (int i = start; i < end; i++) {
+      h = 31 * h + type.charAt(i);
+    }
+    int hash = mix(h);
+    int slot = hash & mask;
+    TypeInfo candidate;
+    while ((candidate = slots[slot]) != null) {
+      if (hashes[slot] == hash
+          && candidate.name.length() == length
+          && candidate.name.regionMatches(0, type, start, length)) {
+        return candidate;
+      }
+      slot = (slot + 1) & mask;
+    }
+    return null;
+  }
+
+  private static int mix(int h) {
+    return h ^ (h >>> 16);
+  }
+
+  /** Fine del nome grezzo: il primo '<', '[' o spazio, oppure la fine della stringa. */
+  private static int rawEnd(String type) {
+    for (int i = 0; i < type.length(); i++) {
+      char c = type.charAt(i);
+      if (c == '<' || c == '[' || c == ' ') {
+        return i;
+      }
+    }
+    return type.length();
+  }
+
+  /** Argomento di tipo alla posizione indicata, senza limiti dei caratteri jolly. */
+  private static String typeArgument(String type, int index) {
+    int open = type.indexOf('<');
+    if (open < 0 || type.charAt(type.length() - 1) != '>') {
+      return null;
+    }
+    int depth = 0;
+    int current = 0;
+    int start = open + 1;
+    for (int i = open + 1; i < type.length(); i++) {
+      char c = type.charAt(i);
+      if (c == '<') {
+        depth++;
+      } else if (c == '>' || c == ',') {
+        if (depth > 0) {
+          if (c == '>') {
+            depth--;
+          }
+          continue;
+        }
+        if (current == index) {
+          return stripWildcard(type.substring(start, i).trim());
+        }
+        current++;
+        start = i + 1;
+      }
+    }
+    return null;
+  }
+
+  private static String stripWildcard(String argument) {
+    if (argument.startsWith("? extends ")) {
+      return argument.substring("? extends ".length()).trim();
+    } else if (argument.startsWith("? super ")) {
+      return argument.substring("? super ".length()).trim();
+    }
+    return argument.equals("?") ? null : argument;
+  }
+
+  /** Costruttore della tabella. Le righe successive ridefiniscono i nomi già presenti. */
+  public static final class Builder {
+    private final Map<String, TypeInfo> entries = new LinkedHashMap<>();
+
+    private Builder() {}
+
+    /**
+     * Aggiunge una riga della tabella, nel formato {@code categoria[:posizione[:molteplicità]]
+     * nomi...}. La posizione è obbligatoria per contenitori e wrapper; la molteplicità predefinita
+     * è {@code 0..*} per i contenitori e {@code 1} per i wrapper.
+     *
+     * @throws IllegalArgumentException Se la riga non è valida.
+     */
+    public Builder add(String line) {
+      String[] tokens = line.trim().split("\\s+");
+      if (tokens.length < 2) {
+        throw new IllegalArgumentException("Riga della tabella dei tipi non valida: " + line);
+      }
+      String[] spec = tokens[0].split(":");
+      Category category;
+      try {
+        category = Category.valueOf(spec[0].toUpperCase(Locale.ROOT));
+      } catch (IllegalArgumentException e) {
+        throw new IllegalArgumentException("Categoria di tipo sconosciuta: " + spec[0]);
+      }
+      boolean hasElement = category == Category.CONTAINER || category == Category.WRAPPER;
+      if (hasElement != spec.length > 1 || spec.length > 3) {
+        throw new IllegalArgumentException("Riga della tabella dei tipi non valida: " + line);
+      }
+      int elementIndex = -1;
+      String multiplicity = null;
+      if (hasElement) {
+        try {
+          elementIndex = Integer.parseInt(spec[1]);
+        } catch (NumberFormatException e) {
+          throw new IllegalArgumentException("Posizione dell'elemento non valida: " + spec[1]);
+        }
+        if (elementIndex < 0) {
+          throw new IllegalArgumentException("Posizione dell'elemento non valida: " + spec[1]);
+        }
+        multiplicity = spec.length > 2 ? spec[2] : category == Category.CONTAINER ? "0..*" : "1";
+      }
+      for (String name : Arrays.asList(tokens).subList(1, tokens.length)) {
+        entries.remove(name);
+        entries.put(name, new TypeInfo(name, category, elementIndex, multiplicity));
+      }
+      return this;
+    }
+
+    /**
+     * Aggiunge le righe di un file di configurazione. Le righe vuote e quelle che iniziano con
+     * {@code #} vengono ignorate.
+     */
+    public Builder load(Path file) throws IOException {
+      for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+        String trimmed = line.trim();
+        if (!trimmed.isEmpty() && !trimmed.startsWith("#")) {
+          add(trimmed);
+        }
+      }
+      return this;
+    }
+
+    public UMLTypeClassifier build() {
+      return new UMLTypeClassifier(List.copyOf(entries.values()));
+    }
+  }
+}
@@ -1,15 +1,17 @@
 package com.fabio.org.amuleto.utils;
 
-import java.util.Arrays;
-import java.util.List;
-
+import com.github.javaparser.ast.Modifier;
 import com.github.javaparser.ast.Node;
-import com.github.javaparser.ast.body.FieldDeclaration;
+import com.github.javaparser.ast.NodeList;
 import com.github.javaparser.ast.expr.AnnotationExpr;
 import com.github.javaparser.ast.nodeTypes.NodeWithAnnotations;
 import com.github.javaparser.ast.nodeTypes.NodeWithModifiers;
 import com.github.javaparser.ast.type.ArrayType;
+import com.github.javaparser.ast.type.ClassOrInterfaceType;
+import com.github.javaparser.ast.type.PrimitiveType;
 import com.github.javaparser.ast.type.Type;
+import com.github.javaparser.ast.type.VoidType;
+import com.github.javaparser.ast.type.WildcardType;
 
 public class UMLUtils {
 
@@ -25,20 +27,23 @@ public class UMLUtils {
         return "/";
       }
     }
-    if (node.getModifiers().contains(com.github.javaparser.ast.Modifier.publicModifier())) {
+    // hasModifier confronta le parole chiave senza creare nodi Modifier di confronto
+    if (node.hasModifier(Modifier.Keyword.PUBLIC)) {
       return "+";
-    } else if (node.getModifiers()
-        .contains(com.github.javaparser.ast.Modifier.protectedModifier())) {
+    } else if (node.hasModifier(Modifier.Keyword.PROTECTED)) {
       return "#";
-    } else if (node.getModifiers().contains(com.github.javaparser.ast.Modifier.privateModifier())) {
+    } else if (node.hasModifier(Modifier.Keyword.PRIVATE)) {
       return "-";
     }
     return "~"; // package-private
   }
 
-  /** Verifica se un FieldDeclaration contiene una determinata annotazione (case-insensitive). */
-  public static boolean hasAnnotation(FieldDeclaration field, String annotationName) {
-    for (AnnotationExpr ann : field.getAnnotations()) {
+  /**
+   * Verifica se un nodo annotabile (attributo, componente di un record, ...) contiene una
+   * determinata annotazione (case-insensitive).
+   */
+  public static boolean hasAnnotation(NodeWithAnnotations<?> node, String annotationName) {
+    for (AnnotationExpr ann : node.getAnnotations()) {
       if (ann.getNameAsString().equalsIgnoreCase(annotationName)) {
         return true;
       }
@@ -47,41 +52,88 @@ public class UMLUtils {
   }
 
   /**
-   * Determina se il nome di un tipo è una delle collezioni comuni (es. List, Set, Collection,
-   * ecc.).
+   * Determina se il nome di un tipo è un contenitore (es. List, Set, Map, Optional, ecc.) secondo
+   * la tabella predefinita di {@link UMLTypeClassifier}.
    */
   public static boolean isCollectionType(String typeName) {
-    return typeName.equals("List")
-        || typeName.equals("Set")
-        || typeName.equals("Collection")
-        || typeName.equals("ArrayList")
-        || typeName.equals("LinkedList")
-        || typeName.equals("HashSet");
+    return UMLTypeClassifier.defaults().isContainer(typeName);
   }
 
-  /** Controlla se un tipo è primitivo o uno dei tipi built-in di Java. */
+  /**
+   * Controlla se un tipo è primitivo o uno dei tipi valore di Java, secondo la tabella predefinita
+   * di {@link UMLTypeClassifier}.
+   */
   public static boolean isPrimitiveOrJavaType(String typeName) {
-    List<String> primitives =
-        Arrays.asList("int", "short", "long", "double", "float", "boolean", "char", "byte");
-    if (primitives.contains(typeName)) {
-      return true;
-    }
-    return typeName.startsWith("String")
-        || typeName.startsWith("Integer")
-        || typeName.startsWith("Long")
-        || typeName.startsWith("Double")
-        || typeName.startsWith("Float")
-        || typeName.startsWith("Boolean")
-        || typeName.startsWith("Character")
-        || typeName.startsWith("Byte");
+    return UMLTypeClassifier.defaults().isValueType(typeName);
   }
 
-  /** Converte un oggetto Type in una stringa rappresentativa, gestendo anche gli array. */
+  /**
+   * Converte un oggetto Type in una stringa rappresentativa, gestendo anche gli array. Il risultato
+   * coincide con {@code type.toString()}, ma i tipi più comuni (primitivi, classi con argomenti di
+   * tipo, wildcard) vengono scritti direttamente, senza creare un pretty printer per ogni tipo.
+   */
   public static String getTypeString(Type type) {
     if (type instanceof ArrayType) {
       ArrayType at = (ArrayType) type;
       return getTypeString(at.getComponentType()) + "[]";
     }
-    return type.toString();
+    StringBuilder sb = new StringBuilder();
+    return appendType(type, sb) ? sb.toString() : type.toString();
+  }
+
+  /**
+   * Scrive un tipo come farebbe il pretty printer di JavaParser. Restituisce false per i tipi che
+   * richiedono il pretty printer: annotazioni o commenti sul tipo, array, unioni e intersezioni.
+   */
+  private static boolean appendType(Type type, StringBuilder sb) {
+    if (type.getComment().isPresent() || !type.getAnnotations().isEmpty()) {
+      return false;
+    }
+    if (type instanceof PrimitiveType) {
+      sb.append(((PrimitiveType) type).getType().asString());
+      return true;
+    }
+    if (type instanceof VoidType) {
+      sb.append("void");
+      return true;
+    }
+    if (type instanceof WildcardType) {
+      WildcardType wildcard = (WildcardType) type;
+      sb.append('?');
+      if (wildcard.getExtendedType().isPresent()) {
+        sb.append(" extends ");
+        return appendType(wildcard.getExtendedType().get(), sb);
+      }
+      if (wildcard.getSuperType().isPresent()) {
+        sb.append(" super ");
+        return appendType(wildcard.getSuperType().get(), sb);
+      }
+      return true;
+    }
+    if (!(type instanceof ClassOrInterfaceType)) {
+      return false;
+    }
+    ClassOrInterfaceType classType = (ClassOrInterfaceType) type;
+    if (classType.getScope().isPresent()) {
+      if (!appendType(classType.getScope().get(), sb)) {
+        return false;
+      }
+      sb.append('.');
+    }
+    sb.append(classType.getName().getIdentifier());
+    if (classType.getTypeArguments().isPresent()) {
+      sb.append('<');
+      NodeList<Type> arguments = classType.getTypeArguments().get();
+      for (int i = 0; i < arguments.size(); i++) {
+        if (i > 0) {
+          sb.append(", ");
+        }
+        if (!appendType(arguments.get(i), sb)) {
+          return false;
+        }
+      }
+      sb.append('>');
+    }
+    return true;
   }
 }
@@ -0,0 +1,100 @@
+package com.fabio.org.amuleto.converter;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import com.fabio.org.amuleto.view.RelationshipType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Misura la costruzione del grafo delle dipendenze in formato CSR, il calcolo delle metriche
+ * (componenti fortemente connesse, accoppiamento tra package) e la ricerca dei gruppi di tipi
+ * accoppiati su un grafo casuale con centomila tipi in mille package e un milione di relazioni,
+ * metà delle quali interne al package.
+ *
+ * <p>Esecuzione: {@code mvn -Pbench test-compile exec:exec -Dbench=DependencyGraphBenchmark}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class DependencyGraphBenchmark {
+
+  @Param({"100000"})
+  public int types;
+
+  @Param({"1000000"})
+  public int relationships;
+
+  private String[] names;
+  private String[] packages;
+  private int[] sources;
+  private int[] targets;
+  private RelationshipType[] kinds;
+  private UMLDependencyGraph graph;
+
+  @Setup
+  public void setUp() {
+    Random random = new Random(42);
+    int packageCount = types / 100;
+    names = new String[types];
+    packages = new String[types];
+    for (int i = 0; i < types; i++) {
+      packages[i] = "bench.p" + (i % packageCount);
+      names[i] = packages[i] + ".T" + i;
+    }
+    sources = new int[relationships];
+    targets = new int[relationships];
+    kinds = new RelationshipType[relationships];
+    RelationshipType[] values = RelationshipType.values();
+    for (int i = 0; i < relationships; i++) {
+      sources[i] = random.nextInt(types);
+      // Metà delle relazioni resta nel package della sorgente
+      targets[i] =
+          random.nextBoolean()
+              ? (sources[i] + packageCount * random.nextInt(100)) % types
+              : random.nextInt(types);
+      kinds[i] = values[random.nextInt(values.length)];
+    }
+    graph = build();
+  }
+
+  @Benchmark
+  public UMLDependencyGraph build() {
+    UMLDependencyGraph.Builder builder = new UMLDependencyGraph.Builder();
+    for (int i = 0; i < names.length; i++) {
+      builder.addType(names[i], packages[i]);
+    }
+    for (int i = 0; i < sources.length; i++) {
+      builder.addEdge(sources[i], targets[i], kinds[i]);
+    }
+    return builder.build();
+  }
+
+  @Benchmark
+  public UMLGraphMetrics metrics() {
+    return new UMLGraphMetrics(graph);
+  }
+
+  @Benchmark
+  public UMLClustering clustering() {
+    return UMLClustering.of(graph, UMLClustering.Style.PACKAGE);
+  }
+
+  @Benchmark
+  public UMLGraphMetrics buildAndAnalyze() {
+    return new UMLGraphMetrics(build());
+  }
+}
@@ -0,0 +1,84 @@
+package com.fabio.org.amuleto.converter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.fabio.org.amuleto.model.UMLClass;
+import com.fabio.org.amuleto.utils.UMLTypeClassifier;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.body.ClassOrInterfaceDeclaration;
+import com.github.javaparser.ast.body.TypeDeclaration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Confronta l'estrazione con le scansioni separate di {@code getFields()}, {@code
+ * getConstructors()} e {@code getMethods()} (tramite {@link MemberScanExtractor#processType}) con
+ * la visita unica di {@link UMLExtractionVisitor}, sulle compilation unit già analizzate del corpus
+ * sintetico di {@link ParseModeBenchmark}. Il profilo {@code gc} riporta in {@code
+ * gc.alloc.rate.norm} i byte allocati per operazione, cioè per l'estrazione dell'intero corpus.
+ *
+ * <p>Esecuzione: {@code mvn -Pbench test-compile exec:exec -Dbench=ExtractionPassBenchmark}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExtractionPassBenchmark {
+
+  @Param({"200"})
+  public int classes;
+
+  @Param({"20"})
+  public int methodsPerClass;
+
+  private final UMLTypeClassifier classifier = UMLTypeClassifier.defaults();
+  private List<CompilationUnit> units;
+
+  @Setup
+  public void setUp() {
+    units = new ArrayList<>(classes);
+    for (int i = 0; i < classes; i++) {
+      units.add(
+          UMLParseStage.parseSource(
+              UMLParseStage.newParser(true),
+              ParseModeBenchmark.syntheticClass(i, methodsPerClass),
+              true));
+    }
+  }
+
+  @Benchmark
+  public List<UMLClass> memberScans() {
+    List<UMLClass> types = new ArrayList<>(units.size());
+    for (CompilationUnit cu : units) {
+      String pkgName = cu.getPackageDeclaration().get().getNameAsString();
+      for (TypeDeclaration<?> type : cu.getTypes()) {
+        types.add(
+            MemberScanExtractor.processType((ClassOrInterfaceDeclaration) type, pkgName, classifier)
+                .build());
+      }
+    }
+    return types;
+  }
+
+  @Benchmark
+  public List<UMLClass> singlePass() {
+    List<UMLClass> types = new ArrayList<>(units.size());
+    for (CompilationUnit cu : units) {
+      types.addAll(UMLProcessor.extract(cu, classifier));
+    }
+    return types;
+  }
+}
@@ -0,0 +1,114 @@
+package com.fabio.org.amuleto.converter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import com.fabio.org.amuleto.model.UMLClass;
+import com.fabio.org.amuleto.utils.UMLSourceSet;
+import com.github.javaparser.JavaParser;
+import net.sourceforge.plantuml.FileFormat;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Confronta i motori di layout delle immagini, Graphviz ({@code dot}) e Smetana, nel rendering SVG
+ * del progetto di esempio e di un corpus sintetico di duemila classi in venti package, ciascuna con
+ * due associazioni (una nel proprio package, una casuale). Ogni operazione è un rendering completo;
+ * {@code gc.alloc.rate.norm} riporta i byte allocati dalla JVM, che per {@code dot} non includono
+ * la memoria del processo esterno.
+ *
+ * <p>Le combinazioni con {@code dot} falliscono nel setup se Graphviz non è installato.
+ *
+ * <p>Esecuzione: {@code mvn -Pbench test-compile exec:exec -Dbench=LayoutBenchmark}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class LayoutBenchmark {
+
+  @Param({"sample", "synthetic"})
+  public String corpus;
+
+  @Param({"DOT", "SMETANA"})
+  public UMLVectorGenerator.Layout layout;
+
+  @Param({"2000"})
+  public int syntheticClasses;
+
+  private String uml;
+
+  @Setup
+  public void setUp() throws Exception {
+    if (layout == UMLVectorGenerator.Layout.DOT) {
+      try {
+        new ProcessBuilder("dot", "-V").start().waitFor();
+      } catch (IOException | InterruptedException e) {
+        throw new IllegalStateException("Graphviz (dot) non disponibile", e);
+      }
+    }
+    List<List<UMLClass>> model;
+    if (corpus.equals("sample")) {
+      UMLGenerationOptions options = new UMLGenerationOptions();
+      try (UMLSourceSet sources =
+          options.openSources(new File("aMULetoTestProject/src/main/java"))) {
+        model = UMLParseStage.extractAll(sources.getFiles(), options);
+      }
+    } else {
+      model = syntheticModel(syntheticClasses);
+    }
+    uml =
+        UMLDiagramBuilder.wrap(
+            UMLDiagramBuilder.buildBody(model, null, null), UMLDiagramBuilder.Target.IMAGE, layout);
+  }
+
+  @Benchmark
+  public int renderSvg() throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    UMLVectorGenerator.render(uml, out, FileFormat.SVG);
+    return out.size();
+  }
+
+  /** Modello di classi sintetiche in venti package, con un attributo e un accessore ciascuna. */
+  static List<List<UMLClass>> syntheticModel(int classes) {
+    Random random = new Random(42);
+    JavaParser parser = new JavaParser();
+    List<List<UMLClass>> model = new ArrayList<>(classes);
+    for (int i = 0; i < classes; i++) {
+      int local = (i + 20) % classes;
+      int other = random.nextInt(classes);
+      String source =
+          "package bench.p"
+              + i % 20
+              + "; public class T"
+              + i
+              + " { private bench.p"
+              + local % 20
+              + ".T"
+              + local
+              + " next; private bench.p"
+              + other % 20
+              + ".T"
+              + other
+              + " peer; private String name; public String getName() { return name; } }";
+      model.add(UMLProcessor.extract(parser.parse(source).getResult().get()));
+    }
+    return model;
+  }
+}
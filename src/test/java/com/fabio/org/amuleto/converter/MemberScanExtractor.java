@@ -0,0 +1,41 @@
+package com.fabio.org.amuleto.converter;
+
+import com.fabio.org.amuleto.model.UMLClass;
+import com.fabio.org.amuleto.utils.UMLTypeClassifier;
+import com.github.javaparser.ast.body.ClassOrInterfaceDeclaration;
+import com.github.javaparser.ast.body.ConstructorDeclaration;
+import com.github.javaparser.ast.body.FieldDeclaration;
+import com.github.javaparser.ast.body.MethodDeclaration;
+
+/**
+ * Estrazione di un tipo con le scansioni separate di {@code getFields()}, {@code getConstructors()}
+ * e {@code getMethods()}, com'era prima di {@link UMLExtractionVisitor}. Resta solo come
+ * riferimento per {@link UMLExtractionVisitorTest} ed {@link ExtractionPassBenchmark}.
+ */
+final class MemberScanExtractor {
+
+  private MemberScanExtractor() {}
+
+  static UMLClass.Builder processType(
+      ClassOrInterfaceDeclaration cid, String packageName, UMLTypeClassifier classifier) {
+    UMLClass.Builder umlClass = UMLTypeProcessor.newType(cid, packageName);
+
+    // Processa i campi
+    for (FieldDeclaration field : cid.getFields()) {
+      UMLFieldProcessor.processFields(field, umlClass, classifier);
+    }
+
+    // Processa i costruttori
+    for (ConstructorDeclaration constructor : cid.getConstructors()) {
+      UMLConstructorProcessor.processConstructor(constructor, umlClass);
+    }
+
+    // Processa i metodi
+    for (MethodDeclaration method : cid.getMethods()) {
+      UMLMethodProcessor.processMethod(method, umlClass, classifier);
+    }
+
+    UMLTypeProcessor.addSupertypes(cid, umlClass);
+    return umlClass;
+  }
+}
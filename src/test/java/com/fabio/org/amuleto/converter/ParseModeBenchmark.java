@@ -0,0 +1,114 @@
+package com.fabio.org.amuleto.converter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.ast.CompilationUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Confronta il parsing completo con la modalità "solo dichiarazioni" su un corpus sintetico con
+ * corpi dei metodi corposi. Il profilo {@code gc} (attivo di default nel profilo Maven {@code
+ * bench}) riporta in {@code gc.alloc.rate.norm} i byte allocati per operazione, cioè per il parsing
+ * dell'intero corpus.
+ *
+ * <p>Esecuzione: {@code mvn -Pbench test-compile exec:exec -Dbench=ParseModeBenchmark}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParseModeBenchmark {
+
+  @Param({"200"})
+  public int classes;
+
+  @Param({"20"})
+  public int methodsPerClass;
+
+  private List<String> sources;
+  private JavaParser fullParser;
+  private JavaParser declarationsParser;
+
+  @Setup
+  public void setUp() {
+    sources = new ArrayList<>(classes);
+    for (int i = 0; i < classes; i++) {
+      sources.add(syntheticClass(i, methodsPerClass));
+    }
+    fullParser = UMLParseStage.newParser(false);
+    declarationsParser = UMLParseStage.newParser(true);
+  }
+
+  @Benchmark
+  public List<CompilationUnit> fullParse() {
+    List<CompilationUnit> units = new ArrayList<>(sources.size());
+    for (String source : sources) {
+      units.add(UMLParseStage.parseSource(fullParser, source, false));
+    }
+    return units;
+  }
+
+  @Benchmark
+  public List<CompilationUnit> declarationsOnlyParse() {
+    List<CompilationUnit> units = new ArrayList<>(sources.size());
+    for (String source : sources) {
+      units.add(UMLParseStage.parseSource(declarationsParser, source, true));
+    }
+    return units;
+  }
+
+  /** Genera una classe con campi, costruttore e metodi dal corpo "realistico". */
+  static String syntheticClass(int index, int methods) {
+    StringBuilder sb = new StringBuilder();
+    sb.append("package bench.p").append(index % 10).append(";\n\n");
+    sb.append("import java.util.*;\n\n");
+    sb.append("/** Classe sintetica ").append(index).append(". */\n");
+    sb.append("public class C").append(index).append(" {\n");
+    sb.append("  private final List<C").append((index + 1) % 100).append("> items = ");
+    sb.append("new ArrayList<>();\n");
+    sb.append("  private Map<String, Integer> counters = new HashMap<>();\n\n");
+    sb.append("  public C").append(index).append("(int seed) {\n");
+    sb.append("    for (int i = 0; i < seed; i++) { counters.put(\"k\" + i, i); }\n");
+    sb.append("  }\n\n");
+    for (int m = 0; m < methods; m++) {
+      sb.append("  // Metodo ").append(m).append(" con un corpo volutamente pesante\n");
+      sb.append("  public int method").append(m).append("(String arg, int n) {\n");
+      sb.append("    int total = 0;\n");
+      sb.append("    for (int i = 0; i < n; i++) {\n");
+      sb.append("      if (arg.length() > i && arg.charAt(i) == '{') {\n");
+      sb.append("        total += counters.getOrDefault(arg.substring(i), 0) * 31;\n");
+      sb.append("      } else {\n");
+      sb.append("        total -= \"}\".length() + Math.max(i, n - i);\n");
+      sb.append("      }\n");
+      sb.append("    }\n");
+      sb.append("    Runnable r = () -> { System.out.println(\"done \" + arg); };\n");
+      sb.append("    r.run();\n");
+      sb.append("    switch (n % 3) {\n");
+      sb.append("      case 0: total++; break;\n");
+      sb.append("      case 1: total--; break;\n");
+      sb.append("      default: total *= 2;\n");
+      sb.append("    }\n");
+      sb.append("    try { items.forEach(x -> x.hashCode()); } catch (RuntimeException e) {");
+      sb.append(" total = -1; }\n");
+      sb.append("    return total;\n");
+      sb.append("  }\n\n");
+    }
+    sb.append("}\n");
+    return sb.toString();
+  }
+}
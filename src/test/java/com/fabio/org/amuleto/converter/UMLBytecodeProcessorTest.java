@@ -0,0 +1,91 @@
+package com.fabio.org.amuleto.converter;
+
+import static org.junit.Assert.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
+import com.fabio.org.amuleto.model.UMLClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class UMLBytecodeProcessorTest {
+
+  @Rule public TemporaryFolder tmp = new TemporaryFolder();
+
+  private static final String SOURCE =
+      "package p;\n"
+          + "import java.util.*;\n"
+          + "public abstract class Shop<T> extends Base implements Runnable, Comparable<Shop<T>> {\n"
+          + "  public static final int LIMIT = 3;\n"
+          + "  private List<Item> items;\n"
+          + "  protected Map.Entry<String, Item> last;\n"
+          + "  Item[] shelf;\n"
+          + "  T current;\n"
+          + "  private Set<? extends Item> offers;\n"
+          + "  public Shop(String name, int size) { }\n"
+          + "  public final void add(Item item, long... ids) { }\n"
+          + "  protected abstract Optional<Item> find(String name);\n"
+          + "  static <E> List<E> copy(List<E> source) { return source; }\n"
+          + "  private class Inner { }\n"
+          + "}\n"
+          + "class Base { protected Base() { } }\n"
+          + "final class Item { private Item() { } }\n"
+          + "class Plain { }\n"
+          + "record Point(int x, List<Item> items) implements Comparable<Point> {\n"
+          + "  static int count;\n"
+          + "  Point { }\n"
+          + "  Point(int x) { this(x, null); }\n"
+          + "  public int compareTo(Point other) { return 0; }\n"
+          + "  public int x() { return Math.abs(x); }\n"
+          + "}\n";
+
+  /**
+   * Verifica che il tipo ricavato dal bytecode coincida con quello ricavato dal sorgente: membri,
+   * associazioni, dipendenze ed ereditarietà.
+   */
+  @Test
+  public void testMatchesSourceFrontEnd() throws Exception {
+    Path src = tmp.newFolder("src").toPath().resolve("Shop.java");
+    Files.writeString(src, SOURCE);
+    Path classes = tmp.newFolder("classes").toPath();
+    JavaCompiler javac = ToolProvider.getSystemJavaCompiler();
+    assertEquals(
+        0, javac.run(null, null, null, "-parameters", "-d", classes.toString(), src.toString()));
+
+    UMLClass expected = UMLTestModels.extractFile(SOURCE).get(0);
+    List<UMLClass> actual =
+        UMLBytecodeProcessor.extract(Files.readAllBytes(classes.resolve("p/Shop.class")));
+
+    assertEquals(1, actual.size());
+    UMLClass umlClass = actual.get(0);
+    assertEquals("p", umlClass.getPackageName());
+    assertEquals("Shop", umlClass.getName());
+    assertEquals(UMLClass.Kind.ABSTRACT_CLASS, umlClass.getKind());
+    assertEquals(expected.getMembers().toString(), umlClass.getMembers().toString());
+    assertEquals(expected.getRelationships(), umlClass.getRelationships());
+
+    // Costruttori vuoti privati o protetti, esplicitati nel sorgente, e record, rappresentati come
+    // classi con i componenti come attributi e senza i membri generati
+    List<UMLClass> sourceTypes = UMLTestModels.extractFile(SOURCE);
+    for (String name : List.of("Base", "Item", "Plain", "Point")) {
+      UMLClass source =
+          sourceTypes.stream().filter(c -> c.getName().equals(name)).findFirst().get();
+      UMLClass compiled =
+          UMLBytecodeProcessor.extract(Files.readAllBytes(classes.resolve("p/" + name + ".class")))
+              .get(0);
+      assertEquals(UMLClass.Kind.CLASS, compiled.getKind());
+      assertEquals(name, source.getMembers().toString(), compiled.getMembers().toString());
+      assertEquals(name, source.getRelationships(), compiled.getRelationships());
+    }
+
+    // Le classi annidate non producono tipi, come nel front end dei sorgenti
+    assertTrue(
+        UMLBytecodeProcessor.extract(Files.readAllBytes(classes.resolve("p/Shop$Inner.class")))
+            .isEmpty());
+  }
+}
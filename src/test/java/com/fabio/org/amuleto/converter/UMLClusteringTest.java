@@ -0,0 +1,67 @@
+package com.fabio.org.amuleto.converter;
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+
+import com.fabio.org.amuleto.model.UMLClass;
+import com.fabio.org.amuleto.view.RelationshipType;
+import org.junit.Test;
+
+public class UMLClusteringTest {
+
+  /** Verifica che due gruppi densi collegati da un solo arco vengano separati. */
+  @Test
+  public void testTwoDenseGroups() {
+    UMLDependencyGraph.Builder builder = new UMLDependencyGraph.Builder();
+    for (int i = 0; i < 10; i++) {
+      builder.addType("p.T" + i, "p");
+    }
+    builder.addType("q.Alone", "q");
+    // Due cricche di cinque tipi, tra package diversi da quelli dichiarati
+    for (int group = 0; group < 2; group++) {
+      for (int i = 0; i < 5; i++) {
+        for (int j = i + 1; j < 5; j++) {
+          builder.addEdge(group * 5 + i, group * 5 + j, RelationshipType.DEPENDENCY);
+        }
+      }
+    }
+    builder.addEdge(4, 5, RelationshipType.ASSOCIATION);
+    UMLClustering clustering = UMLClustering.of(builder.build(), UMLClustering.Style.PACKAGE);
+
+    assertEquals(3, clustering.getClusterCount());
+    assertEquals(5, clustering.getClusterSize(0));
+    assertEquals(5, clustering.getClusterSize(1));
+    for (int i = 1; i < 5; i++) {
+      assertEquals(clustering.getCluster(0), clustering.getCluster(i));
+      assertEquals(clustering.getCluster(5), clustering.getCluster(5 + i));
+    }
+    assertNotEquals(clustering.getCluster(0), clustering.getCluster(5));
+    assertTrue(clustering.getModularity() > 0.4);
+    assertEquals("Gruppo 1: p", clustering.groupOf("p.T0"));
+    // Un tipo isolato resta fuori da ogni gruppo
+    assertEquals("", clustering.groupOf("q.Alone"));
+  }
+
+  /** Verifica l'emissione dei gruppi al posto dei package. */
+  @Test
+  public void testDiagramGroups() {
+    List<List<UMLClass>> model =
+        UMLTestModels.extract(
+            "package a; import b.Order; public class Customer { Order last; }",
+            "package b; import a.Customer; public class Order { Customer owner; }",
+            "package b; public class Invoice { }");
+
+    String grouped =
+        UMLDiagramBuilder.buildBody(
+            model, null, UMLClustering.of(model, UMLClustering.Style.PACKAGE));
+    assertTrue(grouped.contains("class Invoice {"));
+    assertTrue(grouped.contains("package \"Gruppo 1: a\" as G1 {\n\nclass Customer {"));
+    assertFalse(grouped.contains("package b {"));
+
+    String together =
+        UMLDiagramBuilder.buildBody(
+            model, null, UMLClustering.of(model, UMLClustering.Style.TOGETHER));
+    assertTrue(together.contains("together {\n\nclass Customer {"));
+  }
+}
@@ -0,0 +1,103 @@
+package com.fabio.org.amuleto.converter;
+
+import static org.junit.Assert.*;
+
+import java.io.StringWriter;
+import java.util.List;
+
+import com.fabio.org.amuleto.model.UMLClass;
+import com.fabio.org.amuleto.view.RelationshipType;
+import org.junit.Test;
+
+public class UMLDependencyGraphTest {
+
+  /** Verifica il formato CSR, la fusione delle relazioni ripetute e le metriche di base. */
+  @Test
+  public void testGraphAndMetrics() {
+    UMLDependencyGraph.Builder builder = new UMLDependencyGraph.Builder();
+    int a = builder.addType("p.A", "p");
+    int b = builder.addType("p.B", "p");
+    int c = builder.addType("q.C", "q");
+    int d = builder.addType("q.D", "q");
+    builder
+        .addEdge(a, b, RelationshipType.ASSOCIATION)
+        .addEdge(a, b, RelationshipType.DEPENDENCY)
+        .addEdge(b, a, RelationshipType.INHERITANCE)
+        .addEdge(c, a, RelationshipType.DEPENDENCY)
+        .addEdge(c, b, RelationshipType.DEPENDENCY)
+        .addEdge(d, d, RelationshipType.DEPENDENCY)
+        .addEdge(d, c, RelationshipType.IMPLEMENTATION);
+    UMLDependencyGraph graph = builder.build();
+
+    assertEquals(5, graph.getEdgeCount());
+    assertEquals(1, graph.getFanOut(a));
+    assertEquals(2, graph.getFanIn(a));
+    assertEquals(0, graph.getFanIn(d));
+    int ab = graph.getOutStart(a);
+    assertEquals(b, graph.getTarget(ab));
+    assertTrue(graph.hasKind(ab, RelationshipType.ASSOCIATION));
+    assertTrue(graph.hasKind(ab, RelationshipType.DEPENDENCY));
+    assertFalse(graph.hasKind(ab, RelationshipType.INHERITANCE));
+
+    UMLGraphMetrics metrics = new UMLGraphMetrics(graph);
+    List<int[]> cycles = metrics.getCycles();
+    assertEquals(1, cycles.size());
+    assertArrayEquals(new int[] {a, b}, cycles.get(0));
+    assertEquals(3, metrics.getComponentCount());
+
+    int p = graph.getPackage(a);
+    int q = graph.getPackage(c);
+    // C dipende da p; nessun tipo di p dipende da q
+    assertEquals(1, metrics.getAfferent(p));
+    assertEquals(0, metrics.getEfferent(p));
+    assertEquals(0, metrics.getAfferent(q));
+    assertEquals(1, metrics.getEfferent(q));
+    assertEquals(0.0, metrics.getInstability(p), 0);
+    assertEquals(1.0, metrics.getInstability(q), 0);
+    int entry = metrics.getCouplingStart(q);
+    assertEquals(p, metrics.getCouplingTarget(entry));
+    assertEquals(2, metrics.getCouplingCount(entry));
+  }
+
+  /** Verifica che una lunga catena di dipendenze non esaurisca lo stack. */
+  @Test
+  public void testLongChainCycle() {
+    UMLDependencyGraph.Builder builder = new UMLDependencyGraph.Builder();
+    int n = 200_000;
+    for (int i = 0; i < n; i++) {
+      builder.addType("T" + i, "");
+    }
+    for (int i = 0; i < n; i++) {
+      builder.addEdge(i, (i + 1) % n, RelationshipType.DEPENDENCY);
+    }
+    UMLGraphMetrics metrics = new UMLGraphMetrics(builder.build());
+
+    assertEquals(1, metrics.getComponentCount());
+    assertEquals(n, metrics.getCycles().get(0).length);
+  }
+
+  /** Verifica il grafo costruito dai sorgenti e il resoconto JSON. */
+  @Test
+  public void testReportFromSources() throws Exception {
+    List<List<UMLClass>> model =
+        UMLTestModels.extract(
+            "package a; import b.Order; public class Customer { Order last; }",
+            "package b; import a.Customer; public class Order { Customer owner; }",
+            "package b; public class Invoice { void send(Order order, String to) { } }");
+    UMLDependencyReport report =
+        new UMLDependencyReport(new UMLGraphMetrics(UMLDependencyGraph.of(model)));
+    StringWriter json = new StringWriter();
+    report.writeJson(json);
+
+    String text = json.toString().replaceAll("\\s+", "");
+    assertTrue(text.contains("\"types\":3,\"dependencies\":3,\"packages\":2"));
+    assertTrue(text.contains("\"cycles\":[[\"a.Customer\",\"b.Order\"]]"));
+    assertTrue(
+        text.contains(
+            "{\"name\":\"b.Invoice\",\"package\":\"b\",\"fanIn\":0,\"fanOut\":1,\"cycle\":-1}"));
+    assertTrue(
+        text.contains(
+            "{\"name\":\"b\",\"types\":2,\"afferent\":1,\"efferent\":1,\"instability\":0.5}"));
+    assertTrue(text.contains("{\"from\":\"b\",\"to\":\"b\",\"dependencies\":1}"));
+  }
+}
@@ -0,0 +1,95 @@
+package com.fabio.org.amuleto.converter;
+
+import static org.junit.Assert.*;
+
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.fabio.org.amuleto.model.UMLClass;
+import org.junit.Test;
+
+public class UMLDiagramBuilderTest {
+
+  /** Writer che ricorda il testo ricevuto e la dimensione massima di una singola scrittura. */
+  private static final class RecordingWriter extends Writer {
+    final StringBuilder text = new StringBuilder();
+    int largestWrite;
+
+    @Override
+    public void write(char[] buffer, int offset, int length) {
+      text.append(buffer, offset, length);
+      largestWrite = Math.max(largestWrite, length);
+    }
+
+    @Override
+    public void write(String string) {
+      text.append(string);
+      largestWrite = Math.max(largestWrite, string.length());
+    }
+
+    @Override
+    public void flush() {}
+
+    @Override
+    public void close() {}
+  }
+
+  /**
+   * Verifica che il corpo scritto a blocchi sia identico a quello costruito in memoria e che
+   * nessuna scrittura superi la soglia del buffer di emissione di più di un tipo.
+   */
+  @Test
+  public void testStreamingMatchesInMemoryBody() throws Exception {
+    String[] sources = new String[2000];
+    for (int i = 0; i < sources.length; i++) {
+      sources[i] =
+          "package p"
+              + i % 7
+              + "; public class T"
+              + i
+              + " { private T"
+              + (i + 1) % 2000
+              + " next; private String name; public String getName() { return name; } }";
+    }
+    List<List<UMLClass>> model = UMLTestModels.extract(sources);
+
+    String body = UMLDiagramBuilder.buildBody(model, null, null);
+    assertTrue(body.length() > 2 * UMLDiagramBuilder.FLUSH_THRESHOLD);
+
+    RecordingWriter out = new RecordingWriter();
+    UMLDiagramBuilder.writeBody(model, null, null, out);
+    assertEquals(body, out.text.toString());
+    assertTrue(out.largestWrite < UMLDiagramBuilder.FLUSH_THRESHOLD + 1024);
+  }
+
+  /** Verifica che il motore di layout sia selezionato solo nell'intestazione delle immagini. */
+  @Test
+  public void testLayoutPragma() {
+    String pragma = "!pragma layout smetana\n";
+    assertTrue(
+        UMLDiagramBuilder.wrap(
+                "", UMLDiagramBuilder.Target.IMAGE, UMLVectorGenerator.Layout.SMETANA)
+            .contains(pragma));
+    assertFalse(
+        UMLDiagramBuilder.wrap("", UMLDiagramBuilder.Target.TEXT, UMLVectorGenerator.Layout.SMETANA)
+            .contains(pragma));
+    assertFalse(UMLDiagramBuilder.wrap("", UMLDiagramBuilder.Target.IMAGE).contains(pragma));
+  }
+
+  /** Verifica che l'ordine dei tipi nel diagramma non dipenda dall'ordine dei file. */
+  @Test
+  public void testTypeOrderIndependentOfFiles() {
+    List<List<UMLClass>> forward =
+        UMLTestModels.extract(
+            "package p; public class Alpha { Beta b; }",
+            "package p; public class Beta { Gamma g; }",
+            "package p; public class Gamma { }");
+    List<List<UMLClass>> backward = new ArrayList<>(forward);
+    Collections.reverse(backward);
+    String body = UMLDiagramBuilder.buildBody(backward, null, null);
+    assertEquals(UMLDiagramBuilder.buildBody(forward, null, null), body);
+    assertTrue(body.indexOf("class Alpha") < body.indexOf("class Gamma"));
+  }
+}
@@ -0,0 +1,98 @@
+package com.fabio.org.amuleto.converter;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import com.fabio.org.amuleto.model.UMLClass;
+import org.junit.Test;
+
+public class UMLDiagramSelectionTest {
+
+  // Catena a -> b -> c -> d, con e che dipende da b
+  private static List<List<UMLClass>> chain() {
+    return UMLTestModels.extract(
+        "package p; public class A { B b; }",
+        "package p; public class B { C c; }",
+        "package q; import p.D; public class C { D d; }",
+        "package p; public class D { }",
+        "package q; public class E { void use(p.B b) { } }");
+  }
+
+  /** Verifica la visita in ampiezza nei due versi e il riconoscimento per nome semplice. */
+  @Test
+  public void testFocusDepthAndDirection() {
+    UMLDependencyGraph graph = UMLDependencyGraph.of(chain());
+
+    UMLDiagramSelection both =
+        UMLDiagramSelection.focus(
+            graph, Collections.singletonList("p.B"), 1, UMLDiagramSelection.Direction.BOTH);
+    assertEquals(4, both.size());
+    assertTrue(both.contains("p.A") && both.contains("q.C") && both.contains("q.E"));
+    assertFalse(both.contains("p.D"));
+
+    UMLDiagramSelection out =
+        UMLDiagramSelection.focus(
+            graph, Collections.singletonList("B"), 2, UMLDiagramSelection.Direction.OUT);
+    assertEquals(3, out.size());
+    assertTrue(out.contains("p.D"));
+    assertFalse(out.contains("p.A"));
+
+    try {
+      UMLDiagramSelection.focus(
+          graph, Arrays.asList("Missing"), 1, UMLDiagramSelection.Direction.IN);
+      fail();
+    } catch (IllegalArgumentException e) {
+      // Tipo di interesse inesistente
+    }
+  }
+
+  /** Verifica che il diagramma contenga solo il sottografo indotto dalla selezione. */
+  @Test
+  public void testDiagramContainsInducedSubgraph() {
+    List<List<UMLClass>> model = chain();
+    UMLDiagramSelection selection =
+        UMLDiagramSelection.focus(
+            UMLDependencyGraph.of(model),
+            Collections.singletonList("p.B"),
+            1,
+            UMLDiagramSelection.Direction.IN);
+
+    String uml = UMLDiagramBuilder.buildBody(model, selection, null);
+
+    assertTrue(uml.contains("class A {"));
+    assertTrue(uml.contains("class E {"));
+    assertFalse(uml.contains("class C {"));
+    assertTrue(uml.contains("A \"1\" --> \"1\" B : b\n"));
+    assertTrue(uml.contains("E ..> B : uses\n"));
+    // La relazione verso un tipo non selezionato non compare
+    assertFalse(uml.contains("B \"1\" --> \"1\" C"));
+  }
+
+  /** Verifica la scelta dei tipi più centrali e il conteggio dei tipi collegati omessi. */
+  @Test
+  public void testTopRanking() {
+    List<List<UMLClass>> model = chain();
+    UMLDependencyGraph graph = UMLDependencyGraph.of(model);
+
+    // Il punteggio si accumula lungo la catena delle dipendenze
+    double[] rank = UMLDiagramSelection.pageRank(graph);
+    assertEquals(1.0, Arrays.stream(rank).sum(), 1e-6);
+    assertTrue(rank[3] > rank[2] && rank[2] > rank[1] && rank[1] > rank[0]);
+    UMLDiagramSelection central =
+        UMLDiagramSelection.top(graph, 2, UMLDiagramSelection.Ranking.PAGERANK, null);
+    assertTrue(central.contains("q.C") && central.contains("p.D"));
+    assertEquals(1, central.getHiddenNeighbours("q.C"));
+    assertEquals(0, central.getHiddenNeighbours("p.D"));
+
+    UMLDiagramSelection connected =
+        UMLDiagramSelection.top(graph, 1, UMLDiagramSelection.Ranking.DEGREE, null);
+    assertEquals(1, connected.size());
+    assertEquals(3, connected.getHiddenNeighbours("p.B"));
+    String uml = UMLDiagramBuilder.buildBody(model, connected, null);
+    assertTrue(uml.contains("class B {"));
+    assertTrue(uml.contains("note right of B : 3 tipi collegati omessi\n"));
+  }
+}
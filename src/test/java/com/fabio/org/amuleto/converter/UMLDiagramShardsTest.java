@@ -0,0 +1,65 @@
+package com.fabio.org.amuleto.converter;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.List;
+
+import com.fabio.org.amuleto.model.UMLClass;
+import net.sourceforge.plantuml.FileFormat;
+import org.junit.Test;
+
+public class UMLDiagramShardsTest {
+
+  private static List<List<UMLClass>> project() {
+    return UMLTestModels.extract(
+        "package a.x; import b.Order; public class Customer { Order last; }",
+        "package a.y; public class Cart extends a.x.Customer { }",
+        "package b; public interface Order { }",
+        "package b; public class Invoice { Order order; }");
+  }
+
+  /** Verifica i tipi di ogni parte e i riferimenti ai tipi delle altre parti. */
+  @Test
+  public void testShardsWithStubs() {
+    UMLDiagramShards shards = UMLDiagramShards.of(project(), 1, null);
+    assertEquals(2, shards.getShardCount());
+    assertEquals("a", shards.getShardName(0));
+    assertEquals(2, shards.getShardSize(0));
+
+    String a = shards.buildShard(0, "svg");
+    assertTrue(a.contains("package a.x {\n\nclass Customer {"));
+    assertTrue(a.contains("class Cart {"));
+    assertTrue(a.contains("interface Order <<esterno>> [[b.svg]]\n"));
+    assertTrue(a.contains("Customer <|-- Cart\n"));
+    assertFalse(a.contains("Invoice"));
+
+    // L'associazione entrante da Customer compare anche nella parte di Order
+    String b = shards.buildShard(1, "svg");
+    assertTrue(b.contains("class Customer <<esterno>> [[a.svg]]\n"));
+    assertTrue(b.contains("hide <<esterno>> members\n"));
+    assertFalse(b.contains("Cart"));
+  }
+
+  /** Verifica i file scritti: le parti, l'indice con i collegamenti e la pagina HTML. */
+  @Test
+  public void testRender() throws Exception {
+    File directory = Files.createTempDirectory("amuleto-shards").toFile();
+    File index = new File(directory, "diagramma.svg");
+    UMLDiagramShards shards = UMLDiagramShards.of(project(), 1, null);
+    assertTrue(shards.buildIndex("diagramma-shards", "svg").contains("[[diagramma-shards/b.svg]]"));
+
+    shards.render(
+        index,
+        FileFormat.SVG,
+        UMLVectorGenerator.Layout.SMETANA,
+        UMLRenderCache.open(null, false),
+        2);
+    assertTrue(index.isFile());
+    assertTrue(new File(directory, "diagramma-shards/a.svg").isFile());
+    assertTrue(new File(directory, "diagramma-shards/b.svg").isFile());
+    String html = Files.readString(new File(directory, "diagramma.html").toPath());
+    assertTrue(html.contains("<a href=\"diagramma-shards/a.svg\">a</a> (2 tipi)"));
+  }
+}
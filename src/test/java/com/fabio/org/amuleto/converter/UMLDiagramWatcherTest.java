@@ -0,0 +1,164 @@
+package com.fabio.org.amuleto.converter;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class UMLDiagramWatcherTest {
+
+  @Rule public TemporaryFolder tmp = new TemporaryFolder();
+
+  /**
+   * Verifica l'aggiornamento incrementale: un file invariato non riscrive l'output, un file
+   * modificato o cancellato aggiorna il diagramma.
+   */
+  @Test
+  public void testIncrementalUpdate() throws Exception {
+    File src = tmp.newFolder("src");
+    Path a = src.toPath().resolve("A.java");
+    Path b = src.toPath().resolve("B.java");
+    Files.writeString(a, "public class A { private int n; }");
+    Files.writeString(b, "public class B extends A {}");
+    File output = tmp.newFile("out.puml");
+
+    try (UMLDiagramWatcher watcher =
+        new UMLDiagramWatcher(src, output, null, null, new UMLGenerationOptions())) {
+      watcher.initialBuild();
+      String initial = Files.readString(output.toPath());
+      assertTrue(initial.contains("A <|-- B"));
+
+      // Salvataggio senza modifiche: il diagramma non cambia
+      assertFalse(watcher.update(Collections.singleton(a.toAbsolutePath())));
+
+      Files.writeString(a, "public class A { private int n; private String name; }");
+      assertTrue(watcher.update(Collections.singleton(a.toAbsolutePath())));
+      assertTrue(Files.readString(output.toPath()).contains("- name : String"));
+
+      Files.delete(b);
+      assertTrue(watcher.update(Collections.singleton(b.toAbsolutePath())));
+      assertFalse(Files.readString(output.toPath()).contains("class B"));
+    }
+  }
+
+  /**
+   * Verifica che cancellare una directory rimuova tutti i suoi tipi anche quando una directory
+   * vicina ("foo-old") precede i suoi file nell'ordine dei percorsi.
+   */
+  @Test
+  public void testDeletedDirectoryNextToSibling() throws Exception {
+    File src = tmp.newFolder("src");
+    Path foo = Files.createDirectory(src.toPath().resolve("foo"));
+    Path sibling = Files.createDirectory(src.toPath().resolve("foo-old"));
+    Files.writeString(foo.resolve("A.java"), "public class A {}");
+    Files.writeString(foo.resolve("C.java"), "public class C {}");
+    Files.writeString(sibling.resolve("B.java"), "public class B {}");
+    File output = tmp.newFile("out.puml");
+
+    try (UMLDiagramWatcher watcher =
+        new UMLDiagramWatcher(src, output, null, null, new UMLGenerationOptions())) {
+      watcher.initialBuild();
+      assertTrue(Files.readString(output.toPath()).contains("class A"));
+
+      for (String name : new String[] {"A.java", "C.java"}) {
+        Files.delete(foo.resolve(name));
+      }
+      Files.delete(foo);
+      assertTrue(watcher.update(Collections.singleton(foo.toAbsolutePath())));
+      String updated = Files.readString(output.toPath());
+      assertFalse(updated.contains("class A"));
+      assertFalse(updated.contains("class C"));
+      assertTrue(updated.contains("class B"));
+    }
+  }
+
+  /**
+   * Verifica che la nuova scansione dopo la perdita di eventi tolleri un file salvato a metà,
+   * mantenendone i tipi precedenti, anche con il limite di errori predefinito.
+   */
+  @Test
+  public void testRescanKeepsPreviousTypesOfBrokenFiles() throws Exception {
+    File src = tmp.newFolder("src");
+    Path a = src.toPath().resolve("A.java");
+    Path b = src.toPath().resolve("B.java");
+    Files.writeString(a, "public class A { private int n; }");
+    File output = tmp.newFile("out.puml");
+
+    try (UMLDiagramWatcher watcher =
+        new UMLDiagramWatcher(src, output, null, null, new UMLGenerationOptions())) {
+      watcher.initialBuild();
+
+      Files.writeString(a, "public class A { private int n; void f( }");
+      Files.writeString(b, "public class B extends A {}");
+      assertTrue(watcher.rescan());
+      String updated = Files.readString(output.toPath());
+      assertTrue(updated.contains("- n : int"));
+      assertTrue(updated.contains("A <|-- B"));
+    }
+  }
+
+  /**
+   * Verifica che la modalità watch scriva il sorgente PlantUML con gli stessi byte della
+   * generazione singola, anche con caratteri non ASCII, e che rispetti la scrittura condizionata.
+   */
+  @Test
+  public void testSourceMatchesSingleGeneration() throws Exception {
+    File src = tmp.newFolder("src");
+    Files.writeString(
+        src.toPath().resolve("Citta.java"),
+        "public class Citta { private String località; }",
+        StandardCharsets.UTF_8);
+    File single = tmp.newFile("single.puml");
+    File watched = tmp.newFile("watched.puml");
+    UMLGenerationOptions options = new UMLGenerationOptions();
+    options.setSkipUnchanged(true);
+    UMLGenerator.generate(src, List.of(UMLGenerator.Output.source(single)), options);
+
+    try (UMLDiagramWatcher watcher = new UMLDiagramWatcher(src, watched, null, null, options)) {
+      watcher.initialBuild();
+    }
+    assertArrayEquals(Files.readAllBytes(single.toPath()), Files.readAllBytes(watched.toPath()));
+
+    // Contenuto invariato: con la scrittura condizionata il file non viene riscritto
+    Files.setLastModifiedTime(watched.toPath(), FileTime.fromMillis(0));
+    try (UMLDiagramWatcher watcher = new UMLDiagramWatcher(src, watched, null, null, options)) {
+      watcher.initialBuild();
+    }
+    assertEquals(0, Files.getLastModifiedTime(watched.toPath()).toMillis());
+  }
+
+  /** Verifica che la modalità watch applichi le opzioni di vista, come la generazione singola. */
+  @Test
+  public void testFocusOption() throws Exception {
+    File src = tmp.newFolder("src");
+    Path a = src.toPath().resolve("A.java");
+    Files.writeString(a, "public class A { private B b; }");
+    Files.writeString(src.toPath().resolve("B.java"), "public class B { private C c; }");
+    Files.writeString(src.toPath().resolve("C.java"), "public class C {}");
+    File output = tmp.newFile("out.puml");
+    UMLGenerationOptions options = new UMLGenerationOptions();
+    options.setFocusTypes(List.of("A"));
+
+    try (UMLDiagramWatcher watcher = new UMLDiagramWatcher(src, output, null, null, options)) {
+      watcher.initialBuild();
+      String initial = Files.readString(output.toPath());
+      assertTrue(initial.contains("class A"));
+      assertTrue(initial.contains("class B"));
+      assertFalse(initial.contains("class C"));
+
+      // Il tipo di interesse viene cancellato: l'output precedente resta
+      Files.delete(a);
+      assertFalse(watcher.update(Collections.singleton(a.toAbsolutePath())));
+      assertEquals(initial, Files.readString(output.toPath()));
+    }
+  }
+}
@@ -0,0 +1,155 @@
+package com.fabio.org.amuleto.converter;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.List;
+
+import com.fabio.org.amuleto.model.UMLClass;
+import com.fabio.org.amuleto.model.UMLRelationship;
+import com.fabio.org.amuleto.view.RelationshipType;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class UMLExtractionCacheTest {
+
+  @Rule public TemporaryFolder tmp = new TemporaryFolder();
+
+  private List<List<UMLClass>> run(List<Path> files, File cacheDir) throws Exception {
+    UMLGenerationOptions options = new UMLGenerationOptions();
+    UMLExtractionCache cache = UMLExtractionCache.open(cacheDir, false);
+    List<List<UMLClass>> result =
+        UMLParseStage.extractAll(files, options, cache, new UMLGenerationReport());
+    cache.save();
+    lastCache = cache;
+    return result;
+  }
+
+  private UMLExtractionCache lastCache;
+
+  /**
+   * Verifica che una seconda esecuzione carichi i file invariati dalla cache, che un file
+   * modificato venga rianalizzato e che un file solo "toccato" venga riconosciuto tramite hash.
+   */
+  @Test
+  public void testHitsAndMisses() throws Exception {
+    Path a = tmp.newFile("A.java").toPath();
+    Path b = tmp.newFile("B.java").toPath();
+    Files.writeString(a, "package p; public class A { private B b; public void f(B x) {} }");
+    Files.writeString(b, "package p; public class B extends A {}");
+    File cacheDir = new File(tmp.getRoot(), UMLExtractionCache.DEFAULT_DIRECTORY);
+    List<Path> files = Arrays.asList(a, b);
+
+    List<List<UMLClass>> first = run(files, cacheDir);
+    assertEquals(0, lastCache.getHits());
+    assertEquals(2, lastCache.getMisses());
+
+    List<List<UMLClass>> second = run(files, cacheDir);
+    assertEquals(2, lastCache.getHits());
+    assertEquals(0, lastCache.getMisses());
+    assertEquals(
+        first.get(0).get(0).getMembers().toString(), second.get(0).get(0).getMembers().toString());
+    assertEquals(first.get(0).get(0).getRelationships(), second.get(0).get(0).getRelationships());
+    List<UMLRelationship> parents =
+        second.get(1).get(0).getRelationships(RelationshipType.INHERITANCE);
+    assertEquals(1, parents.size());
+    assertEquals("A", parents.get(0).getTarget());
+
+    // Stesso contenuto con data di modifica diversa: hit tramite hash
+    Files.setLastModifiedTime(b, FileTime.fromMillis(0));
+    // Contenuto modificato: miss
+    Files.writeString(a, "package p; public class A { private int n; }");
+    List<List<UMLClass>> third = run(files, cacheDir);
+    assertEquals(1, lastCache.getHits());
+    assertEquals(1, lastCache.getMisses());
+    assertEquals("[- n : int]", third.get(0).get(0).getMembers().toString());
+    // Nessun file temporaneo resta accanto alla cache
+    assertArrayEquals(new String[] {"extraction.bin"}, cacheDir.list());
+  }
+
+  /**
+   * Verifica che un file salvato durante l'analisi non venga memorizzato con i metadati del nuovo
+   * contenuto accanto ai tipi di quello vecchio.
+   */
+  @Test
+  public void testFileChangedWhileParsing() throws Exception {
+    Path a = tmp.newFile("A.java").toPath();
+    Files.writeString(a, "package p; public class A { private int n; }");
+    long modified = Files.getLastModifiedTime(a).toMillis();
+    byte[] parsed = Files.readAllBytes(a);
+    List<UMLClass> types = UMLTestModels.extractFile(new String(parsed, StandardCharsets.UTF_8));
+    // Il file cambia dopo essere stato letto dal worker
+    Files.writeString(a, "package p; public class A { private long count; }");
+    File cacheDir = new File(tmp.getRoot(), UMLExtractionCache.DEFAULT_DIRECTORY);
+    UMLExtractionCache cache = UMLExtractionCache.open(cacheDir, false);
+    cache.store(
+        a, UMLExtractionCache.version(modified, parsed), UMLMemberDetail.defaults().filter(types));
+    cache.save();
+
+    assertNull(UMLExtractionCache.open(cacheDir, false).lookup(a));
+  }
+
+  /**
+   * Verifica che i contatori del livello di dettaglio siano gli stessi quando i tipi vengono
+   * ripresi dalla cache invece di essere rianalizzati.
+   */
+  @Test
+  public void testMemberCountsOnCacheHits() throws Exception {
+    Path a = tmp.newFile("A.java").toPath();
+    Files.writeString(
+        a,
+        "package p; public class A { private int n; public int getN() { return n; } void f() {} }");
+    File cacheDir = new File(tmp.getRoot(), UMLExtractionCache.DEFAULT_DIRECTORY);
+    UMLGenerationOptions options = new UMLGenerationOptions();
+    options.setMemberDetail(new UMLMemberDetail(UMLMemberDetail.Level.PUBLIC, false));
+    options.setCacheDirectory(cacheDir);
+
+    UMLGenerationReport cold = new UMLGenerationReport();
+    UMLParseStage.extractAll(Arrays.asList(a), options, cold);
+    UMLGenerationReport warm = new UMLGenerationReport();
+    UMLParseStage.extractAll(Arrays.asList(a), options, warm);
+    assertEquals(0, cold.getCacheHits());
+    assertEquals(1, warm.getCacheHits());
+    assertEquals(3, warm.getExtractedMembers());
+    assertEquals(1, warm.getKeptMembers());
+    assertEquals(cold.getSavedChars(), warm.getSavedChars());
+    assertTrue(warm.getSavedChars() > 0);
+  }
+
+  /**
+   * Verifica che un file di cache troncato o con byte alterati (ordinali e conteggi fuori
+   * intervallo) venga trattato come una cache vuota invece di interrompere l'esecuzione.
+   */
+  @Test
+  public void testCorruptedCacheIsIgnored() throws Exception {
+    Path a = tmp.newFile("A.java").toPath();
+    Files.writeString(
+        a, "package p; public class A extends B { private int n; public A(int n) {} void f() {} }");
+    File cacheDir = new File(tmp.getRoot(), UMLExtractionCache.DEFAULT_DIRECTORY);
+    List<Path> files = Arrays.asList(a);
+    String expected = run(files, cacheDir).get(0).get(0).getMembers().toString();
+    Path cacheFile = cacheDir.toPath().resolve("extraction.bin");
+    byte[] valid = Files.readAllBytes(cacheFile);
+
+    for (int i = 0; i < valid.length; i++) {
+      for (byte value : new byte[] {(byte) 0x7f, (byte) 0x80}) {
+        byte[] corrupted = valid.clone();
+        corrupted[i] = value;
+        Files.write(cacheFile, corrupted);
+        UMLExtractionCache.open(cacheDir, false).lookup(a);
+      }
+      Files.write(cacheFile, Arrays.copyOf(valid, i));
+      assertNull(UMLExtractionCache.open(cacheDir, false).lookup(a));
+    }
+
+    // Dopo una cache corrotta l'estrazione riparte dai sorgenti
+    assertEquals(expected, run(files, cacheDir).get(0).get(0).getMembers().toString());
+    assertEquals(1, lastCache.getMisses());
+  }
+}
@@ -0,0 +1,86 @@
+package com.fabio.org.amuleto.converter;
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+
+import com.fabio.org.amuleto.model.UMLClass;
+import com.fabio.org.amuleto.model.UMLMember;
+import com.fabio.org.amuleto.utils.UMLTypeClassifier;
+import com.fabio.org.amuleto.view.RelationshipType;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.body.ClassOrInterfaceDeclaration;
+import org.junit.Test;
+
+public class UMLExtractionVisitorTest {
+
+  private static CompilationUnit parse(String source) {
+    return UMLParseStage.parseSource(UMLParseStage.newParser(false), source, false);
+  }
+
+  /** Verifica che la visita unica produca lo stesso tipo delle scansioni separate dei membri. */
+  @Test
+  public void testSamePassResultAsMemberScans() {
+    CompilationUnit cu =
+        parse(
+            "package p; import java.util.List;"
+                + " public class Shop extends Base implements Api {"
+                + "   public Shop(int n) { }"
+                + "   void sell(Item item) { }"
+                + "   private List<Item> items;"
+                + "   { counter++; }"
+                + "   static int counter;"
+                + "   Shop() { }"
+                + "   class Nested { Other other; }"
+                + "   protected Item first() { return null; }"
+                + " }");
+    UMLClass expected =
+        MemberScanExtractor.processType(
+                (ClassOrInterfaceDeclaration) cu.getType(0), "p", UMLTypeClassifier.defaults())
+            .addImport("java.util.List")
+            .build();
+
+    List<UMLClass> types = UMLProcessor.extract(cu);
+
+    assertEquals(1, types.size());
+    UMLClass shop = types.get(0);
+    assertEquals(expected.getMembers().toString(), shop.getMembers().toString());
+    assertEquals(expected.getRelationships(), shop.getRelationships());
+    assertEquals(expected.getImports(), shop.getImports());
+    // Attributi, costruttori e metodi, ciascuno nell'ordine di dichiarazione
+    assertEquals(UMLMember.Kind.FIELD, shop.getMembers().get(1).getKind());
+    assertEquals(UMLMember.Kind.CONSTRUCTOR, shop.getMembers().get(3).getKind());
+    assertEquals(UMLMember.Kind.METHOD, shop.getMembers().get(4).getKind());
+  }
+
+  /** Verifica l'estrazione di record, enum e dichiarazioni non rappresentate. */
+  @Test
+  public void testRecordsEnumsAndOtherTypes() {
+    List<UMLClass> types =
+        UMLProcessor.extract(
+            parse(
+                "package p;"
+                    + " public record Order(String id, @Composition Customer customer)"
+                    + "     implements Api {"
+                    + "   public Order { }"
+                    + "   int size() { return 0; }"
+                    + "   record Line(int qty) { }"
+                    + " }"
+                    + " enum Status { OPEN, CLOSED; void close() { } }"
+                    + " @interface Marker { }"));
+
+    assertEquals(3, types.size());
+    UMLClass order = types.get(0);
+    assertEquals(UMLClass.Kind.CLASS, order.getKind());
+    assertEquals("- {final} id : String", order.getMembers().get(0).toString());
+    assertEquals(UMLMember.Kind.METHOD, order.getMembers().get(2).getKind());
+    assertEquals(3, order.getMembers().size());
+    assertEquals(
+        "customer", order.getRelationships(RelationshipType.COMPOSITION).get(0).getLabel());
+    assertEquals(1, order.getRelationships(RelationshipType.IMPLEMENTATION).size());
+
+    assertEquals(UMLClass.Kind.ENUM, types.get(1).getKind());
+    assertEquals(2, types.get(1).getMembers().size());
+    assertEquals(UMLClass.Kind.OTHER, types.get(2).getKind());
+  }
+}
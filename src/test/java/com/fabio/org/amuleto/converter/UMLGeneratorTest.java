@@ -3,6 +3,8 @@ package com.fabio.org.amuleto.converter;
 import static org.junit.Assert.*;
 
 import java.io.File;
+import java.nio.file.Files;
+import java.util.Arrays;
 
 import com.fabio.org.amuleto.loader.ConfigLoader;
 import org.junit.Test;
@@ -61,4 +63,57 @@ public class UMLGeneratorTest {
     // Verifica che il file SVG di output sia stato correttamente creato
     assertTrue(outputFile.exists());
   }
+
+  /**
+   * Verifica che il parsing parallelo produca un diagramma identico, byte per byte, a quello di
+   * un'esecuzione sequenziale sul progetto di esempio.
+   *
+   * @throws Exception Se si verifica un errore durante la generazione del diagramma.
+   */
+  @Test
+  public void testParallelParseIsDeterministic() throws Exception {
+    File sourceDir = new File("aMULetoTestProject/src/main/java");
+
+    UMLGenerationOptions sequential = new UMLGenerationOptions();
+    sequential.setParserThreads(1);
+    File sequentialOutput = File.createTempFile("amuleto-seq", ".puml");
+    UMLGenerator.generateFromDirectory(sourceDir, sequentialOutput, sequential);
+
+    UMLGenerationOptions parallel = new UMLGenerationOptions();
+    parallel.setParserThreads(4);
+    File parallelOutput = File.createTempFile("amuleto-par", ".puml");
+    UMLGenerator.generateFromDirectory(sourceDir, parallelOutput, parallel);
+
+    byte[] expected = Files.readAllBytes(sequentialOutput.toPath());
+    assertTrue(new String(expected, "UTF-8").contains("class Corso"));
+    assertArrayEquals(expected, Files.readAllBytes(parallelOutput.toPath()));
+    sequentialOutput.delete();
+    parallelOutput.delete();
+  }
+
+  /**
+   * Verifica che un'unica generazione produca sorgente PlantUML e immagine, e che il sorgente sia
+   * identico a quello del generatore testuale.
+   *
+   * @throws Exception Se si verifica un errore durante la generazione del diagramma.
+   */
+  @Test
+  public void testGenerateMultipleOutputs() throws Exception {
+    File sourceDir = new File("aMULetoTestProject/src/main/java");
+    File expected = File.createTempFile("amuleto-text", ".puml");
+    UMLGenerator.generateFromDirectory(sourceDir, expected, new UMLGenerationOptions());
+
+    File source = File.createTempFile("amuleto-multi", ".puml");
+    File image = File.createTempFile("amuleto-multi", ".svg");
+    UMLGenerator.generate(
+        sourceDir,
+        Arrays.asList(UMLGenerator.Output.forFile(source), UMLGenerator.Output.forFile(image)),
+        new UMLGenerationOptions());
+
+    assertArrayEquals(Files.readAllBytes(expected.toPath()), Files.readAllBytes(source.toPath()));
+    assertTrue(image.length() > 0);
+    expected.delete();
+    source.delete();
+    image.delete();
+  }
 }
@@ -0,0 +1,83 @@
+package com.fabio.org.amuleto.converter;
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+
+import com.fabio.org.amuleto.model.UMLClass;
+import com.fabio.org.amuleto.model.UMLMember;
+import com.fabio.org.amuleto.view.RelationshipType;
+import org.junit.Test;
+
+public class UMLMemberDetailTest {
+
+  private static final String SOURCE =
+      "package p; import q.Address;"
+          + " public class Person {"
+          + "   private String name; private Address address; private boolean active;"
+          + "   public Person(String name) { }"
+          + "   public String getName() { return name; }"
+          + "   public void setName(String name) { }"
+          + "   public boolean isActive() { return active; }"
+          + "   protected void validate() { }"
+          + "   void reset() { }"
+          + "   public int getName(int i) { return i; }"
+          + " }";
+
+  private static List<UMLClass> extract() {
+    return UMLTestModels.extractFile(SOURCE);
+  }
+
+  private static String members(UMLClass umlClass) {
+    StringBuilder text = new StringBuilder();
+    for (UMLMember member : umlClass.getMembers()) {
+      text.append(member).append('\n');
+    }
+    return text.toString();
+  }
+
+  /** Verifica i livelli di visibilità e che le relazioni restino invariate. */
+  @Test
+  public void testLevels() {
+    UMLGenerationReport report = new UMLGenerationReport();
+    UMLClass publicOnly =
+        new UMLMemberDetail(UMLMemberDetail.Level.PUBLIC, false).apply(extract(), report).get(0);
+    assertEquals(
+        "+ Person(name : String)\n"
+            + "+ getName() : String\n"
+            + "+ setName(name : String) : void\n"
+            + "+ isActive() : boolean\n"
+            + "+ getName(i : int) : int\n",
+        members(publicOnly));
+    // L'associazione dell'attributo privato escluso resta
+    assertEquals(1, publicOnly.getRelationships(RelationshipType.ASSOCIATION).size());
+    assertEquals(10, report.getExtractedMembers());
+    assertEquals(5, report.getKeptMembers());
+    assertTrue(report.getSavedChars() > 0);
+
+    UMLClass withProtected =
+        new UMLMemberDetail(UMLMemberDetail.Level.PROTECTED, false).apply(extract(), null).get(0);
+    assertTrue(members(withProtected).contains("# validate() : void\n"));
+    assertFalse(members(withProtected).contains("reset()"));
+
+    UMLClass names =
+        new UMLMemberDetail(UMLMemberDetail.Level.NAMES, false).apply(extract(), null).get(0);
+    assertTrue(names.getMembers().isEmpty());
+    // Il livello predefinito non copia i tipi
+    List<UMLClass> all = extract();
+    assertSame(all, UMLMemberDetail.defaults().apply(all, null));
+  }
+
+  /** Verifica la riduzione di getter e setter a proprietà degli attributi. */
+  @Test
+  public void testCollapseAccessors() {
+    UMLClass collapsed =
+        new UMLMemberDetail(UMLMemberDetail.Level.PUBLIC, true).apply(extract(), null).get(0);
+    assertEquals(
+        "+ name : String {get, set}\n"
+            + "+ active : boolean {get}\n"
+            + "+ Person(name : String)\n"
+            + "+ getName(i : int) : int\n",
+        members(collapsed));
+  }
+}
@@ -0,0 +1,57 @@
+package com.fabio.org.amuleto.converter;
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+
+import com.fabio.org.amuleto.model.UMLClass;
+import org.junit.Test;
+
+public class UMLPackageOverviewTest {
+
+  private static List<List<UMLClass>> project() {
+    return UMLTestModels.extract(
+        "package a.x; import b.Order; public class Customer { Order last; Order[] all; }",
+        "package a.y; import b.Order; public class Cart extends a.x.Customer {"
+            + " void add(Order o) { } void remove(Order o) { } }",
+        "package b; import a.x.Customer; public class Order { Customer owner; }",
+        "package b; public class Invoice { Order order; }",
+        "public class Main { }");
+  }
+
+  /** Verifica il nome dei nodi in base alla profondità del prefisso. */
+  @Test
+  public void testGroupName() {
+    assertEquals("a.b.c", UMLPackageOverview.groupName("a.b.c", 0));
+    assertEquals("a", UMLPackageOverview.groupName("a.b.c", 1));
+    assertEquals("a.b", UMLPackageOverview.groupName("a.b.c", 2));
+    assertEquals("a.b.c", UMLPackageOverview.groupName("a.b.c", 5));
+    assertEquals(UMLPackageOverview.DEFAULT_PACKAGE, UMLPackageOverview.groupName("", 1));
+  }
+
+  /** Verifica i nodi, gli archi pesati e il sorgente PlantUML emesso. */
+  @Test
+  public void testWeightedEdges() {
+    UMLPackageOverview byPackage = UMLPackageOverview.of(project(), 0, null);
+    assertEquals(4, byPackage.getGroupCount());
+    assertEquals("(default)", byPackage.getGroupName(0));
+    assertEquals("a.x", byPackage.getGroupName(1));
+    assertEquals(2, byPackage.getGroupSize(3));
+
+    UMLPackageOverview byPrefix = UMLPackageOverview.of(project(), 1, null);
+    assertEquals(3, byPrefix.getGroupCount());
+    assertEquals(2, byPrefix.getEdgeCount());
+    // a -> b: due associazioni di Customer e una dipendenza (ripetuta) di Cart
+    assertEquals(1, byPrefix.getEdgeSource(0));
+    assertEquals(2, byPrefix.getEdgeTarget(0));
+    assertEquals(3, byPrefix.getEdgeWeight(0));
+    // b -> a: l'associazione di Order; quella tra Invoice e Order è interna a b
+    assertEquals(1, byPrefix.getEdgeWeight(1));
+
+    String uml = UMLDiagramBuilder.buildOverviewBody(project(), 1, null);
+    assertTrue(uml.contains("package \"a\" as P1 <<2 tipi>> {\n}\n"));
+    assertTrue(uml.contains("package \"(default)\" as P0 <<1 tipo>> {\n}\n"));
+    assertTrue(uml.contains("P1 ..> P2 : 3\nP2 ..> P1 : 1\n"));
+    assertFalse(uml.contains("class "));
+  }
+}
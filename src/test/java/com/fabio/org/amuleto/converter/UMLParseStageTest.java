@@ -0,0 +1,144 @@
+package com.fabio.org.amuleto.converter;
+
+import static org.junit.Assert.*;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import com.fabio.org.amuleto.model.UMLClass;
+import com.github.javaparser.ParseProblemException;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class UMLParseStageTest {
+
+  @Rule public TemporaryFolder tmp = new TemporaryFolder();
+
+  private List<Path> sources() throws Exception {
+    Path a = tmp.newFile("A.java").toPath();
+    Path broken = tmp.newFile("Broken.java").toPath();
+    Path b = tmp.newFile("B.java").toPath();
+    Files.writeString(a, "package p; public class A { private int n; }");
+    Files.writeString(broken, "package p; public class Broken { void f( }");
+    Files.writeString(b, "package p; public class B extends A {}");
+    return Arrays.asList(a, broken, b);
+  }
+
+  /**
+   * Verifica che un sorgente non UTF-8 (un commento in Latin-1) venga analizzato in entrambe le
+   * modalità di parsing.
+   */
+  @Test
+  public void testNonUtf8Source() throws Exception {
+    Path latin1 = tmp.newFile("Latin1.java").toPath();
+    Files.write(
+        latin1,
+        "package p; /** Identità */ public class Latin1 { void f() {} }"
+            .getBytes(StandardCharsets.ISO_8859_1));
+    for (boolean declarationsOnly : new boolean[] {false, true}) {
+      UMLGenerationOptions options = new UMLGenerationOptions();
+      options.setDeclarationsOnly(declarationsOnly);
+
+      List<List<UMLClass>> result =
+          UMLParseStage.extractAll(Arrays.asList(latin1), options, new UMLGenerationReport());
+
+      assertEquals("Latin1", result.get(0).get(0).getName());
+    }
+  }
+
+  /** Verifica che con il limite predefinito il primo errore interrompa il parsing. */
+  @Test(expected = ParseProblemException.class)
+  public void testFailsFastByDefault() throws Exception {
+    UMLParseStage.extractAll(sources(), new UMLGenerationOptions(), new UMLGenerationReport());
+  }
+
+  /** Verifica che i file non analizzabili vengano ignorati e registrati nel resoconto. */
+  @Test
+  public void testContinuesWithinErrorBudget() throws Exception {
+    List<Path> files = sources();
+    for (int threads : new int[] {1, 4}) {
+      UMLGenerationOptions options = new UMLGenerationOptions();
+      options.setParserThreads(threads);
+      options.setMaxParseErrors(1);
+      UMLGenerationReport report = new UMLGenerationReport();
+
+      List<List<UMLClass>> result = UMLParseStage.extractAll(files, options, report);
+
+      assertEquals(3, result.size());
+      assertEquals("A", result.get(0).get(0).getName());
+      assertTrue(result.get(1).isEmpty());
+      assertEquals("B", result.get(2).get(0).getName());
+      assertEquals(2, report.getParsedFiles());
+      assertEquals(1, report.getSkippedFiles().size());
+      assertEquals(files.get(1), report.getSkippedFiles().get(0).getPath());
+    }
+  }
+
+  /** Verifica che un file che supera il timeout venga ignorato senza bloccare gli altri. */
+  @Test
+  public void testTimeoutSkipsFile() throws Exception {
+    // Sorgente molto grande: il suo parsing non può terminare entro un millisecondo
+    StringBuilder source = new StringBuilder("package p; public class Big {\n");
+    for (int i = 0; i < 20000; i++) {
+      source.append("  int f").append(i).append("() { return ").append(i).append("; }\n");
+    }
+    source.append("}\n");
+    Path big = tmp.newFile("Big.java").toPath();
+    Files.writeString(big, source);
+    UMLGenerationOptions options = new UMLGenerationOptions();
+    options.setParserThreads(1);
+    options.setParseTimeoutMillis(1);
+    options.setMaxParseErrors(-1);
+    UMLGenerationReport report = new UMLGenerationReport();
+
+    List<List<UMLClass>> result = UMLParseStage.extractAll(Arrays.asList(big), options, report);
+
+    assertTrue(result.get(0).isEmpty());
+    assertEquals(1, report.getSkippedFiles().size());
+    assertTrue(report.getSkippedFiles().get(0).getReason().startsWith("Timeout"));
+  }
+
+  /**
+   * Verifica che con un solo thread un file che non termina mai, e che ignora l'interruzione come
+   * il parser, non blocchi il file successivo.
+   */
+  @Test(timeout = 30000)
+  public void testTimeoutDoesNotBlockQueuedFiles() throws Exception {
+    Path stuck = tmp.newFile("Stuck.java").toPath();
+    Path next = tmp.newFile("Next.java").toPath();
+    UMLGenerationOptions options = new UMLGenerationOptions();
+    options.setParserThreads(1);
+    options.setParseTimeoutMillis(200);
+    options.setMaxParseErrors(-1);
+    UMLGenerationReport report = new UMLGenerationReport();
+    CountDownLatch release = new CountDownLatch(1);
+    try {
+      List<String> result =
+          UMLParseStage.runAll(
+              Arrays.asList(stuck, next),
+              options,
+              file -> {
+                while (file.equals(stuck) && release.getCount() > 0) {
+                  try {
+                    release.await();
+                  } catch (InterruptedException e) {
+                    // Come il parser, il task non reagisce all'interruzione
+                  }
+                }
+                return file.getFileName().toString();
+              },
+              report);
+
+      assertEquals(Arrays.asList(null, "Next.java"), result);
+      assertEquals(1, report.getParsedFiles());
+      assertEquals(stuck, report.getSkippedFiles().get(0).getPath());
+    } finally {
+      release.countDown();
+    }
+  }
+}
@@ -0,0 +1,58 @@
+package com.fabio.org.amuleto.converter;
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+
+import com.fabio.org.amuleto.model.UMLClass;
+import org.junit.Test;
+
+public class UMLRelationshipIndexTest {
+
+  private static int occurrences(String text, String line) {
+    int count = 0;
+    for (String candidate : text.split("\n")) {
+      if (candidate.equals(line)) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Verifica che le dipendenze ripetute vengano emesse una sola volta e che una dipendenza non
+   * venga scartata solo perché la sua riga è contenuta in quella di un altro tipo.
+   */
+  @Test
+  public void testDependenciesAreDeduplicatedByEdge() {
+    String uml =
+        UMLDiagramBuilder.buildBody(
+            UMLTestModels.extract(
+                "class XA { void f(B b) { } void g(B b) { } }",
+                "class A { void f(B b) { } }",
+                "class B { }"),
+            null,
+            null);
+
+    assertEquals(1, occurrences(uml, "XA ..> B : uses"));
+    assertEquals(1, occurrences(uml, "A ..> B : uses"));
+  }
+
+  /** Verifica che gli archi ripetuti vengano registrati una sola volta, nell'ordine di arrivo. */
+  @Test
+  public void testKeepsFirstInsertionOrder() {
+    UMLRelationshipIndex index = new UMLRelationshipIndex();
+    for (List<UMLClass> classes :
+        UMLTestModels.extract(
+            "class A extends B { C c; }", "class B { }", "class A extends B { C c; }")) {
+      for (UMLClass umlClass : classes) {
+        umlClass.getRelationships().forEach(index::add);
+      }
+    }
+
+    StringBuilder uml = new StringBuilder();
+    index.appendTo(uml);
+    assertEquals(2, index.size());
+    assertEquals("A \"1\" --> \"1\" C : c\nB <|-- A\n", uml.toString());
+  }
+}
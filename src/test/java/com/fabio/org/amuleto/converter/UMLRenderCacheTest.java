@@ -0,0 +1,80 @@
+package com.fabio.org.amuleto.converter;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import net.sourceforge.plantuml.FileFormat;
+import org.junit.Test;
+
+public class UMLRenderCacheTest {
+
+  private static final String UML = "@startuml\n!pragma layout smetana\nclass A\n@enduml";
+
+  /** Verifica che la chiave dipenda dal testo, dal formato e dal motore di layout. */
+  @Test
+  public void testKey() {
+    String key = UMLRenderCache.key(UML, FileFormat.SVG, "smetana");
+    assertEquals(key, UMLRenderCache.key(UML, FileFormat.SVG, "smetana"));
+    assertNotEquals(key, UMLRenderCache.key(UML, FileFormat.PNG, "smetana"));
+    assertNotEquals(key, UMLRenderCache.key(UML + "\n", FileFormat.SVG, "smetana"));
+    assertNotEquals(key, UMLRenderCache.key(UML, FileFormat.SVG, "dot 2.43.0"));
+    assertEquals("smetana", UMLRenderCache.layoutEngine(UML));
+  }
+
+  /** Verifica che un sorgente già renderizzato riusi l'immagine della cache. */
+  @Test
+  public void testCacheHit() throws Exception {
+    Path directory = Files.createTempDirectory("amuleto-render");
+    UMLRenderCache cache = UMLRenderCache.open(directory.toFile(), false);
+    File output = directory.resolve("diagramma.svg").toFile();
+    cache.render(UML, output, FileFormat.SVG);
+    Path entry =
+        directory
+            .resolve("render")
+            .resolve(UMLRenderCache.key(UML, FileFormat.SVG, "smetana") + ".svg");
+    assertArrayEquals(Files.readAllBytes(entry), Files.readAllBytes(output.toPath()));
+
+    // Una voce alterata dimostra che il secondo rendering non passa da PlantUML
+    Files.write(entry, "<svg/>".getBytes(StandardCharsets.UTF_8));
+    cache.render(UML, output, FileFormat.SVG);
+    assertEquals("<svg/>", Files.readString(output.toPath()));
+  }
+
+  /** Verifica che l'immagine di errore di un sorgente non valido non venga memorizzata. */
+  @Test
+  public void testErrorImageNotCached() throws Exception {
+    Path directory = Files.createTempDirectory("amuleto-render");
+    File output = directory.resolve("diagramma.svg").toFile();
+    UMLRenderCache.open(directory.toFile(), false)
+        .render("@startuml\n!pragma layout smetana\nclass A {{{\n@enduml", output, FileFormat.SVG);
+
+    assertTrue(output.length() > 0);
+    assertFalse(Files.exists(directory.resolve("render")));
+  }
+
+  /** Verifica che con la scrittura condizionata un file invariato non venga riscritto. */
+  @Test
+  public void testSkipUnchanged() throws Exception {
+    Path file = Files.createTempFile("amuleto-output", ".svg");
+    byte[] content = "<svg/>".getBytes(StandardCharsets.UTF_8);
+    Files.write(file, content);
+    FileTime old = FileTime.fromMillis(1_000_000_000_000L);
+    Files.setLastModifiedTime(file, old);
+
+    UMLRenderCache skipping = UMLRenderCache.open(null, true);
+    assertFalse(skipping.write(file, content));
+    assertEquals(old, Files.getLastModifiedTime(file));
+    assertTrue(skipping.write(file, "<svg></svg>".getBytes(StandardCharsets.UTF_8)));
+    assertNotEquals(old, Files.getLastModifiedTime(file));
+
+    Path written = Files.createTempFile("amuleto-output", ".tmp");
+    Files.write(written, "<svg></svg>".getBytes(StandardCharsets.UTF_8));
+    assertFalse(skipping.replace(file, written));
+    assertFalse(Files.exists(written));
+  }
+}
@@ -0,0 +1,65 @@
+package com.fabio.org.amuleto.converter;
+
+import static org.junit.Assert.*;
+
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.ParserConfiguration;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.body.ClassOrInterfaceDeclaration;
+import org.junit.Test;
+
+public class UMLSignatureLexerTest {
+
+  private static final String SOURCE =
+      "package p;\n"
+          + "/* commento { */\n"
+          + "@Ann(values = {\"a\", \"}\"}, type = Foo.class)\n"
+          + "public class A extends B implements C {\n"
+          + "  private int[] numbers = {1, 2};\n"
+          + "  private Runnable task = () -> { System.out.println(\"{\"); };\n"
+          + "  static { init(); }\n"
+          + "  public A(String s) { this.s = s + '}'; }\n"
+          + "  public int record() { if (x) { return 1; } return 2; }\n"
+          + "  enum Kind { ONE { void f() { } }, TWO; void g() { int y = 0; } }\n"
+          + "  record Point(int x, int y) { Point { check(x); } }\n"
+          + "  interface I { default void h() { h(); } }\n"
+          + "}\n";
+
+  /** Verifica che i corpi vengano svuotati mantenendo firme, inizializzatori e a capo. */
+  @Test
+  public void testStripBodies() {
+    String stripped = UMLSignatureLexer.stripBodies(SOURCE);
+
+    assertFalse(stripped.contains("init()"));
+    assertFalse(stripped.contains("return 1"));
+    assertFalse(stripped.contains("check(x)"));
+    assertFalse(stripped.contains("commento"));
+    assertTrue(stripped.contains("private int[] numbers = {1, 2};"));
+    assertTrue(stripped.contains("System.out.println(\"{\")"));
+    assertTrue(stripped.contains("public int record() {}"));
+    assertEquals(
+        SOURCE.chars().filter(c -> c == '\n').count(),
+        stripped.chars().filter(c -> c == '\n').count());
+  }
+
+  /** Verifica che il sorgente ridotto sia ancora valido e conservi tutte le dichiarazioni. */
+  @Test
+  public void testStrippedSourceParsesWithSameMembers() {
+    // Livello 17 per poter usare i record nel sorgente di prova
+    ParserConfiguration configuration =
+        new ParserConfiguration().setLanguageLevel(ParserConfiguration.LanguageLevel.JAVA_17);
+    CompilationUnit full = new JavaParser(configuration).parse(SOURCE).getResult().get();
+    CompilationUnit stripped =
+        new JavaParser(configuration)
+            .parse(UMLSignatureLexer.stripBodies(SOURCE))
+            .getResult()
+            .get();
+
+    ClassOrInterfaceDeclaration expected = full.getClassByName("A").get();
+    ClassOrInterfaceDeclaration actual = stripped.getClassByName("A").get();
+    assertEquals(expected.getMembers().size(), actual.getMembers().size());
+    assertEquals(expected.getFields().toString(), actual.getFields().toString());
+    assertEquals(expected.getExtendedTypes(), actual.getExtendedTypes());
+    assertEquals(expected.getMethods().size(), actual.getMethods().size());
+  }
+}
@@ -0,0 +1,86 @@
+package com.fabio.org.amuleto.converter;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import com.fabio.org.amuleto.model.UMLClass;
+import com.fabio.org.amuleto.model.UMLRelationship;
+import org.junit.Test;
+
+public class UMLSymbolIndexTest {
+
+  /** Verifica la risoluzione tramite stesso package, importazioni esplicite e su richiesta. */
+  @Test
+  public void testResolvesByImportsAndPackage() {
+    List<List<UMLClass>> classes =
+        UMLTestModels.extract(
+            "package a; public class Node { }",
+            "package b; public class Node { }",
+            "package a; import java.util.List; public class User { Node node; }",
+            "package c; import b.Node; import a.*; public class Client { User user; }",
+            "package d; import b.*; public class Other { }",
+            "package e; import x.Node; public class External { }");
+    UMLSymbolIndex symbols = new UMLSymbolIndex();
+    classes.forEach(file -> file.forEach(symbols::add));
+    UMLClass user = classes.get(2).get(0);
+    UMLClass client = classes.get(3).get(0);
+    UMLClass other = classes.get(4).get(0);
+    UMLClass external = classes.get(5).get(0);
+
+    assertEquals(Arrays.asList("a.Node", "b.Node"), symbols.getQualifiedNames("Node"));
+    assertEquals("a.Node", symbols.resolve(user, "Node"));
+    assertEquals("b.Node", symbols.resolve(client, "Node"));
+    assertEquals("a.User", symbols.resolve(client, "User"));
+    assertEquals("b.Node", symbols.resolve(other, "Node"));
+    // Un'importazione esplicita di un tipo esterno nasconde i tipi del progetto
+    assertNull(symbols.resolve(external, "Node"));
+    // Nome semplice univoco nel progetto, anche senza importazione
+    assertEquals("a.User", symbols.resolve(external, "User"));
+    assertNull(symbols.resolve(user, "List"));
+    assertEquals("a.Node", symbols.displayName("a.Node"));
+    assertEquals("User", symbols.displayName("a.User"));
+  }
+
+  /** Verifica che la risoluzione a blocchi dia le stesse relazioni di quella in un'unica volta. */
+  @Test
+  public void testResolveInChunks() {
+    List<UMLClass> types = new ArrayList<>();
+    UMLTestModels.extract(
+            "package a; public class A { B b; }",
+            "package a; public class B extends A { void f(C c) { } }",
+            "package a; public class C { A[] all; }",
+            "package a; public class D { }",
+            "package a; public class E implements Runnable { D d; }")
+        .forEach(types::addAll);
+    UMLSymbolIndex symbols = new UMLSymbolIndex();
+    types.forEach(symbols::add);
+
+    List<List<UMLRelationship>> chunked = new ArrayList<>();
+    symbols.resolveInChunks(types, 2).forEachRemaining(chunked::add);
+    assertEquals(symbols.resolveAll(types), chunked);
+    assertFalse(symbols.resolveInChunks(Collections.emptyList(), 2).hasNext());
+  }
+
+  /** Verifica che nel diagramma i tipi omonimi vengano collegati con il nome qualificato. */
+  @Test
+  public void testHomonymousTypesAreQualifiedInDiagram() {
+    String uml =
+        UMLDiagramBuilder.buildBody(
+            UMLTestModels.extract(
+                "package a; public class Node { }",
+                "package b; public class Node { }",
+                "package a; public class User { Node node; void f(b.Node other) { } }",
+                "package c; import b.Node; public class Client extends Node { Node[] nodes; }"),
+            null,
+            null);
+
+    assertTrue(uml.contains("User \"1\" --> \"1\" a.Node : node\n"));
+    assertTrue(uml.contains("User ..> b.Node : uses\n"));
+    assertTrue(uml.contains("Client \"1\" --> \"1\" b.Node[] : nodes\n"));
+    assertTrue(uml.contains("b.Node <|-- Client\n"));
+  }
+}
@@ -0,0 +1,30 @@
+package com.fabio.org.amuleto.converter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.fabio.org.amuleto.model.UMLClass;
+import com.github.javaparser.JavaParser;
+
+/** Modelli di prova estratti da sorgenti in memoria, condivisi dai test del package. */
+final class UMLTestModels {
+
+  private UMLTestModels() {}
+
+  /**
+   * Estrae i tipi dei sorgenti indicati, un elemento per sorgente come per i file di un progetto.
+   */
+  static List<List<UMLClass>> extract(String... sources) {
+    JavaParser parser = new JavaParser();
+    List<List<UMLClass>> model = new ArrayList<>(sources.length);
+    for (String source : sources) {
+      model.add(UMLProcessor.extract(parser.parse(source).getResult().get()));
+    }
+    return model;
+  }
+
+  /** Estrae i tipi di un singolo sorgente. */
+  static List<UMLClass> extractFile(String source) {
+    return extract(source).get(0);
+  }
+}
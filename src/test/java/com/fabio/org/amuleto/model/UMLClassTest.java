@@ -0,0 +1,94 @@
+package com.fabio.org.amuleto.model;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import com.fabio.org.amuleto.view.RelationshipType;
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+public class UMLClassTest extends TestCase {
+
+  /**
+   * Costruttore per inizializzare il test con il nome fornito.
+   *
+   * @param name Il nome del test.
+   */
+  public UMLClassTest(String name) {
+    super(name);
+  }
+
+  /**
+   * Definisce la suite di test da eseguire. In questo caso, la suite contiene i test per il modello
+   * intermedio (UMLClass, UMLMember e UMLRelationship).
+   *
+   * @return La suite di test.
+   */
+  public static Test suite() {
+    return new TestSuite(UMLClassTest.class);
+  }
+
+  /** Verifica la resa PlantUML dei membri. */
+  public void testMemberRendering() {
+    assertEquals(
+        "- {static} {final} LIMIT : int {readonly}",
+        UMLMember.field("-", true, true, "LIMIT", "int", Arrays.asList("readonly")).toString());
+    assertEquals(
+        "+ Shop(name : String, size : int)",
+        UMLMember.constructor(
+                "+",
+                "Shop",
+                Arrays.asList(
+                    new UMLMember.Parameter("name", "String"),
+                    new UMLMember.Parameter("size", "int")))
+            .toString());
+    assertEquals(
+        "# {abstract} find(name : String) : Item",
+        UMLMember.method(
+                "#",
+                false,
+                false,
+                true,
+                "find",
+                Arrays.asList(new UMLMember.Parameter("name", "String")),
+                "Item")
+            .toString());
+    assertEquals("RED", UMLMember.enumConstant("RED").toString());
+  }
+
+  /** Verifica la resa PlantUML e l'uguaglianza delle relazioni. */
+  public void testRelationshipRendering() {
+    UMLRelationship composition =
+        new UMLRelationship(RelationshipType.COMPOSITION, "Shop", "Item", "items", "1", "0..*");
+    assertEquals("Shop \"1\" *-->\"0..*\" Item : items", composition.toString());
+    assertEquals(
+        composition,
+        new UMLRelationship(RelationshipType.COMPOSITION, "Shop", "Item", "items", "1", "0..*"));
+    assertFalse(
+        composition.equals(
+            new UMLRelationship(
+                RelationshipType.AGGREGATION, "Shop", "Item", "items", "1", "0..*")));
+    assertEquals(
+        "Base <|-- Shop",
+        new UMLRelationship(RelationshipType.INHERITANCE, "Shop", "Base", null, null, null)
+            .toString());
+  }
+
+  /** Verifica che il tipo costruito non sia modificabile né influenzato dal costruttore. */
+  public void testBuiltClassIsImmutable() {
+    UMLClass.Builder builder = new UMLClass.Builder("p", "Shop", UMLClass.Kind.CLASS);
+    builder.addMember(UMLMember.field("-", false, false, "n", "int", Collections.emptyList()));
+    UMLClass umlClass = builder.build();
+    builder.addMember(UMLMember.enumConstant("X"));
+
+    assertEquals(1, umlClass.getMembers().size());
+    assertEquals("p.Shop", umlClass.toString());
+    try {
+      umlClass.getMembers().add(UMLMember.enumConstant("Y"));
+      fail();
+    } catch (UnsupportedOperationException e) {
+      // atteso
+    }
+  }
+}
@@ -0,0 +1,118 @@
+package com.fabio.org.amuleto.utils;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Confronta le verifiche storiche di {@code UMLUtils} ({@code isPrimitiveOrJavaType} con {@code
+ * Arrays.asList} e una catena di {@code startsWith}, {@code isCollectionType} con sei confronti)
+ * con la tabella precompilata di {@link UMLTypeClassifier}, su un insieme di tipi tipici di
+ * attributi e parametri. Il profilo {@code gc} riporta in {@code gc.alloc.rate.norm} i byte
+ * allocati per operazione, cioè per la classificazione dell'intero insieme.
+ *
+ * <p>Esecuzione: {@code mvn -Pbench test-compile exec:exec -Dbench=TypeClassificationBenchmark}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TypeClassificationBenchmark {
+
+  private final String[] types = {
+    "int",
+    "long",
+    "boolean",
+    "String",
+    "String[]",
+    "Integer",
+    "StringUtils",
+    "BigDecimal",
+    "LocalDate",
+    "List<Item>",
+    "Map<String, Item>",
+    "Optional<Customer>",
+    "Set<Order>",
+    "java.util.List<Item>",
+    "Item",
+    "Customer",
+    "OrderRepository",
+    "T",
+    "Item[]",
+    "CompletableFuture<Result>"
+  };
+
+  private final String[] rawNames = {
+    "List", "Set", "Map", "Optional", "Stream", "ArrayList", "Item", "Customer", "String", "T"
+  };
+
+  private final UMLTypeClassifier classifier = UMLTypeClassifier.defaults();
+
+  @Benchmark
+  public void legacyIsPrimitiveOrJavaType(Blackhole bh) {
+    for (String type : types) {
+      bh.consume(legacyIsPrimitiveOrJavaType(type));
+    }
+  }
+
+  @Benchmark
+  public void classifierIsValueType(Blackhole bh) {
+    for (String type : types) {
+      bh.consume(classifier.isValueType(type));
+    }
+  }
+
+  @Benchmark
+  public void legacyIsCollectionType(Blackhole bh) {
+    for (String name : rawNames) {
+      bh.consume(legacyIsCollectionType(name));
+    }
+  }
+
+  @Benchmark
+  public void classifierIsContainer(Blackhole bh) {
+    for (String name : rawNames) {
+      bh.consume(classifier.isContainer(name));
+    }
+  }
+
+  /** Implementazione storica di {@code UMLUtils.isPrimitiveOrJavaType}. */
+  static boolean legacyIsPrimitiveOrJavaType(String typeName) {
+    List<String> primitives =
+        Arrays.asList("int", "short", "long", "double", "float", "boolean", "char", "byte");
+    if (primitives.contains(typeName)) {
+      return true;
+    }
+    return typeName.startsWith("String")
+        || typeName.startsWith("Integer")
+        || typeName.startsWith("Long")
+        || typeName.startsWith("Double")
+        || typeName.startsWith("Float")
+        || typeName.startsWith("Boolean")
+        || typeName.startsWith("Character")
+        || typeName.startsWith("Byte");
+  }
+
+  /** Implementazione storica di {@code UMLUtils.isCollectionType}. */
+  static boolean legacyIsCollectionType(String typeName) {
+    return typeName.equals("List")
+        || typeName.equals("Set")
+        || typeName.equals("Collection")
+        || typeName.equals("ArrayList")
+        || typeName.equals("LinkedList")
+        || typeName.equals("HashSet");
+  }
+}
@@ -0,0 +1,102 @@
+package com.fabio.org.amuleto.utils;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class UMLSourceScannerTest {
+
+  @Rule public TemporaryFolder tmp = new TemporaryFolder();
+
+  private Path touch(Path root, String relative) throws Exception {
+    Path file = root.resolve(relative);
+    Files.createDirectories(file.getParent());
+    Files.write(file, new byte[0]);
+    return file;
+  }
+
+  /**
+   * Verifica che lo scanner restituisca i soli file Java, in ordine, saltando le directory di build
+   * escluse di default.
+   */
+  @Test
+  public void testScanSkipsDefaultExcludes() throws Exception {
+    Path root = tmp.getRoot().toPath();
+    Path b = touch(root, "src/b/B.java");
+    Path a = touch(root, "src/a/A.java");
+    touch(root, "src/a/readme.txt");
+    touch(root, "target/generated/G.java");
+    touch(root, "node_modules/x/X.java");
+
+    List<Path> files = new UMLSourceScanner().scan(root);
+
+    assertEquals(Arrays.asList(a, b), files);
+  }
+
+  /** Verifica i glob personalizzati, sia sul nome che sul percorso relativo. */
+  @Test
+  public void testScanWithCustomGlobs() throws Exception {
+    Path root = tmp.getRoot().toPath();
+    Path keep = touch(root, "src/main/Keep.java");
+    touch(root, "src/main/KeepTest.java");
+    touch(root, "src/generated/Gen.java");
+
+    UMLSourceScanner scanner =
+        new UMLSourceScanner(
+            Collections.singletonList("*.java"), Arrays.asList("*Test.java", "src/generated"));
+
+    assertEquals(Collections.singletonList(keep), scanner.scan(root));
+  }
+
+  /** Verifica che un link simbolico verso una directory antenata non generi un ciclo infinito. */
+  @Test
+  public void testScanBreaksSymlinkLoops() throws Exception {
+    Path root = tmp.getRoot().toPath();
+    Path a = touch(root, "src/A.java");
+    try {
+      Files.createSymbolicLink(root.resolve("src/loop"), root.resolve("src"));
+    } catch (UnsupportedOperationException | IOException e) {
+      return; // file system senza supporto ai link simbolici
+    }
+
+    assertEquals(Collections.singletonList(a), new UMLSourceScanner().scan(root));
+  }
+
+  /** Verifica che una sottodirectory illeggibile venga ignorata senza interrompere la scansione. */
+  @Test
+  public void testScanSkipsUnreadableDirectories() throws Exception {
+    Path root = tmp.getRoot().toPath();
+    Path a = touch(root, "src/A.java");
+    Path locked = touch(root, "locked/B.java").getParent();
+    try {
+      Files.setPosixFilePermissions(locked, PosixFilePermissions.fromString("---------"));
+    } catch (UnsupportedOperationException e) {
+      return; // file system senza permessi POSIX
+    }
+    try {
+      if (Files.isReadable(locked)) {
+        return; // permessi ignorati, ad esempio per l'utente root
+      }
+      assertEquals(Collections.singletonList(a), new UMLSourceScanner().scan(root));
+    } finally {
+      Files.setPosixFilePermissions(locked, PosixFilePermissions.fromString("rwx------"));
+    }
+  }
+
+  /** Una directory inesistente non produce file né errori. */
+  @Test
+  public void testScanMissingDirectory() throws Exception {
+    Path missing = tmp.getRoot().toPath().resolve("missing");
+    assertTrue(new UMLSourceScanner().scan(missing).isEmpty());
+  }
+}
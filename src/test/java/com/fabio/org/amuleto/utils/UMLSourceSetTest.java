@@ -0,0 +1,85 @@
+package com.fabio.org.amuleto.utils;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import com.fabio.org.amuleto.converter.UMLGenerationOptions;
+import com.fabio.org.amuleto.converter.UMLTextGenerator;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class UMLSourceSetTest {
+
+  @Rule public TemporaryFolder tmp = new TemporaryFolder();
+
+  private Path zip(Path archive, String... namesAndContents) throws Exception {
+    Files.createDirectories(archive.getParent());
+    try (OutputStream out = Files.newOutputStream(archive);
+        ZipOutputStream zip = new ZipOutputStream(out)) {
+      for (int i = 0; i < namesAndContents.length; i += 2) {
+        zip.putNextEntry(new ZipEntry(namesAndContents[i]));
+        zip.write(namesAndContents[i + 1].getBytes(StandardCharsets.UTF_8));
+        zip.closeEntry();
+      }
+    }
+    return archive;
+  }
+
+  /**
+   * Verifica che gli archivi nella directory vengano letti solo se richiesto, dopo i file su disco
+   * e senza estrarli.
+   */
+  @Test
+  public void testReadsArchivesInDirectory() throws Exception {
+    Path root = tmp.getRoot().toPath();
+    Files.createDirectories(root.resolve("src/p"));
+    Files.writeString(root.resolve("src/p/A.java"), "package p; public class A {}");
+    zip(
+        root.resolve("libs/dep-sources.jar"),
+        "META-INF/MANIFEST.MF",
+        "Manifest-Version: 1.0\n",
+        "q/B.java",
+        "package q; public class B {}");
+
+    try (UMLSourceSet sources = UMLSourceSet.open(root, new UMLSourceScanner(), false)) {
+      assertEquals(1, sources.getFiles().size());
+    }
+    try (UMLSourceSet sources = UMLSourceSet.open(root, new UMLSourceScanner(), true)) {
+      List<Path> files = sources.getFiles();
+      assertEquals(2, files.size());
+      assertEquals(root.resolve("src/p/A.java"), files.get(0));
+      assertEquals("/q/B.java", files.get(1).toString());
+      assertEquals("package q; public class B {}", Files.readString(files.get(1)));
+    }
+    assertFalse(Files.exists(root.resolve("libs/q")));
+  }
+
+  /** Verifica che un singolo archivio possa essere passato direttamente ai generatori. */
+  @Test
+  public void testGeneratesFromArchive() throws Exception {
+    Path archive =
+        zip(
+            tmp.getRoot().toPath().resolve("model-sources.zip"),
+            "m/Owner.java",
+            "package m; public class Owner { private Item item; }",
+            "m/Item.java",
+            "package m; public class Item {}");
+    File output = tmp.newFile("out.puml");
+
+    UMLTextGenerator.generateFromDirectory(archive.toFile(), output, new UMLGenerationOptions());
+
+    String uml = Files.readString(output.toPath());
+    assertTrue(uml.contains("class Owner {"));
+    assertTrue(uml.contains("class Item {"));
+    assertTrue(uml.contains("Owner \"1\" --> \"1\" Item : item"));
+  }
+}
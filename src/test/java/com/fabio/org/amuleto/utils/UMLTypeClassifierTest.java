@@ -0,0 +1,61 @@
+package com.fabio.org.amuleto.utils;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class UMLTypeClassifierTest {
+
+  /** Verifica la classificazione predefinita, senza i falsi positivi dei prefissi. */
+  @Test
+  public void testDefaultClassification() {
+    UMLTypeClassifier classifier = UMLTypeClassifier.defaults();
+
+    assertTrue(classifier.isValueType("int"));
+    assertTrue(classifier.isValueType("String[]"));
+    assertTrue(classifier.isValueType("java.math.BigDecimal"));
+    assertFalse(classifier.isValueType("StringUtils"));
+    assertFalse(classifier.isValueType("Integers"));
+    assertFalse(classifier.isValueType("List<String>"));
+
+    assertTrue(classifier.isContainer("Map<String, Item>"));
+    assertTrue(classifier.isContainer("java.util.Optional<Item>"));
+    assertFalse(classifier.isContainer("List<Item>[]"));
+    assertEquals("0..1", classifier.lookup("Optional<Item>").getMultiplicity());
+    assertEquals(UMLTypeClassifier.Category.WRAPPER, classifier.lookup("Supplier").getCategory());
+    assertNull(classifier.lookup("Item"));
+  }
+
+  /** Verifica l'estrazione del tipo dell'elemento alla posizione indicata dalla tabella. */
+  @Test
+  public void testElementType() {
+    UMLTypeClassifier classifier = UMLTypeClassifier.defaults();
+
+    assertEquals("Item", classifier.elementType("List<Item>"));
+    assertEquals("Item", classifier.elementType("Map<String, Item>"));
+    assertEquals("Item", classifier.elementType("Map<Key<A, B>, List<? extends Item>>"));
+    assertEquals("Item[]", classifier.elementType("Optional<Item[]>"));
+    assertNull(classifier.elementType("List"));
+    assertNull(classifier.elementType("List<?>"));
+    assertNull(classifier.elementType("Item"));
+  }
+
+  /** Verifica che la tabella si possa estendere con wrapper dell'utente e ridefinire. */
+  @Test
+  public void testConfigurableTable() {
+    UMLTypeClassifier classifier =
+        UMLTypeClassifier.builder().add("wrapper:1 Either Lazy").add("value Optional").build();
+
+    assertEquals("Right", classifier.elementType("Either<Left, Right>"));
+    assertEquals("1", classifier.lookup("Lazy<Item>").getMultiplicity());
+    assertTrue(classifier.isValueType("Optional"));
+    assertNotEquals(UMLTypeClassifier.defaults().fingerprint(), classifier.fingerprint());
+
+    try {
+      UMLTypeClassifier.builder().add("container List");
+      fail();
+    } catch (IllegalArgumentException e) {
+      // La posizione dell'elemento è obbligatoria per i contenitori
+    }
+  }
+}
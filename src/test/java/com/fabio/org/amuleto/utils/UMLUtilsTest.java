@@ -2,6 +2,8 @@ package com.fabio.org.amuleto.utils;
 
 import static org.junit.Assert.*;
 
+import com.github.javaparser.StaticJavaParser;
+import com.github.javaparser.ast.type.Type;
 import org.junit.Test;
 
 public class UMLUtilsTest {
@@ -53,4 +55,23 @@ public class UMLUtilsTest {
     // Dovrebbero essere creati casi di test che verificano visibilità di campo
     // con modificatori come pubblico, privato, protetto, ecc.
   }
+
+  /** Verifica che la scrittura diretta dei tipi coincida con il pretty printer di JavaParser. */
+  @Test
+  public void testGetTypeStringMatchesPrettyPrinter() {
+    String[] types = {
+      "int",
+      "java.util.Map<String, List<? extends Item>>",
+      "Outer.Inner<?>",
+      "Comparator<? super T>",
+      "List<int[]>",
+      "@NonNull Item",
+      "Map.Entry<K, V>"
+    };
+    for (String source : types) {
+      Type type = StaticJavaParser.parseType(source);
+      assertEquals(type.toString(), UMLUtils.getTypeString(type));
+    }
+    assertEquals("Item[][]", UMLUtils.getTypeString(StaticJavaParser.parseType("Item[][]")));
+  }
 }